@@ -0,0 +1,25 @@
+import cli.ConversionServer;
+import cli.DrawingTurtlesCli;
+import cli.ShardedGeneration;
+import cli.WatchFolderDaemon;
+import javafx.application.Application;
+
+/**
+ * The entry point of DrawingTurtles.jar: runs a command without the user interface if one is given, or opens the
+ *    application otherwise.
+ * Unlike {@link Main}, this does not extend Application, so the Java launcher does not start the JavaFX toolkit
+ *    before main runs, and the commands work on a machine without a display (or without JavaFX at all).
+ */
+public class Launcher {
+
+    public static void main(String[] args) {
+        String command = args.length > 0 ? args[0] : "";
+        switch (command) {
+            case "generate": System.exit(DrawingTurtlesCli.run(args));
+            case "watch":    System.exit(WatchFolderDaemon.run(args));
+            case "serve":    System.exit(ConversionServer.run(args));
+            case "shard":    System.exit(ShardedGeneration.run(args));
+            default:         Application.launch(Main.class, args);
+        }
+    }
+}
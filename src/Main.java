@@ -15,6 +15,10 @@ public class Main extends Application {
     }
 
 
+    /**
+     * Opens the application. The commands that run without the user interface are started by {@link Launcher}, the
+     *    entry point of the jar, as the JavaFX toolkit is started before this runs.
+     */
     public static void main(String[] args) {
         launch(args);
     }
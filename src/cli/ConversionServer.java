@@ -0,0 +1,491 @@
+package cli;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import model.conceptual.Edge;
+import model.conceptual.Vertex;
+import model.conversion.gat.FromGatConverter;
+import model.conversion.ttl.Converter;
+import model.dataintegration.CorrelationProfile;
+import model.dataintegration.DataIntegrator;
+import model.dataintegration.ExternalSortDeduplicator;
+import model.dataintegration.Row;
+import model.dataintegration.flow.GenerationPipeline;
+import model.dataintegration.flow.ValidationStage;
+import model.rendering.Java2DGraphRenderer;
+import model.rendering.SvgGraphRenderer;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Serves conversions over HTTP to other services on the same host, without the user interface:
+ *
+ *    serve [--port 8080] [--host 127.0.0.1] [--prefixes prefixes.txt] [--profiles dir]
+ *
+ *    POST /graphs                   a .gat; answers the id of the graph, for the requests below.
+ *    POST /ttl, /svg, /png          a .gat; answers the ontology as Turtle, or the graph as an image.
+ *    GET  /ttl/{id}, /svg/{id}, /png/{id}
+ *                                   the same, for a graph already posted.
+ *    POST /generate/{id}            a .csv; answers its instance-level Turtle, generated against the graph.
+ *
+ * /ttl takes the options of the Options menu as query parameters (collections, blank, ontology), /png a scale, and
+ *    /generate compact, group, ntriples, dedupe (with ntriples) and strict, which refuses values not valid for the
+ *    datatypes of their literals. The headers of a .csv are correlated by the saved correlations of the
+ *    headers and graph, as in the command line.
+ * A graph is parsed once and kept by the SHA-256 hash of its .gat, its id, so repeat requests with the same graph skip
+ *    parsing it. Request and response bodies are streamed, so a request holds little more than its graph in memory
+ *    however large its .csv. Requests run on virtual threads where the Java runtime has them.
+ */
+public class ConversionServer {
+    private static final Logger LOGGER = Logger.getLogger(ConversionServer.class.getName());
+    private static final int OK = 0, USAGE = 1, FAILED = 2;
+
+    // how long requests under way are given to finish when the server is stopped.
+    private static final int STOP_GRACE_SECONDS = 10;
+
+    // the most values not valid for their datatypes described, when a strict generation is stopped.
+    private static final int MAX_SHOWN_INVALID_VALUES = 1;
+
+    // the most graphs kept parsed, and the largest .gat accepted.
+    private static final int MAX_CACHED_GRAPHS = 64;
+    private static final int MAX_GRAPH_BYTES = 16 << 20;
+
+    // how much of a response is held back, so a failure early on can still be answered with an error status.
+    private static final int RESPONSE_BUFFER = 64 << 10;
+
+    private static final String USAGE_TEXT =
+            "Usage: serve [options]\n" +
+            "  --port <port>      the port to listen on (default 8080)\n" +
+            "  --host <address>   the address to listen on (default 127.0.0.1, only this host)\n" +
+            "  --prefixes <file>  prefixes, one '<acronym> : <expansion>' per line, as saved by the Prefixes menu\n" +
+            "  --profiles <dir>   where saved correlations are kept (default " +
+                    CorrelationProfile.getDefaultDirectory() + ")\n";
+
+    /**
+     * A parsed graph, ready to convert.
+     */
+    private static final class GraphPlan {
+        private final ArrayList<Vertex> classes;
+        private final ArrayList<Edge> properties;
+        private final double width, height;
+
+        private GraphPlan(FromGatConverter binder) {
+            this.classes = binder.getClasses();
+            this.properties = binder.getProperties();
+            this.width = binder.getCanvasWidth();
+            this.height = binder.getCanvasHeight();
+        }
+    }
+
+    /**
+     * An error to answer a request with.
+     */
+    private static final class HttpError extends Exception {
+        private final int status;
+
+        private HttpError(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+
+    private final Map<String, String> prefixes;
+    private final Path profileDirectory;
+    private final Map<String, GraphPlan> plans = new LinkedHashMap<String, GraphPlan>(16, 0.75f, true) {
+        @Override protected boolean removeEldestEntry(Map.Entry<String, GraphPlan> eldest) {
+            return size() > MAX_CACHED_GRAPHS;
+        }
+    };
+
+    private ConversionServer(Map<String, String> prefixes, Path profileDirectory) {
+        this.prefixes = prefixes;
+        this.profileDirectory = profileDirectory;
+    }
+
+    /**
+     * Runs the server until the process is stopped.
+     * @param args the command and its arguments.
+     * @return the exit status: 0 once stopped, 1 if the arguments are wrong, and 2 if the server could not be started.
+     */
+    public static int run(String[] args) {
+        int port = 8080;
+        String host = "127.0.0.1";
+        Path prefixFile = null, profileDirectory = CorrelationProfile.getDefaultDirectory();
+        try {
+            for (int i = 1; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--port":     port = Integer.parseInt(args[++i]); break;
+                    case "--host":     host = args[++i]; break;
+                    case "--prefixes": prefixFile = Paths.get(args[++i]); break;
+                    case "--profiles": profileDirectory = Paths.get(args[++i]); break;
+                    default:
+                        System.err.print("Unknown option " + args[i] + "\n" + USAGE_TEXT);
+                        return USAGE;
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException | NumberFormatException e) {
+            System.err.print(USAGE_TEXT);
+            return USAGE;
+        }
+
+        try {
+            ConversionServer server = new ConversionServer(DrawingTurtlesCli.loadPrefixes(prefixFile), profileDirectory);
+            HttpServer http = HttpServer.create(new InetSocketAddress(host, port), 0);
+            http.createContext("/", server::handle);
+            http.setExecutor(newRequestExecutor());
+            CountDownLatch stopped = new CountDownLatch(1);
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                http.stop(STOP_GRACE_SECONDS);
+                stopped.countDown();
+            }, "serve-shutdown"));
+            http.start();
+            LOGGER.info("Serving conversions on http://" + host + ":" + port + "/");
+            stopped.await();
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Starting the server failed: ", e);
+            return FAILED;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return OK;
+    }
+
+    public static void main(String[] args) {
+        System.exit(run(args));
+    }
+
+    /**
+     * @return an executor that runs each request on a virtual thread of its own, or where the Java runtime has no
+     *    virtual threads (before Java 21), on a pool of daemon threads.
+     */
+    static ExecutorService newRequestExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            LOGGER.info("Virtual threads are not available, so requests run on platform threads.");
+            return Executors.newCachedThreadPool(task -> {
+                Thread thread = new Thread(task, "conversion-request");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /**
+     * Routes a request to its conversion, answering any failure with an error status and message. A failure after the
+     *    response has begun can no longer be answered, so the connection is dropped instead, leaving the response
+     *    visibly cut off rather than ending it as if it were whole.
+     * @throws IOException if the response failed after it began, for the server to drop the connection; closing the
+     *    exchange would end a chunked response with its final chunk.
+     */
+    private void handle(HttpExchange ex) throws IOException {
+        try {
+            String[] path = ex.getRequestURI().getPath().replaceAll("^/|/$", "").split("/");
+            Map<String, String> query = parseQuery(ex.getRequestURI());
+            String method = ex.getRequestMethod();
+            String id = path.length > 1 ? path[1] : null;
+
+            try {
+                switch (path[0]) {
+                    case "graphs":
+                        requireMethod(method, "POST");
+                        respond(ex, 200, "text/plain; charset=utf-8", postGraph(ex) + "\n");
+                        break;
+                    case "ttl":
+                        serveTtl(ex, planFor(ex, method, id), query);
+                        break;
+                    case "svg":
+                        serveSvg(ex, planFor(ex, method, id));
+                        break;
+                    case "png":
+                        servePng(ex, planFor(ex, method, id), query);
+                        break;
+                    case "generate":
+                        requireMethod(method, "POST");
+                        if (id == null) throw new HttpError(404, "POST /generate/{id}, with the id from POST /graphs");
+                        serveGenerate(ex, cachedPlan(id), query);
+                        break;
+                    default:
+                        throw new HttpError(404, "No such conversion: " + ex.getRequestURI().getPath());
+                }
+            } catch (HttpError e) {
+                respond(ex, e.status, "text/plain; charset=utf-8", e.getMessage() + "\n");
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.SEVERE, "A conversion failed: ", e);
+                if (ex.getResponseCode() >= 0)
+                    throw new IOException("the conversion failed after the response began", e);
+                respond(ex, 500, "text/plain; charset=utf-8", "The conversion failed: " + e + "\n");
+            }
+        } catch (IOException e) {
+            if (ex.getResponseCode() >= 0) {
+                LOGGER.log(Level.WARNING, "A response was cut off: ", e);
+                throw e;
+            }
+            // the client has gone before a response began; there is no one left to tell.
+            LOGGER.log(Level.FINE, "A response could not be completed: ", e);
+        }
+        ex.close();
+    }
+
+    /**
+     * Parses the .gat of a request, or finds it among those already parsed.
+     * @return the id of the graph.
+     */
+    private String postGraph(HttpExchange ex) throws IOException, HttpError {
+        byte[] gat = readGraph(ex.getRequestBody());
+        String id = hash(gat);
+        planFor(id, gat);
+        return id;
+    }
+
+    private GraphPlan planFor(HttpExchange ex, String method, String id) throws IOException, HttpError {
+        if (id != null) {
+            requireMethod(method, "GET");
+            return cachedPlan(id);
+        }
+        requireMethod(method, "POST");
+        byte[] gat = readGraph(ex.getRequestBody());
+        return planFor(hash(gat), gat);
+    }
+
+    private GraphPlan cachedPlan(String id) throws HttpError {
+        GraphPlan plan;
+        synchronized (plans) {
+            plan = plans.get(id);
+        }
+        if (plan == null) throw new HttpError(404, "No graph " + id + "; POST it to /graphs again.");
+        return plan;
+    }
+
+    /**
+     * @return the parsed graph of a .gat, parsing it only if it has not been already.
+     */
+    private GraphPlan planFor(String id, byte[] gat) throws HttpError {
+        synchronized (plans) {
+            GraphPlan plan = plans.get(id);
+            if (plan != null) return plan;
+        }
+
+        GraphPlan plan;
+        try {
+            FromGatConverter binder = new FromGatConverter(new String(gat, StandardCharsets.UTF_8));
+            binder.bindGraph();
+            plan = new GraphPlan(binder);
+        } catch (FromGatConverter.PropertyElemMissingException | Vertex.UndefinedElementTypeException |
+                RuntimeException e) {
+            throw new HttpError(400, "The graph could not be read: " + e);
+        }
+        synchronized (plans) {
+            plans.putIfAbsent(id, plan);
+            return plans.get(id);
+        }
+    }
+
+    private void serveTtl(HttpExchange ex, GraphPlan plan, Map<String, String> query) throws IOException {
+        ArrayList<Boolean> config = new ArrayList<>(Arrays.asList(
+                query.containsKey("collections"), query.containsKey("blank"), query.containsKey("ontology"),
+                false, false, false));
+
+        // the Converter keeps its state in static fields, so only one conversion runs through it at a time.
+        String ttl;
+        synchronized (Converter.class) {
+            ttl = Converter.convertGraphToTtlString(prefixes, plan.classes, plan.properties, config);
+        }
+        respond(ex, 200, "text/turtle; charset=utf-8", ttl);
+    }
+
+    private void serveSvg(HttpExchange ex, GraphPlan plan) throws IOException {
+        ex.getResponseHeaders().set("Content-Type", "image/svg+xml; charset=utf-8");
+        ex.sendResponseHeaders(200, 0);
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(ex.getResponseBody(), StandardCharsets.UTF_8))) {
+            SvgGraphRenderer.writeSvg(plan.classes, plan.properties, plan.width, plan.height, writer);
+        }
+    }
+
+    private void servePng(HttpExchange ex, GraphPlan plan, Map<String, String> query) throws IOException, HttpError {
+        double scale;
+        try {
+            scale = Double.parseDouble(query.getOrDefault("scale", "1"));
+        } catch (NumberFormatException e) {
+            throw new HttpError(400, "scale must be a number");
+        }
+        if (!(scale > 0 && scale <= 8)) throw new HttpError(400, "scale must be above 0 and at most 8");
+
+        ex.getResponseHeaders().set("Content-Type", "image/png");
+        ex.sendResponseHeaders(200, 0);
+        Java2DGraphRenderer.writePng(plan.classes, plan.properties, plan.width, plan.height, scale,
+                new BufferedOutputStream(ex.getResponseBody()));
+    }
+
+    /**
+     * Generates the instance-level Turtle of the .csv in the request body against a graph, reading records from the
+     *    request as the triples of earlier ones are written to the response.
+     */
+    private void serveGenerate(HttpExchange ex, GraphPlan plan, Map<String, String> query)
+            throws IOException, HttpError {
+        Reader reader = new BufferedReader(new InputStreamReader(ex.getRequestBody(), StandardCharsets.UTF_8));
+        try (CSVParser parser = CSVFormat.DEFAULT.withFirstRecordAsHeader().parse(reader)) {
+            Map<String, Integer> headers = parser.getHeaderMap();
+            if (headers == null) throw new HttpError(400, "The .csv has no header row.");
+
+            Iterable<Row> rows = Row.of(parser);
+            DataIntegrator dataIntegrator = new DataIntegrator(headers, rows, plan.classes, prefixes);
+            dataIntegrator.setCompactIris(query.containsKey("compact") || query.containsKey("group"));
+            dataIntegrator.setGroupBySubject(query.containsKey("group"));
+            dataIntegrator.setNTriples(query.containsKey("ntriples"));
+
+            String fingerprint = CorrelationProfile.fingerprint(headers, plan.classes);
+            CorrelationProfile profile = CorrelationProfile.load(profileDirectory, fingerprint);
+            if (profile == null || !profile.applyTo(dataIntegrator, plan.classes)) {
+                dataIntegrator.attemptCorrelationOfHeaders();
+                if (dataIntegrator.needsReview())
+                    throw new HttpError(422, "No saved correlations for " + fingerprint + ", and these could not be " +
+                            "correlated: " + dataIntegrator.uncorrelatedToString() + ".");
+            }
+
+            // records are only read from the request as fast as the client takes the response.
+            GenerationPipeline pipeline = new GenerationPipeline(dataIntegrator);
+            pipeline.setValidation(MAX_SHOWN_INVALID_VALUES, query.containsKey("strict"));
+            if (query.containsKey("ntriples") && query.containsKey("dedupe"))
+                pipeline.setDeduplication(ExternalSortDeduplicator.DEFAULT_MEMORY_BUDGET, null);
+
+            ex.getResponseHeaders().set("Content-Type",
+                    query.containsKey("ntriples") ? "application/n-triples; charset=utf-8" : "text/turtle; charset=utf-8");
+            DeferredResponse body = new DeferredResponse(ex);
+            Writer writer = new OutputStreamWriter(body, StandardCharsets.UTF_8);
+            try {
+                pipeline.run(rows, writer);
+                writer.flush();
+            } catch (DataIntegrator.PrefixMissingException e) {
+                if (body.isCommitted()) throw new IOException("generation failed after the response began", e);
+                throw new HttpError(422, "'" + e.getMissing() + "' is referenced in the graph but not defined in " +
+                        "the prefixes.");
+            } catch (ValidationStage.InvalidValuesException e) {
+                if (body.isCommitted()) throw new IOException("generation failed after the response began", e);
+                throw new HttpError(422, "A value is not valid for its datatype: " + e.getMessage());
+            } catch (IOException e) {
+                // before the response began, the failure can only have been in reading the request.
+                if (body.isCommitted()) throw e;
+                throw new HttpError(400, "The .csv could not be read: " + e.getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("interrupted while generating", e);
+            }
+            body.finish();
+        }
+    }
+
+    /**
+     * The body of a response, held back until it outgrows {@link #RESPONSE_BUFFER}, so that a failure in the first
+     *    part of a conversion can still be answered with an error rather than a cut-off success. Small responses are
+     *    sent with their length; larger ones are streamed in chunks.
+     */
+    private static final class DeferredResponse extends OutputStream {
+        private final HttpExchange ex;
+        private ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        private OutputStream body;
+
+        private DeferredResponse(HttpExchange ex) { this.ex = ex; }
+
+        private boolean isCommitted() { return body != null; }
+
+        @Override public void write(int b) throws IOException {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override public void write(byte[] bytes, int offset, int length) throws IOException {
+            if (body != null) {
+                body.write(bytes, offset, length);
+                return;
+            }
+            buffer.write(bytes, offset, length);
+            if (buffer.size() > RESPONSE_BUFFER) {
+                ex.sendResponseHeaders(200, 0);
+                body = ex.getResponseBody();
+                buffer.writeTo(body);
+                buffer = null;
+            }
+        }
+
+        @Override public void flush() throws IOException {
+            if (body != null) body.flush();
+        }
+
+        /**
+         * Ends a successful response, sending a held-back body with its length. A failed response is never finished:
+         *    an error is answered instead, or once the body is committed, the connection is dropped.
+         */
+        private void finish() throws IOException {
+            if (body == null) {
+                byte[] bytes = buffer.toByteArray();
+                ex.sendResponseHeaders(200, bytes.length == 0 ? -1 : bytes.length);
+                body = ex.getResponseBody();
+                body.write(bytes);
+            }
+            body.close();
+        }
+    }
+
+    private static byte[] readGraph(InputStream in) throws IOException, HttpError {
+        ByteArrayOutputStream gat = new ByteArrayOutputStream();
+        byte[] chunk = new byte[8192];
+        int read;
+        while ((read = in.read(chunk)) > 0) {
+            gat.write(chunk, 0, read);
+            if (gat.size() > MAX_GRAPH_BYTES) throw new HttpError(413, "The graph is larger than 16 MiB.");
+        }
+        return gat.toByteArray();
+    }
+
+    private static String hash(byte[] gat) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+        StringBuilder hex = new StringBuilder();
+        for (byte b : digest.digest(gat)) hex.append(String.format("%02x", b));
+        return hex.toString();
+    }
+
+    private static void requireMethod(String method, String allowed) throws HttpError {
+        if (!method.equals(allowed)) throw new HttpError(405, "Use " + allowed + ".");
+    }
+
+    private static Map<String, String> parseQuery(URI uri) {
+        Map<String, String> query = new HashMap<>();
+        if (uri.getQuery() == null) return query;
+        for (String parameter : uri.getQuery().split("&")) {
+            if (parameter.isEmpty()) continue;
+            int equals = parameter.indexOf('=');
+            if (equals < 0) query.put(parameter, "");
+            else query.put(parameter.substring(0, equals), parameter.substring(equals + 1));
+        }
+        return query;
+    }
+
+    private static void respond(HttpExchange ex, int status, String contentType, String text) throws IOException {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        ex.getResponseHeaders().set("Content-Type", contentType);
+        ex.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+        try (OutputStream body = ex.getResponseBody()) {
+            body.write(bytes);
+        }
+    }
+}
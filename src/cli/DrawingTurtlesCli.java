@@ -0,0 +1,398 @@
+package cli;
+
+import model.conceptual.Vertex;
+import model.conversion.gat.FromGatConverter;
+import model.dataintegration.ColumnProfiler;
+import model.dataintegration.CorrelationProfile;
+import model.dataintegration.DataIntegrator;
+import model.dataintegration.ExternalSortDeduplicator;
+import model.dataintegration.Row;
+import model.dataintegration.ShardManifest;
+import model.dataintegration.TailCheckpoint;
+import model.dataintegration.flow.GenerationPipeline;
+import model.dataintegration.flow.ValidationStage;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Generates instance-level Turtle without the user interface, for scheduled runs over data whose headers have already
+ *    been correlated with the graph once in the application:
+ *
+ *    generate graph.gat data.csv out.ttl [--prefixes prefixes.txt] [--profiles dir] [--compact] [--group]
+ *        [--strict] [--dedupe [--memory MiB] | --tail | --shard k]
+ *
+ * The saved correlations of the headers and graph are applied; if there are none, only the headers that match the
+ *    names in the graph can be correlated, and the run fails if any are left over or only matched by similarity.
+ */
+public class DrawingTurtlesCli {
+    private static final int OK = 0, USAGE = 1, FAILED = 2, UNCORRELATED = 3;
+
+    // the most values not valid for their datatypes that are described.
+    private static final int MAX_SHOWN_INVALID_VALUES = 10;
+
+    private static final String USAGE_TEXT =
+            "Usage: generate <graph.gat> <data.csv> <out.ttl> [options]\n" +
+            "  --prefixes <file>  prefixes, one '<acronym> : <expansion>' per line, as saved by the Prefixes menu\n" +
+            "  --profiles <dir>   where saved correlations are kept (default " +
+                    CorrelationProfile.getDefaultDirectory() + ")\n" +
+            "  --compact          compact IRIs to prefixed names\n" +
+            "  --group            group triples by subject (implies --compact)\n" +
+            "  --strict           stop at the first value not valid for the datatype of its literal\n" +
+            "  --dedupe           write sorted, distinct N-Triples (ignores --compact and --group)\n" +
+            "  --tail             only generate the records appended since the last --tail run, appending to the\n" +
+            "                     output (a checkpoint is kept beside it)\n" +
+            "  --shard <k>        only generate shard k of the manifest beside the output, into its part (run by\n" +
+            "                     the shard command)\n" +
+            "  --memory <MiB>     memory for sorting before spilling to temporary files (default " +
+                    (ExternalSortDeduplicator.DEFAULT_MEMORY_BUDGET >> 20) + ")\n";
+
+    /**
+     * Runs a command.
+     * @param args the command and its arguments.
+     * @return the exit status: 0 on success, 1 if the arguments are wrong, 2 if generation failed, and 3 if the headers
+     *    could not all be correlated.
+     */
+    public static int run(String[] args) {
+        return run(args, System.out, System.err);
+    }
+
+    static int run(String[] args, PrintStream out, PrintStream err) {
+        if (args.length < 4 || !args[0].equals("generate")) {
+            err.print(USAGE_TEXT);
+            return USAGE;
+        }
+
+        Path graphFile = Paths.get(args[1]), csvFile = Paths.get(args[2]), outFile = Paths.get(args[3]);
+        Path prefixFile = null, profileDirectory = CorrelationProfile.getDefaultDirectory();
+        boolean compact = false, group = false, dedupe = false, tail = false, strict = false;
+        int shard = -1;
+        long memoryBudget = ExternalSortDeduplicator.DEFAULT_MEMORY_BUDGET;
+        for (int i = 4; i < args.length; i++) {
+            switch (args[i]) {
+                case "--prefixes":
+                    if (++i == args.length) { err.print(USAGE_TEXT); return USAGE; }
+                    prefixFile = Paths.get(args[i]);
+                    break;
+                case "--profiles":
+                    if (++i == args.length) { err.print(USAGE_TEXT); return USAGE; }
+                    profileDirectory = Paths.get(args[i]);
+                    break;
+                case "--compact": compact = true; break;
+                case "--group":   group = true; break;
+                case "--dedupe":  dedupe = true; break;
+                case "--tail":    tail = true; break;
+                case "--strict":  strict = true; break;
+                case "--shard":
+                    if (++i == args.length) { err.print(USAGE_TEXT); return USAGE; }
+                    try {
+                        shard = Integer.parseInt(args[i]);
+                    } catch (NumberFormatException e) {
+                        err.print("--shard takes the index of a shard\n" + USAGE_TEXT);
+                        return USAGE;
+                    }
+                    break;
+                case "--memory":
+                    if (++i == args.length) { err.print(USAGE_TEXT); return USAGE; }
+                    try {
+                        memoryBudget = Long.parseLong(args[i]) << 20;
+                    } catch (NumberFormatException e) {
+                        err.print("--memory takes a whole number of MiB\n" + USAGE_TEXT);
+                        return USAGE;
+                    }
+                    break;
+                default:
+                    err.print("Unknown option " + args[i] + "\n" + USAGE_TEXT);
+                    return USAGE;
+            }
+        }
+
+        if (tail && dedupe) {
+            err.print("--tail appends to the output, so it can not be used with --dedupe\n" + USAGE_TEXT);
+            return USAGE;
+        }
+        if (shard >= 0 && (tail || dedupe)) {
+            err.print("--shard can not be used with --tail or --dedupe\n" + USAGE_TEXT);
+            return USAGE;
+        }
+
+        try {
+            FromGatConverter binder = new FromGatConverter(new String(Files.readAllBytes(graphFile), StandardCharsets.UTF_8));
+            binder.bindGraph();
+            ArrayList<Vertex> classes = binder.getClasses();
+            Map<String, String> prefixes = loadPrefixes(prefixFile);
+            if (tail)
+                return runTail(csvFile, outFile, classes, prefixes, profileDirectory, compact, group, strict, out, err);
+            if (shard >= 0)
+                return runShard(csvFile, outFile, shard, classes, prefixes, profileDirectory, compact, group, strict,
+                        out, err);
+
+            try (Reader reader = Files.newBufferedReader(csvFile, StandardCharsets.UTF_8);
+                 CSVParser parser = CSVFormat.DEFAULT.withFirstRecordAsHeader().parse(reader)) {
+                Map<String, Integer> headers = parser.getHeaderMap();
+                Iterable<Row> rows = Row.of(parser);
+                DataIntegrator dataIntegrator = new DataIntegrator(headers, rows, classes, prefixes);
+                dataIntegrator.setCompactIris(compact || group);
+                dataIntegrator.setGroupBySubject(group);
+                dataIntegrator.setNTriples(dedupe);
+                if (!correlate(dataIntegrator, headers, classes, profileDirectory, out, err)) return UNCORRELATED;
+
+                GenerationPipeline pipeline = new GenerationPipeline(dataIntegrator);
+                if (dedupe) pipeline.setDeduplication(memoryBudget, null);
+                int status;
+                try (Writer writer = Files.newBufferedWriter(outFile, StandardCharsets.UTF_8)) {
+                    status = runPipeline(pipeline, rows, writer, strict, err);
+                }
+                if (status != OK) {
+                    Files.deleteIfExists(outFile);
+                    return status;
+                }
+                if (dedupe) out.println(pipeline.dedupeToString());
+            }
+        } catch (IOException e) {
+            err.println("Generation failed: " + e);
+            return FAILED;
+        } catch (FromGatConverter.PropertyElemMissingException | Vertex.UndefinedElementTypeException e) {
+            err.println("Reading the graph failed: " + e);
+            return FAILED;
+        }
+
+        out.println("Wrote " + outFile + ".");
+        return OK;
+    }
+
+    /**
+     * Generates only the records appended to the .csv since the last run, appending them to the output. The first run,
+     *    or a run after the header row or graph has changed, generates the whole .csv afresh.
+     * Only the new bytes of the .csv are read, up to the end of its last complete record.
+     * @return the exit status.
+     */
+    private static int runTail(Path csvFile, Path outFile, ArrayList<Vertex> classes, Map<String, String> prefixes,
+                               Path profileDirectory, boolean compact, boolean group, boolean strict,
+                               PrintStream out, PrintStream err) throws IOException {
+        long headerEnd = TailCheckpoint.findHeaderEnd(csvFile);
+        Map<String, Integer> headers = readHeaders(csvFile, headerEnd);
+        String fingerprint = CorrelationProfile.fingerprint(headers, classes);
+
+        TailCheckpoint checkpoint = TailCheckpoint.load(outFile);
+        boolean fresh = checkpoint == null || !checkpoint.canResume(fingerprint, csvFile, outFile);
+        if (fresh) checkpoint = new TailCheckpoint(fingerprint, headerEnd, 0, 0, 0);
+
+        long end = TailCheckpoint.findLastRecordEnd(csvFile, checkpoint.getCsvOffset());
+        if (!fresh && end == checkpoint.getCsvOffset()) {
+            out.println("No new records since record " + checkpoint.getRecords() + ".");
+            return OK;
+        }
+
+        long records;
+        DataIntegrator dataIntegrator;
+        // the new records are streamed from the parser into the pipeline, so a large first run or a long tail is
+        //    never held in memory.
+        try (CSVParser parser = parseRange(csvFile, headers, checkpoint.getCsvOffset(), end)) {
+            Iterable<Row> rows = Row.of(parser);
+            dataIntegrator = new DataIntegrator(headers, rows, classes, prefixes);
+            dataIntegrator.setCompactIris(compact || group);
+            dataIntegrator.setGroupBySubject(group);
+            if (!correlate(dataIntegrator, headers, classes, profileDirectory, out, err)) return UNCORRELATED;
+
+            // carries the blank node numbering on from the last run, so appended blank nodes do not reuse labels.
+            dataIntegrator.setBlankNodePermutation(checkpoint.getBlankNodePermutation());
+            GenerationPipeline pipeline = new GenerationPipeline(dataIntegrator);
+            pipeline.setWithPrefixes(fresh);
+            try (Writer writer = new BufferedWriter(new OutputStreamWriter(checkpoint.openForAppend(outFile),
+                    StandardCharsets.UTF_8))) {
+                // a failed run leaves the checkpoint as it was, so the next run cuts off what this one appended.
+                int status = runPipeline(pipeline, rows, writer, strict, err);
+                if (status != OK) return status;
+            }
+            records = parser.getRecordNumber();
+        }
+
+        checkpoint = checkpoint.advance(end, records, dataIntegrator.getBlankNodePermutation(),
+                Files.size(outFile));
+        checkpoint.save(outFile);
+        out.println((fresh ? "Wrote " : "Appended ") + records + " records to " + outFile + ", " +
+                checkpoint.getRecords() + " in all.");
+        return OK;
+    }
+
+    /**
+     * Generates one shard of a .csv split by the shard command into the part of the output it is written to, reading
+     *    only the bytes of the shard. The blank nodes are numbered on from the records of the shards before, and only
+     *    the first part begins with the prefix declarations, so the parts concatenated in order are the output of a
+     *    single run.
+     * @return the exit status.
+     */
+    private static int runShard(Path csvFile, Path outFile, int index, ArrayList<Vertex> classes,
+                                Map<String, String> prefixes, Path profileDirectory, boolean compact, boolean group,
+                                boolean strict, PrintStream out, PrintStream err) throws IOException {
+        ShardManifest manifest = ShardManifest.load(outFile);
+        if (index >= manifest.getShards().size()) {
+            err.println("There is no shard " + index + "; the manifest has " + manifest.getShards().size() + ".");
+            return USAGE;
+        }
+        if (!manifest.matches(csvFile)) {
+            err.println(csvFile + " has changed since it was split into shards.");
+            return FAILED;
+        }
+
+        ShardManifest.Shard shard = manifest.getShards().get(index);
+        Map<String, Integer> headers = readHeaders(csvFile, manifest.getHeaderEnd());
+        Path part = ShardManifest.partFor(outFile, index);
+        try (CSVParser parser = parseRange(csvFile, headers, shard.getFrom(), shard.getTo())) {
+            Iterable<Row> rows = Row.of(parser);
+            DataIntegrator dataIntegrator = new DataIntegrator(headers, rows, classes, prefixes);
+            dataIntegrator.setCompactIris(compact || group);
+            dataIntegrator.setGroupBySubject(group);
+            if (!correlate(dataIntegrator, headers, classes, profileDirectory, out, err)) return UNCORRELATED;
+
+            dataIntegrator.setBlankNodePermutation(shard.getFirstRecord());
+            GenerationPipeline pipeline = new GenerationPipeline(dataIntegrator);
+            pipeline.setWithPrefixes(index == 0);
+            int status;
+            try (Writer writer = Files.newBufferedWriter(part, StandardCharsets.UTF_8)) {
+                status = runPipeline(pipeline, rows, writer, strict, err);
+            }
+            if (status != OK) {
+                Files.deleteIfExists(part);
+                return status;
+            }
+
+            // a miscounted shard would number its blank nodes into those of the next.
+            if (parser.getRecordNumber() != shard.getRecords()) {
+                Files.deleteIfExists(part);
+                err.println("Shard " + index + " has " + parser.getRecordNumber() + " records, not the " +
+                        shard.getRecords() + " planned.");
+                return FAILED;
+            }
+        }
+
+        out.println("Wrote " + shard.getRecords() + " records to " + part + ".");
+        return OK;
+    }
+
+    /**
+     * Generates records through a pipeline that checks their values on the way, reporting the values not valid for
+     *    their datatypes.
+     * @param strict whether to stop at the first value not valid for its datatype.
+     * @return the exit status.
+     * @throws IOException if writing the instance-level data fails, or a record can not be read.
+     */
+    private static int runPipeline(GenerationPipeline pipeline, Iterable<? extends Row> records, Writer writer,
+                                   boolean strict, PrintStream err) throws IOException {
+        pipeline.setValidation(MAX_SHOWN_INVALID_VALUES, strict);
+        try {
+            pipeline.run(records, writer);
+        } catch (DataIntegrator.PrefixMissingException e) {
+            err.println("'" + e.getMissing() + "' is referenced in the graph but not defined in the prefixes.");
+            return FAILED;
+        } catch (ValidationStage.InvalidValuesException e) {
+            err.println("Stopped at a value not valid for its datatype: " + e.getMessage());
+            return FAILED;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            err.println("Interrupted while generating.");
+            return FAILED;
+        }
+
+        ColumnProfiler.ValidationReport report = pipeline.getValidationReport();
+        if (report.getInvalid() > 0) {
+            err.println(report.getInvalid() + " of " + report.getChecked() + " values are not valid for their " +
+                    "datatypes, such as:");
+            for (String error : report.getErrors()) err.println("  " + error);
+        }
+        return OK;
+    }
+
+    /**
+     * @param csvFile the .csv.
+     * @param headerEnd the offset of the end of the header row.
+     * @return the headers of the .csv, read from its header row alone.
+     * @throws IOException if the .csv can not be read.
+     */
+    static Map<String, Integer> readHeaders(Path csvFile, long headerEnd) throws IOException {
+        try (Reader reader = new InputStreamReader(TailCheckpoint.openRange(csvFile, 0, headerEnd),
+                StandardCharsets.UTF_8);
+             CSVParser parser = CSVFormat.DEFAULT.withFirstRecordAsHeader().parse(reader)) {
+            return parser.getHeaderMap();
+        }
+    }
+
+    /**
+     * @return a parser of the records between two record boundaries of a .csv, named by the headers of its header row.
+     */
+    private static CSVParser parseRange(Path csvFile, Map<String, Integer> headers, long from, long to)
+            throws IOException {
+        String[] columns = new String[headers.size()];
+        headers.forEach((header, index) -> columns[index] = header);
+        Reader reader = new InputStreamReader(TailCheckpoint.openRange(csvFile, from, to), StandardCharsets.UTF_8);
+        return CSVFormat.DEFAULT.withHeader(columns).parse(new BufferedReader(reader));
+    }
+
+    /**
+     * Applies the saved correlations of the headers and graph, or failing that, correlates the headers that match.
+     * @return whether every header is correlated.
+     */
+    static boolean correlate(DataIntegrator dataIntegrator, Map<String, Integer> headers,
+                                     ArrayList<Vertex> classes, Path profileDirectory, PrintStream out,
+                                     PrintStream err) throws IOException {
+        String fingerprint = CorrelationProfile.fingerprint(headers, classes);
+        CorrelationProfile profile = CorrelationProfile.load(profileDirectory, fingerprint);
+        if (profile != null && profile.applyTo(dataIntegrator, classes)) {
+            out.println("Applied saved correlations " + fingerprint + ".");
+            return true;
+        }
+
+        dataIntegrator.attemptCorrelationOfHeaders();
+        if (dataIntegrator.needsReview()) {
+            err.println("No saved correlations for " + fingerprint + ", and these could not be correlated: " +
+                    dataIntegrator.uncorrelatedToString() + ", with these proposed: " +
+                    dataIntegrator.getCorrelations() + ". Correlate them once in the application.");
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Reads prefixes saved by the Prefixes menu, on top of the prefixes the application starts with.
+     * @param prefixFile the file of prefixes, or null for only the initial prefixes.
+     * @return the map of prefix acronyms and their expanded form.
+     * @throws IOException if the file can not be read.
+     */
+    static Map<String, String> loadPrefixes(Path prefixFile) throws IOException {
+        Map<String, String> prefixes = new LinkedHashMap<>();
+        prefixes.put("rdf", "http://www.w3.org/1999/02/22-rdf-syntax-ns#");
+        prefixes.put("rdfs", "http://www.w3.org/2000/01/rdf-schema#");
+        prefixes.put("owl", "http://www.w3.org/2002/07/owl#");
+        prefixes.put("xsd", "http://www.w3.org/2001/XMLSchema#");
+        if (prefixFile == null) return prefixes;
+
+        try (BufferedReader reader = Files.newBufferedReader(prefixFile, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] prefixParts = line.split(":", 2);
+                if (prefixParts.length == 2) prefixes.put(prefixParts[0].trim(), prefixParts[1].trim());
+            }
+        }
+        return prefixes;
+    }
+
+    public static void main(String[] args) {
+        System.exit(run(args));
+    }
+}
@@ -0,0 +1,222 @@
+package cli;
+
+import model.conceptual.Vertex;
+import model.conversion.gat.FromGatConverter;
+import model.dataintegration.CorrelationProfile;
+import model.dataintegration.DataIntegrator;
+import model.dataintegration.ShardManifest;
+import model.dataintegration.TailCheckpoint;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Generates instance-level Turtle from a .csv too large for one process, by splitting it into shards generated by
+ *    worker processes at the same time:
+ *
+ *    shard graph.gat data.csv out.ttl [--shards n] [--hosts a,b,...] [--merge] [--prefixes prefixes.txt]
+ *        [--profiles dir] [--compact] [--group] [--strict]
+ *
+ * The .csv is split into byte ranges at record boundaries, and a manifest of them is written beside the output, as
+ *    out.ttl.manifest. Each worker runs 'generate ... --shard k' with the same graph, prefixes and correlations, and
+ *    writes its part, out.ttl.part000k, with a log of its run beside it. Workers run on this machine, or with --hosts,
+ *    are started over ssh on the hosts in turn, which must see the files and this installation at the same paths.
+ * With --merge, the parts are concatenated in order into the output once every worker has succeeded; the parts of a
+ *    run without it can be merged later with --merge alone.
+ */
+public class ShardedGeneration {
+    private static final int OK = 0, USAGE = 1, FAILED = 2, UNCORRELATED = 3;
+
+    private static final String USAGE_TEXT =
+            "Usage: shard <graph.gat> <data.csv> <out.ttl> [options]\n" +
+            "  --shards <n>       the number of shards (default the number of hosts, or of processors)\n" +
+            "  --hosts <a,b,...>  start the workers over ssh on these hosts, which share the files at the same paths\n" +
+            "  --merge            concatenate the parts into the output; alone, merges the parts of an earlier run\n" +
+            "  --prefixes <file>  prefixes, one '<acronym> : <expansion>' per line, as saved by the Prefixes menu\n" +
+            "  --profiles <dir>   where saved correlations are kept (default " +
+                    CorrelationProfile.getDefaultDirectory() + ")\n" +
+            "  --compact          compact IRIs to prefixed names\n" +
+            "  --group            group triples by subject (implies --compact)\n" +
+            "  --strict           stop at the first value not valid for the datatype of its literal\n";
+
+    /**
+     * Runs a command.
+     * @param args the command and its arguments.
+     * @return the exit status: 0 on success, 1 if the arguments are wrong, 2 if generation failed, and 3 if the headers
+     *    could not all be correlated.
+     */
+    public static int run(String[] args) {
+        return run(args, System.out, System.err);
+    }
+
+    public static void main(String[] args) {
+        System.exit(run(args));
+    }
+
+    static int run(String[] args, PrintStream out, PrintStream err) {
+        if (args.length < 4 || !args[0].equals("shard")) {
+            err.print(USAGE_TEXT);
+            return USAGE;
+        }
+
+        Path graphFile = Paths.get(args[1]).toAbsolutePath(), csvFile = Paths.get(args[2]).toAbsolutePath(),
+                outFile = Paths.get(args[3]).toAbsolutePath();
+        Path prefixFile = null, profileDirectory = CorrelationProfile.getDefaultDirectory();
+        List<String> hosts = Collections.emptyList();
+        boolean compact = false, group = false, strict = false, merge = false, generate = false;
+        int shardCount = 0;
+        try {
+            for (int i = 4; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--shards":   shardCount = Integer.parseInt(args[++i]); generate = true; break;
+                    case "--hosts":    hosts = Arrays.asList(args[++i].split(",")); generate = true; break;
+                    case "--prefixes": prefixFile = Paths.get(args[++i]).toAbsolutePath(); generate = true; break;
+                    case "--profiles": profileDirectory = Paths.get(args[++i]).toAbsolutePath(); generate = true; break;
+                    case "--compact":  compact = true; generate = true; break;
+                    case "--group":    group = true; generate = true; break;
+                    case "--strict":   strict = true; generate = true; break;
+                    case "--merge":    merge = true; break;
+                    default:
+                        err.print("Unknown option " + args[i] + "\n" + USAGE_TEXT);
+                        return USAGE;
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException | NumberFormatException e) {
+            err.print(USAGE_TEXT);
+            return USAGE;
+        }
+        if (shardCount <= 0)
+            shardCount = hosts.isEmpty() ? Runtime.getRuntime().availableProcessors() : hosts.size();
+
+        try {
+            if (generate || !merge) {
+                List<String> options = new ArrayList<>();
+                if (prefixFile != null) options.addAll(Arrays.asList("--prefixes", prefixFile.toString()));
+                options.addAll(Arrays.asList("--profiles", profileDirectory.toString()));
+                if (compact) options.add("--compact");
+                if (group) options.add("--group");
+                if (strict) options.add("--strict");
+
+                int status = checkCorrelations(graphFile, csvFile, prefixFile, profileDirectory, out, err);
+                if (status != OK) return status;
+                status = generateShards(graphFile, csvFile, outFile, shardCount, hosts, options, out, err);
+                if (status != OK) return status;
+            }
+            if (merge) {
+                long length = ShardManifest.load(outFile).merge(outFile);
+                out.println("Merged the parts into " + outFile + ", " + length + " bytes.");
+            }
+        } catch (IOException e) {
+            err.println("Generation failed: " + e);
+            return FAILED;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            err.println("Interrupted while waiting for the workers.");
+            return FAILED;
+        }
+        return OK;
+    }
+
+    /**
+     * Correlates the headers with the graph once before any worker is started, so a .csv that can not be generated
+     *    unattended fails at once rather than in every worker.
+     * @return the exit status.
+     */
+    private static int checkCorrelations(Path graphFile, Path csvFile, Path prefixFile, Path profileDirectory,
+                                         PrintStream out, PrintStream err) throws IOException {
+        try {
+            FromGatConverter binder = new FromGatConverter(new String(Files.readAllBytes(graphFile), StandardCharsets.UTF_8));
+            binder.bindGraph();
+            ArrayList<Vertex> classes = binder.getClasses();
+            Map<String, String> prefixes = DrawingTurtlesCli.loadPrefixes(prefixFile);
+            Map<String, Integer> headers = DrawingTurtlesCli.readHeaders(csvFile, TailCheckpoint.findHeaderEnd(csvFile));
+
+            DataIntegrator dataIntegrator = new DataIntegrator(headers, Collections.emptyList(), classes, prefixes);
+            return DrawingTurtlesCli.correlate(dataIntegrator, headers, classes, profileDirectory, out, err)
+                    ? OK : UNCORRELATED;
+        } catch (FromGatConverter.PropertyElemMissingException | Vertex.UndefinedElementTypeException e) {
+            err.println("Reading the graph failed: " + e);
+            return FAILED;
+        }
+    }
+
+    /**
+     * Splits the .csv, starts a worker for each shard, and waits for them all, recording in the manifest the parts
+     *    that were written.
+     * @return the exit status: that of the first worker to fail, or 0 if none did.
+     */
+    private static int generateShards(Path graphFile, Path csvFile, Path outFile, int shardCount, List<String> hosts,
+                                      List<String> options, PrintStream out, PrintStream err)
+            throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        ShardManifest manifest = ShardManifest.plan(csvFile, shardCount);
+        for (ShardManifest.Shard shard : manifest.getShards()) {
+            Files.deleteIfExists(ShardManifest.partFor(outFile, shard.getIndex()));
+            if (!hosts.isEmpty()) shard.setHost(hosts.get(shard.getIndex() % hosts.size()));
+        }
+        manifest.save(outFile);
+        out.println("Split " + manifest.getRecords() + " records into " + manifest.getShards().size() + " shards.");
+
+        List<Process> workers = new ArrayList<>();
+        try {
+            for (ShardManifest.Shard shard : manifest.getShards()) {
+                List<String> command = new ArrayList<>(Arrays.asList(
+                        Paths.get(System.getProperty("java.home"), "bin", "java").toString(),
+                        "-cp", System.getProperty("java.class.path"), DrawingTurtlesCli.class.getName(),
+                        "generate", graphFile.toString(), csvFile.toString(), outFile.toString(),
+                        "--shard", Integer.toString(shard.getIndex())));
+                command.addAll(options);
+                if (shard.getHost() != null) command = overSsh(shard.getHost(), command);
+
+                File log = logFor(outFile, shard.getIndex()).toFile();
+                workers.add(new ProcessBuilder(command).redirectErrorStream(true).redirectOutput(log).start());
+            }
+
+            int status = OK;
+            for (ShardManifest.Shard shard : manifest.getShards()) {
+                int exit = workers.get(shard.getIndex()).waitFor();
+                Path part = ShardManifest.partFor(outFile, shard.getIndex());
+                if (exit == OK && Files.exists(part)) shard.setOutputLength(Files.size(part));
+                else {
+                    err.println("Shard " + shard.getIndex() + (shard.getHost() != null ? " on " + shard.getHost() : "") +
+                            " failed with status " + exit + "; see " + logFor(outFile, shard.getIndex()) + ".");
+                    if (status == OK) status = exit == OK ? FAILED : exit;
+                }
+            }
+            manifest.save(outFile);
+            if (status == OK) out.println("Generated " + manifest.getShards().size() + " parts in " +
+                    (System.nanoTime() - start) / 1_000_000 + " ms.");
+            return status;
+        } finally {
+            // stops any workers still running if this run fails or is interrupted.
+            for (Process worker : workers) worker.destroy();
+        }
+    }
+
+    /**
+     * @return the command that runs a command on a host over ssh, each argument quoted for the remote shell.
+     */
+    private static List<String> overSsh(String host, List<String> command) {
+        StringBuilder remote = new StringBuilder();
+        for (String argument : command) {
+            if (remote.length() > 0) remote.append(' ');
+            remote.append('\'').append(argument.replace("'", "'\\''")).append('\'');
+        }
+        return Arrays.asList("ssh", "-o", "BatchMode=yes", host, remote.toString());
+    }
+
+    private static Path logFor(Path outFile, int index) {
+        Path part = ShardManifest.partFor(outFile, index);
+        return part.resolveSibling(part.getFileName() + ".log");
+    }
+}
@@ -0,0 +1,501 @@
+package cli;
+
+import model.conceptual.Vertex;
+import model.conversion.gat.FromGatConverter;
+import model.dataintegration.CorrelationProfile;
+import model.dataintegration.DataIntegrator;
+import model.dataintegration.Row;
+import model.dataintegration.flow.GenerationPipeline;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVPrinter;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+/**
+ * Converts .csv files to instance-level Turtle as they arrive, for running unattended on an ingestion host:
+ *
+ *    watch graphs/ inbox/ outbox/ [--prefixes prefixes.txt] [--profiles dir] [--compact] [--group] [--workers n]
+ *        [--queue n] [--min-free MiB]
+ *
+ * Each .csv dropped in the inbox is matched to the graph in the graph directory whose saved correlations fit its header
+ *    row (see {@link CorrelationProfile}), and generated on a bounded pool of workers. The output is written beside
+ *    the outbox and moved into it atomically once complete, so whatever reads the outbox never sees half a file. The
+ *    .csv is then moved to inbox/processed, or to inbox/failed with the reason beside it, and a line of metrics is
+ *    added to inbox/processed/metrics.csv.
+ * When the workers and their queue are full, or the outbox's disk is short of space, no more files are taken from the
+ *    inbox until there is room; files arriving meanwhile wait in the inbox.
+ */
+public class WatchFolderDaemon {
+    private static final Logger LOGGER = Logger.getLogger(WatchFolderDaemon.class.getName());
+    private static final int OK = 0, USAGE = 1, FAILED = 2;
+
+    // how long a file must go unchanged before it is taken as completely written, and how often the inbox is checked.
+    private static final long SETTLE_MILLIS = 2000;
+    private static final long POLL_MILLIS = 500;
+
+    // how often the free space of the outbox is checked while it is short.
+    private static final long DISK_WAIT_MILLIS = 5000;
+
+    private static final String USAGE_TEXT =
+            "Usage: watch <graph directory> <inbox> <outbox> [options]\n" +
+            "  --prefixes <file>  prefixes, one '<acronym> : <expansion>' per line, as saved by the Prefixes menu\n" +
+            "  --profiles <dir>   where saved correlations are kept (default " +
+                    CorrelationProfile.getDefaultDirectory() + ")\n" +
+            "  --compact          compact IRIs to prefixed names\n" +
+            "  --group            group triples by subject (implies --compact)\n" +
+            "  --workers <n>      files generated at once (default 2)\n" +
+            "  --queue <n>        files waiting for a worker before the inbox is left alone (default 16)\n" +
+            "  --min-free <MiB>   free space the outbox needs before another file is taken (default 512)\n";
+
+    private static final String[] METRICS_HEADER = {
+            "finished", "file", "graph", "outcome", "records", "bytes in", "bytes out", "queued ms", "generation ms",
+            "message"
+    };
+
+    /**
+     * A graph, read from a .gat file, and when the file was last modified, so it is read again if it changes.
+     */
+    private static final class Graph {
+        private final String name;
+        private final FileTime modified;
+        private final ArrayList<Vertex> classes;
+
+        private Graph(String name, FileTime modified, ArrayList<Vertex> classes) {
+            this.name = name;
+            this.modified = modified;
+            this.classes = classes;
+        }
+    }
+
+    private final Path graphDirectory, inbox, outbox, working, processed, failed, metricsFile;
+    private final Path profileDirectory;
+    private final Map<String, String> prefixes;
+    private final boolean compact, group;
+    private final long minFreeBytes;
+
+    private final ExecutorService workers;
+    private final Semaphore slots;
+    private final Map<Path, Graph> graphs = new ConcurrentHashMap<>();
+
+    // the files noticed in the inbox, with their size and when it last changed, until they settle.
+    private final Map<Path, long[]> pending = new LinkedHashMap<>();
+
+    private volatile boolean running = true;
+    private final CountDownLatch stopped = new CountDownLatch(1);
+    private final AtomicInteger succeeded = new AtomicInteger(), failures = new AtomicInteger();
+
+    private WatchFolderDaemon(Path graphDirectory, Path inbox, Path outbox, Path profileDirectory,
+                              Map<String, String> prefixes, boolean compact, boolean group, int workerCount,
+                              int queueLength, long minFreeBytes) throws IOException {
+        this.graphDirectory = graphDirectory;
+        this.inbox = inbox;
+        this.outbox = outbox;
+        this.working = Files.createDirectories(inbox.resolve(".working"));
+        this.processed = Files.createDirectories(inbox.resolve("processed"));
+        this.failed = Files.createDirectories(inbox.resolve("failed"));
+        this.metricsFile = processed.resolve("metrics.csv");
+        this.profileDirectory = profileDirectory;
+        this.prefixes = prefixes;
+        this.compact = compact;
+        this.group = group;
+        this.minFreeBytes = minFreeBytes;
+        Files.createDirectories(outbox);
+
+        AtomicInteger threads = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(workerCount, task -> {
+            Thread thread = new Thread(task, "watch-worker-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.slots = new Semaphore(workerCount + queueLength);
+    }
+
+    /**
+     * Runs the daemon until the process is stopped.
+     * @param args the command and its arguments.
+     * @return the exit status: 0 once stopped, 1 if the arguments are wrong, and 2 if the inbox could not be watched.
+     */
+    public static int run(String[] args) {
+        if (args.length < 4 || !args[0].equals("watch")) {
+            System.err.print(USAGE_TEXT);
+            return USAGE;
+        }
+
+        Path graphDirectory = Paths.get(args[1]), inbox = Paths.get(args[2]), outbox = Paths.get(args[3]);
+        Path prefixFile = null, profileDirectory = CorrelationProfile.getDefaultDirectory();
+        boolean compact = false, group = false;
+        int workerCount = 2, queueLength = 16;
+        long minFree = 512L << 20;
+        try {
+            for (int i = 4; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--prefixes": prefixFile = Paths.get(args[++i]); break;
+                    case "--profiles": profileDirectory = Paths.get(args[++i]); break;
+                    case "--compact":  compact = true; break;
+                    case "--group":    group = true; break;
+                    case "--workers":  workerCount = Integer.parseInt(args[++i]); break;
+                    case "--queue":    queueLength = Integer.parseInt(args[++i]); break;
+                    case "--min-free": minFree = Long.parseLong(args[++i]) << 20; break;
+                    default:
+                        System.err.print("Unknown option " + args[i] + "\n" + USAGE_TEXT);
+                        return USAGE;
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException | NumberFormatException e) {
+            System.err.print(USAGE_TEXT);
+            return USAGE;
+        }
+        if (workerCount < 1 || queueLength < 0) {
+            System.err.print(USAGE_TEXT);
+            return USAGE;
+        }
+
+        try {
+            WatchFolderDaemon daemon = new WatchFolderDaemon(graphDirectory, inbox, outbox, profileDirectory,
+                    DrawingTurtlesCli.loadPrefixes(prefixFile), compact, group, workerCount, queueLength, minFree);
+            Runtime.getRuntime().addShutdownHook(new Thread(daemon::stop, "watch-shutdown"));
+            daemon.serve();
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Watching " + inbox + " failed: ", e);
+            return FAILED;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return OK;
+    }
+
+    public static void main(String[] args) {
+        System.exit(run(args));
+    }
+
+    /**
+     * Watches the inbox, handing each file to a worker once it has settled, until stopped. Files already in the inbox
+     *    are taken first.
+     * @throws IOException if the inbox can not be watched.
+     * @throws InterruptedException if interrupted while waiting for room.
+     */
+    private void serve() throws IOException, InterruptedException {
+        LOGGER.info("Watching " + inbox + " for .csv files, writing to " + outbox + ".");
+        try (WatchService watcher = inbox.getFileSystem().newWatchService()) {
+            inbox.register(watcher, ENTRY_CREATE, ENTRY_MODIFY);
+            recoverWorking();
+            scanInbox();
+
+            while (running) {
+                WatchKey key = watcher.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (key != null) {
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        // events were lost, so look at the whole inbox instead.
+                        if (event.kind() == OVERFLOW) scanInbox();
+                        else notice(inbox.resolve((Path) event.context()));
+                    }
+                    if (!key.reset()) throw new IOException("the inbox " + inbox + " can no longer be watched");
+                }
+                dispatchSettled();
+            }
+        } finally {
+            workers.shutdown();
+            if (!workers.awaitTermination(1, TimeUnit.MINUTES))
+                LOGGER.warning("Stopped with files still being generated; they are taken again on restart.");
+            LOGGER.info("Stopped: " + succeeded + " files generated, " + failures + " failed.");
+            stopped.countDown();
+        }
+    }
+
+    /**
+     * Stops taking files, and waits for the files being generated to finish.
+     */
+    private void stop() {
+        running = false;
+        try {
+            stopped.await(2, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Returns files left half-generated by a daemon that was stopped to the inbox, to be taken again. A newer file of
+     *    the same name may have arrived in the inbox since, so the recovered file is then given a distinct name
+     *    rather than replacing it.
+     */
+    private void recoverWorking() throws IOException {
+        try (Stream<Path> files = Files.list(working)) {
+            for (Path file : files.collect(Collectors.toList())) {
+                String name = file.getFileName().toString();
+                String base = name.substring(0, name.length() - ".csv".length());
+                String extension = name.substring(base.length());
+                Path target = inbox.resolve(name);
+                for (int retry = 1; Files.exists(target); retry++)
+                    target = inbox.resolve(base + ".retry-" + retry + extension);
+
+                LOGGER.info("Retrying " + name + ", left unfinished by the last run, as " + target.getFileName() + ".");
+                Files.move(file, target);
+            }
+        }
+    }
+
+    private void scanInbox() throws IOException {
+        try (Stream<Path> files = Files.list(inbox)) {
+            files.sorted().forEach(this::notice);
+        }
+    }
+
+    /**
+     * Starts tracking a .csv in the inbox until it settles. Hidden files and anything else are left alone.
+     */
+    private void notice(Path file) {
+        String name = file.getFileName().toString();
+        if (name.startsWith(".") || !name.toLowerCase().endsWith(".csv") || !Files.isRegularFile(file)) return;
+        pending.putIfAbsent(file, new long[] {-1, System.currentTimeMillis()});
+    }
+
+    /**
+     * Hands every file whose size has not changed for a while to a worker, blocking while there is no room.
+     */
+    private void dispatchSettled() throws InterruptedException {
+        long now = System.currentTimeMillis();
+        Iterator<Map.Entry<Path, long[]>> files = pending.entrySet().iterator();
+        while (files.hasNext() && running) {
+            Map.Entry<Path, long[]> entry = files.next();
+            Path file = entry.getKey();
+            long[] seen = entry.getValue();
+
+            long size;
+            try {
+                size = Files.size(file);
+            } catch (IOException e) {
+                files.remove();
+                continue;
+            }
+            if (size != seen[0]) {
+                seen[0] = size;
+                seen[1] = now;
+                continue;
+            }
+            if (now - seen[1] < SETTLE_MILLIS) continue;
+
+            awaitDiskSpace();
+            if (!running) break;
+            slots.acquire();
+            if (dispatch(file)) files.remove();
+            else {
+                // kept pending, to be claimed again once it has settled for another while.
+                slots.release();
+                seen[1] = System.currentTimeMillis();
+            }
+        }
+    }
+
+    /**
+     * Claims a file by moving it out of the inbox, and queues it for a worker.
+     * @return whether the file was queued.
+     */
+    private boolean dispatch(Path file) {
+        Path claimed = working.resolve(file.getFileName());
+        try {
+            Files.move(file, claimed, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Could not take " + file + " from the inbox: ", e);
+            return false;
+        }
+
+        long queued = System.nanoTime();
+        workers.execute(() -> {
+            try {
+                generate(claimed, queued);
+            } finally {
+                slots.release();
+            }
+        });
+        return true;
+    }
+
+    /**
+     * Waits while the outbox is short of space.
+     */
+    private void awaitDiskSpace() throws InterruptedException {
+        boolean warned = false;
+        while (running) {
+            long free;
+            try {
+                free = Files.getFileStore(outbox).getUsableSpace();
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Could not check the space left in " + outbox + ": ", e);
+                return;
+            }
+            if (free >= minFreeBytes) return;
+            if (!warned) LOGGER.warning("Only " + (free >> 20) + " MiB left in " + outbox + "; waiting for space.");
+            warned = true;
+            Thread.sleep(DISK_WAIT_MILLIS);
+        }
+    }
+
+    /**
+     * Generates the instance-level Turtle of a claimed .csv into the outbox, then files the .csv away and records its
+     *    metrics. Never throws, so one bad file does not stop the daemon.
+     */
+    private void generate(Path csv, long queued) {
+        long started = System.nanoTime();
+        String name = csv.getFileName().toString();
+        String base = name.substring(0, name.length() - ".csv".length());
+        String graphName = "", message = "";
+        long records = 0, bytesIn = 0, bytesOut = 0;
+        boolean ok = false;
+        Path temp = null;
+
+        try {
+            bytesIn = Files.size(csv);
+            try (Reader reader = Files.newBufferedReader(csv, StandardCharsets.UTF_8);
+                 CSVParser parser = CSVFormat.DEFAULT.withFirstRecordAsHeader().parse(reader)) {
+                Map<String, Integer> headers = parser.getHeaderMap();
+                // a graph is matched by the header row alone, so the records are streamed from the parser as they
+                //    are generated, however large the file.
+                Iterable<Row> rows = Row.of(parser);
+
+                Map.Entry<String, DataIntegrator> match = match(headers, rows);
+                if (match == null) throw new IOException("no graph in " + graphDirectory +
+                        " has saved correlations for these headers, or matches them all by name");
+                graphName = match.getKey();
+                DataIntegrator dataIntegrator = match.getValue();
+                dataIntegrator.setCompactIris(compact || group);
+                dataIntegrator.setGroupBySubject(group);
+
+                temp = Files.createTempFile(outbox, "." + base, ".part");
+                try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                    new GenerationPipeline(dataIntegrator).run(rows, writer);
+                }
+                records = parser.getRecordNumber();
+                bytesOut = Files.size(temp);
+                Files.move(temp, outbox.resolve(base + ".ttl"), StandardCopyOption.ATOMIC_MOVE);
+            }
+
+            Files.move(csv, processed.resolve(name), StandardCopyOption.REPLACE_EXISTING);
+            ok = true;
+            succeeded.incrementAndGet();
+        } catch (Exception e) {
+            if (e instanceof InterruptedException) Thread.currentThread().interrupt();
+            message = e instanceof DataIntegrator.PrefixMissingException
+                    ? "'" + ((DataIntegrator.PrefixMissingException) e).getMissing() + "' is not defined in the prefixes"
+                    : String.valueOf(e.getMessage());
+            failures.incrementAndGet();
+            LOGGER.log(Level.WARNING, "Generating " + name + " failed: ", e);
+            fail(csv, name, message);
+        } finally {
+            if (temp != null) {
+                try {
+                    Files.deleteIfExists(temp);
+                } catch (IOException e) {
+                    LOGGER.log(Level.WARNING, "Could not remove " + temp + ": ", e);
+                }
+            }
+        }
+
+        long queuedMillis = (started - queued) / 1_000_000, generationMillis = (System.nanoTime() - started) / 1_000_000;
+        LOGGER.info((ok ? "Generated " : "Failed ") + name + (graphName.isEmpty() ? "" : " against " + graphName) +
+                ": " + records + " records, " + bytesIn + " bytes in, " + bytesOut + " bytes out, queued " +
+                queuedMillis + " ms, generated in " + generationMillis + " ms.");
+        recordMetrics(name, graphName, ok ? "generated" : "failed", records, bytesIn, bytesOut, queuedMillis,
+                generationMillis, message);
+    }
+
+    /**
+     * Moves a .csv that could not be generated to the failed directory, with the reason beside it.
+     */
+    private void fail(Path csv, String name, String message) {
+        try {
+            Files.move(csv, failed.resolve(name), StandardCopyOption.REPLACE_EXISTING);
+            Files.write(failed.resolve(name + ".error"), (message + "\n").getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Could not move " + csv + " to " + failed + ": ", e);
+        }
+    }
+
+    /**
+     * Finds the graph a .csv belongs to: the first, by file name, whose saved correlations fit its header row, or
+     *    failing that, the first whose elements match every header by name. Only the headers are looked at.
+     * @param records the records of the .csv, handed to the DataIntegrator matched, but not read.
+     * @return the name of the graph and a DataIntegrator correlated with it, or null if no graph fits.
+     */
+    private Map.Entry<String, DataIntegrator> match(Map<String, Integer> headers, Iterable<Row> records)
+            throws IOException {
+        List<Graph> candidates = loadGraphs();
+        for (Graph graph : candidates) {
+            CorrelationProfile profile = CorrelationProfile.load(profileDirectory,
+                    CorrelationProfile.fingerprint(headers, graph.classes));
+            DataIntegrator dataIntegrator = new DataIntegrator(headers, records, graph.classes, prefixes);
+            if (profile != null && profile.applyTo(dataIntegrator, graph.classes))
+                return new AbstractMap.SimpleImmutableEntry<>(graph.name, dataIntegrator);
+        }
+        for (Graph graph : candidates) {
+            DataIntegrator dataIntegrator = new DataIntegrator(headers, records, graph.classes, prefixes);
+            dataIntegrator.attemptCorrelationOfHeaders();
+            if (!dataIntegrator.needsReview() && !dataIntegrator.getCorrelations().isEmpty())
+                return new AbstractMap.SimpleImmutableEntry<>(graph.name, dataIntegrator);
+        }
+        return null;
+    }
+
+    /**
+     * @return the graphs in the graph directory, by file name, reading those that are new or have changed.
+     */
+    private List<Graph> loadGraphs() throws IOException {
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(graphDirectory)) {
+            files = listing.filter(file -> file.toString().endsWith(".gat")).sorted().collect(Collectors.toList());
+        }
+
+        List<Graph> loaded = new ArrayList<>();
+        for (Path file : files) {
+            FileTime modified = Files.getLastModifiedTime(file);
+            Graph graph = graphs.get(file);
+            if (graph == null || !graph.modified.equals(modified)) {
+                try {
+                    FromGatConverter binder = new FromGatConverter(
+                            new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+                    binder.bindGraph();
+                    graph = new Graph(file.getFileName().toString(), modified, binder.getClasses());
+                    graphs.put(file, graph);
+                } catch (FromGatConverter.PropertyElemMissingException | Vertex.UndefinedElementTypeException e) {
+                    LOGGER.log(Level.WARNING, "Skipping the unreadable graph " + file + ": ", e);
+                    continue;
+                }
+            }
+            loaded.add(graph);
+        }
+        return loaded;
+    }
+
+    /**
+     * Adds a line to the metrics file, starting it with a header row if it is new.
+     */
+    private synchronized void recordMetrics(String file, String graph, String outcome, long records, long bytesIn,
+                                            long bytesOut, long queuedMillis, long generationMillis, String message) {
+        boolean isNew = !Files.exists(metricsFile);
+        try (Writer writer = Files.newBufferedWriter(metricsFile, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+             CSVPrinter printer = new CSVPrinter(writer, CSVFormat.DEFAULT)) {
+            if (isNew) printer.printRecord((Object[]) METRICS_HEADER);
+            printer.printRecord(Instant.now(), file, graph, outcome, records, bytesIn, bytesOut, queuedMillis,
+                    generationMillis, message);
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Could not record the metrics of " + file + ": ", e);
+        }
+    }
+}
@@ -1,59 +1,63 @@
 package controller;
 
+import javafx.animation.AnimationTimer;
+import javafx.application.Platform;
 import javafx.beans.property.BooleanProperty;
 import javafx.beans.property.SimpleBooleanProperty;
-import javafx.fxml.FXMLLoader;
+import javafx.concurrent.Task;
 import javafx.fxml.Initializable;
-import javafx.geometry.Pos;
-import javafx.scene.Parent;
-import javafx.scene.Scene;
+import javafx.scene.CacheHint;
+import javafx.scene.Node;
 import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
-import javafx.stage.Modality;
-import javafx.stage.Stage;
 import model.conceptual.Class;
 import model.conceptual.Edge;
 import model.conceptual.Literal;
 import model.conceptual.Vertex;
-import model.conceptual.Vertex.OutsideElementException;
 import model.conceptual.Vertex.UndefinedElementTypeException;
 import model.conversion.gat.FromGatConverter;
 import model.conversion.gat.ToGatConverter;
+import model.conversion.png.TiledPngExporter;
+import model.dataintegration.ColumnProfile;
+import model.dataintegration.ColumnProfiler;
+import model.dataintegration.ColumnarTable;
+import model.dataintegration.CorrelationProfile;
 import model.dataintegration.DataIntegrator;
+import model.dataintegration.ExternalSortDeduplicator;
+import model.dataintegration.flow.GenerationPipeline;
 import model.graph.Arrow;
+import model.graph.EdgeNode;
+import model.graph.VertexNode;
+import model.layout.ForceDirectedLayout;
+import model.rendering.SvgGraphRenderer;
 import model.conversion.ttl.Converter;
-import javafx.embed.swing.SwingFXUtils;
+import model.conversion.ttl.FromTtlConverter;
+import model.conversion.ttl.TurtleParser;
 import javafx.fxml.FXML;
 import javafx.geometry.BoundingBox;
 import javafx.geometry.Bounds;
 import javafx.geometry.Insets;
-import javafx.scene.SnapshotParameters;
 import javafx.scene.control.*;
 import javafx.scene.control.Button;
 import javafx.scene.control.Label;
 import javafx.scene.control.ScrollPane;
-import javafx.scene.image.WritableImage;
 import javafx.scene.input.KeyCode;
 import javafx.scene.input.KeyEvent;
 import javafx.scene.input.MouseEvent;
+import javafx.scene.input.ScrollEvent;
 import javafx.scene.layout.*;
 import javafx.scene.paint.Color;
-import javafx.scene.shape.Ellipse;
-import javafx.scene.shape.Rectangle;
+import javafx.scene.shape.Shape;
 import javafx.scene.text.Text;
+import javafx.scene.transform.Scale;
 import javafx.stage.FileChooser;
-import model.graph.SelfReferentialArrow;
 import org.apache.commons.csv.CSVFormat;
 import org.apache.commons.csv.CSVParser;
-import org.apache.commons.csv.CSVRecord;
 
-import javax.imageio.ImageIO;
 import java.awt.*;
-import java.awt.image.RenderedImage;
 import java.io.*;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.util.List;
 import java.util.logging.Level;
@@ -70,24 +74,43 @@ public final class Controller implements Initializable {
     @FXML protected BorderPane root;
     @FXML protected Pane drawPane;
     @FXML protected ScrollPane scrollPane;
-    @FXML protected Button prefixBtn, saveGraphBtn, loadGraphBtn, exportTllBtn, exportPngBtn, eatCsvBtn, instanceBtn,
+    @FXML protected Button prefixBtn, saveGraphBtn, loadGraphBtn, importTtlBtn, autoLayoutBtn, exportTllBtn, exportPngBtn, exportSvgBtn, eatCsvBtn, instanceBtn,
             instrBtn, optionsBtn;
     @FXML ImageView ttlPrefImv, ttlGraphImv, instPrefImv, instGraphImv, instCsvImv;
     @FXML protected Label statusLbl;
     @FXML protected ToolBar toolBar;
 
-    private ArrayList<Boolean> config = new ArrayList<>(Arrays.asList(false, false, false));
+    private ArrayList<Boolean> config = new ArrayList<>(Arrays.asList(false, false, false, false, false, false));
 
     private Map<String, String>     prefixes   = new HashMap<>();
     private final ArrayList<Edge>   properties = new ArrayList<>();
     private final ArrayList<Vertex> classes    = new ArrayList<>();
 
+    // the visual elements of the graph on the canvas, by the Vertex or Edge they draw.
+    private final Map<Vertex, VertexNode> vertexNodes = new HashMap<>();
+    private final Map<Edge, EdgeNode>     edgeNodes   = new HashMap<>();
+
+    private final DialogCache dialogCache = new DialogCache();
+
+    // the Vertex being dragged, and where it was grabbed relative to the top-left corner of its shape.
+    private Vertex draggedVertex;
+    private double dragOffsetX, dragOffsetY;
+
+    // Vertices moved since the last pulse: their nodes, and the properties drawn to and from them, are redrawn once
+    //    per pulse by the edgeRouter, however many mouse events arrive in between.
+    private final Set<Vertex> movedVertices = new LinkedHashSet<>();
+    private final Set<Edge>   edgesToRoute  = new LinkedHashSet<>();
+    private final AnimationTimer edgeRouter = new AnimationTimer() {
+        @Override public void handle(long now) { routeMovedVertices(); }
+    };
+
     private Arrow arrow;
     private Vertex subject;
     private boolean srcClick = true;
 
-    private List<CSVRecord> csv;
+    private ColumnarTable csv;
     private Map<String, Integer> headers;
+    private List<ColumnProfile> columnProfiles;
 
     static String lastDirectory;
 
@@ -95,7 +118,23 @@ public final class Controller implements Initializable {
     private BooleanProperty graphCreated = new SimpleBooleanProperty(false);
     private BooleanProperty csvIngested = new SimpleBooleanProperty(false);
 
-    public static final Color JFX_DEFAULT_COLOUR = Color.web("F4F4F4");
+    // zoom limits, and the zoom levels below which labels are hidden and the canvas is rendered from a cached raster.
+    private static final double MIN_ZOOM = 0.1;
+    private static final double MAX_ZOOM = 4;
+    private static final double ZOOM_STEP = 1.1;
+    private static final double DETAIL_ZOOM_THRESHOLD = 0.6;
+
+    private static final double RASTER_ZOOM_THRESHOLD = 0.35;
+
+    // the most invalid values listed before generating instance-level Turtle.
+    private static final int MAX_SHOWN_INVALID_VALUES = 10;
+
+    // how often the canvas shows the progress of a running auto layout.
+    private static final long LAYOUT_FRAME_NANOS = 50_000_000;
+
+    private final Scale zoomTransform = new Scale(1, 1, 0, 0);
+    private final BooleanProperty detailShown = new SimpleBooleanProperty(true);
+    private double panAnchorX, panAnchorY, panAnchorH, panAnchorV;
 
     /**
      * Adds listeners for the Boolean Properties (and hence the workflow checklist) of prefix inspection, graph
@@ -139,6 +178,18 @@ public final class Controller implements Initializable {
             if (observable.getValue().booleanValue()) instCsvImv.setImage(tick);
             else instCsvImv.setImage(cross);
         }));
+
+        drawPane.getTransforms().add(zoomTransform);
+        scrollPane.addEventFilter(ScrollEvent.SCROLL, this::zoomAction);
+
+        // the dialogs opened on (nearly) every click are parsed ahead of time, so they open straight away.
+        dialogCache.preload(
+                "/view/newClassDialog.fxml",
+                "/view/ontologyclassdialog.fxml",
+                "/view/prefixmenu.fxml",
+                "/view/optionsmenu.fxml",
+                "/view/correlateDialog.fxml"
+        );
     }
 
     /**
@@ -156,42 +207,104 @@ public final class Controller implements Initializable {
         else if (key == KeyCode.P) showPrefixMenuAction();
         else if (key == KeyCode.X) exportTtlAction();
         else if (key == KeyCode.O) showOptionsAction();
+        else if (key == KeyCode.A) autoLayoutAction();
+        else if (key == KeyCode.EQUALS || key == KeyCode.PLUS || key == KeyCode.ADD) setZoom(getZoom() * ZOOM_STEP);
+        else if (key == KeyCode.MINUS || key == KeyCode.SUBTRACT) setZoom(getZoom() / ZOOM_STEP);
+        else if (key == KeyCode.DIGIT0 || key == KeyCode.NUMPAD0) setZoom(1);
+    }
+
+    /**
+     * Zooms the canvas on Ctrl+Scroll, keeping the point under the cursor in place. Plain scrolling is left to the
+     *    ScrollPane.
+     * @param scrollEvent the scroll that invoked the method.
+     */
+    private void zoomAction(ScrollEvent scrollEvent) {
+        if (!scrollEvent.isControlDown() || scrollEvent.getDeltaY() == 0) return;
+        scrollEvent.consume();
+
+        double oldZoom = getZoom();
+        double newZoom = scrollEvent.getDeltaY() > 0 ? oldZoom * ZOOM_STEP : oldZoom / ZOOM_STEP;
+        Bounds viewport = scrollPane.getViewportBounds();
+        double cursorX = drawPane.sceneToLocal(scrollEvent.getSceneX(), scrollEvent.getSceneY()).getX();
+        double cursorY = drawPane.sceneToLocal(scrollEvent.getSceneX(), scrollEvent.getSceneY()).getY();
+        double viewportX = scrollPane.sceneToLocal(scrollEvent.getSceneX(), scrollEvent.getSceneY()).getX();
+        double viewportY = scrollPane.sceneToLocal(scrollEvent.getSceneX(), scrollEvent.getSceneY()).getY();
+
+        setZoom(newZoom);
+        scrollPane.layout();
+
+        double scrollableWidth  = drawPane.getWidth() * getZoom() - viewport.getWidth();
+        double scrollableHeight = drawPane.getHeight() * getZoom() - viewport.getHeight();
+        if (scrollableWidth > 0)
+            scrollPane.setHvalue(clamp((cursorX * getZoom() - viewportX) / scrollableWidth, 0, 1));
+        if (scrollableHeight > 0)
+            scrollPane.setVvalue(clamp((cursorY * getZoom() - viewportY) / scrollableHeight, 0, 1));
     }
 
     /**
-     * Creates and displays the Window defined in the fxml file, also passing data of type T to a controller C.
+     * Sets the zoom of the canvas and applies the level-of-detail rules: below {@link #DETAIL_ZOOM_THRESHOLD} the
+     *    names of elements and properties are hidden and shapes are drawn without anti-aliasing, and below
+     *    {@link #RASTER_ZOOM_THRESHOLD} the canvas is drawn from a cached bitmap.
+     * @param zoom the new zoom, clamped between {@link #MIN_ZOOM} and {@link #MAX_ZOOM}.
+     */
+    private void setZoom(double zoom) {
+        zoom = clamp(zoom, MIN_ZOOM, MAX_ZOOM);
+        zoomTransform.setX(zoom);
+        zoomTransform.setY(zoom);
+
+        detailShown.setValue(zoom >= DETAIL_ZOOM_THRESHOLD);
+
+        boolean isRaster = zoom < RASTER_ZOOM_THRESHOLD;
+        if (drawPane.isCache() != isRaster) {
+            drawPane.setCache(isRaster);
+            drawPane.setCacheHint(isRaster ? CacheHint.SCALE : CacheHint.DEFAULT);
+        }
+        setInfoStatus("Zoom: " + Math.round(zoom * 100) + "%");
+    }
+
+    private double getZoom() { return zoomTransform.getX(); }
+
+    private static double clamp(double value, double min, double max) { return Math.max(min, Math.min(max, value)); }
+
+    /**
+     * Ties the visibility of the names of a compiled graph element or property, and the anti-aliasing of its shapes,
+     *    to the current level of detail.
+     * @param compiled the container of the shape and name of the element or property.
+     */
+    private void bindLevelOfDetail(StackPane compiled) {
+        for (Node child : compiled.getChildren()) {
+            if (child instanceof Text || child instanceof Label) child.visibleProperty().bind(detailShown);
+            else if (child instanceof Shape) ((Shape) child).smoothProperty().bind(detailShown);
+        }
+    }
+
+    /**
+     * Pans the canvas while the middle mouse button is dragged.
+     * @param mouseEvent the drag that invoked the method.
+     */
+    private void panAction(MouseEvent mouseEvent) {
+        Bounds viewport = scrollPane.getViewportBounds();
+        double scrollableWidth  = drawPane.getWidth() * getZoom() - viewport.getWidth();
+        double scrollableHeight = drawPane.getHeight() * getZoom() - viewport.getHeight();
+
+        if (scrollableWidth > 0) scrollPane.setHvalue(
+                clamp(panAnchorH - (mouseEvent.getSceneX() - panAnchorX) / scrollableWidth, 0, 1));
+        if (scrollableHeight > 0) scrollPane.setVvalue(
+                clamp(panAnchorV - (mouseEvent.getSceneY() - panAnchorY) / scrollableHeight, 0, 1));
+    }
+
+    /**
+     * Displays the Window defined in the fxml file, also passing data of type T to its Controller. The Window is
+     *    parsed once and reused afterwards, through the {@link DialogCache}.
      * @param fxml the fxml file in which the layout is defined.
      * @param title the title of the new window.
      * @param data the parameters passed to the Controller.
-     * @param <C> a Controller that can pass data to and recieve data from this method (extending
-     *           DataSharingController).
      * @param <T> the type of data passed to and from the Controller.
      * @return the data after it has been modified by the Controller.
      */
-    @FXML @SuppressWarnings("unchecked")
-    private <C extends DataSharingController<T>, T> ArrayList<T> showWindow(String fxml, String title, ArrayList<T> data){
-        try {
-            FXMLLoader loader = new FXMLLoader(getClass().getResource(fxml));
-            Parent parent = loader.load();
-            C controller = loader.getController();
-
-            Method methodName = controller.getClass().getMethod("setData", ArrayList.class);
-            methodName.invoke(controller, data);
-
-            Scene scene = new Scene(parent);
-            Stage stage = new Stage();
-            stage.initModality(Modality.APPLICATION_MODAL);
-            stage.setTitle(title);
-            stage.setScene(scene);
-            stage.setResizable(false);
-            stage.showAndWait();
-
-            methodName = controller.getClass().getMethod("getData");
-            return (ArrayList<T>) methodName.invoke(controller);
-        } catch (IOException | IllegalAccessException | InvocationTargetException | NoSuchMethodException e) {
-            e.printStackTrace();
-        }
-        return null;
+    @FXML
+    private <T> ArrayList<T> showWindow(String fxml, String title, ArrayList<T> data){
+        return dialogCache.show(fxml, title, data);
     }
 
     /**
@@ -237,62 +350,276 @@ public final class Controller implements Initializable {
     }
 
     /**
-     * On clicking the 'Load Graph' button, clears the canvas and attempts to deserialize the user-specified .gat file
-     *   into elements of a graph. It then binds the visual elements into meaningful java-friendly elements.
+     * On clicking the 'Load Graph' button, attempts to deserialize the user-specified .gat file into elements of a
+     *   graph, and replaces the canvas with them. The file is read, and the graph and its visual elements are built,
+     *   on a background thread; only attaching the finished elements to the canvas happens on the FX thread.
      */
     @FXML public void loadGraphAction() {
         File loadFile = showLoadFileDialog(
                     "Load Graph File",
                     new ExtensionFilter("Graph Accessor Type file (*.gat)", "*.gat")
             );
-        if (loadFile != null){
-            lastDirectory = loadFile.getParent();
-            drawPane.getChildren().clear();
-            classes.clear();
-            properties.clear();
-
-            try (BufferedReader reader = new BufferedReader(new FileReader(loadFile))){
-                StringBuilder graphLines = new StringBuilder();
-                String line;
-                while ((line = reader.readLine()) != null) graphLines.append(line).append("\n");
-
-                String graph = graphLines.toString();
-                if (graph.length() == 0){
-                    setWarnStatus("Graph Read failed: nothing in graph file.");
-                    LOGGER.warning("Nothing in graph file.");
-                    return;
-                }
-                FromGatConverter binder = new FromGatConverter(graph);
-                binder.bindGraph();
-
-                classes.addAll(binder.getClasses());
-                properties.addAll(binder.getProperties());
-                drawPane.setPrefSize(binder.getCanvasWidth(), binder.getCanvasHeight());
-                drawPane.getChildren().addAll(binder.getCompiledElements());
-                for (StackPane compiledProperty : binder.getCompiledProperties()){
-                    drawPane.getChildren().add(compiledProperty);
-                    compiledProperty.toBack();
+        if (loadFile == null) {
+            setInfoStatus("Graph load cancelled.");
+            return;
+        }
+        lastDirectory = loadFile.getParent();
+
+        Task<LoadedGraph> loadTask = new Task<LoadedGraph>() {
+            @Override protected LoadedGraph call() throws Exception {
+                try (BufferedReader reader = new BufferedReader(new FileReader(loadFile))){
+                    StringBuilder graphLines = new StringBuilder();
+                    String line;
+                    while ((line = reader.readLine()) != null) graphLines.append(line).append("\n");
+
+                    String graph = graphLines.toString();
+                    if (graph.length() == 0) return null;
+
+                    FromGatConverter binder = new FromGatConverter(graph);
+                    binder.bindGraph();
+                    return new LoadedGraph(binder.getClasses(), binder.getProperties(), binder.getCanvasWidth(),
+                            binder.getCanvasHeight());
                 }
-                graphCreated.setValue(true);
-                prefixesInspected.setValue(false);
-                setInfoStatus("Graph load successful.");
-            } catch (IOException e) {
+            }
+        };
+
+        loadTask.setOnSucceeded(event -> {
+            loadGraphBtn.setDisable(false);
+            LoadedGraph loaded = loadTask.getValue();
+            if (loaded == null){
+                setWarnStatus("Graph Read failed: nothing in graph file.");
+                LOGGER.warning("Nothing in graph file.");
+                return;
+            }
+            showLoadedGraph(loaded);
+            prefixesInspected.setValue(false);
+            setInfoStatus("Graph load successful.");
+        });
+
+        loadTask.setOnFailed(event -> {
+            loadGraphBtn.setDisable(false);
+            Throwable e = loadTask.getException();
+            if (e instanceof IOException) {
                 setErrorStatus("Graph load failed: IOException occurred while reading the graph from file. ");
                 LOGGER.log(Level.SEVERE, "Loading the graph failed: ", e);
-            } catch (FromGatConverter.PropertyElemMissingException e) {
-                setErrorStatus("Graph load failed: " + e.getMissingElement() + " is missing from " +
-                        e.getPropertyName() + ". Try adding the arrow again. ");
-                LOGGER.log(Level.SEVERE, "Parsing the graph failed: ", e);
-            } catch (OutsideElementException e) {
-                setErrorStatus("Graph load failed: The .gat file has been corrupted, properties do not match classes." +
-                        " Re-create the graph. ");
+            } else if (e instanceof FromGatConverter.PropertyElemMissingException) {
+                FromGatConverter.PropertyElemMissingException missing = (FromGatConverter.PropertyElemMissingException) e;
+                setErrorStatus("Graph load failed: " + missing.getMissingElement() + " is missing from " +
+                        missing.getPropertyName() + ". Try adding the arrow again. ");
                 LOGGER.log(Level.SEVERE, "Parsing the graph failed: ", e);
-            } catch (UndefinedElementTypeException e) {
+            } else if (e instanceof UndefinedElementTypeException) {
                 setErrorStatus("Graph Load failed: The name of a class does not match Turtle syntax. Recreate the" +
                         " graph. ");
                 LOGGER.log(Level.SEVERE, "Parsing the graph failed: ", e);
+            } else {
+                setErrorStatus("Graph load failed: The .gat file has been corrupted. Re-create the graph. ");
+                LOGGER.log(Level.SEVERE, "Parsing the graph failed: ", e);
+            }
+        });
+
+        loadGraphBtn.setDisable(true);
+        setInfoStatus("Loading graph...");
+        Thread loader = new Thread(loadTask, "graph-loader");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    /**
+     * On clicking the 'Import .ttl' button, reads an existing Turtle document into a graph, lays it out, and replaces
+     *   the canvas with it. Like loading a .gat file, the work happens on a background thread; the prefixes of the
+     *   document are merged into those of the graph, except that an acronym already defined for another IRI is kept.
+     */
+    @FXML public void importTtlAction() {
+        File importFile = showLoadFileDialog(
+                "Import Turtle File",
+                new ExtensionFilter("Turtle file (*.ttl)", "*.ttl")
+        );
+        if (importFile == null) {
+            setInfoStatus("Turtle import cancelled.");
+            return;
+        }
+        lastDirectory = importFile.getParent();
+
+        Task<Map.Entry<LoadedGraph, Map<String, String>>> importTask =
+                new Task<Map.Entry<LoadedGraph, Map<String, String>>>() {
+            @Override protected Map.Entry<LoadedGraph, Map<String, String>> call() throws Exception {
+                try (Reader reader = new BufferedReader(new InputStreamReader(new FileInputStream(importFile),
+                        StandardCharsets.UTF_8))) {
+                    FromTtlConverter importer = new FromTtlConverter(VertexNode::textWidth);
+                    importer.bindGraph(reader);
+                    LoadedGraph loaded = new LoadedGraph(importer.getClasses(), importer.getProperties(),
+                            importer.getCanvasWidth(), importer.getCanvasHeight());
+                    return new AbstractMap.SimpleImmutableEntry<>(loaded, importer.getPrefixes());
+                }
+            }
+        };
+
+        importTask.setOnSucceeded(event -> {
+            importTtlBtn.setDisable(false);
+            LoadedGraph loaded = importTask.getValue().getKey();
+            if (loaded.nodes.isEmpty()) {
+                setWarnStatus("Turtle import failed: no triples in the file.");
+                return;
+            }
+            showLoadedGraph(loaded);
+            // an acronym the user already defined keeps its expanded form, rather than being clobbered by the file's.
+            List<String> conflicting = new ArrayList<>();
+            for (Map.Entry<String, String> prefix : importTask.getValue().getValue().entrySet()) {
+                String existing = prefixes.putIfAbsent(prefix.getKey(), prefix.getValue());
+                if (existing != null && !existing.equals(prefix.getValue())) conflicting.add(prefix.getKey());
+            }
+            prefixesInspected.setValue(false);
+            if (!conflicting.isEmpty()) {
+                setWarnStatus("Turtle import successful, but the prefixes " + String.join(", ", conflicting) +
+                        " were already defined for other IRIs and have been kept. ");
+                LOGGER.warning("Kept the existing expanded forms of the imported prefixes " + conflicting + ". ");
+                return;
+            }
+            setInfoStatus("Turtle import successful: " + loaded.edgeNodes.size() + " triples read.");
+        });
+
+        importTask.setOnFailed(event -> {
+            importTtlBtn.setDisable(false);
+            Throwable e = importTask.getException();
+            if (e instanceof IOException) {
+                setErrorStatus("Turtle import failed: IOException occurred while reading the file. ");
+                LOGGER.log(Level.SEVERE, "Importing the Turtle file failed: ", e);
+            } else if (e instanceof TurtleParser.TurtleSyntaxException) {
+                setErrorStatus("Turtle import failed: " + e.getMessage() + ". ");
+                LOGGER.log(Level.SEVERE, "Parsing the Turtle file failed: ", e);
+            } else {
+                setErrorStatus("Turtle import failed: an unexpected error occurred. ");
+                LOGGER.log(Level.SEVERE, "Importing the Turtle file failed: ", e);
             }
-        } else setInfoStatus("Graph load cancelled.");
+        });
+
+        importTtlBtn.setDisable(true);
+        setInfoStatus("Importing Turtle file...");
+        Thread importer = new Thread(importTask, "graph-loader");
+        importer.setDaemon(true);
+        importer.start();
+    }
+
+    /**
+     * Replaces the graph and the canvas with a graph read in the background.
+     * @param loaded the graph and its visual elements.
+     */
+    private void showLoadedGraph(LoadedGraph loaded) {
+        classes.clear();
+        properties.clear();
+        vertexNodes.clear();
+        edgeNodes.clear();
+
+        classes.addAll(loaded.classes);
+        properties.addAll(loaded.properties);
+        vertexNodes.putAll(loaded.vertexNodes);
+        edgeNodes.putAll(loaded.edgeNodes);
+        drawPane.setPrefSize(loaded.canvasWidth, loaded.canvasHeight);
+        drawPane.getChildren().setAll(loaded.nodes);
+        loaded.nodes.forEach(this::bindLevelOfDetail);
+
+        graphCreated.setValue(true);
+    }
+
+    /**
+     * A graph read from a file, along with its visual elements, which are built while still detached from the
+     *    canvas. The elements are in the order they are drawn: properties first, below the classes and literals.
+     */
+    private static final class LoadedGraph {
+        private final List<Vertex> classes;
+        private final List<Edge> properties;
+        private final double canvasWidth, canvasHeight;
+        private final Map<Vertex, VertexNode> vertexNodes = new HashMap<>();
+        private final Map<Edge, EdgeNode>     edgeNodes   = new HashMap<>();
+        private final List<StackPane>         nodes       = new ArrayList<>();
+
+        private LoadedGraph(List<Vertex> classes, List<Edge> properties, double canvasWidth, double canvasHeight) {
+            this.classes = classes;
+            this.properties = properties;
+            this.canvasWidth = canvasWidth;
+            this.canvasHeight = canvasHeight;
+            for (Edge property : properties) {
+                EdgeNode node = new EdgeNode(property);
+                edgeNodes.put(property, node);
+                nodes.add(node);
+            }
+            for (Vertex klass : classes) {
+                VertexNode node = new VertexNode(klass);
+                vertexNodes.put(klass, node);
+                nodes.add(node);
+            }
+        }
+    }
+
+    /**
+     * On clicking the 'Auto Layout' button, lays out the graph with a {@link ForceDirectedLayout} in the background,
+     *    redrawing the canvas as the layout progresses. The canvas ignores the mouse until the layout has settled.
+     */
+    @FXML protected void autoLayoutAction() {
+        if (classes.isEmpty()) {
+            setInfoStatus("Nothing to lay out: the graph is empty. ");
+            return;
+        }
+        if (autoLayoutBtn.isDisabled()) return;
+
+        ForceDirectedLayout layout = new ForceDirectedLayout(new ArrayList<>(classes), new ArrayList<>(properties));
+        Task<double[]> layoutTask = new Task<double[]>() {
+            @Override protected double[] call() {
+                long lastFrame = System.nanoTime();
+                while (!isCancelled() && layout.step()) {
+                    long now = System.nanoTime();
+                    if (now - lastFrame > LAYOUT_FRAME_NANOS) {
+                        double[] positions = layout.getPositions();
+                        Platform.runLater(() -> showLayout(layout, positions));
+                        lastFrame = now;
+                    }
+                }
+                return layout.getPositions();
+            }
+        };
+
+        layoutTask.setOnSucceeded(event -> {
+            showLayout(layout, layoutTask.getValue());
+            finishLayout();
+            setInfoStatus("Auto layout complete. ");
+        });
+        layoutTask.setOnFailed(event -> {
+            finishLayout();
+            setErrorStatus("Auto layout failed. ");
+            LOGGER.log(Level.SEVERE, "Laying out the graph failed: ", layoutTask.getException());
+        });
+
+        autoLayoutBtn.setDisable(true);
+        drawPane.setMouseTransparent(true);
+        setInfoStatus("Laying out the graph...");
+        Thread layoutThread = new Thread(layoutTask, "graph-layout");
+        layoutThread.setDaemon(true);
+        layoutThread.start();
+    }
+
+    /**
+     * Moves the graph to the given positions of a running layout, and grows the canvas to fit it. The canvas itself is
+     *    redrawn on the next pulse, by the edgeRouter.
+     * @param layout the layout the positions came from.
+     * @param positions the positions of the Vertices.
+     */
+    private void showLayout(ForceDirectedLayout layout, double[] positions) {
+        layout.apply(positions);
+
+        double width = drawPane.getMinWidth(), height = drawPane.getMinHeight();
+        for (Vertex vertex : classes) {
+            width = Math.max(width, vertex.getLayoutX() + vertex.getWidth());
+            height = Math.max(height, vertex.getLayoutY() + vertex.getHeight());
+        }
+        drawPane.setPrefSize(width + 150, height + 150);
+
+        movedVertices.addAll(classes);
+        edgeRouter.start();
+    }
+
+    private void finishLayout() {
+        autoLayoutBtn.setDisable(false);
+        drawPane.setMouseTransparent(false);
     }
 
     /**
@@ -304,10 +631,7 @@ public final class Controller implements Initializable {
      */
     private Vertex findClassUnder(double x, double y) {
         for (Vertex klass : classes) {
-            Bounds classBounds = klass.getBounds();
-            Bounds pointBounds = new BoundingBox(x-2, y-2, 4, 4);
-
-            if (classBounds.intersects(pointBounds)) return klass;
+            if (klass.isUnder(x, y, 2)) return klass;
         }
         return null;
     }
@@ -320,7 +644,7 @@ public final class Controller implements Initializable {
      */
     private Edge findPropertyUnder(double x, double y) {
         for (Edge property : properties) {
-            Bounds propBounds = property.getBounds();
+            Bounds propBounds = edgeNodes.get(property).getNameBounds();
             Bounds pointBounds = new BoundingBox(x-1, y-1, 2, 2);
 
             if (propBounds.intersects(pointBounds)) return property;
@@ -372,18 +696,68 @@ public final class Controller implements Initializable {
                 setWarnStatus("Failed to save PNG File: You attempted to save the file as a non-.png file.");
                 return;
             }
+            Double scale = showExportScaleDialog();
+            if (scale == null) {
+                setInfoStatus("Image save cancelled.");
+                return;
+            }
+
+            // export at full detail, whatever the current zoom.
+            detailShown.setValue(true);
+            drawPane.setCache(false);
             try {
-                WritableImage writableImage = drawPane.snapshot(new SnapshotParameters(), null);
-                RenderedImage renderedImage = SwingFXUtils.fromFXImage(writableImage, null);
-                ImageIO.write(renderedImage, "png", saveFile);
+                TiledPngExporter.export(drawPane, drawPane.getWidth(), drawPane.getHeight(), scale, saveFile);
                 setInfoStatus("File saved.");
                 Desktop.getDesktop().open(saveFile);
             } catch (IOException e) {
+                setErrorStatus("Failed to save PNG File: IOException occurred during export. ");
                 LOGGER.log(Level.SEVERE, "failed to export to .png: ", e);
+            } finally {
+                double zoom = getZoom();
+                String status = statusLbl.getText();
+                setZoom(zoom);
+                statusLbl.setText(status);
+            }
+        } else setInfoStatus("Image save cancelled.");
+    }
+
+    /**
+     * On clicking 'Export as .svg' button, attempt to write the graph to a user-specified .svg file.
+     */
+    @FXML protected void exportSvgAction() {
+        File saveFile = showSaveFileDialog(
+                "ontology.svg",
+                "Save Conceptual Image As",
+                new ExtensionFilter("Scalable Vector Graphic Files (*.svg)", "*.svg")
+        );
+        if (saveFile != null){
+            if (!saveFile.getName().matches(".*\\.svg")){
+                setWarnStatus("Failed to save SVG File: You attempted to save the file as a non-.svg file.");
+                return;
+            }
+            try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(saveFile), "UTF-8"))) {
+                SvgGraphRenderer.writeSvg(classes, properties, drawPane.getWidth(), drawPane.getHeight(), writer);
+                setInfoStatus("File saved.");
+                Desktop.getDesktop().open(saveFile);
+            } catch (IOException e) {
+                setErrorStatus("Failed to save SVG File: IOException occurred during export. ");
+                LOGGER.log(Level.SEVERE, "failed to export to .svg: ", e);
             }
         } else setInfoStatus("Image save cancelled.");
     }
 
+    /**
+     * Prompts the user for the scale of the exported image, where 2x or 3x give sharper output on high-DPI displays.
+     * @return the number of image pixels per canvas pixel, or null if the export was cancelled.
+     */
+    private Double showExportScaleDialog() {
+        ChoiceDialog<Double> dialog = new ChoiceDialog<>(1.0, 1.0, 2.0, 3.0, 4.0);
+        dialog.setTitle("Export as .png");
+        dialog.setHeaderText("Image pixels per canvas pixel (use 2 or more for high-DPI output):");
+
+        return dialog.showAndWait().orElse(null);
+    }
+
     /**
      * On clicking the canvas, determine the type of action and execute it.
      * @param mouseEvent the click that triggered the method.
@@ -393,7 +767,20 @@ public final class Controller implements Initializable {
         double x = mouseEvent.getX();
         double y = mouseEvent.getY();
 
-        if (mouseEvent.isSecondaryButtonDown()){
+        if (mouseEvent.isMiddleButtonDown()){
+            panAnchorX = mouseEvent.getSceneX();
+            panAnchorY = mouseEvent.getSceneY();
+            panAnchorH = scrollPane.getHvalue();
+            panAnchorV = scrollPane.getVvalue();
+            return;
+        } else if (mouseEvent.isPrimaryButtonDown() && mouseEvent.isShiftDown() && srcClick &&
+                (vertex = findClassUnder(x, y)) != null){
+            draggedVertex = vertex;
+            dragOffsetX = x - vertex.getLayoutX();
+            dragOffsetY = y - vertex.getLayoutY();
+            setInfoStatus("Moving " + vertex.getName() + ". ");
+            return;
+        } else if (mouseEvent.isSecondaryButtonDown()){
             deleteGraphElement(mouseEvent);
         } else if ((vertex = findClassUnder(x, y)) != null && srcClick){
             addSubjectOfProperty(vertex);
@@ -412,6 +799,62 @@ public final class Controller implements Initializable {
         else graphCreated.setValue(false);
     }
 
+    /**
+     * Method invoked on dragging the mouse over the canvas: pans the canvas with the middle button, or moves the
+     *    Vertex grabbed with Shift+click.
+     * @param mouseEvent the drag that invoked the method.
+     */
+    @FXML protected void canvasDragAction(MouseEvent mouseEvent) {
+        if (mouseEvent.isMiddleButtonDown()) panAction(mouseEvent);
+        else if (draggedVertex != null) moveVertexAction(mouseEvent);
+    }
+
+    /**
+     * Drops the Vertex being dragged, if any.
+     */
+    @FXML protected void canvasReleaseAction() {
+        if (draggedVertex == null) return;
+        setInfoStatus("Moved " + draggedVertex.getName() + ". ");
+        draggedVertex = null;
+    }
+
+    /**
+     * Moves the Vertex being dragged to follow the mouse. The canvas is only redrawn on the next pulse, by the
+     *    edgeRouter.
+     * @param mouseEvent the drag that moved the Vertex.
+     */
+    private void moveVertexAction(MouseEvent mouseEvent) {
+        double x = Math.max(0, mouseEvent.getX() - dragOffsetX);
+        double y = Math.max(0, mouseEvent.getY() - dragOffsetY);
+
+        draggedVertex.setLayout(x, y);
+        resizeEdgeOfCanvas(x + draggedVertex.getWidth(), y + draggedVertex.getHeight());
+        movedVertices.add(draggedVertex);
+        edgeRouter.start();
+    }
+
+    /**
+     * Redraws the Vertices moved since the last pulse, and reroutes only the properties drawn to and from them, each
+     *    once even if both its subject and object moved. Stops the edgeRouter once there is nothing left to redraw.
+     */
+    private void routeMovedVertices() {
+        if (movedVertices.isEmpty()) {
+            edgeRouter.stop();
+            return;
+        }
+        for (Vertex vertex : movedVertices) {
+            VertexNode node = vertexNodes.get(vertex);
+            if (node != null) node.update();
+            vertex.forEachEdge(edgesToRoute::add);
+        }
+        for (Edge edge : edgesToRoute) {
+            EdgeNode node = edgeNodes.get(edge);
+            if (node != null) node.reroute();
+        }
+        movedVertices.clear();
+        edgesToRoute.clear();
+    }
+
     /**
      * Remove the specified graph element from both the canvas and the internal representation.
      * @param mouseEvent the click that specfies which graph element to remove.
@@ -423,21 +866,21 @@ public final class Controller implements Initializable {
         Edge   property;
 
         if ((klass = findClassUnder(x, y)) != null) {
-            drawPane.getChildren().remove(klass.getContainer());
+            drawPane.getChildren().remove(vertexNodes.remove(klass));
 
             for (Edge incEdge : klass.getIncomingEdges()){
-                drawPane.getChildren().remove(incEdge.getContainer());
+                drawPane.getChildren().remove(edgeNodes.remove(incEdge));
                 incEdge.getSubject().getOutgoingEdges().remove(incEdge);
                 properties.remove(incEdge);
             }
             for (Edge outEdge : klass.getOutgoingEdges()){
-                drawPane.getChildren().remove(outEdge.getContainer());
+                drawPane.getChildren().remove(edgeNodes.remove(outEdge));
                 outEdge.getObject().getIncomingEdges().remove(outEdge);
                 properties.remove(outEdge);
             }
             classes.remove(klass);
         } else if ((property = findPropertyUnder(x, y)) != null) {
-            drawPane.getChildren().remove(property.getContainer());
+            drawPane.getChildren().remove(edgeNodes.remove(property));
             property.getSubject().getOutgoingEdges().remove(property);
             property.getObject().getIncomingEdges().remove(property);
             properties.remove(property);
@@ -464,47 +907,41 @@ public final class Controller implements Initializable {
      */
     private void addObjectOfProperty(MouseEvent mouseEvent, Vertex object) {
         boolean isSelfReferential = subject == object;
-        StackPane compiledProperty;
-
-        compiledProperty = isSelfReferential ? addSelfReferentialProperty() : addNormalProperty(mouseEvent, object);
+        Edge edge;
 
-        if (compiledProperty == null) return;
+        edge = isSelfReferential ? addSelfReferentialProperty() : addNormalProperty(mouseEvent, object);
 
-        drawPane.getChildren().add(compiledProperty);
-        compiledProperty.toBack();
+        if (edge == null) return;
 
-        Label propertyName = (Label) compiledProperty.getChildren().get(1);
-        Edge edge = new Edge(compiledProperty, propertyName, subject, object);
+        addEdgeNode(edge);
         properties.add(edge);
         subject.addOutgoingEdge(edge);
         object.addIncomingEdge(edge);
 
-        setInfoStatus("Property " + propertyName.getText() + " created. ");
+        setInfoStatus("Property " + edge.getName() + " created. ");
         subject = null;
         arrow = null;
         srcClick = true;
     }
 
     /**
-     * Adds a normal (non-self-referential) property to the canvas.
+     * Adds a normal (non-self-referential) property between the subject and the given object.
      * @param mouseEvent the location of the users second click.
      * @param object the object under the users second click.
-     * @return the compiled container of the arrow and the associated name.
+     * @return the Edge of the property, or null if the user cancelled its creation.
      */
-    private StackPane addNormalProperty(MouseEvent mouseEvent, Vertex object) {
-        StackPane compiled = new StackPane();
-
+    private Edge addNormalProperty(MouseEvent mouseEvent, Vertex object) {
         object.setSnapTo(subject.getX(), subject.getY(), mouseEvent.getX(), mouseEvent.getY());
 
         arrow.setEndX(object.getX());
         arrow.setEndY(object.getY());
 
-        compiled.setLayoutX(subject.getX() < object.getX() ? subject.getX() : object.getX());
-        compiled.setLayoutY(subject.getY() < object.getY() ? subject.getY() : object.getY());
+        double layoutX = subject.getX() < object.getX() ? subject.getX() : object.getX();
+        double layoutY = subject.getY() < object.getY() ? subject.getY() : object.getY();
 
         ArrayList<String> propertyInfo = showNameElementDialog();
+        drawPane.getChildren().remove(arrow);
         if (propertyInfo == null || propertyInfo.size() == 0){
-            drawPane.getChildren().remove(arrow);
             setInfoStatus("Property creation cancelled. ");
             subject = null;
             arrow = null;
@@ -512,63 +949,39 @@ public final class Controller implements Initializable {
             return null;
         }
 
-        Label propertyName = new Label(propertyInfo.get(0));
-        BackgroundFill fill = new BackgroundFill(JFX_DEFAULT_COLOUR, CornerRadii.EMPTY, Insets.EMPTY);
-        propertyName.setBackground(new Background(fill));
-
-        double textWidth = (new Text(propertyInfo.get(0))).getBoundsInLocal().getWidth();
+        double textWidth = VertexNode.textWidth(propertyInfo.get(0));
         if (textWidth > arrow.getWidth()) {
             double overrunOneSide = (textWidth - arrow.getWidth()) / 2;
-            compiled.setLayoutX(compiled.getLayoutX() - overrunOneSide);
+            layoutX -= overrunOneSide;
         }
-        compiled.getChildren().addAll(arrow, propertyName);
 
-        return compiled;
+        Edge edge = new Edge(propertyInfo.get(0), subject, object);
+        edge.setArrow(subject.getX(), subject.getY(), object.getX(), object.getY());
+        edge.setLayout(layoutX, layoutY);
+
+        return edge;
     }
 
     /**
-     * Adds a self-referential property to the canvas.
-     * @return the compiled container of the "arrow" and the associated name.
+     * Adds a self-referential property to the subject.
+     * @return the Edge of the property, or null if the user cancelled its creation.
      */
-    private StackPane addSelfReferentialProperty() {
-        StackPane compiled = new StackPane();
-        Ellipse subEllipse = (Ellipse) subject.getContainer().getChildren().get(0);
-
-        SelfReferentialArrow selfRefArrow = new SelfReferentialArrow();
-        selfRefArrow.setCenterX(subEllipse.getCenterX() + subEllipse.getRadiusX() / 2);
-        selfRefArrow.setCenterY(subEllipse.getCenterY() + subEllipse.getRadiusY() / 2);
-        selfRefArrow.setRadiusX(subEllipse.getRadiusX() / 1.5);
-        selfRefArrow.setRadiusY(subEllipse.getRadiusY());
-
-        compiled.setLayoutX(subject.getX());
-        compiled.setLayoutY(subject.getY());
+    private Edge addSelfReferentialProperty() {
         drawPane.getChildren().remove(arrow);
         arrow = null;
 
         ArrayList<String> propertyInfo = showNameElementDialog();
         if (propertyInfo == null || propertyInfo.size() == 0){
-            drawPane.getChildren().remove(arrow);
             setInfoStatus("Property creation cancelled. ");
             subject = null;
-            arrow = null;
             srcClick = true;
             return null;
         }
 
-        Label propertyName = new Label(propertyInfo.get(0));
-        BackgroundFill fill = new BackgroundFill(JFX_DEFAULT_COLOUR, CornerRadii.EMPTY, Insets.EMPTY);
-        propertyName.setBackground(new Background(fill));
+        Edge edge = new Edge(propertyInfo.get(0), subject, subject);
+        edge.route(VertexNode.textWidth(propertyInfo.get(0)));
 
-        double textWidth = (new Text(propertyInfo.get(0))).getBoundsInLocal().getWidth();
-
-       if (textWidth > selfRefArrow.getRadiusX() * 2){
-            double overrunOneSide = (textWidth - selfRefArrow.getRadiusX()) / 2;
-            compiled.setLayoutX(compiled.getLayoutX() - overrunOneSide + subEllipse.getRadiusX() / 3);
-        }
-        compiled.getChildren().addAll(selfRefArrow, propertyName);
-        StackPane.setAlignment(propertyName, Pos.BOTTOM_CENTER);
-
-        return compiled;
+        return edge;
     }
 
     /**
@@ -581,10 +994,7 @@ public final class Controller implements Initializable {
 
         arrow = new Arrow();
         arrow.setMouseTransparent(true);
-        arrow.setStartX(subject.getX());
-        arrow.setStartY(subject.getY());
-        arrow.setEndX(subject.getX());
-        arrow.setEndY(subject.getY());
+        arrow.setEndpoints(subject.getX(), subject.getY(), subject.getX(), subject.getY());
 
         drawPane.getChildren().add(arrow);
         arrow.toBack();
@@ -612,61 +1022,65 @@ public final class Controller implements Initializable {
 
         resizeEdgeOfCanvas(x, y);
 
-        StackPane compiledElement = new StackPane();
-        compiledElement.setLayoutX(x);
-        compiledElement.setLayoutY(y);
-
         ArrayList<String> classInfo = isOntology ? showNameOntologyClassDialog() : showNameElementDialog();
         if (classInfo == null || classInfo.size() == 0) return;
-        Text elementName = new Text(classInfo.get(0));
+        String name = classInfo.get(0);
 
-        if (elementName.getText().equals("")){
+        if (name.equals("")){
             isClass = true;
-            elementName = new Text("_:" + Class.getNextBlankNodeName());
-        } else isClass = !elementName.getText().matches(globalLiteralRegex + "|" + instanceLiteralRegex);
-
-        double textWidth = elementName.getBoundsInLocal().getWidth();
-        if (isClass){
-            Ellipse elementType = new Ellipse(x, y, textWidth / 2 > 62.5 ? textWidth / 2 + 10 : 62.5, 37.5);
-            boolean isPlaceholder = classInfo.size() >= 4 && Boolean.valueOf(classInfo.get(4));
-
-            elementType.setFill(JFX_DEFAULT_COLOUR);
-            elementType.setStroke(Color.BLACK);
-            if (isPlaceholder) elementType.getStrokeDashArray().addAll(10d, 10d);
-            compiledElement.getChildren().addAll(elementType, elementName);
-        } else {
-            Rectangle elementType = new Rectangle(textWidth > 125 ? textWidth + 15 : 125, 75);
-            String name = elementName.getText();
-
-            elementType.setFill(JFX_DEFAULT_COLOUR);
-            elementType.setStroke(Color.BLACK);
-            if (name.matches(instanceLiteralRegex) && !name.matches(globalLiteralRegex))
-                elementType.getStrokeDashArray().addAll(10d, 10d);
-            compiledElement.getChildren().addAll(elementType, elementName);
-        }
+            name = "_:" + Class.getNextBlankNodeName();
+        } else isClass = !name.matches(globalLiteralRegex + "|" + instanceLiteralRegex);
 
-        drawPane.getChildren().add(compiledElement);
+        double textWidth = VertexNode.textWidth(name);
+        double radiusX = textWidth / 2 > 62.5 ? textWidth / 2 + 10 : 62.5;
+        double width = textWidth > 125 ? textWidth + 15 : 125;
+        boolean isPlaceholder = classInfo.size() >= 4 && Boolean.valueOf(classInfo.get(4));
+        Vertex vertex;
         try {
             if (isOntology && isClass) {
                 String rdfslabel = classInfo.get(2);
                 String rdfscomment = classInfo.get(3);
-                classes.add(new Class(compiledElement, rdfslabel, rdfscomment));
+                vertex = new Class(name, x, y, radiusX, 37.5, isPlaceholder, rdfslabel, rdfscomment);
             } else if (isOntology){
                 String dataType = classInfo.get(1);
-                classes.add(new Literal(compiledElement, dataType));
+                vertex = new Literal(name, x, y, width, 75, dataType);
             } else if (isClass) {
-                classes.add(new Class(compiledElement));
+                vertex = new Class(name, x, y, radiusX, 37.5, isPlaceholder);
             } else {
-                classes.add(new Literal(compiledElement));
+                vertex = new Literal(name, x, y, width, 75);
             }
         } catch (UndefinedElementTypeException e) {
             setErrorStatus("Adding the element failed: The name does not match Turtle syntax. Recreate the" +
                     " graph. ");
             LOGGER.log(Level.SEVERE, "Adding element failed: ", e);
-        } catch (OutsideElementException e) {
-            setErrorStatus("Somehow, you went outside the bounds of the canvas...");
-            LOGGER.log(Level.SEVERE, "Adding the element failed: ", e);
+            return;
         }
+
+        classes.add(vertex);
+        addVertexNode(vertex);
+    }
+
+    /**
+     * Draws a Class or Literal to the canvas.
+     * @param vertex the Class or Literal to draw.
+     */
+    private void addVertexNode(Vertex vertex) {
+        VertexNode node = new VertexNode(vertex);
+        vertexNodes.put(vertex, node);
+        drawPane.getChildren().add(node);
+        bindLevelOfDetail(node);
+    }
+
+    /**
+     * Draws a property to the canvas, below the Classes and Literals.
+     * @param edge the property to draw.
+     */
+    private void addEdgeNode(Edge edge) {
+        EdgeNode node = new EdgeNode(edge);
+        edgeNodes.put(edge, node);
+        drawPane.getChildren().add(node);
+        node.toBack();
+        bindLevelOfDetail(node);
     }
 
     /**
@@ -674,7 +1088,8 @@ public final class Controller implements Initializable {
      * @return the new user-specified ontology class information, if it exists.
      */
     private ArrayList<String> showNameOntologyClassDialog() {
-        ArrayList<String> ontologyClass = showWindow("/view/ontologyclassdialog.fxml", "Add new Ontology Class", null);
+        ArrayList<String> ontologyClass = registerTakenPrefixes(
+                showWindow("/view/ontologyclassdialog.fxml", "Add new Ontology Class", null));
         if (ontologyClass != null && ontologyClass.size() != 0) return ontologyClass;
         else return null;
     }
@@ -716,7 +1131,19 @@ public final class Controller implements Initializable {
      * @return the ArrayList containing the name and type of the given element, if applicable.
      */
     private ArrayList<String> showNameElementDialog() {
-        return showWindow("/view/newClassDialog.fxml", "Add new Graph Element", null);
+        return registerTakenPrefixes(showWindow("/view/newClassDialog.fxml", "Add new Graph Element", null));
+    }
+
+    /**
+     * Adds the prefixes taken from the suggestions of a dialog to the prefixes of the graph, if the committed names use
+     *    them and they are not defined yet.
+     * @param names the data committed from the dialog, or null if it was cancelled.
+     * @return the given data.
+     */
+    private ArrayList<String> registerTakenPrefixes(ArrayList<String> names) {
+        List<String> added = PrefixAutoCompleter.registerTaken(prefixes, names == null ? new ArrayList<>() : names);
+        if (!added.isEmpty()) LOGGER.info("Added the suggested prefixes " + added + ". ");
+        return names;
     }
 
     /**
@@ -769,82 +1196,252 @@ public final class Controller implements Initializable {
     }
 
     /**
-     * Loads and parses a given .csv file into a List<CSVRecord>.
+     * Loads and parses a given .csv file into a ColumnarTable, and profiles its columns. Both read every record, so
+     *    they run on a background thread, like loading a graph; the ingested .csv replaces the last one once done.
      */
     @FXML protected void ingestCsvAction(){
         File loadFile = showLoadFileDialog(
                 "Load .csv for Instance-Level Turtle Generation",
                 new ExtensionFilter("Comma Separated Values (*.csv)", "*.csv")
         );
-        if (loadFile != null){
-            csv = null;
-            headers = null;
-            try (Reader reader = new BufferedReader(new FileReader(loadFile))){
-                CSVParser parser = CSVFormat.DEFAULT.withFirstRecordAsHeader().parse(reader);
-                headers = parser.getHeaderMap();
-                csv = parser.getRecords();
-                setInfoStatus(".csv ingested. Yum.");
-                LOGGER.info("Ingested " + loadFile.getName() + ".\nFound csv headers: " + headers);
-                instanceBtn.setDisable(false);
-                parser.close();
-                csvIngested.setValue(true);
-            } catch (IOException e) {
-                e.printStackTrace();
+        if (loadFile == null) {
+            setInfoStatus(".csv ingesting cancelled. ");
+            return;
+        }
+
+        Task<Map.Entry<ColumnarTable, List<ColumnProfile>>> ingestTask =
+                new Task<Map.Entry<ColumnarTable, List<ColumnProfile>>>() {
+            @Override protected Map.Entry<ColumnarTable, List<ColumnProfile>> call() throws Exception {
+                try (Reader reader = new BufferedReader(new FileReader(loadFile));
+                     CSVParser parser = CSVFormat.DEFAULT.withFirstRecordAsHeader().parse(reader)) {
+                    // kept column by column, so regenerating after changing the graph reads nothing from the file
+                    //    again.
+                    ColumnarTable table = ColumnarTable.of(parser.getHeaderMap(), parser);
+                    List<ColumnProfile> profiles = ColumnProfiler.profile(table.getHeaders(), table, Long.MAX_VALUE);
+                    return new AbstractMap.SimpleImmutableEntry<>(table, profiles);
+                }
+            }
+        };
+
+        ingestTask.setOnSucceeded(event -> {
+            eatCsvBtn.setDisable(false);
+            csv = ingestTask.getValue().getKey();
+            headers = csv.getHeaders();
+            columnProfiles = ingestTask.getValue().getValue();
+            setInfoStatus(".csv ingested. Yum.");
+            LOGGER.info("Ingested " + loadFile.getName() + ".\nFound csv headers: " + headers +
+                    "\nStored " + csv + "\nProfiled columns: " + columnProfiles);
+            instanceBtn.setDisable(false);
+            csvIngested.setValue(true);
+        });
+
+        ingestTask.setOnFailed(event -> {
+            eatCsvBtn.setDisable(false);
+            instanceBtn.setDisable(csv == null);
+            Throwable e = ingestTask.getException();
+            if (e instanceof IOException) {
+                setErrorStatus("Failed to ingest .csv: IOException occurred while reading the file. ");
+                LOGGER.log(Level.SEVERE, "Ingesting the .csv failed: ", e);
+            } else {
+                setErrorStatus("Failed to ingest .csv: a record could not be read. ");
+                LOGGER.log(Level.SEVERE, "Parsing the .csv failed: ", e);
             }
-        } else setInfoStatus(".csv ingesting cancelled. ");
+        });
+
+        eatCsvBtn.setDisable(true);
+        instanceBtn.setDisable(true);
+        setInfoStatus("Ingesting .csv...");
+        Thread ingester = new Thread(ingestTask, "csv-ingester");
+        ingester.setDaemon(true);
+        ingester.start();
     }
 
     /**
      * Attempts to generate instance-level Turtle given a valid graph and .csv data.
      * Also attempts to correlate the .csv headers and graph classes - if there are some left over, it is left to the
-     *    user.
+     *    user. The values are then checked against their datatypes, and the data generated, on background threads.
      */
     @FXML protected void instanceGenAction() {
-        String instanceData;
-        DataIntegrator dataIntegrator = new DataIntegrator(headers, csv, classes, prefixes);
-        dataIntegrator.attemptCorrelationOfHeaders();
+        // generated in the background, from copies of the graph and prefixes, as they may be edited in the meantime.
+        ColumnarTable records = csv;
+        DataIntegrator dataIntegrator = new DataIntegrator(headers, records, new ArrayList<>(classes),
+                new HashMap<>(prefixes));
+        if (columnProfiles != null) dataIntegrator.setColumnProfiles(columnProfiles);
+        dataIntegrator.setCompactIris(config.get(3) || config.get(4));
+        dataIntegrator.setGroupBySubject(config.get(4));
+        boolean deduplicate = config.get(5);
+        dataIntegrator.setNTriples(deduplicate);
+
+        // the correlations are saved under a fingerprint of the headers and graph, and reused while both are unchanged.
+        String fingerprint = CorrelationProfile.fingerprint(headers, classes);
+        CorrelationProfile profile = loadCorrelationProfile(fingerprint);
+        if (profile != null && profile.applyTo(dataIntegrator, classes)) {
+            LOGGER.info("Applied saved correlations " + fingerprint + ":\nCorrelated: " +
+                    dataIntegrator.getCorrelations().toString());
+        } else {
+            dataIntegrator.attemptCorrelationOfHeaders();
 
-        LOGGER.info("BEFORE Correlation:\nCorrelated: " + dataIntegrator.getCorrelations().toString() +
-                "\nUncorrelated: " + dataIntegrator.uncorrelatedToString());
+            LOGGER.info("BEFORE Correlation:\nCorrelated: " + dataIntegrator.getCorrelations().toString() +
+                    "\nUncorrelated: " + dataIntegrator.uncorrelatedToString());
 
-        if (dataIntegrator.getUncorrelated() != null && dataIntegrator.getUncorrelated().getKey().size() != 0)
-            showManualCorrelationDialog(dataIntegrator);
-        if (dataIntegrator.getUncorrelated() != null && dataIntegrator.getUncorrelated().getKey().size() != 0){
-            LOGGER.info("Cancelled Manual Correlations. ");
-            return;
+            if (dataIntegrator.needsReview() && !showManualCorrelationDialog(dataIntegrator)){
+                LOGGER.info("Cancelled Manual Correlations. ");
+                return;
+            }
+
+            LOGGER.info("AFTER Correlation:" + "\nCorrelated: " + dataIntegrator.getCorrelations().toString());
+            saveCorrelationProfile(CorrelationProfile.of(fingerprint, dataIntegrator.getCorrelations()));
         }
 
-        LOGGER.info("AFTER Correlation:" + "\nCorrelated: " + dataIntegrator.getCorrelations().toString());
+        // every value is checked against its datatype before generating, which reads the whole .csv, so in the
+        //    background too; the user is asked whether to go on from the FX thread once it is done.
+        Task<ColumnProfiler.ValidationReport> validationTask = new Task<ColumnProfiler.ValidationReport>() {
+            @Override protected ColumnProfiler.ValidationReport call() {
+                return dataIntegrator.validate(MAX_SHOWN_INVALID_VALUES);
+            }
+        };
 
-        try {
-            instanceData = dataIntegrator.generate();
-        } catch (DataIntegrator.PrefixMissingException e) {
-            setErrorStatus("Data Integration failed: '" + e.getMissing() + "' is referenced in graph but not " +
-                    "defined in the Prefixes Menu. ");
-            LOGGER.log(Level.SEVERE, "Integration failed: ", e);
+        validationTask.setOnSucceeded(event -> {
+            instanceBtn.setDisable(false);
+            if (!confirmInvalidValues(validationTask.getValue())) {
+                setWarnStatus("Generation cancelled: some values do not match the datatypes of their literals. ");
+                return;
+            }
+            generateInstanceData(dataIntegrator, records, deduplicate);
+        });
+
+        validationTask.setOnFailed(event -> {
+            instanceBtn.setDisable(false);
+            setErrorStatus("Data Integration failed: the values could not be checked against their datatypes. ");
+            LOGGER.log(Level.SEVERE, "Validating the values failed: ", validationTask.getException());
+        });
+
+        instanceBtn.setDisable(true);
+        setInfoStatus("Checking the values against their datatypes...");
+        Thread validator = new Thread(validationTask, "instance-validator");
+        validator.setDaemon(true);
+        validator.start();
+    }
+
+    /**
+     * Asks where to save the instance-level data, and generates it there in the background.
+     * @param dataIntegrator the correlated DataIntegrator to generate with.
+     * @param records the ingested .csv the DataIntegrator was made with.
+     * @param deduplicate whether to write sorted, distinct N-Triples.
+     */
+    private void generateInstanceData(DataIntegrator dataIntegrator, ColumnarTable records, boolean deduplicate) {
+        File saveFile = deduplicate
+                ? showSaveFileDialog(
+                        "instance.nt",
+                        "Save Instance-Level N-Triples Document",
+                        new ExtensionFilter("N-Triples Files (*.nt)", "*.nt"))
+                : showSaveFileDialog(
+                        "instance.ttl",
+                        "Save Instance-Level Turtle Document",
+                        new ExtensionFilter("Turtle Files (*.ttl)", "*.ttl"));
+        if (saveFile == null) return;
+        if (!saveFile.getName().matches(deduplicate ? ".*\\.(nt|ttl)" : ".*\\.ttl")){
+            setWarnStatus("Failed to save Turtle File: You attempted to save the file as a non-" +
+                    (deduplicate ? ".nt or .ttl" : ".ttl") + " file.");
             return;
         }
 
-        File saveFile = showSaveFileDialog(
-                "instance.ttl",
-                "Save Instance-Level Turtle Document",
-                new ExtensionFilter("Turtle Files (*.ttl)", "*.ttl")
-        );
-        if (saveFile != null){
-            if (!saveFile.getName().matches(".*\\.ttl")){
-                setWarnStatus("Failed to save Turtle File: You attempted to save the file as a non-.ttl file.");
-                return;
+        // the records are generated and written in stages, with the triples deduplicated on the way if asked, on a
+        //    background thread so the window stays responsive while a large .csv is written.
+        GenerationPipeline pipeline = new GenerationPipeline(dataIntegrator);
+        if (deduplicate) pipeline.setDeduplication(ExternalSortDeduplicator.DEFAULT_MEMORY_BUDGET, null);
+        Task<Void> generationTask = new Task<Void>() {
+            @Override protected Void call() throws Exception {
+                try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(saveFile),
+                        StandardCharsets.UTF_8))) {
+                    pipeline.run(records, writer);
+                }
+                return null;
             }
+        };
+
+        generationTask.setOnSucceeded(event -> {
+            instanceBtn.setDisable(false);
+            if (deduplicate) LOGGER.info(pipeline.dedupeToString());
+            setInfoStatus("Instance-level Turtle saved.");
+            LOGGER.info("Term cache: " + dataIntegrator.termCacheToString());
             try {
-                FileWriter writer = new FileWriter(saveFile);
-                writer.write(instanceData);
-                writer.flush();
-                writer.close();
-                setInfoStatus("Instance-level Turtle saved.");
                 Desktop.getDesktop().open(saveFile);
-            } catch (IOException e) {
-                e.printStackTrace();
+            } catch (IOException | UnsupportedOperationException e) {
+                setWarnStatus("Instance-level Turtle saved, but it could not be opened. ");
+                LOGGER.log(Level.WARNING, "Opening the instance-level Turtle failed: ", e);
             }
+        });
+
+        generationTask.setOnFailed(event -> {
+            instanceBtn.setDisable(false);
+            // the instance data is written as it is generated, so don't leave the partial file behind.
+            if (saveFile.exists() && !saveFile.delete())
+                LOGGER.warning("Failed to remove the partial file " + saveFile + ". ");
+            Throwable e = generationTask.getException();
+            if (e instanceof DataIntegrator.PrefixMissingException) {
+                setErrorStatus("Data Integration failed: '" + ((DataIntegrator.PrefixMissingException) e).getMissing() +
+                        "' is referenced in graph but not defined in the Prefixes Menu. ");
+                LOGGER.log(Level.SEVERE, "Integration failed: ", e);
+            } else if (e instanceof IOException) {
+                setErrorStatus("Failed to save Turtle File: IOException occurred while writing the file. ");
+                LOGGER.log(Level.SEVERE, "Writing the instance-level Turtle failed: ", e);
+            } else {
+                setErrorStatus("Data Integration failed: generation was stopped before it finished. ");
+                LOGGER.log(Level.SEVERE, "Integration stopped: ", e);
+            }
+        });
+
+        instanceBtn.setDisable(true);
+        setInfoStatus("Generating instance-level Turtle...");
+        Thread generator = new Thread(generationTask, "instance-generator");
+        generator.setDaemon(true);
+        generator.start();
+    }
+
+    /**
+     * If some values would generate literals that are not valid for their datatype, asks the user whether to generate
+     *    regardless, showing the first of them.
+     * @param report the outcome of checking the values against their datatypes.
+     * @return whether to go on generating.
+     */
+    private boolean confirmInvalidValues(ColumnProfiler.ValidationReport report) {
+        if (report.getInvalid() == 0) return true;
+        LOGGER.warning(report.getInvalid() + " of " + report.getChecked() + " typed values are invalid: " +
+                report.getErrors());
+
+        ButtonType generate = new ButtonType("Generate Anyway", ButtonBar.ButtonData.OK_DONE);
+        Alert alert = new Alert(Alert.AlertType.WARNING, String.join("\n", report.getErrors()) +
+                (report.getInvalid() > report.getErrors().size() ? "\n..." : ""), generate, ButtonType.CANCEL);
+        alert.setTitle("Invalid Values");
+        alert.setHeaderText(report.getInvalid() + " of " + report.getChecked() +
+                " typed values do not match the datatype of their literal.");
+        return alert.showAndWait().filter(generate::equals).isPresent();
+    }
+
+    /**
+     * Loads the saved correlations of the given fingerprint, if there are any.
+     * @param fingerprint the fingerprint of the .csv headers and the graph.
+     * @return the saved correlations, or null if there are none or they could not be read.
+     */
+    private CorrelationProfile loadCorrelationProfile(String fingerprint) {
+        try {
+            return CorrelationProfile.load(CorrelationProfile.getDefaultDirectory(), fingerprint);
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Loading the saved correlations failed: ", e);
+            return null;
+        }
+    }
+
+    /**
+     * Saves correlations, so they are applied the next time the same .csv headers are generated against the same graph.
+     * @param profile the correlations to save.
+     */
+    private void saveCorrelationProfile(CorrelationProfile profile) {
+        try {
+            profile.save(CorrelationProfile.getDefaultDirectory());
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Saving the correlations failed: ", e);
         }
     }
 
@@ -852,11 +1449,12 @@ public final class Controller implements Initializable {
      * Show the manual correlations dialog, prompting the user to correlate the .csv headers and the graph classes,
      *    modifying the underlying DataIntegerator.
      * @param generator the DataIntegrator that is modified when the user determines the correlations between data.
+     * @return whether the user committed the correlations, rather than cancelling.
      */
-    private void showManualCorrelationDialog(DataIntegrator generator){
+    private boolean showManualCorrelationDialog(DataIntegrator generator){
         ArrayList<DataIntegrator> data = new ArrayList<>();
         data.add(generator);
-        showWindow("/view/correlateDialog.fxml", "Set Manual Correlations", data);
+        return showWindow("/view/correlateDialog.fxml", "Set Manual Correlations", data) != null;
     }
 
     /**
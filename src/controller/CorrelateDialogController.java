@@ -7,14 +7,18 @@ import javafx.collections.FXCollections;
 import javafx.fxml.FXML;
 import javafx.fxml.Initializable;
 import javafx.scene.control.Button;
+import javafx.scene.control.ListCell;
 import javafx.scene.control.ListView;
 import javafx.stage.Stage;
-import javafx.util.Pair;
+import model.conceptual.Literal;
 import model.conceptual.Vertex;
+import model.dataintegration.ColumnProfile;
 import model.dataintegration.Correlation;
 import model.dataintegration.DataIntegrator;
+import model.dataintegration.XsdType;
 
 import java.net.URL;
+import java.util.AbstractMap;
 import java.util.ArrayList;
 import java.util.ResourceBundle;
 import java.util.stream.Collectors;
@@ -23,7 +27,7 @@ import java.util.stream.Collectors;
  * The controller for view.correlateDialog.fxml.
  */
 public class CorrelateDialogController extends DataSharingController<DataIntegrator> implements Initializable {
-    @FXML Button addManualCorrBtn, addHeaderBtn, commitBtn, cancelBtn;
+    @FXML Button addManualCorrBtn, removeCorrBtn, addHeaderBtn, commitBtn, cancelBtn;
     @FXML ListView<String> csvHeaderList;
     @FXML ListView<String> csvTtlCorrelationList;
     @FXML ListView<String> ttlHeaderList;
@@ -41,6 +45,7 @@ public class CorrelateDialogController extends DataSharingController<DataIntegra
     private ArrayList<String> uncorrelatedTtlClassNames;
 
     private DataIntegrator dataIntegrator;
+    private boolean isCommitted;
 
     /**
      * Initializes listeners for BooleanProperties relating to the state of the csvHeaderList, ttlHeaderList.
@@ -67,6 +72,22 @@ public class CorrelateDialogController extends DataSharingController<DataIntegra
             if      (oldV == null) isSelectionFromTtlList.setValue(true);
             else if (newV == null) isSelectionFromTtlList.setValue(false);
         }));
+
+        csvTtlCorrelationList.getSelectionModel().selectedIndexProperty().addListener((observable, oldV, newV) ->
+                removeCorrBtn.setDisable(newV.intValue() < 0));
+
+        // shows what each header's column looks like, to help choose what to correlate it with.
+        csvHeaderList.setCellFactory(list -> new ListCell<String>() {
+            @Override protected void updateItem(String item, boolean empty) {
+                super.updateItem(item, empty);
+                if (empty || item == null) {
+                    setText(null);
+                    return;
+                }
+                ColumnProfile profile = dataIntegrator.getColumnProfile(Integer.parseInt(item.split(" ")[0]));
+                setText(profile != null ? item + "  (" + profile.summary() + ")" : item);
+            }
+        });
     }
 
     /**
@@ -99,11 +120,57 @@ public class CorrelateDialogController extends DataSharingController<DataIntegra
         }
 
         correlations.add(new Correlation(index, csvAttribute, ttlClass));
+        showCorrelations();
+    }
+
+    /**
+     * Rejects the selected correlation, such as a wrong match proposed by similarity, returning its .csv header and
+     *    .ttl class to the uncorrelated lists.
+     */
+    @FXML void removeCorrelationAction() {
+        int selected = csvTtlCorrelationList.getSelectionModel().getSelectedIndex();
+        if (selected < 0) return;
+
+        Correlation correlation = correlations.remove(selected);
+        String header = correlation.getIndex() + " " + correlation.getCsvHeader();
+        uncorrelatedCsvHeaders.add(header);
+        csvHeaderList.getItems().add(header);
+        uncorrelatedTtlClasses.add(correlation.getTtlClass());
+        uncorrelatedTtlClassNames.add(correlation.getTtlClass().getName());
+        ttlHeaderList.getItems().add(correlation.getTtlClass().getName());
+
+        showCorrelations();
+    }
+
+    /**
+     * Lists the correlations, with the confidence of those proposed by similarity, and only allows them to be
+     *    committed once every .csv header is correlated. Literals whose datatype differs from what their column looks
+     *    like are marked with the inferred datatype.
+     */
+    private void showCorrelations() {
         ArrayList<String> correlationStrList = correlations
                         .stream()
-                        .map(Correlation::toString)
+                        .map(this::describe)
                         .collect(Collectors.toCollection(ArrayList::new));
         csvTtlCorrelationList.setItems(FXCollections.observableArrayList(correlationStrList));
+        commitBtn.setDisable(!uncorrelatedCsvHeaders.isEmpty());
+    }
+
+    /**
+     * @param correlation a correlation of a .csv header and a .ttl class.
+     * @return the correlation, marked with the datatype its column looks like if its values do not fit its literal's.
+     */
+    private String describe(Correlation correlation) {
+        ColumnProfile profile = dataIntegrator.getColumnProfile(correlation.getIndex());
+        if (profile == null || !(correlation.getTtlClass() instanceof Literal)) return correlation.toString();
+
+        XsdType declared = XsdType.of(((Literal) correlation.getTtlClass()).getDataType());
+        XsdType inferred = profile.getInferredType();
+        boolean fits = declared == null || declared == XsdType.STRING
+                ? inferred == XsdType.STRING
+                : profile.getSample().stream().allMatch(declared::isValid);
+        if (fits) return correlation.toString();
+        return correlation + " [data looks like " + inferred + "]";
     }
 
     /**
@@ -116,7 +183,8 @@ public class CorrelateDialogController extends DataSharingController<DataIntegra
      */
     @FXML void commitCorrelationAction() {
         dataIntegrator.setCorrelations(correlations);
-        dataIntegrator.setUncorrelated(new Pair<>(uncorrelatedCsvHeaders, uncorrelatedTtlClasses));
+        dataIntegrator.setUncorrelated(new AbstractMap.SimpleImmutableEntry<>(uncorrelatedCsvHeaders, uncorrelatedTtlClasses));
+        isCommitted = true;
         Stage stage = (Stage) commitBtn.getScene().getWindow();
         stage.close();
     }
@@ -135,31 +203,30 @@ public class CorrelateDialogController extends DataSharingController<DataIntegra
      */
     @Override
     public void setData(ArrayList<DataIntegrator> data) {
+        isCommitted = false;
         dataIntegrator = data.get(0);
-        correlations = dataIntegrator.getCorrelations();
-        ArrayList<String> correlationStrings = correlations
-                .stream()
-                .map(Correlation::toString)
-                .collect(Collectors.toCollection(ArrayList::new));
-
-        csvTtlCorrelationList.setItems(FXCollections.observableArrayList(correlationStrings));
+        correlations = new ArrayList<>(dataIntegrator.getCorrelations());
 
-        uncorrelatedCsvHeaders = dataIntegrator.getUncorrelated().getKey();
+        boolean hasUncorrelated = dataIntegrator.getUncorrelated() != null;
+        uncorrelatedCsvHeaders = hasUncorrelated ? new ArrayList<>(dataIntegrator.getUncorrelated().getKey()) : new ArrayList<>();
         csvHeaderList.setItems(FXCollections.observableArrayList(uncorrelatedCsvHeaders));
-        uncorrelatedTtlClasses = dataIntegrator.getUncorrelated().getValue();
+        uncorrelatedTtlClasses = hasUncorrelated ? new ArrayList<>(dataIntegrator.getUncorrelated().getValue()) : new ArrayList<>();
         uncorrelatedTtlClassNames = uncorrelatedTtlClasses
                 .stream()
                 .map(Vertex::getName)
                 .collect(Collectors.toCollection(ArrayList::new));
         ttlHeaderList.setItems(FXCollections.observableArrayList(uncorrelatedTtlClassNames));
+        showCorrelations();
     }
 
     /**
      * Add the data that the Controller can access from this class.
-     * @return the data that can be accessed when the Controller calls this method.
+     * @return the data that can be accessed when the Controller calls this method, or null if the correlations were
+     *    cancelled.
      */
     @Override
     public ArrayList<DataIntegrator> getData() {
+        if (!isCommitted) return null;
         ArrayList<DataIntegrator> data = new ArrayList<>();
         data.add(dataIntegrator);
         return data;
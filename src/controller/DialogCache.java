@@ -0,0 +1,109 @@
+package controller;
+
+import javafx.fxml.FXMLLoader;
+import javafx.scene.Parent;
+import javafx.scene.Scene;
+import javafx.stage.Modality;
+import javafx.stage.Stage;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Holds the dialogs of the application, so each fxml file is parsed once, and its controller and window are reused
+ *    every time the dialog is shown afterwards.
+ * Dialogs can be preloaded in the background, so the first time they are shown does not wait on the parsing either.
+ */
+class DialogCache {
+    private static final Logger LOGGER = Logger.getLogger(DialogCache.class.getName());
+
+    private final Map<String, CompletableFuture<Dialog>> dialogs = new ConcurrentHashMap<>();
+    private final ExecutorService loader = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "dialog-preloader");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * A parsed dialog: its layout and controller, and the window that shows it, once it has been shown.
+     */
+    private static final class Dialog {
+        private final Parent parent;
+        private final DataSharingController<?> controller;
+        private Stage stage;
+
+        private Dialog(Parent parent, DataSharingController<?> controller) {
+            this.parent = parent;
+            this.controller = controller;
+        }
+    }
+
+    /**
+     * Starts parsing the given fxml files in the background. The controls of a dialog can be created off the JavaFX
+     *    Application Thread as long as they are not yet in a window, which only happens once the dialog is shown.
+     * @param fxmls the fxml files of the dialogs to preload.
+     */
+    void preload(String... fxmls) {
+        for (String fxml : fxmls) dialogs.computeIfAbsent(fxml, f -> CompletableFuture.supplyAsync(() -> load(f), loader));
+    }
+
+    /**
+     * Shows the dialog defined in the fxml file and waits for it to be closed, passing data of type T to and from its
+     *    controller. Must be called on the JavaFX Application Thread.
+     * @param fxml the fxml file in which the layout is defined.
+     * @param title the title of the dialog.
+     * @param data the parameters passed to the controller.
+     * @param <T> the type of data passed to and from the controller.
+     * @return the data after it has been modified by the controller, or null if the dialog could not be loaded.
+     */
+    @SuppressWarnings("unchecked")
+    <T> ArrayList<T> show(String fxml, String title, ArrayList<T> data) {
+        Dialog dialog;
+        try {
+            dialog = dialogs.computeIfAbsent(fxml, f -> CompletableFuture.completedFuture(load(f))).join();
+        } catch (UncheckedIOException | CompletionException e) {
+            // a failed load is not cached, so the dialog can be loaded again the next time it is shown.
+            dialogs.remove(fxml);
+            LOGGER.log(Level.SEVERE, "Loading the dialog " + fxml + " failed: ", e);
+            return null;
+        }
+
+        if (dialog.stage == null) {
+            dialog.stage = new Stage();
+            dialog.stage.initModality(Modality.APPLICATION_MODAL);
+            dialog.stage.setScene(new Scene(dialog.parent));
+            dialog.stage.setResizable(false);
+        }
+
+        DataSharingController<T> controller = (DataSharingController<T>) dialog.controller;
+        controller.setData(data);
+        dialog.stage.setTitle(title);
+        dialog.stage.showAndWait();
+
+        return controller.getData();
+    }
+
+    /**
+     * Parses the fxml file of a dialog.
+     * @param fxml the fxml file in which the layout is defined.
+     * @return the parsed dialog.
+     */
+    private Dialog load(String fxml) {
+        try {
+            FXMLLoader fxmlLoader = new FXMLLoader(DialogCache.class.getResource(fxml));
+            Parent parent = fxmlLoader.load();
+            return new Dialog(parent, fxmlLoader.getController());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
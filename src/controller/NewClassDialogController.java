@@ -32,9 +32,11 @@ public class NewClassDialogController extends DataSharingController<String> impl
      * Adds listeners for the BooleanProperties that determine what to show in the dataTypeLbl depending on the type
      *    of graph element - Instance or Global Literal, or Class.
      * Adds listener for change on the textfield to help facilitate the determination of the above BooleanProperties.
+     * Suggests prefixes as the name is typed.
      */
     @Override
     public void initialize(URL location, ResourceBundle resources) {
+        PrefixAutoCompleter.attach(classNameTfd, false);
         classNameTfd.textProperty().addListener(((observable, oldValue, newValue) -> {
             final String stringLitRegex   = "\".+\"";
             final String otherLitRegex    = "\".+\"\\^\\^.*";
@@ -107,11 +109,15 @@ public class NewClassDialogController extends DataSharingController<String> impl
     }
 
     /**
-     * No data is needed in this Controller
+     * No data is needed in this Controller, but as the dialog is reused, the previous element is cleared.
      * @param data the data to be passed to this controller.
      */
     @Override
-    public void setData(ArrayList<String> data) {}
+    public void setData(ArrayList<String> data) {
+        commitData = new ArrayList<>();
+        classNameTfd.clear();
+        classNameTfd.requestFocus();
+    }
 
     /**
      * Determine the data the Controller can access, if it exists.
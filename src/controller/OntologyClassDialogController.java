@@ -33,10 +33,13 @@ public class OntologyClassDialogController extends DataSharingController<String>
      * Adds listeners for the BooleanProperties that determine what fields to enable and disable depending on the type
      *    of graph element - Instance or Global Literal, or Class.
      * Adds listener for change on the textfield to help facilitate the determination of the above BooleanProperties.
+     * Suggests prefixes as the name and type are typed.
      */
     @Override
     public void initialize(URL location, ResourceBundle resources) {
         placeholderClassCbx.setSelected(false);
+        PrefixAutoCompleter.attach(nameTfd, false);
+        PrefixAutoCompleter.attach(typeTfd, false);
 
         nameTfd.textProperty().addListener(((observable, oldValue, newValue) -> {
             final String stringLitRegex   = "\".+\"";
@@ -120,11 +123,19 @@ public class OntologyClassDialogController extends DataSharingController<String>
     }
 
     /**
-     * Data is not passed to this controller.
+     * Data is not passed to this controller, but as the dialog is reused, the previous class is cleared.
      * @param data the data that would be passed to this controller.
      */
     @Override
-    public void setData(ArrayList<String> data) {}
+    public void setData(ArrayList<String> data) {
+        commit_data = new ArrayList<>();
+        nameTfd.clear();
+        typeTfd.clear();
+        labelTfd.clear();
+        commentTxa.clear();
+        placeholderClassCbx.setSelected(false);
+        nameTfd.requestFocus();
+    }
 
     /**
      * Pass the data from this controller to the calling Controller.
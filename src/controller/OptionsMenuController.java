@@ -12,7 +12,7 @@ import java.util.ArrayList;
  */
 public class OptionsMenuController extends DataSharingController<Boolean> {
     @FXML Button cancelBtn, commitBtn;
-    @FXML CheckBox collectionsCbx, blankCbx, ontologyCbx;
+    @FXML CheckBox collectionsCbx, blankCbx, ontologyCbx, compactCbx, groupCbx, dedupeCbx;
 
     private ArrayList<Boolean> commit_config;
 
@@ -24,6 +24,9 @@ public class OptionsMenuController extends DataSharingController<Boolean> {
         commit_config.add(collectionsCbx.isSelected());
         commit_config.add(blankCbx.isSelected());
         commit_config.add(ontologyCbx.isSelected());
+        commit_config.add(compactCbx.isSelected());
+        commit_config.add(groupCbx.isSelected());
+        commit_config.add(dedupeCbx.isSelected());
         Stage stage = (Stage) commitBtn.getScene().getWindow();
         stage.close();
     }
@@ -42,9 +45,13 @@ public class OptionsMenuController extends DataSharingController<Boolean> {
      */
     @Override
     public void setData(ArrayList<Boolean> data) {
+        commit_config = null;
         collectionsCbx.setSelected(data.get(0));
         blankCbx.setSelected(data.get(1));
         ontologyCbx.setSelected(data.get(2));
+        compactCbx.setSelected(data.get(3));
+        groupCbx.setSelected(data.get(4));
+        dedupeCbx.setSelected(data.get(5));
     }
 
     /**
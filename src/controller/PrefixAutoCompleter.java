@@ -0,0 +1,121 @@
+package controller;
+
+import javafx.geometry.Side;
+import javafx.scene.control.ContextMenu;
+import javafx.scene.control.MenuItem;
+import javafx.scene.control.TextField;
+import javafx.scene.input.KeyCode;
+import javafx.scene.input.KeyEvent;
+import model.conversion.ttl.PrefixRegistry;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Suggests prefixes from the bundled {@link PrefixRegistry} as an acronym is typed into a text field. A suggestion is
+ *    taken by clicking it, or the first one with Tab.
+ * A prefix taken as the start of a prefixed name is remembered until the dialog is committed, when its expansion is
+ *    registered with {@link #registerTaken}, so the name can be generated without visiting the prefix menu.
+ */
+class PrefixAutoCompleter {
+    private static final int MAX_SUGGESTIONS = 10;
+
+    // the expansions of the prefixes taken as the start of a prefixed name, by acronym, until they are registered.
+    private static final Map<String, String> taken = new HashMap<>();
+
+    private final TextField field;
+    private final boolean asDeclaration;
+    private final ContextMenu suggestions = new ContextMenu();
+
+    /**
+     * @param field the text field to suggest prefixes in.
+     * @param asDeclaration whether a suggestion completes a whole prefix declaration, "acronym : expansion", as typed
+     *                      into the prefix menu, rather than the start of a prefixed name, "acronym:".
+     */
+    private PrefixAutoCompleter(TextField field, boolean asDeclaration) {
+        this.field = field;
+        this.asDeclaration = asDeclaration;
+
+        field.textProperty().addListener((observable, oldValue, newValue) -> suggest(newValue));
+        field.focusedProperty().addListener((observable, oldValue, newValue) -> {
+            if (!newValue) suggestions.hide();
+        });
+        field.addEventFilter(KeyEvent.KEY_PRESSED, keyEvent -> {
+            if (keyEvent.getCode() == KeyCode.TAB && suggestions.isShowing()) {
+                suggestions.getItems().get(0).fire();
+                keyEvent.consume();
+            }
+        });
+    }
+
+    /**
+     * Adds prefix suggestions to the text field.
+     * @param field the text field to suggest prefixes in.
+     * @param asDeclaration whether a suggestion completes a whole prefix declaration rather than a prefixed name.
+     */
+    static void attach(TextField field, boolean asDeclaration) {
+        new PrefixAutoCompleter(field, asDeclaration);
+    }
+
+    /**
+     * Adds the prefixes taken from the suggestions since the last call to the given prefixes, where the names use them
+     *    and they are not defined already. A declaration taken in the prefix menu is added by the menu itself.
+     * @param prefixes the map of prefix acronyms and their expanded form.
+     * @param names the names committed from the dialog the suggestions were taken in.
+     * @return the acronyms added.
+     */
+    static List<String> registerTaken(Map<String, String> prefixes, List<String> names) {
+        List<String> added = new ArrayList<>();
+        for (String name : names) {
+            int colon = name == null ? -1 : name.indexOf(':');
+            if (colon <= 0) continue;
+            String acronym = name.substring(0, colon);
+            String expansion = taken.get(acronym);
+            if (expansion != null && prefixes.putIfAbsent(acronym, expansion) == null) added.add(acronym);
+        }
+        taken.clear();
+        return added;
+    }
+
+    /**
+     * Shows the acronyms that begin with what is being typed, or hides the suggestions if there are none. Declarations
+     *    may be comma-separated, in which case only the last one is completed.
+     * @param text the text of the field.
+     */
+    private void suggest(String text) {
+        int comma = asDeclaration ? text.lastIndexOf(", ") : -1;
+        int start = comma < 0 ? 0 : comma + 2;
+        String typed = text.substring(start);
+
+        if (!typed.matches("[A-Za-z][\\w\\-]*")) {
+            suggestions.hide();
+            return;
+        }
+
+        PrefixRegistry registry = PrefixRegistry.getInstance();
+        List<String> acronyms = registry.complete(typed, MAX_SUGGESTIONS);
+        if (acronyms.isEmpty()) {
+            suggestions.hide();
+            return;
+        }
+
+        final int replaceFrom = start;
+        suggestions.getItems().clear();
+        for (String acronym : acronyms) {
+            String expansion = registry.getExpansion(acronym);
+            String completion = asDeclaration ? acronym + " : " + expansion : acronym + ":";
+            MenuItem item = new MenuItem(asDeclaration ? completion : completion + "  " + expansion);
+            item.setMnemonicParsing(false);
+            item.setOnAction(event -> {
+                if (!asDeclaration) taken.put(acronym, expansion);
+                field.replaceText(replaceFrom, field.getLength(), completion);
+                field.positionCaret(field.getLength());
+                suggestions.hide();
+            });
+            suggestions.getItems().add(item);
+        }
+        if (!suggestions.isShowing()) suggestions.show(field, Side.BOTTOM, 0, 0);
+    }
+}
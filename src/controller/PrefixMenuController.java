@@ -83,6 +83,7 @@ public class PrefixMenuController extends DataSharingController<Map<String, Stri
             return;
         }
         String[] newPrefixes = prefixResult.split(", ");
+        ArrayList<String> added = new ArrayList<>();
 
         for (String prefix : newPrefixes){
             if (prefix.matches("[a-z]* ?: ?.*")) {
@@ -90,11 +91,11 @@ public class PrefixMenuController extends DataSharingController<Map<String, Stri
                 String   acronym = prefixParts[0].trim();
                 String   expansion = prefixParts[1].trim();
 
-                prefixes.put(acronym, expansion);
-                prefixList.getItems().add(prefix);
-
+                if (prefixes.put(acronym, expansion) != null) removeListedPrefix(acronym);
+                added.add(acronym + " : " + expansion);
             } else showPrefixMalformedAlert(prefix);
         }
+        prefixList.getItems().addAll(added);
     }
 
     /**
@@ -159,23 +160,31 @@ public class PrefixMenuController extends DataSharingController<Map<String, Stri
         );
         if (loadFile != null){
             Controller.lastDirectory = loadFile.getParent();
+            // the new prefixes are collected first and added to the list at once, rather than one update per line.
+            ArrayList<String> loaded = new ArrayList<>();
+            int malformed = 0;
             try (BufferedReader reader = new BufferedReader(new FileReader(loadFile))){
                 String line;
 
                 while((line = reader.readLine()) != null) {
                     String[] prefixParts = line.split(":", 2);
+                    if (prefixParts.length < 2) {
+                        if (line.trim().length() != 0) malformed++;
+                        continue;
+                    }
                     String   acronym = prefixParts[0].trim();
                     String   expansion = prefixParts[1].trim();
 
-                    if (!prefixes.containsKey(acronym)) {
-                        prefixes.put(acronym, expansion);
-                        prefixList.getItems().add(line);
-                    }
+                    if (prefixes.putIfAbsent(acronym, expansion) == null) loaded.add(acronym + " : " + expansion);
                 }
             } catch (IOException e) {
                 setErrorStatus("Failed to load Prefixes file: IOException occurred during load. ");
                 LOGGER.log(Level.SEVERE, "Loading prefixes failed: ", e);
             }
+            prefixList.getItems().addAll(loaded);
+            if (malformed > 0) setWarnStatus("Loaded " + loaded.size() + " prefixes, skipped " + malformed +
+                    " malformed lines. ");
+            else setInfoStatus("Loaded " + loaded.size() + " prefixes. ");
         } else setInfoStatus("Prefix loading cancelled. ");
 
     }
@@ -197,6 +206,14 @@ public class PrefixMenuController extends DataSharingController<Map<String, Stri
         stage.close();
     }
 
+    /**
+     * Removes the entry of the given acronym from the ListView, if it is there.
+     * @param acronym the short form of the prefix.
+     */
+    private void removeListedPrefix(String acronym) {
+        prefixList.getItems().removeIf(p -> p.split(":", 2)[0].trim().equals(acronym));
+    }
+
     /**
      * Creates a dialog that allows input of prefixes.
      * @return the prefixes inputted, or null otherwise.
@@ -204,7 +221,9 @@ public class PrefixMenuController extends DataSharingController<Map<String, Stri
     private String showAddPrefixesDialog() {
         TextInputDialog dialog = new TextInputDialog();
         dialog.setTitle("Add Ontology Prefixes");
-        dialog.setHeaderText("Of the form: <prefix name> : <URI prefix>\nCan add multiple as comma-seperated values.");
+        dialog.setHeaderText("Of the form: <prefix name> : <URI prefix>\nCan add multiple as comma-seperated values.\n" +
+                "Common prefixes are suggested as you type; press Tab to take the first.");
+        PrefixAutoCompleter.attach(dialog.getEditor(), true);
 
         Optional<String> optPrefixResult = dialog.showAndWait();
         return optPrefixResult.map(String::new).orElse(null);
@@ -265,6 +284,7 @@ public class PrefixMenuController extends DataSharingController<Map<String, Stri
      */
     @Override
     public void setData(ArrayList<Map<String, String>> data) {
+        commit_prefixes = null;
         prefixes = data.get(0);
         ArrayList<String> prefixesAsList = prefixes
                 .entrySet()
@@ -1,19 +1,18 @@
 package model.conceptual;
 
-import javafx.event.EventTarget;
-import javafx.geometry.Bounds;
-import javafx.scene.shape.Ellipse;
-import javafx.scene.shape.Shape;
-import javafx.scene.text.Text;
-import javafx.util.Pair;
-
 import java.util.ArrayList;
+import java.util.function.Consumer;
 
 public class Class extends Vertex {
     private boolean isBlankNode;
     private boolean isIri;
     private String typeDefinition;
     private String rdfsLabel, rdfsComment;
+    private double radiusX, radiusY;
+    private final ArrayList<Edge> typeEdges = new ArrayList<>();
+
+    // the (up to two) points found by getIntersection, reused so that snapping an arrow does not allocate.
+    private final double[] intersections = new double[4];
 
     private static char nextBlankNodeName = (char) 96;
     private static final ArrayList<Character> blankNodeNames = new ArrayList<>();
@@ -22,22 +21,28 @@ public class Class extends Vertex {
     /**
      * Constructor for a Vertex with meta-information, namely it's human-readable label and comment (defined in RDFS).
      *
-     * @param element     the container of the shape and name of the Vertex.
-     * @param rdfsLabel   the human-readable label of the Vertex.
-     * @param rdfsComment the comment regarding the Vertex.
-     * @throws OutsideElementException       if the container is not castable to a stackpane (aka it is outside the canvas.
+     * @param name          the name of the Vertex.
+     * @param layoutX       the x value of the top-left corner of the bounds of the ellipse.
+     * @param layoutY       the y value of the top-left corner of the bounds of the ellipse.
+     * @param radiusX       the horizontal radius of the ellipse.
+     * @param radiusY       the vertical radius of the ellipse.
+     * @param isPlaceholder whether the Vertex is a placeholder for instance-level data.
+     * @param rdfsLabel     the human-readable label of the Vertex.
+     * @param rdfsComment   the comment regarding the Vertex.
      */
-    public Class(EventTarget element, String rdfsLabel, String rdfsComment) throws OutsideElementException {
-        this(element);
+    public Class(String name, double layoutX, double layoutY, double radiusX, double radiusY, boolean isPlaceholder,
+                 String rdfsLabel, String rdfsComment) {
+        this(name, layoutX, layoutY, radiusX, radiusY, isPlaceholder);
         this.rdfsLabel = rdfsLabel;
         this.rdfsComment = rdfsComment;
     }
 
-    public Class(EventTarget container) throws OutsideElementException {
-        super(container);
+    public Class(String name, double layoutX, double layoutY, double radiusX, double radiusY, boolean isPlaceholder) {
+        super(name, layoutX, layoutY);
+        this.radiusX = radiusX;
+        this.radiusY = radiusY;
 
         if (super.name.charAt(0) == '_') {
-            ((Text) super.container.getChildren().get(1)).setText("");
             isBlankNode = true;
             isIri = false;
         } else if (this.name.matches("https?:.*|mailto:.*")){
@@ -48,10 +53,7 @@ public class Class extends Vertex {
             isIri = false;
         }
 
-        Shape shape = (Shape) super.container.getChildren().get(0);
-        if (shape instanceof Ellipse && shape.getStrokeDashArray().size() == 0)
-            super.elementType = GraphElemType.GLOBAL_CLASS;
-        else if (shape instanceof Ellipse) super.elementType = GraphElemType.INSTANCE_CLASS;
+        super.elementType = isPlaceholder ? GraphElemType.INSTANCE_CLASS : GraphElemType.GLOBAL_CLASS;
     }
 
     /**
@@ -67,21 +69,29 @@ public class Class extends Vertex {
      */
     @Override
     public void setSnapTo(double subX, double subY, double x, double y) {
-        this.snapToCenter();
+        snapToward(subX, subY);
+    }
 
-        Bounds b = container.getBoundsInParent();
-        Ellipse e = (Ellipse) container.getChildren().get(0);
+    /**
+     * Snap the arrow from the subject to where the line between the subject and the center of the ellipse crosses it.
+     * @param subX the x value of the subject of the property arrow.
+     * @param subY the y value of the subject of the property arrow.
+     */
+    @Override
+    public void snapToward(double subX, double subY) {
+        this.snapToCenter();
 
-        ArrayList<Pair<Double, Double>> coords = getIntersection(
+        int found = getIntersection(
                 subX, subY,
                 this.x, this.y,
-                b.getMinX() + e.getRadiusX(), b.getMinY() + e.getRadiusY(),
-                e.getRadiusX(), e.getRadiusY()
+                layoutX + radiusX, layoutY + radiusY,
+                radiusX, radiusY,
+                intersections
         );
 
-        if (coords.size() == 1) {
-            this.x = coords.get(0).getKey();
-            this.y = coords.get(0).getValue();
+        if (found == 1) {
+            this.x = intersections[0];
+            this.y = intersections[1];
         }
     }
 
@@ -96,14 +106,16 @@ public class Class extends Vertex {
      * @param midY y-value of the midpoint of the ellipse.
      * @param h the major axis of the ellipse.
      * @param v the minor axis of the ellipse.
-     * @return list of coordinates in which the ellipse and the line intersect.
+     * @param points the coordinates in which the ellipse and the line intersect, as x, y pairs - room for two.
+     * @return the number of intersections written to points.
      */
-    private static ArrayList<Pair<Double, Double>> getIntersection(
+    private static int getIntersection(
             double x1, double y1,
             double x2, double y2,
             double midX, double midY,
-            double h, double v) {
-        ArrayList<Pair<Double, Double>> points = new ArrayList<>();
+            double h, double v,
+            double[] points) {
+        int found = 0;
 
         x1 -= midX;
         y1 -= midY;
@@ -112,8 +124,8 @@ public class Class extends Vertex {
 
         if (x1 == x2) {
             double y = (v/h)*Math.sqrt(h*h-x1*x1);
-            if (Math.min(y1, y2) <= y && y <= Math.max(y1, y2)) points.add(new Pair<>(x1+midX, y+midY));
-            if (Math.min(y1, y2) <= -y && -y <= Math.max(y1, y2)) points.add(new Pair<>(x1+midX, -y+midY));
+            if (Math.min(y1, y2) <= y && y <= Math.max(y1, y2)) found = addPoint(points, found, x1+midX, y+midY);
+            if (Math.min(y1, y2) <= -y && -y <= Math.max(y1, y2)) found = addPoint(points, found, x1+midX, -y+midY);
         } else {
             double a = (y2 - y1) / (x2 - x1);
             double b = (y1 - a*x1);
@@ -131,17 +143,27 @@ public class Class extends Vertex {
                 double yi1 = a*xi1+b;
                 double yi2 = a*xi2+b;
 
-                if (isPointInLine(x1, y1, x2, y2, xi1, yi1)) points.add(new Pair<>(xi1+midX, yi1+midY));
-                if (isPointInLine(x1, y1, x2, y2, xi2, yi2)) points.add(new Pair<>(xi2+midX, yi2+midY));
+                if (isPointInLine(x1, y1, x2, y2, xi1, yi1)) found = addPoint(points, found, xi1+midX, yi1+midY);
+                if (isPointInLine(x1, y1, x2, y2, xi2, yi2)) found = addPoint(points, found, xi2+midX, yi2+midY);
             } else if (d == 0) {
                 double xi = -s/(2*r);
                 double yi = a*xi+b;
 
-                if (isPointInLine(x1, y1, x2, y2, xi, yi)) points.add(new Pair<>(xi+midX, yi+midY));
+                if (isPointInLine(x1, y1, x2, y2, xi, yi)) found = addPoint(points, found, xi+midX, yi+midY);
             }
         }
 
-        return points;
+        return found;
+    }
+
+    /**
+     * Writes the found-th intersection into points.
+     * @return the number of intersections now in points.
+     */
+    private static int addPoint(double[] points, int found, double x, double y) {
+        points[found * 2] = x;
+        points[found * 2 + 1] = y;
+        return found + 1;
     }
 
     /**
@@ -166,12 +188,31 @@ public class Class extends Vertex {
 
     @Override
     public void addOutgoingEdge(Edge e) {
-        if (e.getName().matches("a|rdf:type|http://www.w3.org/1999/02/22-rdf-syntax-ns#type"))
+        if (e.getName().matches("a|rdf:type|http://www.w3.org/1999/02/22-rdf-syntax-ns#type")) {
             typeDefinition = e.getObject().name;
-        else
+            typeEdges.add(e);
+        } else
             super.addOutgoingEdge(e);
     }
 
+    /**
+     * As well as the incoming and outgoing edges, includes the rdf:type edges, which are not outgoing edges as they
+     *    define the type of the Class.
+     */
+    @Override
+    public void forEachEdge(Consumer<Edge> action) {
+        super.forEachEdge(action);
+        typeEdges.forEach(action);
+    }
+
+    @Override public double getWidth() { return radiusX * 2; }
+
+    @Override public double getHeight() { return radiusY * 2; }
+
+    public double getRadiusX() { return radiusX; }
+
+    public double getRadiusY() { return radiusY; }
+
     public boolean isBlank() { return isBlankNode; }
 
     public boolean isIri() { return isIri; }
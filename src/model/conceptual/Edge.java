@@ -1,56 +1,93 @@
 package model.conceptual;
 
-import javafx.geometry.BoundingBox;
-import javafx.geometry.Bounds;
-import javafx.scene.control.Label;
-import javafx.scene.layout.StackPane;
-
 /**
  * A java-friendly representation of the Graphs properties as an Edge.
+ * Like a Vertex, an Edge holds only plain data; the canvas draws it through a {@link model.graph.EdgeNode}.
  */
 public class Edge {
     private String name;
-    private final StackPane container;
     private final Vertex subject;
     private final Vertex object;
     private boolean isIri;
 
+    // the geometry of the arrow: its start and end for a normal property, or the center and radii of the loop for a
+    //    self-referential one.
+    private double startX, startY, endX, endY;
+    private double centerX, centerY, radiusX, radiusY;
+
     // used to specify the x-location of the whole container, not just the arrow. .
     private double layoutX;
     private double layoutY;
 
     /**
      * A simple constructor for the conceptual property.
-     * @param container the container of the arrow and the property name.
      * @param name the name of the property.
      * @param subject the tail of the property arrow.
      * @param object the head of the property arrow.
      */
-    public Edge(StackPane container, Label name, Vertex subject, Vertex object){
-        this.container = container;
-        this.name = name.getText();
+    public Edge(String name, Vertex subject, Vertex object){
+        this.name = name;
         this.subject = subject;
         this.object = object;
-        this.layoutX = container.getBoundsInParent().getMinX();
-        this.layoutY = container.getBoundsInParent().getMinY();
         this.isIri = this.name.matches("https?:.*|mailto:.*");
     }
 
     /**
-     * The bounds of the name of the arrow in the graph are given by the top-left coordinate of the container, plus
-     *    the top-left coordinate of the name, as you can't simply get the coord of the name from the grandparents
-     *    perspective...
-     * @return the bounds of the name.
+     * Sets the geometry of the arrow of a normal (non-self-referential) property.
      */
-    public Bounds getBounds() {
-        Label name = (Label) container.getChildrenUnmodifiable().get(1);
+    public void setArrow(double startX, double startY, double endX, double endY) {
+        this.startX = startX;
+        this.startY = startY;
+        this.endX = endX;
+        this.endY = endY;
+    }
 
-        return new BoundingBox(
-                container.getLayoutX() + name.getLayoutX(),
-                container.getLayoutY() + name.getLayoutY(),
-                name.getWidth(),
-                name.getHeight()
-        );
+    /**
+     * Sets the geometry of the loop of a self-referential property.
+     */
+    public void setLoop(double centerX, double centerY, double radiusX, double radiusY) {
+        this.centerX = centerX;
+        this.centerY = centerY;
+        this.radiusX = radiusX;
+        this.radiusY = radiusY;
+    }
+
+    /**
+     * Sets the location of the top-left corner of the container of the arrow and the property name.
+     */
+    public void setLayout(double layoutX, double layoutY) {
+        this.layoutX = layoutX;
+        this.layoutY = layoutY;
+    }
+
+    /**
+     * Recomputes the geometry of the arrow from the current positions of its subject and object, as it is first drawn:
+     *    a normal property runs from the center of the subject to the edge of the object, and a self-referential
+     *    property loops over the top-left of its class. The name of the property is centered on the arrow, widening
+     *    the container of the arrow if needs be.
+     * @param nameWidth the width of the name of the property when drawn.
+     */
+    public void route(double nameWidth) {
+        subject.snapToCenter();
+
+        if (isSelfReferential()) {
+            double subRadiusX = subject.getWidth() / 2;
+            double subRadiusY = subject.getHeight() / 2;
+            double loopRadiusX = subRadiusX / 1.5;
+            double layoutX = subject.getX();
+
+            setLoop(subject.getLayoutX() + subRadiusX / 2, subject.getLayoutY() + subRadiusY / 2, loopRadiusX, subRadiusY);
+            if (nameWidth > loopRadiusX * 2) layoutX = layoutX - (nameWidth - loopRadiusX) / 2 + subRadiusX / 3;
+            setLayout(layoutX, subject.getY());
+        } else {
+            object.snapToward(subject.getX(), subject.getY());
+            setArrow(subject.getX(), subject.getY(), object.getX(), object.getY());
+
+            double width = Math.abs(endX - startX);
+            double layoutX = Math.min(startX, endX);
+            if (nameWidth > width) layoutX -= (nameWidth - width) / 2;
+            setLayout(layoutX, Math.min(startY, endY));
+        }
     }
 
     /**
@@ -60,9 +97,15 @@ public class Edge {
     public boolean isSelfReferential(){ return subject == object; }
     public double getLayoutX() { return layoutX; }
     public double getLayoutY() { return layoutY; }
+    public double getStartX() { return startX; }
+    public double getStartY() { return startY; }
+    public double getEndX() { return endX; }
+    public double getEndY() { return endY; }
+    public double getCenterX() { return centerX; }
+    public double getCenterY() { return centerY; }
+    public double getRadiusX() { return radiusX; }
+    public double getRadiusY() { return radiusY; }
     public String getName() { return name; }
     public Vertex getObject() { return object; }
     public Vertex getSubject() { return subject; }
-    public StackPane getContainer() { return container; }
 }
-
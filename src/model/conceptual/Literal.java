@@ -1,8 +1,5 @@
 package model.conceptual;
 
-import javafx.event.EventTarget;
-import javafx.geometry.Bounds;
-
 import java.util.Arrays;
 
 public class Literal extends Vertex {
@@ -14,23 +11,30 @@ public class Literal extends Vertex {
     private static final String instanceLiteralRegex = "(?<!\")[^:]*(?!\")";
 
     private String dataType;
+    private double width, height;
 
     /**
      * Constructor for a Vertex with meta-information regarding the datatype of the Literal.
      *
-     * @param container  the container of the shape and the name.
+     * @param name     the name of the Vertex.
+     * @param layoutX  the x value of the top-left corner of the rectangle.
+     * @param layoutY  the y value of the top-left corner of the rectangle.
+     * @param width    the width of the rectangle.
+     * @param height   the height of the rectangle.
      * @param dataType the data type of the given Vertex.
-     * @throws OutsideElementException       if the container is not castable to a stackpane (aka it is outside the canvas.
      * @throws UndefinedElementTypeException if the name of the Vertex does not correspond to any of the GraphElemTypes.
      */
-    public Literal(EventTarget container, String dataType)
-            throws OutsideElementException, UndefinedElementTypeException {
-        this(container);
+    public Literal(String name, double layoutX, double layoutY, double width, double height, String dataType)
+            throws UndefinedElementTypeException {
+        this(name, layoutX, layoutY, width, height);
         this.dataType = dataType;
     }
 
-    public Literal(EventTarget container) throws OutsideElementException, UndefinedElementTypeException {
-        super(container);
+    public Literal(String name, double layoutX, double layoutY, double width, double height)
+            throws UndefinedElementTypeException {
+        super(name, layoutX, layoutY);
+        this.width = width;
+        this.height = height;
 
         if (this.name.matches(globalLiteralRegex)) this.elementType = GraphElemType.GLOBAL_LITERAL;
         else if (this.name.matches(instanceLiteralRegex)) this.elementType = GraphElemType.INSTANCE_LITERAL;
@@ -48,9 +52,9 @@ public class Literal extends Vertex {
             else if (name.matches("true|false")) return  "xsd:boolean";
             else if (name.matches(ints+"+")) return "xsd:integer";
             else if (name.matches(ints+"*\\.\\d+")) return "xsd:decimal";
-            else if (name.matches("("+ints+"+\\.\\d+|[+\\-]?\\.\\d+|"+ints+")E"+ints+"+")) return "xsd:double";
+            else if (name.matches("("+ints+"+\\.\\d+|[+\\-]?\\.\\d+|"+ints+"+)[Ee]"+ints+"+")) return "xsd:double";
             else if (name.matches(".*\\^\\^.*")) return name.split("\\^\\^")[1];
-            else return null;
+            else return dataType;
         }
 
         if (dataType == null)
@@ -76,27 +80,54 @@ public class Literal extends Vertex {
      */
     @Override
     public void setSnapTo(double subX, double subY, double x, double y) {
-        Bounds bounds = container.getBoundsInParent();
-        double distMinX = Math.abs(bounds.getMinX() - x);
-        double distMaxX = Math.abs(bounds.getMaxX() - x);
-        double distMinY = Math.abs(bounds.getMinY() - y);
-        double distMaxY = Math.abs(bounds.getMaxY() - y);
+        double minX = layoutX, maxX = layoutX + width, minY = layoutY, maxY = layoutY + height;
+        double distMinX = Math.abs(minX - x);
+        double distMaxX = Math.abs(maxX - x);
+        double distMinY = Math.abs(minY - y);
+        double distMaxY = Math.abs(maxY - y);
         double[] distArray = {distMinX, distMaxX, distMinY, distMaxY};
         Arrays.sort(distArray);
         double minDist = distArray[0];
 
         if (minDist == distMinX) {
-            this.x = bounds.getMinX();
+            this.x = minX;
             this.y = y;
         } else if (minDist == distMaxX) {
-            this.x = bounds.getMaxX();
+            this.x = maxX;
             this.y = y;
         } else if (minDist == distMinY) {
             this.x = x;
-            this.y = bounds.getMinY();
+            this.y = minY;
         } else {
             this.x = x;
-            this.y = bounds.getMaxY();
+            this.y = maxY;
         }
     }
+
+    /**
+     * Snap the arrow from the subject to where the line between the subject and the center of the rectangle crosses
+     *    it, or to the center if the subject is within the rectangle.
+     * @param subX the x value of the subject of the property arrow.
+     * @param subY the y value of the subject of the property arrow.
+     */
+    @Override
+    public void snapToward(double subX, double subY) {
+        this.snapToCenter();
+
+        double dx = subX - this.x;
+        double dy = subY - this.y;
+        double scale = Math.min(
+                dx != 0 ? width / 2 / Math.abs(dx) : Double.POSITIVE_INFINITY,
+                dy != 0 ? height / 2 / Math.abs(dy) : Double.POSITIVE_INFINITY
+        );
+
+        if (scale < 1) {
+            this.x += dx * scale;
+            this.y += dy * scale;
+        }
+    }
+
+    @Override public double getWidth() { return width; }
+
+    @Override public double getHeight() { return height; }
 }
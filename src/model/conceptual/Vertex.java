@@ -1,16 +1,12 @@
 package model.conceptual;
 
-import javafx.event.EventTarget;
-import javafx.geometry.BoundingBox;
-import javafx.geometry.Bounds;
-import javafx.scene.layout.StackPane;
-import javafx.scene.shape.Ellipse;
-import javafx.scene.text.Text;
-
 import java.util.ArrayList;
+import java.util.function.Consumer;
 
 /**
  * A java-friendly conceptual representation of the graphs Literals and Classes.
+ * A Vertex holds only plain data - its name, type and the geometry of its shape - so graphs can be created, converted
+ *    and integrated without JavaFX; the canvas draws each Vertex through a {@link model.graph.VertexNode}.
  */
 public abstract class Vertex {
 
@@ -18,13 +14,6 @@ public abstract class Vertex {
         GLOBAL_CLASS, INSTANCE_CLASS, GLOBAL_LITERAL, INSTANCE_LITERAL
     }
 
-    /**
-     * Exception when the users click is outside the bounds of this Vertex.
-     */
-    public class OutsideElementException extends Exception {
-        OutsideElementException(){ super(); }
-    }
-
     /**
      * Exception when the name of the Vertex does not match any of the regex for Classes or Global/Instance Literals.
      */
@@ -32,25 +21,31 @@ public abstract class Vertex {
         UndefinedElementTypeException() { super(); }
     }
 
+    // the fill of the shapes on the canvas, in the 0xrrggbbaa form.
+    public static final String DEFAULT_FILL = "0xf4f4f4ff";
+
+    // leeway given to the bounds of the shape, accounting for the width of its stroke.
+    private static final double STROKE_SLACK = 2;
+
     GraphElemType elementType;
     String name;
-    StackPane container;
+    String fill = DEFAULT_FILL;
+    double layoutX;
+    double layoutY;
     double x;
     double y;
     private ArrayList<Edge> incomingEdges, outgoingEdges;
 
     /**
-     * Constructor for the creation of a new Vertex that doesn't yet exist.
-     * @param element the enclosing container for the shape and text.
+     * Constructor for the creation of a new Vertex.
+     * @param name the name of the Vertex.
+     * @param layoutX the x value of the top-left corner of the shape of the Vertex.
+     * @param layoutY the y value of the top-left corner of the shape of the Vertex.
      */
-    public Vertex(EventTarget element) throws OutsideElementException {
-        try {
-            container = (StackPane) element;
-        } catch (ClassCastException e) {
-            throw new OutsideElementException();
-        }
-
-        this.name = ((Text) container.getChildren().get(1)).getText();
+    Vertex(String name, double layoutX, double layoutY) {
+        this.name = name;
+        this.layoutX = layoutX;
+        this.layoutY = layoutY;
 
         incomingEdges = new ArrayList<>();
         outgoingEdges = new ArrayList<>();
@@ -68,37 +63,61 @@ public abstract class Vertex {
      */
     public abstract void setSnapTo(double subX, double subY, double x, double y);
 
+    /**
+     * Snap the property arrow to the edge of the shape, where the line from the subject to the center of the shape
+     *    crosses it. Used to redraw arrows when the shapes they join are moved.
+     * @param subX the x value of the subject of the property arrow.
+     * @param subY the y value of the subject of the property arrow.
+     */
+    public abstract void snapToward(double subX, double subY);
+
     /**
      * Places the arrow's origin in the center of the shape, so it looks more natural when moving it around.
      */
     public void snapToCenter() {
-        double minX = container.getBoundsInParent().getMinX();
-        double minY = container.getBoundsInParent().getMinY();
-        double maxX = container.getBoundsInParent().getMaxX();
-        double maxY = container.getBoundsInParent().getMaxY();
+        this.x = layoutX + getWidth() / 2;
+        this.y = layoutY + getHeight() / 2;
+    }
 
-        this.x = minX + (maxX - minX) / 2;
-        this.y = minY + (maxY - minY) / 2;
+    /**
+     * Whether the shape of this Vertex lies within the given leeway of a point.
+     * @param px the x value of the point.
+     * @param py the y value of the point.
+     * @param leeway the distance the point can be from the shape.
+     * @return whether the point is on the shape, give or take the leeway.
+     */
+    public boolean isUnder(double px, double py, double leeway) {
+        return px + leeway >= layoutX && px - leeway <= layoutX + getWidth() + STROKE_SLACK &&
+                py + leeway >= layoutY && py - leeway <= layoutY + getHeight() + STROKE_SLACK;
     }
 
     /**
-     * For literals, the bounds of the shape are close enough to the edges of the shape. For classes, the bounding box
-     * is malformed and needs to be adjusted.
-     * @return the tightest bounds for the GraphClass.
+     * @return the width of the shape of the Vertex.
      */
-    public Bounds getBounds(){
-        if (this instanceof Literal){
-            return container.getBoundsInParent();
-        } else {
-            Ellipse e = (Ellipse) container.getChildrenUnmodifiable().get(0);
-
-            return new BoundingBox(
-                    e.getCenterX(),
-                    e.getCenterY(),
-                    e.getRadiusX() * 2 + 2,
-                    e.getRadiusY() * 2 + 2
-            );
-        }
+    public abstract double getWidth();
+
+    /**
+     * @return the height of the shape of the Vertex.
+     */
+    public abstract double getHeight();
+
+    /**
+     * Moves the shape of the Vertex. The Edges of the Vertex are not moved with it, see {@link Edge#route(double)}.
+     * @param layoutX the x value of the new top-left corner of the shape.
+     * @param layoutY the y value of the new top-left corner of the shape.
+     */
+    public void setLayout(double layoutX, double layoutY) {
+        this.layoutX = layoutX;
+        this.layoutY = layoutY;
+    }
+
+    /**
+     * Performs the given action for every property drawn to or from this Vertex.
+     * @param action the action to perform.
+     */
+    public void forEachEdge(Consumer<Edge> action) {
+        incomingEdges.forEach(action);
+        for (Edge e : outgoingEdges) if (e.getObject() != this) action.accept(e);
     }
 
     /**
@@ -118,7 +137,13 @@ public abstract class Vertex {
 
     public GraphElemType getElementType() { return elementType; }
 
-    public StackPane getContainer() { return container; }
+    public String getFill() { return fill; }
+
+    public void setFill(String fill) { this.fill = fill; }
+
+    public double getLayoutX() { return layoutX; }
+
+    public double getLayoutY() { return layoutY; }
 
     public double getX() { return x; }
 
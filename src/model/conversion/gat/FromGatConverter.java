@@ -1,27 +1,10 @@
 package model.conversion.gat;
 
-import controller.Controller;
-import javafx.geometry.BoundingBox;
-import javafx.geometry.Bounds;
-import javafx.geometry.Insets;
-import javafx.geometry.Pos;
-import javafx.scene.control.Label;
-import javafx.scene.layout.Background;
-import javafx.scene.layout.BackgroundFill;
-import javafx.scene.layout.CornerRadii;
-import javafx.scene.layout.StackPane;
-import javafx.scene.paint.Color;
-import javafx.scene.shape.Ellipse;
-import javafx.scene.shape.Rectangle;
-import javafx.scene.text.Text;
 import model.conceptual.Class;
 import model.conceptual.Edge;
 import model.conceptual.Literal;
 import model.conceptual.Vertex;
-import model.conceptual.Vertex.OutsideElementException;
 import model.conceptual.Vertex.UndefinedElementTypeException;
-import model.graph.Arrow;
-import model.graph.SelfReferentialArrow;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -49,8 +32,6 @@ public class FromGatConverter {
 
     private ArrayList<Vertex> classes = new ArrayList<>();
     private ArrayList<Edge>   properties = new ArrayList<>();
-    private ArrayList<StackPane> compiledElements = new ArrayList<>();
-    private ArrayList<StackPane> compiledProperties = new ArrayList<>();
     private double canvasWidth, canvasHeight;
     private String gat;
 
@@ -61,11 +42,9 @@ public class FromGatConverter {
     /**
      * Splits the output of the .gat file into it's respective elements and attempts to bind them.
      * @throws PropertyElemMissingException passed from {@link #bindNormalProperty(String)}
-     * @throws OutsideElementException passed from {@link #bindClass(String)}
-     * @throws UndefinedElementTypeException passed from {@link #bindClass(String)}
+     * @throws UndefinedElementTypeException passed from {@link #bindLiteral(String)}
      */
-    public void bindGraph()
-            throws PropertyElemMissingException, OutsideElementException, UndefinedElementTypeException {
+    public void bindGraph() throws PropertyElemMissingException, UndefinedElementTypeException {
         String[] elements = Arrays.stream(gat.split("]\\[|\\[|]"))
                 .filter(s -> !s.equals(""))
                 .toArray(String[]::new);
@@ -93,81 +72,54 @@ public class FromGatConverter {
     }
 
     /**
-     * Binds a literal into both a human-friendly visual element of the graph, and a java-friendly Literal Vertex.
+     * Binds a literal into a java-friendly Literal Vertex.
      * @param lit the .gat String serialization of a Literal.
-     * @throws OutsideElementException if the Vertex is outside the canvas.
      * @throws UndefinedElementTypeException if the name of the Vertex does not match up with Turtle syntax.
      */
-    private void bindLiteral(String lit) throws OutsideElementException, UndefinedElementTypeException {
+    private void bindLiteral(String lit) throws UndefinedElementTypeException {
         String[] litElements = lit.split("\\\\\\|", -1);
         double x = Double.valueOf(litElements[0].substring(1));
         double y = Double.valueOf(litElements[1]);
         double w = Double.valueOf(litElements[2]);
         double h = Double.valueOf(litElements[3]);
-        Color  c = Color.web(litElements[4]);
-        boolean isInstance = litElements[5].equals("i");
-        Text   name  = new Text(litElements[6]);
+        String c = litElements[4];
+        String name  = litElements[6];
         String dtype = litElements[7];
 
         resizeEdgeOfCanvas(x, y);
 
-        StackPane compiledLit = new StackPane();
-        compiledLit.setLayoutX(x);
-        compiledLit.setLayoutY(y);
-
-        Rectangle rect = new Rectangle(w, h, c);
-        rect.setStroke(Color.BLACK);
-
-        // if the literal is an instance literal, give it a dashed rectangle.
-        if (isInstance) rect.getStrokeDashArray().addAll(10d, 10d);
-
-        compiledLit.getChildren().addAll(rect, name);
-        compiledElements.add(compiledLit);
-
-        if (!dtype.equals("")) classes.add(new Literal(compiledLit, dtype));
-        else classes.add(new Literal(compiledLit));
+        Literal literal = !dtype.equals("") ? new Literal(name, x, y, w, h, dtype) : new Literal(name, x, y, w, h);
+        literal.setFill(c);
+        classes.add(literal);
     }
 
     /**
-     * Binds a class into both a human-friendly visual element of the graph, and a java-friendly Vertex.
+     * Binds a class into a java-friendly Vertex.
      * @param cls the .gat String serialization of a Class.
-     * @throws OutsideElementException if the Vertex is outside the canvas.
      */
-    private void bindClass(String cls) throws OutsideElementException {
+    private void bindClass(String cls) {
         String[] clsElements = cls.split("\\\\\\|", -1);
         double x = Double.valueOf(clsElements[0].substring(1));
         double y = Double.valueOf(clsElements[1]);
         double rx = Double.valueOf(clsElements[2]);
         double ry = Double.valueOf(clsElements[3]);
-        Color  c  = Color.web(clsElements[4]);
+        String c  = clsElements[4];
         boolean isInstance = clsElements[5].equals("i");
-        Text   name = new Text(clsElements[6]);
+        String name = clsElements[6];
         String label = clsElements[7];
         String comment = clsElements[8];
 
         resizeEdgeOfCanvas(x, y);
 
-        StackPane compiledCls = new StackPane();
-        compiledCls.setLayoutX(x);
-        compiledCls.setLayoutY(y);
-
-        Ellipse ellipse = new Ellipse(x, y, rx, ry);
-        ellipse.setFill(c);
-        ellipse.setStroke(Color.BLACK);
-
-        // if the class is an instance class, give it a dashed ellipse.
-        if (isInstance) ellipse.getStrokeDashArray().addAll(10d, 10d);
-
-        compiledCls.getChildren().addAll(ellipse, name);
-        compiledElements.add(compiledCls);
-
-        if (!label.equals("") || !comment.equals(""))
-            classes.add(new Class(compiledCls, label, comment));
-        else classes.add(new Class(compiledCls));
+        Class klass = !label.equals("") || !comment.equals("")
+                ? new Class(name, x, y, rx, ry, isInstance, label, comment)
+                : new Class(name, x, y, rx, ry, isInstance);
+        klass.setFill(c);
+        classes.add(klass);
     }
 
     /**
-     * Creates a human-friendly graph property arrow, and binds a java-friendly Edge.
+     * Binds a java-friendly Edge from a graph property arrow.
      * @param prop the .gat String serialization of a Property.
      * @throws PropertyElemMissingException if the start and end of the Arrow do not reach a class/literal.
      */
@@ -180,35 +132,20 @@ public class FromGatConverter {
         double lx = Double.valueOf(propElements[4]);
         String propName = propElements[5];
 
-        StackPane compiledProp = new StackPane();
-        compiledProp.setLayoutX(lx);
-        compiledProp.setLayoutY(sy < ey ? sy : ey);
-
-        Arrow arrow = new Arrow();
-        arrow.setStartX(sx);
-        arrow.setStartY(sy);
-        arrow.setEndX(ex);
-        arrow.setEndY(ey);
-
-        Label name = new Label(propName);
-        name.setBackground(new Background(new BackgroundFill(Color.web("f4f4f4"), CornerRadii.EMPTY, Insets.EMPTY)));
-
-        compiledProp.getChildren().addAll(arrow, name);
-        compiledProperties.add(compiledProp);
-        compiledProp.toBack();
-
         Vertex sub = findClassUnder(sx, sy);
         Vertex obj = findClassUnder(ex, ey);
         if (sub != null && obj != null) {
-            Edge edge = new Edge(compiledProp, name, sub, obj);
+            Edge edge = new Edge(propName, sub, obj);
+            edge.setArrow(sx, sy, ex, ey);
+            edge.setLayout(lx, sy < ey ? sy : ey);
             sub.addOutgoingEdge(edge);
             obj.addIncomingEdge(edge);
             properties.add(edge);
-        } else throw new PropertyElemMissingException((sub == null ? "subject" : "object"), name.getText());
+        } else throw new PropertyElemMissingException((sub == null ? "subject" : "object"), propName);
     }
 
     /**
-     * Creates a human-friendly self-referential graph property arrow, and binds a java-friendly Edge.
+     * Binds a java-friendly Edge from a self-referential graph property arrow.
      * @param refProp the .gat String serialization of a self-referential Property.
      * @throws PropertyElemMissingException if the self-referential Property is not associated with a class.
      */
@@ -224,32 +161,15 @@ public class FromGatConverter {
 
         resizeEdgeOfCanvas(x, y);
 
-        StackPane compiledSelfRefProp = new StackPane();
-        compiledSelfRefProp.setLayoutX(lx);
-        compiledSelfRefProp.setLayoutY(ly);
-
-        SelfReferentialArrow arrow = new SelfReferentialArrow();
-        arrow.setCenterX(x);
-        arrow.setCenterY(y);
-        arrow.setRadiusX(rx);
-        arrow.setRadiusY(ry);
-
-        Label name = new Label(propName);
-        name.setBackground(new Background(new BackgroundFill(Controller.JFX_DEFAULT_COLOUR, CornerRadii.EMPTY, Insets.EMPTY)));
-
-        compiledSelfRefProp.getChildren().addAll(arrow, name);
-        StackPane.setAlignment(name, Pos.BOTTOM_CENTER);
-
-        compiledProperties.add(compiledSelfRefProp);
-        compiledSelfRefProp.toBack();
-
         Vertex vertex = findClassUnder(x, y);
         if (vertex != null){
-            Edge edge = new Edge(compiledSelfRefProp, name, vertex, vertex);
+            Edge edge = new Edge(propName, vertex, vertex);
+            edge.setLoop(x, y, rx, ry);
+            edge.setLayout(lx, ly);
             vertex.addOutgoingEdge(edge);
             vertex.addIncomingEdge(edge);
             properties.add(edge);
-        } else throw new PropertyElemMissingException("self-referential class", name.getText());
+        } else throw new PropertyElemMissingException("self-referential class", propName);
     }
 
     /**
@@ -261,10 +181,7 @@ public class FromGatConverter {
      */
     private Vertex findClassUnder(double x, double y) {
         for (Vertex klass : classes) {
-            Bounds classBounds = klass.getBounds();
-            Bounds pointBounds = new BoundingBox(x-2, y-2, 4, 4);
-
-            if (classBounds.intersects(pointBounds)) return klass;
+            if (klass.isUnder(x, y, 2)) return klass;
         }
         return null;
     }
@@ -293,6 +210,4 @@ public class FromGatConverter {
     public double getCanvasWidth() { return canvasWidth; }
     public ArrayList<Vertex> getClasses() { return classes; }
     public ArrayList<Edge>   getProperties() { return properties; }
-    public ArrayList<StackPane> getCompiledElements() { return compiledElements; }
-    public ArrayList<StackPane> getCompiledProperties() { return compiledProperties; }
 }
@@ -1,16 +1,15 @@
 package model.conversion.gat;
 
-import javafx.scene.shape.Ellipse;
-import javafx.scene.shape.Rectangle;
 import model.conceptual.Class;
 import model.conceptual.Edge;
 import model.conceptual.Literal;
 import model.conceptual.Vertex;
-import model.graph.Arrow;
-import model.graph.SelfReferentialArrow;
 
 import java.util.ArrayList;
 
+import static model.conceptual.Vertex.GraphElemType.INSTANCE_CLASS;
+import static model.conceptual.Vertex.GraphElemType.INSTANCE_LITERAL;
+
 /**
  * Class responsible for converting a graph into a .gat file.
  */
@@ -67,9 +66,8 @@ public class ToGatConverter {
      * @return the String .gat representation of the normal property.
      */
     private String traverseSelfReferentialProperty(Edge edge) {
-        SelfReferentialArrow a = (SelfReferentialArrow) edge.getContainer().getChildren().get(0);
-        String shapeInfo = "R"+ a.getCenterX() + "\\|" + a.getCenterY() + "\\|" + a.getRadiusX() + "\\|" +
-                a.getRadiusY() + "\\|" + edge.getLayoutX() + "\\|" + edge.getLayoutY();
+        String shapeInfo = "R"+ edge.getCenterX() + "\\|" + edge.getCenterY() + "\\|" + edge.getRadiusX() + "\\|" +
+                edge.getRadiusY() + "\\|" + edge.getLayoutX() + "\\|" + edge.getLayoutY();
         String shapeName = "\\|" + edge.getName();
         return "[" + shapeInfo + shapeName + "]";
     }
@@ -81,9 +79,8 @@ public class ToGatConverter {
      * @return the String .gat representation of the normal property.
      */
     private String traverseNormalProperty(Edge edge) {
-        Arrow a = (Arrow) edge.getContainer().getChildren().get(0);
-        String shapeInfo = "A" + a.getStartX() + "\\|" + a.getStartY() + "\\|" + a.getEndX() + "\\|" +
-                a.getEndY() + "\\|" + edge.getLayoutX();
+        String shapeInfo = "A" + edge.getStartX() + "\\|" + edge.getStartY() + "\\|" + edge.getEndX() + "\\|" +
+                edge.getEndY() + "\\|" + edge.getLayoutX();
         String shapeName = "\\|" + edge.getName();
 
         return "[" + shapeInfo + shapeName + "]";
@@ -102,20 +99,18 @@ public class ToGatConverter {
             result.append("[");
             if (vertex instanceof Class){
                 Class klass = (Class) vertex;
-                Ellipse e = (Ellipse) vertex.getContainer().getChildren().get(0);
-                String shapeInfo = "C" + e.getCenterX() + "\\|" + e.getCenterY() + "\\|" + e.getRadiusX() + "\\|" +
-                        e.getRadiusY() + "\\|" + e.getFill().toString();
-                String elemType = "\\|" + (e.getStrokeDashArray().size() != 0 ? "i" : "g");
+                String shapeInfo = "C" + klass.getLayoutX() + "\\|" + klass.getLayoutY() + "\\|" +
+                        klass.getRadiusX() + "\\|" + klass.getRadiusY() + "\\|" + klass.getFill();
+                String elemType = "\\|" + (klass.getElementType() == INSTANCE_CLASS ? "i" : "g");
                 String shapeName = "\\|" + vertex.getName();
                 String rdfsLabel = "\\|" + (klass.getRdfsLabel() != null ? klass.getRdfsLabel() : "");
                 String rdfsComment = "\\|" + (klass.getRdfsComment() != null ? klass.getRdfsComment() : "");
                 result.append(shapeInfo).append(elemType).append(shapeName).append(rdfsLabel).append(rdfsComment);
             } else {
                 Literal literal = (Literal) vertex;
-                Rectangle r = (Rectangle) vertex.getContainer().getChildren().get(0);
-                String shapeInfo = "L" + r.getParent().getLayoutX() + "\\|" + r.getParent().getLayoutY() + "\\|" +
-                        r.getWidth() + "\\|" + r.getHeight() + "\\|" + r.getFill().toString();
-                String elemType = "\\|" + (r.getStrokeDashArray().size() != 0 ? "i" : "g");
+                String shapeInfo = "L" + literal.getLayoutX() + "\\|" + literal.getLayoutY() + "\\|" +
+                        literal.getWidth() + "\\|" + literal.getHeight() + "\\|" + literal.getFill();
+                String elemType = "\\|" + (literal.getElementType() == INSTANCE_LITERAL ? "i" : "g");
                 String name = "\\|" + vertex.getName();
                 String dataType = "\\|" + (literal.getDataType() != null ? literal.getDataType() : "");
                 result.append(shapeInfo).append(elemType).append(name).append(dataType);
@@ -0,0 +1,138 @@
+package model.conversion.png;
+
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * A streaming PNG encoder: the image is written one scanline at a time, so only a single row of it is ever held in
+ *    memory by the encoder.
+ */
+public class PngWriter implements Closeable {
+    private static final byte[] SIGNATURE = {(byte) 137, 80, 78, 71, 13, 10, 26, 10};
+    private static final int IDAT_CHUNK_SIZE = 1 << 16;
+    private static final int BYTES_PER_PIXEL = 4;
+
+    private final DataOutputStream out;
+    private final int width, height;
+    private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+    private final CRC32 crc = new CRC32();
+
+    // the filtered scanline handed to the deflater, and the buffer of compressed data waiting to be written as IDAT.
+    private final byte[] row;
+    private final byte[] idat = new byte[IDAT_CHUNK_SIZE];
+    private int idatLength = 0;
+    private int rowsWritten = 0;
+
+    /**
+     * Writes the PNG signature and header of a non-interlaced, 8-bit RGBA image.
+     * @param out the stream the image is written to, which is closed with this writer.
+     * @param width the width of the image in pixels.
+     * @param height the height of the image in pixels.
+     * @throws IOException if the header can not be written.
+     */
+    public PngWriter(OutputStream out, int width, int height) throws IOException {
+        if (width <= 0 || height <= 0) throw new IllegalArgumentException("Empty image: " + width + "x" + height);
+        this.out = new DataOutputStream(out);
+        this.width = width;
+        this.height = height;
+        this.row = new byte[1 + width * BYTES_PER_PIXEL];
+
+        this.out.write(SIGNATURE);
+        byte[] header = new byte[13];
+        writeInt(header, 0, width);
+        writeInt(header, 4, height);
+        header[8]  = 8; // bit depth
+        header[9]  = 6; // colour type: truecolour with alpha
+        header[10] = 0; // deflate compression
+        header[11] = 0; // adaptive filtering
+        header[12] = 0; // no interlace
+        writeChunk("IHDR", header, header.length);
+    }
+
+    /**
+     * Encodes the next scanline of the image.
+     * @param argb the pixels, as non-premultiplied ARGB ints.
+     * @param offset the index into argb of the first pixel of the scanline.
+     * @throws IOException if the compressed data can not be written.
+     */
+    public void writeRow(int[] argb, int offset) throws IOException {
+        if (rowsWritten == height) throw new IllegalStateException("All " + height + " rows have been written.");
+
+        // the 'Sub' filter: each byte is stored as the difference from the same channel of the pixel to its left.
+        row[0] = 1;
+        int prev = 0;
+        for (int i = 0, b = 1; i < width; i++, b += BYTES_PER_PIXEL) {
+            int pixel = argb[offset + i];
+            row[b]     = (byte) ((pixel >> 16) - (prev >> 16));
+            row[b + 1] = (byte) ((pixel >> 8) - (prev >> 8));
+            row[b + 2] = (byte) (pixel - prev);
+            row[b + 3] = (byte) ((pixel >>> 24) - (prev >>> 24));
+            prev = pixel;
+        }
+
+        deflater.setInput(row);
+        while (!deflater.needsInput()) drainDeflater();
+        rowsWritten++;
+    }
+
+    /**
+     * Finishes the compressed stream and writes the end of the image.
+     * @throws IOException if fewer rows were written than the height of the image, or the stream can not be written.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            if (rowsWritten != height)
+                throw new IOException("Only " + rowsWritten + " of " + height + " rows were written.");
+            deflater.finish();
+            while (!deflater.finished()) drainDeflater();
+            if (idatLength > 0) writeChunk("IDAT", idat, idatLength);
+            writeChunk("IEND", idat, 0);
+        } finally {
+            deflater.end();
+            out.close();
+        }
+    }
+
+    /**
+     * Moves compressed data from the deflater into the IDAT buffer, writing the buffer out as a chunk once it fills.
+     * @throws IOException if a chunk can not be written.
+     */
+    private void drainDeflater() throws IOException {
+        idatLength += deflater.deflate(idat, idatLength, idat.length - idatLength);
+        if (idatLength == idat.length) {
+            writeChunk("IDAT", idat, idatLength);
+            idatLength = 0;
+        }
+    }
+
+    /**
+     * Writes a chunk of the form: length, type, data, CRC of the type and data.
+     * @param type the four-letter type of the chunk.
+     * @param data the buffer holding the data of the chunk.
+     * @param length the number of bytes of data.
+     * @throws IOException if the chunk can not be written.
+     */
+    private void writeChunk(String type, byte[] data, int length) throws IOException {
+        byte[] typeBytes = type.getBytes("US-ASCII");
+        crc.reset();
+        crc.update(typeBytes);
+        crc.update(data, 0, length);
+
+        out.writeInt(length);
+        out.write(typeBytes);
+        out.write(data, 0, length);
+        out.writeInt((int) crc.getValue());
+    }
+
+    private static void writeInt(byte[] buffer, int offset, int value) {
+        buffer[offset]     = (byte) (value >>> 24);
+        buffer[offset + 1] = (byte) (value >>> 16);
+        buffer[offset + 2] = (byte) (value >>> 8);
+        buffer[offset + 3] = (byte) value;
+    }
+}
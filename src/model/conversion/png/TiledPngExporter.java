@@ -0,0 +1,67 @@
+package model.conversion.png;
+
+import javafx.geometry.Rectangle2D;
+import javafx.scene.Node;
+import javafx.scene.SnapshotParameters;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+import javafx.scene.transform.NonInvertibleTransformException;
+import javafx.scene.transform.Transform;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * Exports a node to a .png file tile by tile, so that canvases larger than the maximum texture size can be exported,
+ *    and only one band of tiles is held in memory at a time.
+ */
+public class TiledPngExporter {
+    // comfortably below the maximum texture size of any hardware JavaFX renders on.
+    private static final int TILE_SIZE = 1024;
+
+    /**
+     * Snapshots the area (0, 0, width, height) of the node, in its own coordinates, and streams it to a .png file.
+     * Must be called on the JavaFX Application Thread.
+     * @param node the node to export.
+     * @param width the width of the area to export, in the coordinates of the node.
+     * @param height the height of the area to export, in the coordinates of the node.
+     * @param scale the number of image pixels per unit of the node, eg. 2 for high-DPI output.
+     * @param file the .png file to write to.
+     * @throws IOException if the file can not be written.
+     */
+    public static void export(Node node, double width, double height, double scale, File file) throws IOException {
+        int pixelWidth  = (int) Math.ceil(width * scale);
+        int pixelHeight = (int) Math.ceil(height * scale);
+
+        // snapshots apply the nodes own transforms (eg. zoom), so undo them and apply the export scale instead.
+        SnapshotParameters params = new SnapshotParameters();
+        try {
+            params.setTransform(
+                    Transform.scale(scale, scale).createConcatenation(node.getLocalToParentTransform().createInverse()));
+        } catch (NonInvertibleTransformException e) {
+            throw new IOException("The node can not be exported, as its transform is not invertible.", e);
+        }
+
+        WritableImage tile = new WritableImage(TILE_SIZE, TILE_SIZE);
+        int[] band = new int[pixelWidth * Math.min(TILE_SIZE, pixelHeight)];
+
+        try (PngWriter writer = new PngWriter(new BufferedOutputStream(new FileOutputStream(file)), pixelWidth, pixelHeight)) {
+            for (int bandY = 0; bandY < pixelHeight; bandY += TILE_SIZE) {
+                int bandHeight = Math.min(TILE_SIZE, pixelHeight - bandY);
+
+                for (int tileX = 0; tileX < pixelWidth; tileX += TILE_SIZE) {
+                    int tileWidth = Math.min(TILE_SIZE, pixelWidth - tileX);
+
+                    params.setViewport(new Rectangle2D(tileX, bandY, tileWidth, bandHeight));
+                    node.snapshot(params, tile);
+                    tile.getPixelReader().getPixels(
+                            0, 0, tileWidth, bandHeight, PixelFormat.getIntArgbInstance(), band, tileX, pixelWidth);
+                }
+
+                for (int row = 0; row < bandHeight; row++) writer.writeRow(band, row * pixelWidth);
+            }
+        }
+    }
+}
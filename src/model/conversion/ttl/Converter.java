@@ -1,6 +1,5 @@
 package model.conversion.ttl;
 
-import javafx.util.Pair;
 import model.conceptual.Class;
 import model.conceptual.Edge;
 import model.conceptual.Literal;
@@ -20,6 +19,7 @@ public class Converter {
     private static ArrayList<Vertex>   classes;
     private static ArrayList<Edge>     properties;
     private static ArrayList<Boolean>  config;
+    private static PrefixTrie          prefixTrie;
 
     private static boolean isOntology;
 
@@ -42,6 +42,7 @@ public class Converter {
         Converter.classes    = classes;
         Converter.properties = properties;
         Converter.config     = config;
+        Converter.prefixTrie = new PrefixTrie(prefixes);
 
         isOntology = config.get(2);
 
@@ -130,7 +131,8 @@ public class Converter {
         StringBuilder prefixStrs = new StringBuilder();
 
         for (Map.Entry<String, String> prefix : prefixes.entrySet()){
-            String   prefixStr = "@prefix " + prefix.getKey() + " : <" + prefix.getValue() + "> .\n";
+            // the acronym and its colon are one token (https://www.w3.org/TR/turtle/#grammar-production-PNAME_NS).
+            String   prefixStr = "@prefix " + prefix.getKey() + ": <" + prefix.getValue() + "> .\n";
             prefixStrs.append(prefixStr);
         }
 
@@ -152,7 +154,7 @@ public class Converter {
         );
 
         // Map from the common property name to the associated subject/object pairs.
-        HashMap<String, ArrayList<Pair<Vertex, Vertex>>> commonProperties = new HashMap<>();
+        HashMap<String, ArrayList<Map.Entry<Vertex, Vertex>>> commonProperties = new HashMap<>();
         for (Edge property : properties){
             Vertex sub = property.getSubject();
             Vertex obj = property.getObject();
@@ -162,11 +164,11 @@ public class Converter {
             if (propertyName.equals("a")) continue;
 
             if (commonProperties.containsKey(propertyName))
-                commonProperties.get(propertyName).add(new Pair<>(sub, obj));
+                commonProperties.get(propertyName).add(new AbstractMap.SimpleImmutableEntry<>(sub, obj));
             else {
-                ArrayList<Pair<Vertex, Vertex>> pairs = new ArrayList<>();
+                ArrayList<Map.Entry<Vertex, Vertex>> pairs = new ArrayList<>();
 
-                pairs.add(new Pair<>(sub, obj));
+                pairs.add(new AbstractMap.SimpleImmutableEntry<>(sub, obj));
                 commonProperties.put(propertyName, pairs);
             }
         }
@@ -196,8 +198,8 @@ public class Converter {
      * @param subObjPairs the subject/object pairs of the given property.
      * @return the .ttl representation of the domain and range of the property.
      */
-    private static String getDomainAndRange(String propName, ArrayList<Pair<Vertex, Vertex>> subObjPairs) {
-        String propStrBase = (propName.matches("https?:.*|mailto:.*") ? "<" + propName + ">" : propName) +
+    private static String getDomainAndRange(String propName, ArrayList<Map.Entry<Vertex, Vertex>> subObjPairs) {
+        String propStrBase = convertName(propName) +
                 " rdf:type owl:ObjectProperty ;\n\t";
         StringBuilder propStr = new StringBuilder(propStrBase);
 
@@ -240,7 +242,7 @@ public class Converter {
             propStr.append(";\n\t");
         } else {
             propStr.append(commonSubNames.size() != 1 ? "\n\t\t" : "");
-            commonSubNames.forEach(s -> propStr.append(s.matches("https?:.*|mailto:.*") ? "<" + s + ">" : s).append(" ,\n\t\t"));
+            commonSubNames.forEach(s -> propStr.append(convertName(s)).append(" ,\n\t\t"));
             propStr.delete(propStr.length() - 4, propStr.length());
             propStr.append(";\n\t");
         }
@@ -258,7 +260,7 @@ public class Converter {
             propStr.append(".\n");
         } else {
             propStr.append(commonObjNames.size() != 1 ? "\n\t\t" : "");
-            commonObjNames.forEach(o -> propStr.append(o.matches("https?:.*|mailto:.*") ? "<" + o + ">" : o).append(" ,\n\t\t"));
+            commonObjNames.forEach(o -> propStr.append(convertName(o)).append(" ,\n\t\t"));
             propStr.delete(propStr.length() - 4, propStr.length());
             propStr.append(".\n");
         }
@@ -332,7 +334,7 @@ public class Converter {
 
         for (Map.Entry<String, ArrayList<Vertex>> e : commonObjects.entrySet()){
             String predicateObjectListStr = "";
-            String propName = e.getKey().matches("https?:.*") ? "<" + e.getKey() + ">" : e.getKey();
+            String propName = convertName(e.getKey());
             String objectListStr;
             ArrayList<Vertex> objectList = e.getValue();
 
@@ -357,14 +359,10 @@ public class Converter {
         String rdfsLabel = subject.getRdfsLabel();
         String rdfsComment = subject.getRdfsComment();
 
-        if (rdfsLabel != null && rdfsLabel.length() != 0 && rdfsLabel.contains("\n"))
-            result += "rdfs:label \"\"\"" + rdfsLabel + "\"\"\" ;\n" + tabs;
-        else if (rdfsLabel != null && rdfsLabel.length() != 0)
-            result += "rdfs:label \"" + rdfsLabel + "\" ;\n" + tabs;
-        if (rdfsComment != null && rdfsComment.length() != 0 && rdfsComment.contains("\n"))
-            result += "rdfs:comment \"\"\"" + rdfsComment + "\"\"\" ;\n" + tabs;
-        else if (rdfsComment != null && rdfsComment.length() != 0)
-            result += "rdfs:comment \"" + rdfsComment + "\" ;\n" + tabs;
+        if (rdfsLabel != null && rdfsLabel.length() != 0)
+            result += "rdfs:label " + TurtleEscaper.quote(rdfsLabel) + " ;\n" + tabs;
+        if (rdfsComment != null && rdfsComment.length() != 0)
+            result += "rdfs:comment " + TurtleEscaper.quote(rdfsComment) + " ;\n" + tabs;
 
         return result.length() != 0 ? result.substring(0, result.length() - 4) : result;
     }
@@ -425,9 +423,9 @@ public class Converter {
         } else if (object instanceof Literal && object.getElementType() == INSTANCE_LITERAL) {
             Literal literal = (Literal) object;
             String dataType = literal.getDataType();
-            objectStr = "\"" + objectStr + "\"" +
+            objectStr = TurtleEscaper.quote(objectStr) +
                     (dataType != null && dataType.length() != 0 ? "^^" + literal.getDataType() : "");
-        } else objectStr = objectStr.matches("https?:.*|mailto:.*") ? "<"+objectStr+">" : objectStr;
+        } else objectStr = convertName(objectStr);
 
         return objectStr;
     }
@@ -440,8 +438,7 @@ public class Converter {
      */
     private static String convertSubject(Vertex klass){
         Class subject = (Class) klass;
-        String subname = klass.getName();
-        subname = subname.matches("https?:.*|mailto:.*") ? "<" + subname + ">" : subname;
+        String subname = convertName(klass.getName());
         String typeDef;
 
         if (isOntology)
@@ -451,6 +448,16 @@ public class Converter {
         return subname + typeDef + "\n" + tabs;
     }
 
+    /**
+     * Converts the name of a Class or property into its .ttl form. Full IRIs are compacted into a prefixed name if one
+     *    of the prefixes covers them, and are otherwise wrapped in angle brackets.
+     * @param name the name to be converted.
+     * @return the name as it is written in .ttl.
+     */
+    private static String convertName(String name) {
+        return name.matches("https?:.*|mailto:.*") ? prefixTrie.format(name) : name;
+    }
+
     /**
      * Increase the current indentation level.
      */
@@ -0,0 +1,146 @@
+package model.conversion.ttl;
+
+import model.conceptual.Class;
+import model.conceptual.Edge;
+import model.conceptual.Literal;
+import model.conceptual.Vertex;
+import model.layout.ForceDirectedLayout;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.ToDoubleFunction;
+import java.util.logging.Logger;
+
+/**
+ * Builds a graph from an existing Turtle document: every subject, and every object that is not a literal, becomes a
+ *    Class, every literal object becomes a Literal of its own, and every triple becomes an Edge between them.
+ * The document is streamed through a {@link TurtleParser}, so only the graph being built is held in memory. As a
+ *    Turtle document has no layout, the graph is laid out with a {@link ForceDirectedLayout} once it is read.
+ */
+public class FromTtlConverter implements TurtleParser.TripleHandler {
+    private static final Logger LOGGER = Logger.getLogger(FromTtlConverter.class.getName());
+    private static final String XSD = "http://www.w3.org/2001/XMLSchema#";
+
+    private final ToDoubleFunction<String> textWidth;
+    private final Map<String, Vertex> classesByName = new HashMap<>();
+    private final ArrayList<Vertex> classes = new ArrayList<>();
+    private final ArrayList<Edge> properties = new ArrayList<>();
+    private final Map<String, String> prefixes = new LinkedHashMap<>();
+    private double canvasWidth, canvasHeight;
+    private int skippedTriples = 0;
+
+    /**
+     * @param textWidth gives the width of a name when drawn, used to size the elements to fit their names.
+     */
+    public FromTtlConverter(ToDoubleFunction<String> textWidth) {
+        this.textWidth = textWidth;
+    }
+
+    /**
+     * Reads the document into a graph, and lays it out.
+     * @param document the Turtle document, which is read as it is parsed.
+     * @throws IOException if the document can not be read.
+     * @throws TurtleParser.TurtleSyntaxException if the document is not valid Turtle.
+     */
+    public void bindGraph(Reader document) throws IOException, TurtleParser.TurtleSyntaxException {
+        new TurtleParser(document, this).parse();
+        if (skippedTriples > 0) LOGGER.warning("Skipped " + skippedTriples + " triples with unrepresentable objects.");
+
+        ForceDirectedLayout layout = new ForceDirectedLayout(classes, properties);
+        layout.run();
+        layout.apply();
+
+        for (Vertex vertex : classes) {
+            canvasWidth  = Math.max(canvasWidth, vertex.getLayoutX() + vertex.getWidth() + 300);
+            canvasHeight = Math.max(canvasHeight, vertex.getLayoutY() + vertex.getHeight() + 300);
+        }
+        for (Edge property : properties) property.route(textWidth.applyAsDouble(property.getName()));
+    }
+
+    @Override
+    public void prefix(String acronym, String expansion) {
+        prefixes.put(acronym, expansion);
+    }
+
+    @Override
+    public void triple(String subject, String predicate, String object) {
+        Vertex sub = classFor(subject);
+        Vertex obj;
+        if (isLiteral(object)) {
+            try {
+                obj = literalFor(object);
+            } catch (Vertex.UndefinedElementTypeException e) {
+                skippedTriples++;
+                return;
+            }
+            classes.add(obj);
+        } else obj = classFor(object);
+
+        Edge property = new Edge(predicate, sub, obj);
+        sub.addOutgoingEdge(property);
+        obj.addIncomingEdge(property);
+        properties.add(property);
+    }
+
+    /**
+     * @return the Class of the given name, created the first time the name is seen.
+     */
+    private Vertex classFor(String name) {
+        return classesByName.computeIfAbsent(name, n -> {
+            double width = textWidth.applyAsDouble(n);
+            Vertex klass = new Class(n, 0, 0, width / 2 > 62.5 ? width / 2 + 10 : 62.5, 37.5, false);
+            classes.add(klass);
+            return klass;
+        });
+    }
+
+    /**
+     * @return a Literal of the given literal, with the datatype it is written with, or that its form stands for. A
+     *    bare number the graph does not take as written, such as 1e5, is quoted and typed instead.
+     */
+    private Literal literalFor(String literal) throws Vertex.UndefinedElementTypeException {
+        String dataType = dataTypeOf(literal);
+        Literal vertex = newLiteral(literal, dataType);
+        if (vertex.getElementType() != Vertex.GraphElemType.GLOBAL_LITERAL && literal.charAt(0) != '"')
+            vertex = newLiteral("\"" + literal + "\"^^<" + dataType + ">", dataType);
+        return vertex;
+    }
+
+    private Literal newLiteral(String name, String dataType) throws Vertex.UndefinedElementTypeException {
+        double width = textWidth.applyAsDouble(name);
+        return new Literal(name, 0, 0, width > 125 ? width + 15 : 125, 75, dataType);
+    }
+
+    /**
+     * @return the datatype of a literal as the parser gives it: the datatype it is written with, or for a bare number
+     *    or boolean, the one its form stands for; null for a string, which may have a language tag instead.
+     */
+    private static String dataTypeOf(String literal) {
+        if (literal.charAt(0) == '"') {
+            int close = literal.lastIndexOf('"');
+            return literal.startsWith("^^", close + 1) ? literal.substring(close + 3) : null;
+        }
+        if (literal.equals("true") || literal.equals("false")) return XSD + "boolean";
+        if (literal.indexOf('e') >= 0 || literal.indexOf('E') >= 0) return XSD + "double";
+        return XSD + (literal.indexOf('.') >= 0 ? "decimal" : "integer");
+    }
+
+    private static boolean isLiteral(String term) {
+        char first = term.charAt(0);
+        return first == '"' || first == '+' || first == '-' || first == '.' || Character.isDigit(first) ||
+                term.equals("true") || term.equals("false");
+    }
+
+    /**
+     * Accessors
+     */
+    public ArrayList<Vertex> getClasses() { return classes; }
+    public ArrayList<Edge> getProperties() { return properties; }
+    public Map<String, String> getPrefixes() { return prefixes; }
+    public double getCanvasWidth() { return canvasWidth; }
+    public double getCanvasHeight() { return canvasHeight; }
+}
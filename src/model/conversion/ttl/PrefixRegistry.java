@@ -0,0 +1,94 @@
+package model.conversion.ttl;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * An offline snapshot of commonly used namespace prefixes, bundled with the application in prefixes.tsv.
+ * The file is kept sorted by acronym, one "acronym TAB expansion" per line, so it is read straight into a pair of
+ *    sorted arrays: looking up an acronym, or every acronym starting with what has been typed so far, is a binary
+ *    search, with nothing to build at startup.
+ * Acronyms are lower-case letters only, as that is all the prefix menu and the element dialogs accept.
+ */
+public class PrefixRegistry {
+    private static final Logger LOGGER = Logger.getLogger(PrefixRegistry.class.getName());
+
+    private final String[] acronyms;
+    private final String[] expansions;
+
+    private static final class Holder {
+        private static final PrefixRegistry INSTANCE = load();
+    }
+
+    private PrefixRegistry(String[] acronyms, String[] expansions) {
+        this.acronyms = acronyms;
+        this.expansions = expansions;
+    }
+
+    /**
+     * @return the bundled registry, read the first time it is asked for. Empty if the registry could not be read.
+     */
+    public static PrefixRegistry getInstance() { return Holder.INSTANCE; }
+
+    /**
+     * @param acronym the short form of the prefix.
+     * @return the expanded form of the acronym, or null if it is not in the registry.
+     */
+    public String getExpansion(String acronym) {
+        int i = Arrays.binarySearch(acronyms, acronym);
+        return i >= 0 ? expansions[i] : null;
+    }
+
+    /**
+     * @param start the start of an acronym.
+     * @param limit the most acronyms to return.
+     * @return the acronyms that begin with start, in alphabetical order.
+     */
+    public List<String> complete(String start, int limit) {
+        List<String> matches = new ArrayList<>();
+        int i = Arrays.binarySearch(acronyms, start);
+        if (i < 0) i = -i - 1;
+        for (; i < acronyms.length && matches.size() < limit && acronyms[i].startsWith(start); i++)
+            matches.add(acronyms[i]);
+        return matches;
+    }
+
+    /**
+     * @return the number of prefixes in the registry.
+     */
+    public int size() { return acronyms.length; }
+
+    /**
+     * Reads the bundled registry.
+     * @return the registry, or an empty one if it could not be read.
+     */
+    private static PrefixRegistry load() {
+        List<String> acronyms = new ArrayList<>();
+        List<String> expansions = new ArrayList<>();
+
+        try (InputStream in = PrefixRegistry.class.getResourceAsStream("prefixes.tsv")) {
+            if (in == null) throw new IOException("prefixes.tsv is missing");
+            BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int tab = line.indexOf('\t');
+                if (tab < 0) continue;
+                acronyms.add(line.substring(0, tab));
+                expansions.add(line.substring(tab + 1));
+            }
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Reading the prefix registry failed: ", e);
+            return new PrefixRegistry(new String[0], new String[0]);
+        }
+
+        return new PrefixRegistry(acronyms.toArray(new String[0]), expansions.toArray(new String[0]));
+    }
+}
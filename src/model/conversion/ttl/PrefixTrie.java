@@ -0,0 +1,131 @@
+package model.conversion.ttl;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * A trie over the expansions of a set of prefixes, used to compact full IRIs into prefixed names. Finding the longest
+ *    expansion an IRI starts with walks the IRI once, so it takes time in the length of the IRI no matter how many
+ *    prefixes are defined.
+ */
+public class PrefixTrie {
+    private final Node root = new Node();
+
+    /**
+     * A node of the trie: the expansion spelled out on the way to it, its acronym if it is the end of an expansion,
+     *    and its children, keyed by the next character.
+     */
+    private static final class Node {
+        private char[] keys = new char[0];
+        private Node[] children = new Node[0];
+        private String acronym;
+        private int depth;
+
+        private Node child(char c) {
+            for (int i = 0; i < keys.length; i++) if (keys[i] == c) return children[i];
+            return null;
+        }
+
+        private Node addChild(char c) {
+            Node child = child(c);
+            if (child != null) return child;
+
+            keys = Arrays.copyOf(keys, keys.length + 1);
+            children = Arrays.copyOf(children, children.length + 1);
+            keys[keys.length - 1] = c;
+            child = children[children.length - 1] = new Node();
+            child.depth = depth + 1;
+            return child;
+        }
+    }
+
+    /**
+     * @param prefixes the map of prefix acronyms and their expanded form.
+     */
+    public PrefixTrie(Map<String, String> prefixes) {
+        prefixes.forEach(this::add);
+    }
+
+    /**
+     * Adds a prefix. If two acronyms share an expansion, the last one added is used.
+     * @param acronym the short form of the prefix.
+     * @param expansion the namespace IRI the acronym stands for.
+     */
+    public void add(String acronym, String expansion) {
+        Node node = root;
+        for (int i = 0; i < expansion.length(); i++) node = node.addChild(expansion.charAt(i));
+        node.acronym = acronym;
+    }
+
+    /**
+     * Compacts an IRI into a prefixed name, using the longest expansion the IRI starts with.
+     * @param iri the full IRI, without angle brackets.
+     * @return the prefixed name, or null if no expansion matches, or what is left of the IRI can not be written as
+     *    the local part of a prefixed name.
+     */
+    public String compact(String iri) {
+        Node expansion = longestExpansion(iri);
+        if (expansion == null || !isLocalName(iri, expansion.depth)) return null;
+        return expansion.acronym + ":" + iri.substring(expansion.depth);
+    }
+
+    /**
+     * Compacts an IRI if possible, otherwise wraps it in angle brackets, giving it in a form ready to be written out.
+     * @param iri the full IRI, without angle brackets.
+     * @return the prefixed name or bracketed IRI.
+     */
+    public String format(String iri) {
+        String compacted = compact(iri);
+        return compacted != null ? compacted : "<" + iri + ">";
+    }
+
+    /**
+     * Writes an IRI the way {@link #format} gives it, straight into a buffer, so nothing is allocated for it.
+     * @param out where the prefixed name or bracketed IRI is written.
+     * @param iri the full IRI, without angle brackets.
+     * @return out.
+     */
+    public StringBuilder appendFormatted(StringBuilder out, CharSequence iri) {
+        Node expansion = longestExpansion(iri);
+        if (expansion == null || !isLocalName(iri, expansion.depth)) return out.append('<').append(iri).append('>');
+        return out.append(expansion.acronym).append(':').append(iri, expansion.depth, iri.length());
+    }
+
+    /**
+     * @return the node of the longest expansion the IRI starts with, or null if none does.
+     */
+    private Node longestExpansion(CharSequence iri) {
+        Node node = root, longest = null;
+        for (int i = 0; i < iri.length() && node != null; i++) {
+            node = node.child(iri.charAt(i));
+            if (node != null && node.acronym != null) longest = node;
+        }
+        return longest;
+    }
+
+    /**
+     * Checks whether the rest of an IRI is a valid local name, with nothing in it that would need escaping
+     *    (https://www.w3.org/TR/turtle/#grammar-production-PN_LOCAL). Percent-encoded characters are allowed as they
+     *    are.
+     * @param iri the full IRI.
+     * @param from where the local name begins.
+     */
+    private static boolean isLocalName(CharSequence iri, int from) {
+        int length = iri.length();
+        if (from == length) return true;
+
+        for (int i = from; i < length; i++) {
+            char c = iri.charAt(i);
+            if (c == '%') {
+                if (i + 2 >= length || !isHex(iri.charAt(i + 1)) || !isHex(iri.charAt(i + 2))) return false;
+                i += 2;
+            } else if (!Character.isLetterOrDigit(c) && c != '_' && c != ':' &&
+                    (i == from || (c != '-' && c != '.'))) return false;
+        }
+        return iri.charAt(length - 1) != '.';
+    }
+
+    private static boolean isHex(char c) {
+        return (c >= '0' && c <= '9') || (c >= 'A' && c <= 'F') || (c >= 'a' && c <= 'f');
+    }
+}
@@ -0,0 +1,138 @@
+package model.conversion.ttl;
+
+/**
+ * Escapes text into Turtle string literals, and percent-encodes text into IRIs.
+ * Each value is scanned once. Runs of characters that need no escaping are copied across in bulk, and a value with
+ *    nothing to escape, which is most of them, is given back as it is, without allocating.
+ */
+public final class TurtleEscaper {
+    private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+    private TurtleEscaper() {}
+
+    /**
+     * Escapes a value to be written between the quotes of a string literal
+     *    (https://www.w3.org/TR/turtle/#grammar-production-STRING_LITERAL_QUOTE).
+     * @param value the text of the literal.
+     * @param longForm whether the literal is written between triple quotes, in which case line breaks are left as
+     *                 they are.
+     * @return the escaped value, or the value itself if there is nothing to escape.
+     */
+    public static String escapeString(String value, boolean longForm) {
+        int length = value.length();
+        int i = 0;
+        while (i < length && !needsEscape(value.charAt(i), longForm)) i++;
+        if (i == length) return value;
+
+        StringBuilder out = new StringBuilder(length + 8);
+        appendEscaped(out, value, i, longForm);
+        return out.toString();
+    }
+
+    /**
+     * Writes a value as a quoted string literal, escaping it as it is written.
+     * @param out where the literal is written.
+     * @param value the text of the literal.
+     * @return out.
+     */
+    public static StringBuilder appendString(StringBuilder out, CharSequence value) {
+        out.append('"');
+        appendEscaped(out, value, 0, false);
+        return out.append('"');
+    }
+
+    /**
+     * @param value the text of a literal.
+     * @return the value as a quoted string literal, triple-quoted if it spans several lines.
+     */
+    public static String quote(String value) {
+        boolean longForm = value.indexOf('\n') >= 0;
+        String quotes = longForm ? "\"\"\"" : "\"";
+        return quotes + escapeString(value, longForm) + quotes;
+    }
+
+    /**
+     * Percent-encodes a value to be used as a segment of an IRI, such as the local name of an instance: what is not
+     *    allowed in an IRI (https://www.w3.org/TR/turtle/#grammar-production-IRIREF), and what would otherwise start
+     *    a new path segment, query, or fragment, is encoded.
+     * @param value the text of the segment.
+     * @return the encoded value, or the value itself if there is nothing to encode.
+     */
+    public static String encodeIriSegment(String value) {
+        int length = value.length();
+        int i = 0;
+        while (i < length && !needsEncoding(value.charAt(i))) i++;
+        if (i == length) return value;
+
+        StringBuilder out = new StringBuilder(length + 16);
+        appendEncoded(out, value, i);
+        return out.toString();
+    }
+
+    /**
+     * Writes a value as a percent-encoded IRI segment.
+     * @param out where the segment is written.
+     * @param value the text of the segment.
+     * @return out.
+     */
+    public static StringBuilder appendIriSegment(StringBuilder out, CharSequence value) {
+        appendEncoded(out, value, 0);
+        return out;
+    }
+
+    /**
+     * Copies a value across, escaping from the first character that needs it.
+     * @param clean how many characters at the start of the value are already known to need no escaping.
+     */
+    private static void appendEscaped(StringBuilder out, CharSequence value, int clean, boolean longForm) {
+        int length = value.length();
+        int runStart = 0;
+        for (int i = clean; i < length; i++) {
+            char c = value.charAt(i);
+            if (!needsEscape(c, longForm)) continue;
+
+            out.append(value, runStart, i);
+            switch (c) {
+                case '"':  out.append("\\\""); break;
+                case '\\': out.append("\\\\"); break;
+                case '\n': out.append("\\n");  break;
+                default:   out.append("\\r");  break;
+            }
+            runStart = i + 1;
+        }
+        out.append(value, runStart, length);
+    }
+
+    /**
+     * Copies a value across, percent-encoding from the first character that needs it. Characters that need encoding
+     *    are all ASCII, so each is a single byte in UTF-8.
+     * @param clean how many characters at the start of the value are already known to need no encoding.
+     */
+    private static void appendEncoded(StringBuilder out, CharSequence value, int clean) {
+        int length = value.length();
+        int runStart = 0;
+        for (int i = clean; i < length; i++) {
+            char c = value.charAt(i);
+            if (!needsEncoding(c)) continue;
+
+            out.append(value, runStart, i).append('%').append(HEX[c >> 4]).append(HEX[c & 0xF]);
+            runStart = i + 1;
+        }
+        out.append(value, runStart, length);
+    }
+
+    private static boolean needsEscape(char c, boolean longForm) {
+        return c == '"' || c == '\\' || (!longForm && (c == '\n' || c == '\r'));
+    }
+
+    private static boolean needsEncoding(char c) {
+        if (c <= ' ') return true;
+        switch (c) {
+            case '<': case '>': case '"': case '{': case '}': case '|': case '^': case '`': case '\\':
+            case '%': case '/': case '?': case '#':
+                return true;
+            default:
+                return false;
+        }
+    }
+}
@@ -0,0 +1,429 @@
+package model.conversion.ttl;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A streaming parser for Turtle (.ttl) documents. Each triple is handed to a {@link TripleHandler} as soon as it is
+ *    read, so the document is never held in memory, only the small part of it being read and the subjects and
+ *    predicates of any blank nodes it is nested within.
+ * Terms are given in the form the graph uses for names: prefixed names as written, full IRIs without their angle
+ *    brackets, blank nodes as _:name, and literals as written in short form, such as "text"@en or "1"^^xsd:int.
+ */
+public class TurtleParser {
+
+    /**
+     * Receives the prefixes and triples of a document as they are parsed.
+     */
+    public interface TripleHandler {
+        void prefix(String acronym, String expansion);
+        void triple(String subject, String predicate, String object);
+    }
+
+    /**
+     * Exception if the document is not valid Turtle.
+     */
+    public class TurtleSyntaxException extends Exception {
+        private final int line, column;
+
+        TurtleSyntaxException(String message) {
+            super(message + " at line " + TurtleParser.this.line + ", column " + TurtleParser.this.column);
+            this.line = TurtleParser.this.line;
+            this.column = TurtleParser.this.column;
+        }
+
+        public int getLine() { return line; }
+        public int getColumn() { return column; }
+    }
+
+    private static final String RDF = "http://www.w3.org/1999/02/22-rdf-syntax-ns#";
+    private static final int EOF = -1;
+
+    private final Reader in;
+    private final TripleHandler handler;
+    private final char[] buffer = new char[8192];
+    private int pos, limit;
+    private int line = 1, column = 0;
+
+    private final Map<String, String> prefixes = new HashMap<>();
+    private final StringBuilder token = new StringBuilder();
+    private String base = "";
+    private int nextBlankNode = 0;
+
+    /**
+     * @param in the document to parse. It is read as needed, and is not closed.
+     * @param handler receives the prefixes and triples of the document.
+     */
+    public TurtleParser(Reader in, TripleHandler handler) {
+        this.in = in;
+        this.handler = handler;
+    }
+
+    /**
+     * Parses the whole document.
+     * @throws IOException if the document can not be read.
+     * @throws TurtleSyntaxException if the document is not valid Turtle.
+     */
+    public void parse() throws IOException, TurtleSyntaxException {
+        for (skipWhitespace(); peek(0) != EOF; skipWhitespace()) statement();
+    }
+
+    private void statement() throws IOException, TurtleSyntaxException {
+        int c = peek(0);
+        if (c == '@') {
+            next();
+            String keyword = readName();
+            if (keyword.equals("prefix")) prefixDirective();
+            else if (keyword.equals("base")) baseDirective();
+            else throw new TurtleSyntaxException("Unknown directive @" + keyword);
+            skipWhitespace();
+            expect('.');
+            return;
+        }
+
+        String subject;
+        if (c == '[') {
+            subject = blankNodePropertyList();
+            skipWhitespace();
+            if (peek(0) == '.') {
+                next();
+                return;
+            }
+        } else if (isNameStart(c) && !(c == '_' && peek(1) == ':')) {
+            String name = readName();
+            if (name.equalsIgnoreCase("prefix")) {
+                prefixDirective();
+                return;
+            } else if (name.equalsIgnoreCase("base")) {
+                baseDirective();
+                return;
+            }
+            subject = nameTerm(name);
+        } else subject = term();
+
+        predicateObjectList(subject);
+        skipWhitespace();
+        expect('.');
+    }
+
+    private void prefixDirective() throws IOException, TurtleSyntaxException {
+        skipWhitespace();
+        String name = readName();
+        if (name.endsWith(":")) name = name.substring(0, name.length() - 1);
+        else {
+            // DrawingTurtles used to write "@prefix ex : <...> .", with a space before the colon, so the documents
+            //    it exported are read back, though Turtle does not allow the space.
+            skipWhitespace();
+            if (peek(0) != ':') throw new TurtleSyntaxException("Expected a prefix name ending in ':'");
+            next();
+        }
+        skipWhitespace();
+        String expansion = iri();
+
+        prefixes.put(name, expansion);
+        handler.prefix(name, expansion);
+    }
+
+    private void baseDirective() throws IOException, TurtleSyntaxException {
+        skipWhitespace();
+        base = iri();
+    }
+
+    private void predicateObjectList(String subject) throws IOException, TurtleSyntaxException {
+        for (;;) {
+            skipWhitespace();
+            String predicate = verb();
+            objectList(subject, predicate);
+
+            skipWhitespace();
+            if (peek(0) != ';') return;
+            while (peek(0) == ';') {
+                next();
+                skipWhitespace();
+            }
+            int c = peek(0);
+            if (c == '.' || c == ']' || c == EOF) return;
+        }
+    }
+
+    private void objectList(String subject, String predicate) throws IOException, TurtleSyntaxException {
+        for (;;) {
+            skipWhitespace();
+            handler.triple(subject, predicate, term());
+            skipWhitespace();
+            if (peek(0) != ',') return;
+            next();
+        }
+    }
+
+    private String verb() throws IOException, TurtleSyntaxException {
+        if (peek(0) == 'a' && !isNameChar(peek(1))) {
+            next();
+            return "a";
+        }
+        return term();
+    }
+
+    /**
+     * Reads an IRI, blank node, collection, or literal.
+     */
+    private String term() throws IOException, TurtleSyntaxException {
+        int c = peek(0);
+        switch (c) {
+            case '<': return iri();
+            case '[': return blankNodePropertyList();
+            case '(': return collection();
+            case '"': case '\'': return literal();
+            case EOF: throw new TurtleSyntaxException("Unexpected end of document");
+        }
+        if (c == '_' && peek(1) == ':') {
+            next();
+            next();
+            return "_:" + readName();
+        }
+        if (isDigit(c) || c == '+' || c == '-' || (c == '.' && isDigit(peek(1)))) return number();
+        if (isNameStart(c)) return nameTerm(readName());
+
+        throw new TurtleSyntaxException("Unexpected character '" + (char) c + "'");
+    }
+
+    /**
+     * Turns a bare name into a term: a prefixed name, or the keywords true and false.
+     */
+    private String nameTerm(String name) throws TurtleSyntaxException {
+        if (name.equals("true") || name.equals("false")) return name;
+
+        int colon = name.indexOf(':');
+        if (colon < 0) throw new TurtleSyntaxException("Expected a prefixed name, found '" + name + "'");
+        if (!prefixes.containsKey(name.substring(0, colon)))
+            throw new TurtleSyntaxException("Undeclared prefix '" + name.substring(0, colon) + ":'");
+        return name;
+    }
+
+    private String iri() throws IOException, TurtleSyntaxException {
+        expect('<');
+        token.setLength(0);
+        for (int c = next(); c != '>'; c = next()) {
+            if (c == EOF || c == '\n') throw new TurtleSyntaxException("Unterminated IRI");
+            if (c == '\\') c = unicodeEscape();
+            token.append((char) c);
+        }
+        String iri = token.toString();
+        return iri.indexOf(':') < 0 ? base + iri : iri;
+    }
+
+    private String blankNodePropertyList() throws IOException, TurtleSyntaxException {
+        expect('[');
+        String node = newBlankNode();
+        skipWhitespace();
+        if (peek(0) != ']') predicateObjectList(node);
+        skipWhitespace();
+        expect(']');
+        return node;
+    }
+
+    /**
+     * Reads a collection, as the rdf:first and rdf:rest triples of a list of blank nodes.
+     * @return the head of the list, or rdf:nil if it is empty.
+     */
+    private String collection() throws IOException, TurtleSyntaxException {
+        expect('(');
+        String head = RDF + "nil";
+        String previous = null;
+
+        for (skipWhitespace(); peek(0) != ')'; skipWhitespace()) {
+            String node = newBlankNode();
+            if (previous == null) head = node;
+            else handler.triple(previous, RDF + "rest", node);
+            handler.triple(node, RDF + "first", term());
+            previous = node;
+        }
+        next();
+
+        if (previous != null) handler.triple(previous, RDF + "rest", RDF + "nil");
+        return head;
+    }
+
+    private String literal() throws IOException, TurtleSyntaxException {
+        int quote = next();
+        boolean isLong = peek(0) == quote && peek(1) == quote;
+        if (isLong) {
+            next();
+            next();
+        }
+
+        token.setLength(0);
+        token.append('"');
+        for (;;) {
+            int c = next();
+            if (c == EOF) throw new TurtleSyntaxException("Unterminated string");
+            if (c == quote) {
+                if (!isLong) break;
+                if (peek(0) == quote && peek(1) == quote) {
+                    next();
+                    next();
+                    break;
+                }
+            }
+            if (!isLong && (c == '\n' || c == '\r')) throw new TurtleSyntaxException("Line break in a short string");
+            if (c == '\\') c = stringEscape();
+
+            switch (c) {
+                case '"':  token.append("\\\""); break;
+                case '\\': token.append("\\\\"); break;
+                case '\n': token.append("\\n"); break;
+                case '\r': token.append("\\r"); break;
+                case '\t': token.append("\\t"); break;
+                default:   token.append((char) c);
+            }
+        }
+        token.append('"');
+
+        if (peek(0) == '@') {
+            next();
+            token.append('@');
+            while (isLetterOrDigit(peek(0)) || peek(0) == '-') token.append((char) next());
+        } else if (peek(0) == '^' && peek(1) == '^') {
+            next();
+            next();
+            String literal = token.toString();
+            String datatype = peek(0) == '<' ? "<" + iri() + ">" : nameTerm(readName());
+            return literal + "^^" + datatype;
+        }
+        return token.toString();
+    }
+
+    private String number() throws IOException {
+        token.setLength(0);
+        if (peek(0) == '+' || peek(0) == '-') token.append((char) next());
+        while (isDigit(peek(0))) token.append((char) next());
+        if (peek(0) == '.' && isDigit(peek(1))) {
+            token.append((char) next());
+            while (isDigit(peek(0))) token.append((char) next());
+        }
+        if (peek(0) == 'e' || peek(0) == 'E') {
+            token.append((char) next());
+            if (peek(0) == '+' || peek(0) == '-') token.append((char) next());
+            while (isDigit(peek(0))) token.append((char) next());
+        }
+        return token.toString();
+    }
+
+    /**
+     * Reads a name: a keyword, or a prefixed name with its prefix. A full stop ends the name unless more of the name
+     *    follows it, as it may end the statement instead.
+     */
+    private String readName() throws IOException, TurtleSyntaxException {
+        token.setLength(0);
+        for (;;) {
+            int c = peek(0);
+            if (c == '.' && isNameChar(peek(1))) token.append((char) next());
+            else if (c == '\\') {
+                next();
+                token.append((char) next());
+            } else if (c != '.' && isNameChar(c)) token.append((char) next());
+            else break;
+        }
+        if (token.length() == 0) throw new TurtleSyntaxException("Expected a name");
+        return token.toString();
+    }
+
+    private String newBlankNode() {
+        return "_:genid" + nextBlankNode++;
+    }
+
+    private int stringEscape() throws IOException, TurtleSyntaxException {
+        int c = peek(0);
+        switch (c) {
+            case 't': next(); return '\t';
+            case 'b': next(); return '\b';
+            case 'n': next(); return '\n';
+            case 'r': next(); return '\r';
+            case 'f': next(); return '\f';
+            case '"': case '\'': case '\\': next(); return c;
+            default: return unicodeEscape();
+        }
+    }
+
+    private int unicodeEscape() throws IOException, TurtleSyntaxException {
+        int c = next();
+        int digits = c == 'u' ? 4 : c == 'U' ? 8 : 0;
+        if (digits == 0) throw new TurtleSyntaxException("Unknown escape '\\" + (char) c + "'");
+
+        int codePoint = 0;
+        for (int i = 0; i < digits; i++) {
+            int digit = Character.digit(next(), 16);
+            if (digit < 0) throw new TurtleSyntaxException("Malformed unicode escape");
+            codePoint = codePoint * 16 + digit;
+        }
+        if (Character.isSupplementaryCodePoint(codePoint)) {
+            // the high surrogate is returned, and the low surrogate appended for the caller to follow it with.
+            token.append(Character.highSurrogate(codePoint));
+            return Character.lowSurrogate(codePoint);
+        }
+        return codePoint;
+    }
+
+    private void skipWhitespace() throws IOException {
+        for (;;) {
+            int c = peek(0);
+            if (c == ' ' || c == '\t' || c == '\n' || c == '\r') next();
+            else if (c == '#') while (peek(0) != '\n' && peek(0) != EOF) next();
+            else return;
+        }
+    }
+
+    private void expect(char expected) throws IOException, TurtleSyntaxException {
+        int c = peek(0);
+        if (c != expected)
+            throw new TurtleSyntaxException("Expected '" + expected + "' but found " + (c == EOF ? "end of document" : "'" + (char) c + "'"));
+        next();
+    }
+
+    private static boolean isDigit(int c) { return c >= '0' && c <= '9'; }
+
+    private static boolean isLetterOrDigit(int c) { return c != EOF && Character.isLetterOrDigit(c); }
+
+    private static boolean isNameStart(int c) { return isLetterOrDigit(c) || c == '_' || c == ':'; }
+
+    private static boolean isNameChar(int c) {
+        return isLetterOrDigit(c) || c == '_' || c == '-' || c == ':' || c == '.' || c == '%' || c == '\\';
+    }
+
+    /**
+     * @param ahead how many characters ahead to look, at most 1.
+     * @return the character that many characters ahead, or EOF.
+     */
+    private int peek(int ahead) throws IOException {
+        if (pos + ahead >= limit) fill();
+        return pos + ahead < limit ? buffer[pos + ahead] : EOF;
+    }
+
+    private int next() throws IOException {
+        int c = peek(0);
+        if (c == EOF) return EOF;
+        pos++;
+        if (c == '\n') {
+            line++;
+            column = 0;
+        } else column++;
+        return c;
+    }
+
+    /**
+     * Moves the unread characters to the start of the buffer and reads more after them.
+     */
+    private void fill() throws IOException {
+        int remaining = limit - pos;
+        System.arraycopy(buffer, pos, buffer, 0, remaining);
+        pos = 0;
+        limit = remaining;
+        while (limit < 2) {
+            int read = in.read(buffer, limit, buffer.length - limit);
+            if (read < 0) return;
+            limit += read;
+        }
+    }
+}
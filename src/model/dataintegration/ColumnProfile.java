@@ -0,0 +1,54 @@
+package model.dataintegration;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * What a {@link ColumnProfiler} found in a column of a .csv: how many of its cells are empty, roughly how many distinct
+ *    values it has, and the narrowest XML Schema datatype every value of its sample fits.
+ */
+public class ColumnProfile {
+    private final int index;
+    private final String header;
+    private final long rows, nulls, distinct;
+    private final XsdType inferredType;
+    private final List<String> sample;
+
+    ColumnProfile(int index, String header, long rows, long nulls, long distinct, XsdType inferredType,
+                  List<String> sample) {
+        this.index = index;
+        this.header = header;
+        this.rows = rows;
+        this.nulls = nulls;
+        this.distinct = distinct;
+        this.inferredType = inferredType;
+        this.sample = Collections.unmodifiableList(sample);
+    }
+
+    /**
+     * @return the fraction of the cells of the column that are empty.
+     */
+    public double getNullRate() { return rows == 0 ? 0 : (double) nulls / rows; }
+
+    /**
+     * @return a short summary of the profile, as suggested to the user.
+     */
+    public String summary() {
+        return inferredType + ", " + Math.round(getNullRate() * 100) + "% empty, ~" + distinct + " distinct";
+    }
+
+    @Override public String toString() {
+        return index + ". " + header + ": " + summary();
+    }
+
+    /**
+     * Accessors
+     */
+    public int getIndex() { return index; }
+    public String getHeader() { return header; }
+    public long getRows() { return rows; }
+    public long getNulls() { return nulls; }
+    public long getDistinct() { return distinct; }
+    public XsdType getInferredType() { return inferredType; }
+    public List<String> getSample() { return sample; }
+}
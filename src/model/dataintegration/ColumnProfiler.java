@@ -0,0 +1,137 @@
+package model.dataintegration;
+
+
+import java.util.*;
+import java.util.Map.Entry;
+
+/**
+ * Profiles the columns of a .csv in a single pass over its records, in memory that does not grow with the number of
+ *    records: each column keeps a fixed-size reservoir sample of its values, a count of its empty cells, and a
+ *    {@link HyperLogLog} estimate of how many distinct values it has. The datatype of a column is inferred from its
+ *    sample.
+ * Also checks the columns of a .csv against the datatypes they are generated as, streaming the records without keeping
+ *    their values.
+ */
+public class ColumnProfiler {
+    // the number of values sampled from each column.
+    static final int SAMPLE_SIZE = 1000;
+
+    /**
+     * The outcome of checking the columns of a .csv against their datatypes: how many cells were checked, how many
+     *    were invalid, and a description of the first few invalid cells.
+     */
+    public static class ValidationReport {
+        private long checked, invalid;
+        private final List<String> errors = new ArrayList<>();
+
+        /**
+         * Checks the cells of a record in the given columns against their datatypes. Empty cells are not checked.
+         * @param record the record.
+         * @param columnTypes the datatype of each column to check, by column index.
+         * @param maxErrors the most invalid cells to describe; the rest are only counted.
+         * @return whether every cell checked is valid.
+         */
+        public boolean check(Row record, Map<Integer, XsdType> columnTypes, int maxErrors) {
+            long invalidBefore = invalid;
+            for (Entry<Integer, XsdType> column : columnTypes.entrySet()) {
+                int index = column.getKey();
+                if (index >= record.size()) continue;
+                String value = record.get(index);
+                if (value.isEmpty()) continue;
+
+                checked++;
+                if (!column.getValue().isValid(value)) {
+                    if (invalid++ < maxErrors)
+                        errors.add("Record " + record.getRecordNumber() + ", column " + index + ": '" + value +
+                                "' is not a valid " + column.getValue() + ".");
+                }
+            }
+            return invalid == invalidBefore;
+        }
+
+        public long getChecked() { return checked; }
+        public long getInvalid() { return invalid; }
+        public List<String> getErrors() { return errors; }
+    }
+
+    /**
+     * Profiles every column of a .csv.
+     * @param headers the .csv headers and their column indices.
+     * @param records the records of the .csv, read once.
+     * @param maxRows the most records to read, to bound the time taken on very large files.
+     * @return the profile of each column, in column order.
+     */
+    public static ArrayList<ColumnProfile> profile(Map<String, Integer> headers, Iterable<? extends Row> records,
+                                                   long maxRows) {
+        int columns = headers.values().stream().mapToInt(Integer::intValue).max().orElse(-1) + 1;
+        long[] nulls = new long[columns];
+        long[] seen = new long[columns];
+        HyperLogLog[] distinct = new HyperLogLog[columns];
+        List<List<String>> samples = new ArrayList<>();
+        for (int i = 0; i < columns; i++) {
+            distinct[i] = new HyperLogLog();
+            samples.add(new ArrayList<>());
+        }
+
+        // seeded, so the same file is always profiled the same way.
+        Random random = new Random(columns);
+        long rows = 0;
+        for (Row record : records) {
+            if (rows++ == maxRows) {
+                rows--;
+                break;
+            }
+            for (int i = 0; i < columns; i++) {
+                String value = i < record.size() ? record.get(i) : null;
+                if (value == null || value.trim().isEmpty()) {
+                    nulls[i]++;
+                    continue;
+                }
+                distinct[i].add(value);
+
+                // reservoir sampling: the nth value replaces a sampled one with probability SAMPLE_SIZE / n.
+                List<String> sample = samples.get(i);
+                long n = ++seen[i];
+                if (n <= SAMPLE_SIZE) sample.add(value);
+                else {
+                    long j = (long) (random.nextDouble() * n);
+                    if (j < SAMPLE_SIZE) sample.set((int) j, value);
+                }
+            }
+        }
+
+        String[] names = new String[columns];
+        for (Entry<String, Integer> header : headers.entrySet()) names[header.getValue()] = header.getKey();
+
+        ArrayList<ColumnProfile> profiles = new ArrayList<>();
+        for (int i = 0; i < columns; i++)
+            profiles.add(new ColumnProfile(i, names[i], rows, nulls[i], distinct[i].estimate(),
+                    inferType(samples.get(i)), samples.get(i)));
+        return profiles;
+    }
+
+    /**
+     * @param sample the sampled values of a column.
+     * @return the narrowest type every value fits, or xsd:string if there are none.
+     */
+    static XsdType inferType(List<String> sample) {
+        if (sample.isEmpty()) return XsdType.STRING;
+        for (XsdType type : XsdType.values())
+            if (sample.stream().allMatch(type::isValid)) return type;
+        return XsdType.STRING;
+    }
+
+    /**
+     * Checks the cells of the given columns against their datatypes. Empty cells are not checked.
+     * @param records the records of the .csv, read once.
+     * @param columnTypes the datatype of each column to check, by column index.
+     * @param maxErrors the most invalid cells to describe; the rest are only counted.
+     * @return the outcome of the check.
+     */
+    public static ValidationReport validate(Iterable<? extends Row> records, Map<Integer, XsdType> columnTypes,
+                                            int maxErrors) {
+        ValidationReport report = new ValidationReport();
+        for (Row record : records) report.check(record, columnTypes, maxErrors);
+        return report;
+    }
+}
@@ -0,0 +1,357 @@
+package model.dataintegration;
+
+import org.apache.commons.csv.CSVRecord;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * The records of a .csv kept in memory column by column, so they can be generated from again and again, as the graph
+ *    and correlations are changed, without reading the .csv again, and in a fraction of the memory of its records.
+ * Each column is kept in the most compact of these that all of its values fit, chosen as the records are added:
+ *    whole numbers as packed longs, decimals as doubles, columns of few distinct values as codes into a dictionary of
+ *    them, and anything else as UTF-8 bytes. A value always reads back exactly as it was in the .csv: a number is only
+ *    kept as a number if it is written the way Java writes it back.
+ */
+public class ColumnarTable implements Iterable<Row> {
+    // the most distinct values a dictionary column keeps, and the rows after which a column that is mostly distinct
+    //    values is judged not worth a dictionary.
+    static final int MAX_DICTIONARY = 1 << 16;
+    private static final int DICTIONARY_TRIAL_ROWS = 4096;
+
+    // the size of each block of the bytes of text columns; longer values are kept as Strings.
+    private static final int CHUNK_BITS = 20, CHUNK_SIZE = 1 << CHUNK_BITS;
+
+    private final Map<String, Integer> headers;
+    private final int width;
+    private final List<Column> columns = new ArrayList<>();
+    private int rows;
+
+    // the number of values of each row, only kept once a row has had more or fewer values than there are headers.
+    private PackedLongs rowSizes;
+
+    private ColumnarTable(Map<String, Integer> headers) {
+        this.headers = headers;
+        this.width = headers.size();
+        for (int i = 0; i < width; i++) columns.add(new IntegerColumn());
+    }
+
+    /**
+     * Reads every record into a table.
+     * @param headers the .csv headers and their column indices.
+     * @param records the records, such as a parser to read them from.
+     * @return the table of the records.
+     */
+    public static ColumnarTable of(Map<String, Integer> headers, Iterable<CSVRecord> records) {
+        ColumnarTable table = new ColumnarTable(headers);
+        for (CSVRecord record : records) table.add(record);
+        for (Column column : table.columns) column.freeze();
+        if (table.rowSizes != null) table.rowSizes.trim();
+        return table;
+    }
+
+    private void add(CSVRecord record) {
+        int size = record.size();
+        if (size != width && rowSizes == null) {
+            rowSizes = new PackedLongs();
+            for (int i = 0; i < rows; i++) rowSizes.add(width);
+        }
+        if (rowSizes != null) rowSizes.add(size);
+
+        // a column first seen in a longer row is empty in the rows before.
+        while (columns.size() < size) {
+            Column column = new IntegerColumn();
+            for (int i = 0; i < rows; i++) column = column.add(i, "");
+            columns.add(column);
+        }
+        for (int i = 0; i < columns.size(); i++)
+            columns.set(i, columns.get(i).add(rows, i < size ? record.get(i) : ""));
+        rows++;
+    }
+
+    /**
+     * @param row the index of a row, from 0.
+     * @return the row.
+     */
+    public Row getRow(int row) {
+        if (row < 0 || row >= rows) throw new IndexOutOfBoundsException("row " + row + " of " + rows);
+        return new Row() {
+            @Override public String get(int index) {
+                if (index < 0 || index >= size())
+                    throw new IndexOutOfBoundsException("column " + index + " of " + size());
+                return columns.get(index).get(row);
+            }
+
+            @Override public int size() {
+                return rowSizes == null ? width : (int) rowSizes.get(row);
+            }
+
+            @Override public long getRecordNumber() { return row + 1L; }
+        };
+    }
+
+    @Override public Iterator<Row> iterator() {
+        return new Iterator<Row>() {
+            private int next;
+
+            @Override public boolean hasNext() { return next < rows; }
+
+            @Override public Row next() {
+                if (next >= rows) throw new NoSuchElementException();
+                return getRow(next++);
+            }
+        };
+    }
+
+    /**
+     * @return the estimated bytes of memory the values take.
+     */
+    public long estimateMemory() {
+        long memory = rowSizes != null ? rowSizes.memory() : 0;
+        for (Column column : columns) memory += column.memory();
+        return memory;
+    }
+
+    /**
+     * Accessors and toStrings
+     */
+    public int getRowCount() { return rows; }
+    public Map<String, Integer> getHeaders() { return headers; }
+
+    @Override public String toString() {
+        StringBuilder description = new StringBuilder(rows + " rows in about " +
+                Math.max(1, estimateMemory() >> 20) + " MiB:");
+        for (int i = 0; i < columns.size(); i++)
+            description.append(i == 0 ? " " : ", ").append(i).append(' ').append(columns.get(i));
+        return description.toString();
+    }
+
+    /**
+     * The values of one column, row by row.
+     */
+    private abstract static class Column {
+
+        /**
+         * Adds the value of the next row.
+         * @return this column, or if the value does not fit it, the column it has been rewritten into.
+         */
+        abstract Column add(int row, String value);
+
+        abstract String get(int row);
+
+        abstract long memory();
+
+        /**
+         * Drops what is only needed while values are added.
+         */
+        abstract void freeze();
+
+        /**
+         * @return a column of the values of the rows so far, in the next more general kind of column, with the value
+         *    added.
+         */
+        Column rewrite(Column next, int row, String value) {
+            for (int i = 0; i < row; i++) next = next.add(i, get(i));
+            return next.add(row, value);
+        }
+    }
+
+    /**
+     * Whole numbers, written without a '+' or leading zeros, kept as their difference from the first, zigzag encoded so
+     *    numbers on either side of it stay small, and packed; 0 stands for an empty value. Becomes a decimal column if
+     *    its first number is a decimal, and otherwise a dictionary column at the first value that is not a number.
+     */
+    private static final class IntegerColumn extends Column {
+        private final PackedLongs values = new PackedLongs();
+        private boolean based;
+        private long base;
+
+        @Override Column add(int row, String value) {
+            if (value.isEmpty()) {
+                values.add(0);
+                return this;
+            }
+            if (!isWholeNumber(value))
+                return rewrite(!based && DecimalColumn.fits(value) ? new DecimalColumn() : new DictionaryColumn(),
+                        row, value);
+
+            long number = Long.parseLong(value);
+            if (!based) {
+                based = true;
+                base = number;
+            }
+            // at most 18 digits, so the difference and its encoding can not overflow.
+            long difference = number - base;
+            values.add(((difference << 1) ^ (difference >> 63)) + 1);
+            return this;
+        }
+
+        @Override String get(int row) {
+            long encoded = values.get(row);
+            if (encoded == 0) return "";
+            long difference = ((encoded - 1) >>> 1) ^ -((encoded - 1) & 1);
+            return Long.toString(base + difference);
+        }
+
+        @Override long memory() { return values.memory(); }
+        @Override void freeze() { values.trim(); }
+        @Override public String toString() { return "whole numbers"; }
+
+        /**
+         * @return whether the value reads back the same as a long: digits, without leading zeros, and at most a '-'.
+         */
+        static boolean isWholeNumber(String value) {
+            int start = value.charAt(0) == '-' ? 1 : 0, length = value.length() - start;
+            if (length == 0 || length > 18) return false;
+            if (value.charAt(start) == '0' && (length > 1 || start == 1)) return false;
+            for (int i = start; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c < '0' || c > '9') return false;
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Decimals that read back the same as Java writes their double, such as 2.5 but not 2.50, kept as doubles; NaN
+     *    stands for an empty value. Becomes a dictionary column at the first value that is not such a decimal.
+     */
+    private static final class DecimalColumn extends Column {
+        private double[] values = new double[64];
+        private int size;
+
+        @Override Column add(int row, String value) {
+            double number;
+            if (value.isEmpty()) number = Double.NaN;
+            else if (fits(value)) number = Double.parseDouble(value);
+            else return rewrite(new DictionaryColumn(), row, value);
+
+            if (size == values.length) values = Arrays.copyOf(values, size + (size >> 1) + 1);
+            values[size++] = number;
+            return this;
+        }
+
+        @Override String get(int row) {
+            double number = values[row];
+            return Double.isNaN(number) ? "" : Double.toString(number);
+        }
+
+        @Override long memory() { return 8L * values.length; }
+        @Override void freeze() { values = Arrays.copyOf(values, size); }
+        @Override public String toString() { return "decimals"; }
+
+        static boolean fits(String value) {
+            char first = value.charAt(0);
+            if (first != '-' && (first < '0' || first > '9')) return false;
+            try {
+                return Double.toString(Double.parseDouble(value)).equals(value);
+            } catch (NumberFormatException e) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Values repeated across many rows, such as codes or categories, kept once each in a dictionary, with each row
+     *    keeping only the packed code of its value. Becomes a text column once it has too many distinct values, or
+     *    its values are mostly distinct.
+     */
+    private static final class DictionaryColumn extends Column {
+        private Map<String, Integer> codes = new HashMap<>();
+        private final List<String> dictionary = new ArrayList<>();
+        private final PackedLongs values = new PackedLongs();
+
+        @Override Column add(int row, String value) {
+            Integer code = codes.get(value);
+            if (code == null) {
+                if (dictionary.size() >= MAX_DICTIONARY ||
+                        row >= DICTIONARY_TRIAL_ROWS && dictionary.size() * 2 > row)
+                    return rewrite(new TextColumn(), row, value);
+                code = dictionary.size();
+                codes.put(value, code);
+                dictionary.add(value);
+            }
+            values.add(code);
+            return this;
+        }
+
+        @Override String get(int row) { return dictionary.get((int) values.get(row)); }
+
+        @Override long memory() {
+            long memory = values.memory();
+            for (String value : dictionary) memory += 48 + value.length();
+            return memory;
+        }
+
+        @Override void freeze() {
+            codes = null;
+            values.trim();
+        }
+
+        @Override public String toString() { return "dictionary of " + dictionary.size(); }
+    }
+
+    /**
+     * Values too varied for a dictionary, kept as UTF-8 bytes in large blocks, each row keeping only the packed offset
+     *    and length of its value.
+     */
+    private static final class TextColumn extends Column {
+        private final List<byte[]> chunks = new ArrayList<>();
+        private final PackedLongs offsets = new PackedLongs(), lengths = new PackedLongs();
+        private final Map<Integer, String> longValues = new HashMap<>();
+        private long end;
+
+        @Override Column add(int row, String value) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            if (bytes.length > CHUNK_SIZE) {
+                // a value larger than a block is kept whole, marked by a length no block can hold.
+                longValues.put(row, value);
+                offsets.add(0);
+                lengths.add(CHUNK_SIZE + 1L);
+                return this;
+            }
+
+            // a value never spans two blocks, so a block is left part empty if the value does not fit its end.
+            if ((end & (CHUNK_SIZE - 1)) + bytes.length > CHUNK_SIZE) end = (end | (CHUNK_SIZE - 1)) + 1;
+            int chunk = (int) (end >>> CHUNK_BITS), offset = (int) (end & (CHUNK_SIZE - 1));
+            if (chunk == chunks.size()) chunks.add(new byte[CHUNK_SIZE]);
+            System.arraycopy(bytes, 0, chunks.get(chunk), offset, bytes.length);
+
+            offsets.add(end);
+            lengths.add(bytes.length);
+            end += bytes.length;
+            return this;
+        }
+
+        @Override String get(int row) {
+            long length = lengths.get(row);
+            if (length > CHUNK_SIZE) return longValues.get(row);
+            long offset = offsets.get(row);
+            return new String(chunks.get((int) (offset >>> CHUNK_BITS)), (int) (offset & (CHUNK_SIZE - 1)),
+                    (int) length, StandardCharsets.UTF_8);
+        }
+
+        @Override long memory() {
+            long memory = (long) chunks.size() * CHUNK_SIZE + offsets.memory() + lengths.memory();
+            for (String value : longValues.values()) memory += 48 + 2L * value.length();
+            return memory;
+        }
+
+        @Override void freeze() {
+            offsets.trim();
+            lengths.trim();
+            // the last block only needs to be as long as what was written to it.
+            int last = chunks.size() - 1;
+            if (last >= 0)
+                chunks.set(last, Arrays.copyOf(chunks.get(last), (int) (end - ((long) last << CHUNK_BITS))));
+        }
+
+        @Override public String toString() { return "text"; }
+    }
+}
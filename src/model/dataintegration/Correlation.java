@@ -3,23 +3,33 @@ package model.dataintegration;
 import model.conceptual.Vertex;
 
 /**
- * The link between a .csv header and an associated graph class.
+ * The link between a .csv header and an associated graph class, and how confident the link is: 1 for a link the user
+ *    made or an exact match, less for a match proposed by the {@link HeaderMatcher}.
  */
 public class Correlation {
     private Integer index;
     private String csvHeader;
     private Vertex ttlClass;
+    private double confidence;
 
     public Correlation(Integer index, String csvHeader, Vertex ttlClass){
+        this(index, csvHeader, ttlClass, 1);
+    }
+
+    public Correlation(Integer index, String csvHeader, Vertex ttlClass, double confidence){
         this.index = index;
         this.csvHeader = csvHeader;
         this.ttlClass = ttlClass;
+        this.confidence = confidence;
     }
 
     @Override public String toString(){
-        return index + ". " + csvHeader + " <-> " + ttlClass.getName();
+        return index + ". " + csvHeader + " <-> " + ttlClass.getName() +
+                (confidence < 1 ? " (" + Math.round(confidence * 100) + "% match)" : "");
     }
 
-    Integer getIndex() { return index; }
-    Vertex  getTtlClass() { return ttlClass; }
+    public double getConfidence() { return confidence; }
+    public Integer getIndex() { return index; }
+    public String getCsvHeader() { return csvHeader; }
+    public Vertex getTtlClass() { return ttlClass; }
 }
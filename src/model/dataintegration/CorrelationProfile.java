@@ -0,0 +1,180 @@
+package model.dataintegration;
+
+import model.conceptual.Edge;
+import model.conceptual.Vertex;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVPrinter;
+import org.apache.commons.csv.CSVRecord;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.Map.Entry;
+
+/**
+ * A saved set of correlations between the headers of a .csv file and the classes of a graph, so that data with the same
+ *    headers can be generated against the same graph again without correlating it by hand.
+ * A profile is stored under a fingerprint of the header row and the graph; it is only applied when both are unchanged.
+ */
+public class CorrelationProfile {
+    private static final String EXTENSION = ".profile";
+
+    private final String fingerprint;
+    private final List<Entry<Integer, String>> headers;
+    private final List<String> classNames;
+
+    private CorrelationProfile(String fingerprint, List<Entry<Integer, String>> headers, List<String> classNames) {
+        this.fingerprint = fingerprint;
+        this.headers = headers;
+        this.classNames = classNames;
+    }
+
+    /**
+     * @return the directory profiles are kept in by default, .drawingturtles/profiles in the home directory of the user.
+     */
+    public static Path getDefaultDirectory() {
+        return Paths.get(System.getProperty("user.home"), ".drawingturtles", "profiles");
+    }
+
+    /**
+     * Computes the fingerprint of a header row and a graph: a SHA-256 hash of the headers in column order, and of the
+     *    names and types of the elements of the graph and the properties between them. The layout of the graph does not
+     *    affect the fingerprint.
+     * @param headers the .csv headers and their column indices.
+     * @param classes the classes and literals of the graph.
+     * @return the fingerprint, as a hex string.
+     */
+    public static String fingerprint(Map<String, Integer> headers, List<Vertex> classes) {
+        List<String> graph = new ArrayList<>();
+        for (Vertex vertex : classes) {
+            graph.add(vertex.getElementType() + " " + vertex.getName());
+            for (Edge edge : vertex.getOutgoingEdges())
+                graph.add(vertex.getName() + " " + edge.getName() + " " + edge.getObject().getName());
+        }
+        Collections.sort(graph);
+
+        List<Entry<String, Integer>> columns = new ArrayList<>(headers.entrySet());
+        columns.sort(Entry.comparingByValue());
+
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+        for (Entry<String, Integer> column : columns) digest.update((column.getKey() + "\n").getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+        for (String element : graph) digest.update((element + "\n").getBytes(StandardCharsets.UTF_8));
+
+        StringBuilder hex = new StringBuilder();
+        for (byte b : digest.digest()) hex.append(String.format("%02x", b));
+        return hex.toString();
+    }
+
+    /**
+     * Creates a profile from the correlations of a DataIntegrator.
+     * @param fingerprint the fingerprint of the headers and graph the correlations were made between.
+     * @param correlations the correlations to save.
+     * @return the profile.
+     */
+    public static CorrelationProfile of(String fingerprint, List<Correlation> correlations) {
+        List<Entry<Integer, String>> headers = new ArrayList<>();
+        List<String> classNames = new ArrayList<>();
+        for (Correlation correlation : correlations) {
+            headers.add(new AbstractMap.SimpleImmutableEntry<>(correlation.getIndex(), correlation.getCsvHeader()));
+            classNames.add(correlation.getTtlClass().getName());
+        }
+        return new CorrelationProfile(fingerprint, headers, classNames);
+    }
+
+    /**
+     * Loads the profile of the given fingerprint.
+     * @param directory the directory profiles are kept in.
+     * @param fingerprint the fingerprint of the headers and graph.
+     * @return the profile, or null if there is none for the fingerprint.
+     * @throws IOException if the profile exists but can not be read.
+     */
+    public static CorrelationProfile load(Path directory, String fingerprint) throws IOException {
+        Path file = directory.resolve(fingerprint + EXTENSION);
+        if (!Files.exists(file)) return null;
+
+        List<Entry<Integer, String>> headers = new ArrayList<>();
+        List<String> classNames = new ArrayList<>();
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            for (CSVRecord record : CSVFormat.DEFAULT.parse(reader)) {
+                if (record.size() != 3) throw new IOException("Malformed correlation profile " + file);
+                try {
+                    headers.add(new AbstractMap.SimpleImmutableEntry<>(Integer.valueOf(record.get(0)), record.get(1)));
+                } catch (NumberFormatException e) {
+                    throw new IOException("Malformed correlation profile " + file, e);
+                }
+                classNames.add(record.get(2));
+            }
+        }
+        return new CorrelationProfile(fingerprint, headers, classNames);
+    }
+
+    /**
+     * Saves the profile under its fingerprint, replacing any earlier profile with the same fingerprint. The profile is
+     *    written to a temporary file first, so a profile is never left half-written.
+     * @param directory the directory profiles are kept in, created if needs be.
+     * @throws IOException if the profile can not be written.
+     */
+    public void save(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        Path temp = Files.createTempFile(directory, fingerprint, ".tmp");
+        try {
+            try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8);
+                 CSVPrinter printer = new CSVPrinter(writer, CSVFormat.DEFAULT)) {
+                for (int i = 0; i < headers.size(); i++)
+                    printer.printRecord(headers.get(i).getKey(), headers.get(i).getValue(), classNames.get(i));
+            }
+            Files.move(temp, directory.resolve(fingerprint + EXTENSION), StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Gives the correlations of this profile to a DataIntegrator, in place of correlating its headers.
+     * @param integrator the DataIntegrator to apply the profile to.
+     * @param classes the classes and literals of the graph the DataIntegrator generates from.
+     * @return whether the profile was applied; false if one of its classes is no longer in the graph, or its name is
+     *    shared by several instance classes or literals, as a profile saves only the name and can not tell them apart.
+     */
+    public boolean applyTo(DataIntegrator integrator, List<Vertex> classes) {
+        // only instance classes and literals are correlated with headers, so a global element may share their name.
+        Map<String, Vertex> classesByName = new HashMap<>();
+        Set<String> ambiguousNames = new HashSet<>();
+        for (Vertex vertex : classes) {
+            if (vertex.getElementType() != Vertex.GraphElemType.INSTANCE_CLASS &&
+                    vertex.getElementType() != Vertex.GraphElemType.INSTANCE_LITERAL) continue;
+            if (classesByName.putIfAbsent(vertex.getName(), vertex) != null) ambiguousNames.add(vertex.getName());
+        }
+
+        ArrayList<Correlation> correlations = new ArrayList<>();
+        for (int i = 0; i < headers.size(); i++) {
+            Vertex klass = classesByName.get(classNames.get(i));
+            if (klass == null || ambiguousNames.contains(classNames.get(i))) return false;
+            correlations.add(new Correlation(headers.get(i).getKey(), headers.get(i).getValue(), klass));
+        }
+
+        integrator.setCorrelations(correlations);
+        integrator.setUncorrelated(null);
+        return true;
+    }
+
+    /**
+     * Accessors
+     */
+    public String getFingerprint() { return fingerprint; }
+    public int size() { return headers.size(); }
+}
@@ -4,8 +4,13 @@ import model.conceptual.Class;
 import model.conceptual.Edge;
 import model.conceptual.Literal;
 import model.conceptual.Vertex;
-import javafx.util.Pair;
-import org.apache.commons.csv.CSVRecord;
+import model.conversion.ttl.PrefixTrie;
+import model.conversion.ttl.TurtleEscaper;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 
 import java.util.*;
 import java.util.Map.Entry;
@@ -33,27 +38,115 @@ public class DataIntegrator {
         public String getMissing(){ return missing; }
     }
 
+    /**
+     * The term of a graph element in the generated triples: either the same in every record, and rendered once, or
+     *    rendered from each record, from the value of its column or, for a blank node, from the record itself.
+     */
+    private static final class Term {
+        private final Vertex vertex;
+        private final String constant;
+        // the column the term is rendered from, or -1 for a blank node.
+        private final int column;
+        // the expanded prefix of an instance class, and the datatype of an instance literal.
+        private String namespace;
+        private XsdType bareType;
+        private String dataTypeSuffix;
+
+        private Term(Vertex vertex, int column) {
+            this.vertex = vertex;
+            this.constant = null;
+            this.column = column;
+        }
+
+        private Term(String constant) {
+            this.vertex = null;
+            this.constant = constant;
+            this.column = -1;
+        }
+
+        private static Term constant(String term) { return new Term(term); }
+    }
+
+    /**
+     * The triples of a graph class: its subject term, and its predicates in the order they are first seen, each with
+     *    its objects.
+     */
+    private static final class SubjectPlan {
+        private final Term subject;
+        private final List<String> predicates = new ArrayList<>();
+        private final List<List<Term>> objects = new ArrayList<>();
+        // the predicate and object of each outgoing edge, in order, which a blank node is labelled by.
+        private final List<String> edgePredicates = new ArrayList<>();
+        private final List<Term> edgeObjects = new ArrayList<>();
+
+        private SubjectPlan(Term subject) { this.subject = subject; }
+
+        private void add(String predicate, Term object) {
+            int index = predicates.indexOf(predicate);
+            if (index < 0) {
+                index = predicates.size();
+                predicates.add(predicate);
+                objects.add(new ArrayList<>());
+            }
+            objects.get(index).add(object);
+        }
+    }
+
     private Map<String, Integer> headers;
-    private List<CSVRecord> csv;
+    private Iterable<? extends Row> csv;
     private ArrayList<Vertex> classes;
     private Map<String, String> prefixes;
     private ArrayList<Correlation> csvTtlCorrelations = new ArrayList<>();
-    private Pair<ArrayList<String>, ArrayList<Vertex>> csvTtlUncorrelated;
+    private Entry<ArrayList<String>, ArrayList<Vertex>> csvTtlUncorrelated;
     private List<Vertex> ttlClasses;
+    private List<ColumnProfile> columnProfiles = new ArrayList<>();
+
+    // the column correlated with each graph element, by name, and the terms already rendered from their values.
+    private Map<String, Integer> correlatedColumns;
+    private TermCache termCache;
+
+    // the terms and triples worked out from the graph, by graph element, for the generation under way.
+    private final Map<Vertex, Term> terms = new IdentityHashMap<>();
+    private final Map<Vertex, SubjectPlan> subjectPlansByClass = new IdentityHashMap<>();
+    private List<SubjectPlan> subjectPlans;
+
+    // the text of the record being generated, and of the subject being written, the IRI being compacted, and the
+    //    terms being hashed into a blank node label; kept from record to record so values are copied straight in.
+    private final StringBuilder text = new StringBuilder(1024);
+    private final StringBuilder subjectText = new StringBuilder(), iriText = new StringBuilder();
+    private final StringBuilder hashText = new StringBuilder();
 
-    // append this int to the end of a blank node so each blank node is contained to it's own record.
-    private static int blankNodePermutation = 0;
+    // hashes the content of a blank node into its label, through a buffer kept from one blank node to the next.
+    private final MessageDigest blankNodeDigest = sha256();
+    private final byte[] digestBuffer = new byte[512];
+    private char[] textChars = new char[1024];
+
+    // compacts the generated IRIs into prefixed names, if the user has asked for it.
+    private PrefixTrie prefixTrie;
+
+    // writes the triples of each subject as one block, rather than one line per triple.
+    private boolean groupBySubject = false;
+
+    // writes N-Triples, one full triple per line, for sorting and deduplicating the output.
+    private boolean nTriples = false;
+
+    // append this number to the end of a blank node so each blank node is contained to it's own record.
+    private long blankNodePermutation = 0;
+
+    // the labels of the blank nodes of the current record, when they are labelled by their content.
+    private final Map<Vertex, String> blankNodeLabels = new HashMap<>();
 
     /**
      * Constructor for the DataIntegrator.
      * @param headers the list of .csv headers, or attributes.
-     * @param csv the list of .csv records.
+     * @param csv the .csv records, such as a {@link ColumnarTable}, checked by {@link #validate} before generating;
+     *            the records generated are handed over by a {@link model.dataintegration.flow.GenerationPipeline}.
      * @param classes the list of graph classes.
      * @param prefixes the map of prefix acronyms and their expanded form.
      */
     public DataIntegrator(
             Map<String, Integer> headers,
-            List<CSVRecord> csv,
+            Iterable<? extends Row> csv,
             ArrayList<Vertex> classes,
             Map<String, String> prefixes){
         this.headers = headers;
@@ -63,125 +156,380 @@ public class DataIntegrator {
     }
 
     /**
-     * Accessible method for generating instance-level data given a .csv and the graph. Recordwise generation.
-     * @throws PrefixMissingException if a given prefix does not have an expanded form.
-     * @return String representation of the instance-level data.
+     * Prepares to generate instance-level data record by record, with {@link #generateInstanceDataOf}, for a caller
+     *    that hands over the records itself, such as a stage of a generation pipeline.
+     * @param out where the prefix declarations are written.
+     * @param withPrefixes whether to begin with the prefix declarations, if IRIs are compacted.
+     * @throws IOException if writing the prefix declarations fails.
      */
-    public String generate() throws PrefixMissingException {
-        StringBuilder instanceData = new StringBuilder();
+    public void startGeneration(Writer out, boolean withPrefixes) throws IOException {
+        if (withPrefixes && isCompacting()) {
+            for (Entry<String, String> prefix : prefixes.entrySet())
+                out.write("@prefix " + prefix.getKey() + ": <" + prefix.getValue() + "> .\n");
+            out.write("\n");
+        }
         ttlClasses = classes.stream().filter(c -> c instanceof Class).collect(Collectors.toList());
-
-        for (CSVRecord record : csv)
-            instanceData.append(generateInstanceDataOf(record));
-
-        return instanceData.toString();
+        correlatedColumns = new HashMap<>();
+        for (Correlation correlation : csvTtlCorrelations)
+            correlatedColumns.putIfAbsent(correlation.getTtlClass().getName(), correlation.getIndex());
+        termCache = new TermCache();
+        terms.clear();
+        subjectPlansByClass.clear();
+        subjectPlans = null;
     }
 
     /**
-     * Constructs the instance-level data of the particular record.
+     * Constructs the instance-level data of the particular record. Records are generated in the order given, after
+     *    {@link #startGeneration}. The triples of the record are written into one buffer, term by term, and handed to
+     *    the writer in one go.
      * @param record the record used to populate the resulting instance-level data.
+     * @param out where the generated instance-level data is written.
      * @throws PrefixMissingException if a given prefix does not have an expanded form.
-     * @return the generated instance-level data as a String.
+     * @throws IOException if writing the instance-level data fails.
      */
-    private String generateInstanceDataOf(CSVRecord record) throws PrefixMissingException {
-        StringBuilder instanceData = new StringBuilder();
-
+    public void generateInstanceDataOf(Row record, Writer out) throws PrefixMissingException, IOException {
+        if (subjectPlans == null) {
+            subjectPlans = new ArrayList<>();
+            for (Vertex klass : ttlClasses) subjectPlans.add(planOf((Class) klass));
+        }
         blankNodePermutation += 1;
+        blankNodeLabels.clear();
+        text.setLength(0);
 
-        for (Vertex klass : ttlClasses){
-            StringBuilder instanceTriples = new StringBuilder();
-            String instanceTriple;
-            final String subject = generateLongformURI(klass, record);
+        for (SubjectPlan plan : subjectPlans) {
+            subjectText.setLength(0);
+            appendTerm(subjectText, plan.subject, record);
 
-            instanceTriples.append(getMetaTriples(subject, (Class) klass));
+            if (groupBySubject && !nTriples) appendSubjectBlock(plan, record);
+            else appendTriples(plan, record);
+        }
+        text.append('\n');
 
-            for (Edge edge : klass.getOutgoingEdges()){
-                String predicate = generateLongformURI(edge);
-                String object    = generateLongformURI(edge.getObject(), record);
+        int length = text.length();
+        if (textChars.length < length) textChars = new char[Math.max(length, 2 * textChars.length)];
+        text.getChars(0, length, textChars, 0);
+        text.setLength(0);
+        out.write(textChars, 0, length);
+    }
 
-                instanceTriple = subject + " " + predicate + " " + object + " .\n";
-                instanceTriples.append(instanceTriple);
+    /**
+     * Writes the triples of a subject one per line, each in full.
+     * @param plan the predicates and objects of the subject, whose term is in subjectText.
+     * @param record the record being generated.
+     * @throws PrefixMissingException if a given prefix does not have an expanded form.
+     */
+    private void appendTriples(SubjectPlan plan, Row record) throws PrefixMissingException {
+        for (int i = 0; i < plan.predicates.size(); i++) {
+            String predicate = plan.predicates.get(i);
+            for (Term object : plan.objects.get(i)) {
+                text.append(subjectText).append(' ').append(predicate).append(' ');
+                appendTerm(text, object, record);
+                text.append(" .\n");
             }
-
-            instanceData.append(instanceTriples.toString());
         }
+    }
 
-        return instanceData.toString() + "\n";
+    /**
+     * Writes the triples of a subject as a single block, the subject written once, its predicates separated by ';',
+     *    and the objects of a repeated predicate separated by ','.
+     * Equivalent to https://www.w3.org/TR/turtle/#grammar-production-triples.
+     * @param plan the predicates and objects of the subject, whose term is in subjectText.
+     * @param record the record being generated.
+     * @throws PrefixMissingException if a given prefix does not have an expanded form.
+     */
+    private void appendSubjectBlock(SubjectPlan plan, Row record) throws PrefixMissingException {
+        if (plan.predicates.isEmpty()) return;
+
+        text.append(subjectText);
+        for (int i = 0; i < plan.predicates.size(); i++) {
+            text.append(i == 0 ? " " : " ;\n\t").append(plan.predicates.get(i));
+            List<Term> objects = plan.objects.get(i);
+            for (int j = 0; j < objects.size(); j++) {
+                text.append(j == 0 ? " " : " ,\n\t\t");
+                appendTerm(text, objects.get(j), record);
+            }
+        }
+        text.append(" .\n");
     }
 
     /**
-     * Returns the meta-information of the given klass, such as the rdfs:comment/label, and the type definition.
-     * @param name the expanded, IRI form of the klass name.
-     * @param klass the Vertex to which the meta-information belongs.
-     * @return the expanded meta-information as a String
+     * Works out the triples of a graph class from the graph: the subject term, and its meta-information and
+     *    outgoing edges as predicates, in the order they are first seen, each with its objects. Done once per
+     *    generation, so each record only renders the terms that come from its values.
+     * @param klass the graph class.
+     * @return the plan of the class's triples.
      * @throws PrefixMissingException if a given prefix does not have an expanded form.
      */
-    private String getMetaTriples(String name, Class klass) throws PrefixMissingException {
-        String meta = "";
+    private SubjectPlan planOf(Class klass) throws PrefixMissingException {
+        SubjectPlan plan = subjectPlansByClass.get(klass);
+        if (plan != null) return plan;
+
+        plan = new SubjectPlan(termOf(klass));
         if (klass.getTypeDefinition() != null && klass.getTypeDefinition().length() != 0)
-            meta += name + " <http://www.w3.org/1999/02/22-rdf-syntax-ns#type> " +
-                    generateLongformURI(klass.getTypeDefinition()) + " .\n";
+            plan.add(formatIri("http://www.w3.org/1999/02/22-rdf-syntax-ns#type"),
+                    Term.constant(generateLongformURI(klass.getTypeDefinition())));
 
         if (klass.getRdfsLabel() != null && klass.getRdfsLabel().length() != 0)
-            meta += name + " <http://www.w3.org/2000/01/rdf-schema#label> \"" + klass.getRdfsLabel() + "\" .\n";
-
-        if (klass.getRdfsComment() != null && klass.getRdfsComment().length() != 0){
-            String quoteLevel = klass.getRdfsComment().contains("\n") ? "\"\"\"" : "\"";
-            meta += name + " <http://www.w3.org/2000/01/rdf-schema#comment> " + quoteLevel + klass.getRdfsComment() +
-                    quoteLevel + " .\n";
+            plan.add(formatIri("http://www.w3.org/2000/01/rdf-schema#label"),
+                    Term.constant(quoteMeta(klass.getRdfsLabel())));
+
+        if (klass.getRdfsComment() != null && klass.getRdfsComment().length() != 0)
+            plan.add(formatIri("http://www.w3.org/2000/01/rdf-schema#comment"),
+                    Term.constant(quoteMeta(klass.getRdfsComment())));
+
+        for (Edge edge : klass.getOutgoingEdges()) {
+            String predicate = generateLongformURI(edge);
+            Term object = termOf(edge.getObject());
+            if (object == null) continue;
+            plan.add(predicate, object);
+            plan.edgePredicates.add(predicate);
+            plan.edgeObjects.add(object);
         }
 
-        return meta;
+        subjectPlansByClass.put(klass, plan);
+        return plan;
     }
 
     /**
-     * Create the expansion of the graph node into a well-formed URI or Literal.
-     * @param vertex the Vertex to be expanded.
-     * @param record the data to populate the Vertices instance-level fields.
-     * @return the instance data of the given Vertex as a String.
+     * Works out how the term of a graph element is rendered: once, if it is the same in every record, or otherwise
+     *    what is needed to render it from each record's value.
+     * @param vertex the graph element.
+     * @return the term of the element, or null if it is an instance literal with no column, which has no value to
+     *    generate.
      * @throws PrefixMissingException if a given prefix does not have an expanded form.
      */
-    private String generateLongformURI(Vertex vertex, CSVRecord record) throws PrefixMissingException {
-        if (vertex instanceof Class){
+    private Term termOf(Vertex vertex) throws PrefixMissingException {
+        if (terms.containsKey(vertex)) return terms.get(vertex);
+        Term term;
+
+        Integer column = correlatedColumns.get(vertex.getName());
+        if (vertex instanceof Class) {
             Class klass = (Class) vertex;
 
-            if (klass.getElementType() == GLOBAL_LITERAL) return klass.getName();
-            else if (klass.isIri()) return "<" + klass.getName() + ">";
-            else if (klass.isBlank()) return klass.getName() + blankNodePermutation;
+            if (klass.getElementType() == GLOBAL_LITERAL) term = Term.constant(formatLiteral(klass.getName()));
+            else if (klass.isIri()) term = Term.constant(formatIri(klass.getName()));
+            else if (klass.isBlank()) term = new Term(klass, -1);
             else {
-                String name = klass.getName();
-                String[] nameParts = name.split(":");
-                String prefixAcronym = nameParts[0];
-                String nameURI = nameParts[1];
+                String[] nameParts = klass.getName().split(":");
+                String longformPrefix = generateLongformPrefix(nameParts[0]);
 
-                String longformPrefix = generateLongformPrefix(prefixAcronym);
-                String instanceData = getInstanceLevelData(klass, record);
+                if (column == null) term = Term.constant(formatIri(longformPrefix + nameParts[1]));
+                else {
+                    term = new Term(klass, column);
+                    term.namespace = longformPrefix;
+                }
+            }
+        } else if (vertex.getElementType() != INSTANCE_LITERAL) term = Term.constant(formatLiteral(vertex.getName()));
+        else if (column == null) term = null;
+        else {
+            String dataType = ((Literal) vertex).getDataType() != null ? ((Literal) vertex).getDataType() : "";
+            String expandedDataType = generateLongformURI(dataType);
 
-                if (instanceData != null)
-                    return "<" + longformPrefix + instanceData + ">";
-                else return "<" + longformPrefix + nameURI + ">";
+            term = new Term(vertex, column);
+            switch (dataType) {
+                case "xsd:string":
+                case "":
+                    break;
+                case "xsd:integer":
+                case "xsd:decimal":
+                case "xsd:double":
+                case "xsd:boolean":
+                    // only written bare if it would still be read as the datatype, and typed otherwise.
+                    term.bareType = XsdType.of(dataType);
+                    term.dataTypeSuffix = "^^" + expandedDataType;
+                    break;
+                default:
+                    term.dataTypeSuffix = "^^" + expandedDataType;
             }
-        } else {
-            Literal literal = (Literal) vertex;
-
-            if (literal.getElementType() == INSTANCE_LITERAL) {
-                String dataType = literal.getDataType() != null ? literal.getDataType() : "";
-                String expandedDataType = generateLongformURI(dataType);
-
-                switch (dataType) {
-                    case "xsd:string":
-                    case "":
-                        return "\"" + getInstanceLevelData(literal, record) + "\"";
-                    case "xsd:integer":
-                    case "xsd:decimal":
-                    case "xsd:double":
-                    case "xsd:boolean":
-                        return getInstanceLevelData(literal, record);
-                    default:
-                        return "\"" + getInstanceLevelData(literal, record) + "\"^^" + expandedDataType;
-                }
-            } else return literal.getName();
         }
+
+        terms.put(vertex, term);
+        return term;
+    }
+
+    /**
+     * Writes the term of a graph element in the current record.
+     * @param out where the term is written.
+     * @param term the term of the graph element.
+     * @param record the record being generated.
+     * @throws PrefixMissingException if a given prefix does not have an expanded form.
+     */
+    private void appendTerm(StringBuilder out, Term term, Row record) throws PrefixMissingException {
+        if (term.constant != null) {
+            out.append(term.constant);
+            return;
+        }
+
+        Vertex vertex = term.vertex;
+        if (term.column < 0) {
+            if (nTriples) out.append(labelBlankNode((Class) vertex, record));
+            else out.append(vertex.getName()).append(blankNodePermutation);
+            return;
+        }
+
+        // repeated values of a column are rendered once, and looked up after.
+        String value = record.get(term.column);
+        String cached = termCache.get(vertex, value);
+        if (cached != null) {
+            out.append(cached);
+            return;
+        }
+
+        int start = out.length();
+        if (vertex instanceof Class) appendInstanceIri(out, term.namespace, value);
+        else appendInstanceLiteral(out, term, value);
+        if (termCache.isCaching(vertex)) termCache.put(vertex, value, out.substring(start));
+    }
+
+    /**
+     * Writes the IRI of a prefixed class from its value, percent-encoding the value as it is written.
+     * @param out where the IRI is written.
+     * @param namespace the expanded prefix of the class.
+     * @param value the value of the class in the current record.
+     */
+    private void appendInstanceIri(StringBuilder out, String namespace, String value) {
+        if (!isCompacting()) {
+            TurtleEscaper.appendIriSegment(out.append('<').append(namespace), value).append('>');
+            return;
+        }
+        iriText.setLength(0);
+        TurtleEscaper.appendIriSegment(iriText.append(namespace), value);
+        prefixTrie.appendFormatted(out, iriText);
+    }
+
+    /**
+     * Writes an instance literal from its value, escaping the value as it is written.
+     * @param out where the literal is written.
+     * @param term the term of the literal.
+     * @param value the value of the literal in the current record.
+     */
+    private void appendInstanceLiteral(StringBuilder out, Term term, String value) {
+        if (term.bareType != null && !nTriples && term.bareType.canBeBare(value)) {
+            out.append(value);
+            return;
+        }
+        TurtleEscaper.appendString(out, value);
+        if (term.dataTypeSuffix != null) out.append(term.dataTypeSuffix);
+    }
+
+    /**
+     * Writes a literal the way the graph names it, such as 42, true, "hi"@en or "1"^^xsd:int, as the output allows
+     *    it. Turtle takes the name as it is. N-Triples has no bare numbers, booleans or prefixed names, so there the
+     *    literal is quoted, with a bare literal typed by its form, and its datatype written as a full IRI.
+     * @param name the name of the literal.
+     * @return the literal, ready to be written out.
+     * @throws PrefixMissingException if the prefix of the datatype does not have an expanded form.
+     */
+    private String formatLiteral(String name) throws PrefixMissingException {
+        if (!nTriples) return name;
+
+        if (name.startsWith("\"")) {
+            int close = name.lastIndexOf('"');
+            String lexical = "\"" + escapeLexical(name.substring(1, close)) + "\"";
+            String rest = name.substring(close + 1);
+            return rest.startsWith("^^") ? lexical + "^^" + generateLongformURI(rest.substring(2)) : lexical + rest;
+        }
+
+        String type = name.equals("true") || name.equals("false") ? "boolean"
+                : name.matches(".*[eE].*") ? "double"
+                : name.contains(".") ? "decimal"
+                : "integer";
+        return "\"" + name + "\"^^<" + XsdType.XSD + type + ">";
+    }
+
+    /**
+     * Escapes what the graph leaves unescaped between the quotes of a literal, the quotes and line breaks, keeping
+     *    what is escaped already as it is.
+     */
+    private static String escapeLexical(String lexical) {
+        StringBuilder escaped = new StringBuilder(lexical.length() + 8);
+        for (int i = 0; i < lexical.length(); i++) {
+            char c = lexical.charAt(i);
+            if (c == '\\' && i + 1 < lexical.length()) escaped.append(c).append(lexical.charAt(++i));
+            else if (c == '\\' || c == '"') escaped.append('\\').append(c);
+            else if (c == '\n') escaped.append("\\n");
+            else if (c == '\r') escaped.append("\\r");
+            else escaped.append(c);
+        }
+        return escaped.toString();
+    }
+
+    /**
+     * Labels a blank node by its content, a hash of its properties and their objects in the current record, so a blank
+     *    node repeated across records has the same label each time and its triples can be deduplicated. A blank node
+     *    reached again through a cycle of blank nodes is taken as its bare name, and a blank node with no content is
+     *    told apart by the record it is in, as nothing says it is the same node as in any other record.
+     * @param klass the blank node.
+     * @param record the record being generated.
+     * @return the label of the blank node.
+     * @throws PrefixMissingException if a given prefix does not have an expanded form.
+     */
+    private String labelBlankNode(Class klass, Row record) throws PrefixMissingException {
+        String label = blankNodeLabels.get(klass);
+        if (label != null) return label;
+        blankNodeLabels.put(klass, klass.getName());
+
+        // the objects are rendered after whatever blank node is being labelled around this one, and cleared after.
+        SubjectPlan plan = planOf(klass);
+        int mark = hashText.length();
+        for (int i = 0; i < plan.edgePredicates.size(); i++) {
+            String predicate = plan.edgePredicates.get(i);
+            digest(predicate, 0, predicate.length());
+            appendTerm(hashText, plan.edgeObjects.get(i), record);
+            digest(hashText, mark, hashText.length());
+            hashText.setLength(mark);
+        }
+        if (plan.edgeObjects.isEmpty()) {
+            String permutation = Long.toString(blankNodePermutation);
+            digest(permutation, 0, permutation.length());
+        }
+        // 128 bits of SHA-256, so even billions of distinct blank nodes are not expected to share a label.
+        byte[] hash = blankNodeDigest.digest();
+        StringBuilder labelText = new StringBuilder(klass.getName().length() + 33).append(klass.getName()).append('_');
+        for (int i = 0; i < 16; i++) {
+            labelText.append(Character.forDigit((hash[i] >> 4) & 0xF, 16))
+                    .append(Character.forDigit(hash[i] & 0xF, 16));
+        }
+        label = labelText.toString();
+        blankNodeLabels.put(klass, label);
+        return label;
+    }
+
+    private void digest(CharSequence text, int from, int to) {
+        int length = 0;
+        for (int i = from; i < to; i++) {
+            if (length + 2 > digestBuffer.length) {
+                blankNodeDigest.update(digestBuffer, 0, length);
+                length = 0;
+            }
+            char c = text.charAt(i);
+            digestBuffer[length++] = (byte) (c >> 8);
+            digestBuffer[length++] = (byte) c;
+        }
+        // ends each string with its length, so "ab" then "c" does not hash as "a" then "bc".
+        if (length + 4 > digestBuffer.length) {
+            blankNodeDigest.update(digestBuffer, 0, length);
+            length = 0;
+        }
+        int count = to - from;
+        for (int shift = 24; shift >= 0; shift -= 8) digestBuffer[length++] = (byte) (count >> shift);
+        blankNodeDigest.update(digestBuffer, 0, length);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    /**
+     * @param value a rdfs:label or rdfs:comment.
+     * @return the value as a string literal, triple-quoted if it spans several lines and the output is not N-Triples.
+     */
+    private String quoteMeta(String value) {
+        return nTriples ? "\"" + TurtleEscaper.escapeString(value, false) + "\"" : TurtleEscaper.quote(value);
     }
 
     /**
@@ -194,27 +542,10 @@ public class DataIntegrator {
         if (type.matches("<https?://.*") || type.equals("")) return type;
         else {
             String[] typeParts = type.split(":", 2);
-            return "<" + generateLongformPrefix(typeParts[0]) + typeParts[1] + ">";
+            return formatIri(generateLongformPrefix(typeParts[0]) + typeParts[1]);
         }
     }
 
-    /**
-     * Generate the instance-level data of a given Vertex by finding the correlation between the Vertex and the
-     *    record headers.
-     * @param klass the Vertex we are populating.
-     * @param record the .csv record we are using to populate instance-level data.
-     * @return the String representation of the instance data.
-     */
-    private String getInstanceLevelData(Vertex klass, CSVRecord record) {
-        Correlation matchedCorrelation = csvTtlCorrelations
-                .stream()
-                .filter(c -> c.getTtlClass().getName().equals(klass.getName()))
-                .findFirst()
-                .orElse(null);
-
-        return matchedCorrelation != null ? record.get(matchedCorrelation.getIndex()) : null;
-    }
-
     /**
      * Create the expansion of a graph property into a well-formed URI.
      * @param edge the Edge we are expanding.
@@ -223,17 +554,34 @@ public class DataIntegrator {
      */
     private String generateLongformURI(Edge edge) throws PrefixMissingException {
         if (edge.isIri()){
-            return "<" + edge.getName() + ">";
+            return formatIri(edge.getName());
         } else {
             String name = edge.getName();
             String[] nameParts = name.split(":");
             String prefixAcronym = nameParts[0];
             String nameURI = nameParts[1];
 
-            return "<" + generateLongformPrefix(prefixAcronym) + nameURI + ">";
+            return formatIri(generateLongformPrefix(prefixAcronym) + nameURI);
         }
     }
 
+    /**
+     * Writes out a full IRI: compacted into a prefixed name if compaction is on and one of the prefixes covers it, and
+     *    otherwise wrapped in angle brackets.
+     * @param iri the full IRI, without angle brackets.
+     * @return the IRI as it is written in .ttl.
+     */
+    private String formatIri(String iri) {
+        return isCompacting() ? prefixTrie.format(iri) : "<" + iri + ">";
+    }
+
+    /**
+     * @return whether IRIs are compacted into prefixed names; never in N-Triples.
+     */
+    private boolean isCompacting() {
+        return prefixTrie != null && !nTriples;
+    }
+
     /**
      * Creates the expanded prefix URI.
      * @param acronym the short form of the prefix.
@@ -254,7 +602,9 @@ public class DataIntegrator {
     }
 
     /**
-     * Find either classes or csv headers that do not directly correlate (are not noticably similar).
+     * Correlates the .csv headers and graph classes by the similarity of their names, using a {@link HeaderMatcher}.
+     *    Headers and classes that do not match are left uncorrelated, and matches that are not exact are left for the
+     *    user to review (see {@link #needsReview()}).
      */
     public void attemptCorrelationOfHeaders(){
         ArrayList<Vertex> instances = classes
@@ -262,27 +612,13 @@ public class DataIntegrator {
                 .filter(p -> p.getElementType() == INSTANCE_CLASS || p.getElementType() == INSTANCE_LITERAL)
                 .collect(Collectors.toCollection(ArrayList::new));
 
+        csvTtlCorrelations = new HeaderMatcher(instances).match(headers);
+
         ArrayList<Vertex> uncorrelatedClasses = new ArrayList<>(instances);
         Map<String, Integer> uncorrelatedHeaders = new HashMap<>(headers);
-
-        for (Entry<String, Integer> header : headers.entrySet()){
-            for (Vertex klass : instances){
-                String headerComparable =
-                        header.getKey().charAt(0) == '\uFEFF' ? header.getKey().substring(1) : header.getKey();
-
-                boolean isExactMatch = headerComparable.equals(klass.getName());
-                boolean isCloseMatch = klass instanceof Class
-                        && !((Class) klass).isIri()
-                        && klass.getElementType() == INSTANCE_CLASS
-                        && headerComparable.equalsIgnoreCase(klass.getName().split(":", 2)[1]);
-
-                if (isExactMatch || isCloseMatch){
-                    csvTtlCorrelations.add(new Correlation(header.getValue(), header.getKey(), klass));
-                    uncorrelatedHeaders.remove(header.getKey());
-                    uncorrelatedClasses.remove(klass);
-                    break;
-                }
-            }
+        for (Correlation correlation : csvTtlCorrelations) {
+            uncorrelatedHeaders.remove(correlation.getCsvHeader());
+            uncorrelatedClasses.remove(correlation.getTtlClass());
         }
 
         if (uncorrelatedHeaders.size() != 0 || uncorrelatedClasses.size() != 0) {
@@ -291,19 +627,70 @@ public class DataIntegrator {
                     .stream()
                     .map(e -> e.getValue() + " " + e.getKey())
                     .collect(Collectors.toCollection(ArrayList::new));
-            csvTtlUncorrelated = new Pair<>(uncorrelatedHeadersList, uncorrelatedClasses);
+            csvTtlUncorrelated = new AbstractMap.SimpleImmutableEntry<>(uncorrelatedHeadersList, uncorrelatedClasses);
         }
     }
 
+    /**
+     * @return whether the user needs to finish the correlations: some headers are uncorrelated, or some correlations
+     *    were proposed by similarity rather than matched by name.
+     */
+    public boolean needsReview() {
+        return (csvTtlUncorrelated != null && csvTtlUncorrelated.getKey().size() != 0) ||
+                csvTtlCorrelations.stream().anyMatch(c -> c.getConfidence() < HeaderMatcher.NORMALISED_MATCH);
+    }
+
+    /**
+     * Checks the values of the correlated, typed instance literals against their datatypes, so values that would
+     *    generate ill-typed literals can be found before generating.
+     * @param maxErrors the most invalid values to describe.
+     * @return the outcome of the check.
+     */
+    public ColumnProfiler.ValidationReport validate(int maxErrors) {
+        return ColumnProfiler.validate(csv, getTypedColumns(), maxErrors);
+    }
+
+    /**
+     * @return the datatype of each column correlated with a typed instance literal, by column index; the columns
+     *    whose values can be checked before they are generated.
+     */
+    public Map<Integer, XsdType> getTypedColumns() {
+        Map<Integer, XsdType> columnTypes = new TreeMap<>();
+        for (Correlation correlation : csvTtlCorrelations) {
+            if (correlation.getTtlClass().getElementType() != INSTANCE_LITERAL) continue;
+            XsdType type = XsdType.of(((Literal) correlation.getTtlClass()).getDataType());
+            if (type != null && type != XsdType.STRING) columnTypes.put(correlation.getIndex(), type);
+        }
+        return columnTypes;
+    }
+
+    /**
+     * @param index the index of a column of the .csv.
+     * @return the profile of the column, or null if the columns have not been profiled.
+     */
+    public ColumnProfile getColumnProfile(int index) {
+        return index < columnProfiles.size() ? columnProfiles.get(index) : null;
+    }
+
     /**
      * Accessors and toStrings
      */
+    public List<ColumnProfile> getColumnProfiles() { return columnProfiles; }
+    public String termCacheToString() { return termCache != null ? termCache.toString() : "not used"; }
+    public void setColumnProfiles(List<ColumnProfile> columnProfiles) { this.columnProfiles = columnProfiles; }
     public ArrayList<Correlation> getCorrelations() { return csvTtlCorrelations; }
-    public Pair<ArrayList<String>, ArrayList<Vertex>> getUncorrelated() { return csvTtlUncorrelated; }
+    public Entry<ArrayList<String>, ArrayList<Vertex>> getUncorrelated() { return csvTtlUncorrelated; }
     public void setCorrelations(ArrayList<Correlation> correlations) {
         this.csvTtlCorrelations = correlations;
     }
-    public void setUncorrelated(Pair<ArrayList<String>, ArrayList<Vertex>> uncorrelated) {
+    public void setCompactIris(boolean compactIris) {
+        this.prefixTrie = compactIris ? new PrefixTrie(prefixes) : null;
+    }
+    public void setGroupBySubject(boolean groupBySubject) { this.groupBySubject = groupBySubject; }
+    public void setNTriples(boolean nTriples) { this.nTriples = nTriples; }
+    public long getBlankNodePermutation() { return blankNodePermutation; }
+    public void setBlankNodePermutation(long permutation) { blankNodePermutation = permutation; }
+    public void setUncorrelated(Entry<ArrayList<String>, ArrayList<Vertex>> uncorrelated) {
         this.csvTtlUncorrelated = uncorrelated;
     }
 
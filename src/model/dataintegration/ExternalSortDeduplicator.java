@@ -0,0 +1,266 @@
+package model.dataintegration;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Sorts lines and drops the duplicates, in a fixed memory budget however many lines there are: lines are gathered in
+ *    memory until the budget is spent, then sorted, deduplicated, and spilled to a temporary file as a run, and the runs
+ *    are merged at the end. Used on N-Triples, one triple per line, so repeated triples are written once, and the
+ *    output is sorted as a triple store's bulk loader expects.
+ * Lines are ordered as their UTF-8 bytes are, rather than by Java's UTF-16 order, so the output is sorted to tools
+ *    that compare bytes.
+ */
+public class ExternalSortDeduplicator implements Closeable {
+    // the memory budget used unless another is given: 64 MiB of lines.
+    public static final long DEFAULT_MEMORY_BUDGET = 64L << 20;
+
+    // the most runs merged at once; more are merged in several passes, to bound the open files.
+    private static final int MAX_FAN_IN = 64;
+
+    // the estimated memory of a line besides its characters: the String, its array, and its reference.
+    private static final int LINE_OVERHEAD = 64;
+
+    /**
+     * Orders Strings by the UTF-8 encoding of their characters: the same as by code point, which differs from the
+     *    order of UTF-16 code units only where a surrogate meets a character from U+E000 up.
+     */
+    static final Comparator<String> UTF8_ORDER = (a, b) -> {
+        int length = Math.min(a.length(), b.length());
+        for (int i = 0; i < length; i++) {
+            char x = a.charAt(i), y = b.charAt(i);
+            if (x != y) return codePointOrder(x) - codePointOrder(y);
+        }
+        return a.length() - b.length();
+    };
+
+    private final long memoryBudget;
+    private final Path tempDirectory;
+    private final List<String> lines = new ArrayList<>();
+    private final List<Path> runs = new ArrayList<>();
+    private long bufferedBytes, linesAdded;
+
+    /**
+     * @param memoryBudget the most bytes of lines to keep in memory before spilling them to a run.
+     * @param tempDirectory where the runs are written, or null for the default temporary directory.
+     */
+    public ExternalSortDeduplicator(long memoryBudget, Path tempDirectory) {
+        this.memoryBudget = memoryBudget;
+        this.tempDirectory = tempDirectory;
+    }
+
+    /**
+     * Adds a line. Empty lines are ignored.
+     * @param line the line, without its line break.
+     * @throws IOException if spilling a run fails.
+     */
+    public void add(String line) throws IOException {
+        if (line.isEmpty()) return;
+        lines.add(line);
+        linesAdded++;
+        bufferedBytes += 2L * line.length() + LINE_OVERHEAD;
+        if (bufferedBytes >= memoryBudget) spill();
+    }
+
+    /**
+     * @return a Writer that adds each line written to it, so a generator can write to the deduplicator as it would to
+     *    a file. Closing the Writer adds whatever is left of the last line.
+     */
+    public Writer asWriter() {
+        return new Writer() {
+            private final StringBuilder line = new StringBuilder();
+
+            @Override public void write(char[] chars, int offset, int length) throws IOException {
+                int runStart = offset;
+                for (int i = offset; i < offset + length; i++) {
+                    if (chars[i] != '\n') continue;
+                    line.append(chars, runStart, i - runStart);
+                    add(line.toString());
+                    line.setLength(0);
+                    runStart = i + 1;
+                }
+                line.append(chars, runStart, offset + length - runStart);
+            }
+
+            @Override public void write(String text, int offset, int length) throws IOException {
+                int runStart = offset;
+                for (int i = offset; i < offset + length; i++) {
+                    if (text.charAt(i) != '\n') continue;
+                    line.append(text, runStart, i);
+                    add(line.toString());
+                    line.setLength(0);
+                    runStart = i + 1;
+                }
+                line.append(text, runStart, offset + length);
+            }
+
+            @Override public void flush() {}
+
+            @Override public void close() throws IOException {
+                if (line.length() > 0) add(line.toString());
+                line.setLength(0);
+            }
+        };
+    }
+
+    /**
+     * Merges everything added into sorted, distinct lines.
+     * @param out where the lines are written, each followed by a line break.
+     * @return the number of distinct lines written.
+     * @throws IOException if reading the runs or writing the lines fails.
+     */
+    public long finish(Writer out) throws IOException {
+        if (runs.isEmpty()) {
+            long written = writeDistinct(lines, out);
+            lines.clear();
+            bufferedBytes = 0;
+            out.flush();
+            return written;
+        }
+
+        spill();
+        while (runs.size() > MAX_FAN_IN) {
+            List<Path> merged = new ArrayList<>();
+            for (int i = 0; i < runs.size(); i += MAX_FAN_IN) {
+                List<Path> group = runs.subList(i, Math.min(i + MAX_FAN_IN, runs.size()));
+                Path run = createRun();
+                try (Writer writer = Files.newBufferedWriter(run, StandardCharsets.UTF_8)) {
+                    merge(group, writer);
+                } catch (IOException e) {
+                    Files.deleteIfExists(run);
+                    throw e;
+                }
+                for (Path path : group) Files.deleteIfExists(path);
+                merged.add(run);
+            }
+            runs.clear();
+            runs.addAll(merged);
+        }
+
+        long written = merge(runs, out);
+        out.flush();
+        return written;
+    }
+
+    /**
+     * @return the number of lines added, duplicates included.
+     */
+    public long getLinesAdded() { return linesAdded; }
+
+    /**
+     * @return the number of runs spilled so far.
+     */
+    public int getRunCount() { return runs.size(); }
+
+    /**
+     * Deletes the runs.
+     * @throws IOException if a run can not be deleted.
+     */
+    @Override public void close() throws IOException {
+        IOException failure = null;
+        for (Path run : runs) {
+            try {
+                Files.deleteIfExists(run);
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+        runs.clear();
+        lines.clear();
+        if (failure != null) throw failure;
+    }
+
+    /**
+     * Sorts the lines in memory and writes them out as a run, without their duplicates.
+     */
+    private void spill() throws IOException {
+        if (lines.isEmpty()) return;
+        Path run = createRun();
+        runs.add(run);
+        try (Writer writer = Files.newBufferedWriter(run, StandardCharsets.UTF_8)) {
+            writeDistinct(lines, writer);
+        }
+        lines.clear();
+        bufferedBytes = 0;
+    }
+
+    private Path createRun() throws IOException {
+        return tempDirectory != null
+                ? Files.createTempFile(tempDirectory, "dedupe", ".run")
+                : Files.createTempFile("dedupe", ".run");
+    }
+
+    private static long writeDistinct(List<String> lines, Writer out) throws IOException {
+        lines.sort(UTF8_ORDER);
+        long written = 0;
+        String previous = null;
+        for (String line : lines) {
+            if (line.equals(previous)) continue;
+            out.write(line);
+            out.write('\n');
+            previous = line;
+            written++;
+        }
+        return written;
+    }
+
+    /**
+     * The next line of a run being merged.
+     */
+    private static final class Head {
+        private final BufferedReader reader;
+        private String line;
+
+        private Head(BufferedReader reader) throws IOException {
+            this.reader = reader;
+            this.line = reader.readLine();
+        }
+    }
+
+    /**
+     * Merges sorted runs into sorted, distinct lines.
+     * @return the number of lines written.
+     */
+    private static long merge(List<Path> runs, Writer out) throws IOException {
+        PriorityQueue<Head> heads = new PriorityQueue<>(Math.max(1, runs.size()),
+                (a, b) -> UTF8_ORDER.compare(a.line, b.line));
+        List<BufferedReader> readers = new ArrayList<>();
+        try {
+            for (Path run : runs) {
+                BufferedReader reader = Files.newBufferedReader(run, StandardCharsets.UTF_8);
+                readers.add(reader);
+                Head head = new Head(reader);
+                if (head.line != null) heads.add(head);
+            }
+
+            long written = 0;
+            String previous = null;
+            while (!heads.isEmpty()) {
+                Head head = heads.poll();
+                if (!head.line.equals(previous)) {
+                    out.write(head.line);
+                    out.write('\n');
+                    previous = head.line;
+                    written++;
+                }
+                head.line = head.reader.readLine();
+                if (head.line != null) heads.add(head);
+            }
+            return written;
+        } finally {
+            for (BufferedReader reader : readers) reader.close();
+        }
+    }
+
+    private static int codePointOrder(char c) {
+        if (c >= 0xE000) return c - 0x800;
+        if (c >= 0xD800) return c + 0x2000;
+        return c;
+    }
+}
@@ -0,0 +1,200 @@
+package model.dataintegration;
+
+import model.conceptual.Vertex;
+
+import java.util.*;
+import java.util.Map.Entry;
+
+/**
+ * Matches .csv headers to graph elements by the similarity of their names, so most of the headers of a wide .csv can be
+ *    correlated without the user.
+ * Names are normalised into words, so that camelCase, snake_case and kebab-case spellings of a name agree, and only the
+ *    local name of a prefixed name or IRI is compared. The elements are indexed by their words and by the trigrams of
+ *    their normalised names, so each header is only scored against the elements it shares something with. A match is
+ *    scored by the overlap of the words and of the trigrams of the two names, and the best matches are assigned
+ *    greedily, each header and element at most once.
+ */
+public class HeaderMatcher {
+    // the lowest score proposed as a match at all.
+    static final double MIN_SCORE = 0.5;
+
+    // the score of names that are the same once normalised, such as first_name and firstName.
+    static final double NORMALISED_MATCH = 0.95;
+
+    private static final int[] EMPTY = new int[0];
+
+    private final List<Vertex> elements;
+    private final String[] keys;
+    private final int[] tokenCounts, gramCounts;
+    private final Map<String, int[]> tokenIndex, gramIndex;
+
+    // the words and trigrams each element shares with the header being matched, reset after each header.
+    private final int[] sharedTokens, sharedGrams;
+
+    /**
+     * Indexes the names of the graph elements.
+     * @param elements the elements that headers may be matched to.
+     */
+    public HeaderMatcher(List<Vertex> elements) {
+        this.elements = elements;
+        int n = elements.size();
+        this.keys = new String[n];
+        this.tokenCounts = new int[n];
+        this.gramCounts = new int[n];
+        this.sharedTokens = new int[n];
+        this.sharedGrams = new int[n];
+
+        Map<String, List<Integer>> tokenPostings = new HashMap<>();
+        Map<String, List<Integer>> gramPostings = new HashMap<>();
+        for (int i = 0; i < n; i++) {
+            Set<String> tokens = tokens(localName(elements.get(i).getName()));
+            keys[i] = String.join("", tokens);
+            Set<String> grams = trigrams(keys[i]);
+            tokenCounts[i] = tokens.size();
+            gramCounts[i] = grams.size();
+
+            for (String token : tokens) tokenPostings.computeIfAbsent(token, t -> new ArrayList<>()).add(i);
+            for (String gram : grams) gramPostings.computeIfAbsent(gram, g -> new ArrayList<>()).add(i);
+        }
+        this.tokenIndex = toArrays(tokenPostings);
+        this.gramIndex = toArrays(gramPostings);
+    }
+
+    /**
+     * Finds the best assignment of headers to elements.
+     * @param headers the .csv headers and their column indices.
+     * @return a Correlation for each header that matched an element well enough, with the score of the match as its
+     *    confidence. Exact matches of the name, or of the local name ignoring case, have a confidence of 1.
+     */
+    public ArrayList<Correlation> match(Map<String, Integer> headers) {
+        List<Entry<String, Integer>> columns = new ArrayList<>(headers.entrySet());
+
+        // every candidate pair, as the header, the element, and the score.
+        List<double[]> candidates = new ArrayList<>();
+        int[] touched = new int[elements.size()];
+
+        for (int h = 0; h < columns.size(); h++) {
+            String header = stripBom(columns.get(h).getKey());
+            Set<String> tokens = tokens(header);
+            String key = String.join("", tokens);
+            Set<String> grams = trigrams(key);
+
+            int touchedCount = 0;
+            for (String token : tokens)
+                for (int e : tokenIndex.getOrDefault(token, EMPTY)) {
+                    if (sharedTokens[e] == 0 && sharedGrams[e] == 0) touched[touchedCount++] = e;
+                    sharedTokens[e]++;
+                }
+            for (String gram : grams)
+                for (int e : gramIndex.getOrDefault(gram, EMPTY)) {
+                    if (sharedTokens[e] == 0 && sharedGrams[e] == 0) touched[touchedCount++] = e;
+                    sharedGrams[e]++;
+                }
+
+            for (int t = 0; t < touchedCount; t++) {
+                int e = touched[t];
+                double score = score(header, key, tokens.size(), grams.size(), e);
+                if (score >= MIN_SCORE) candidates.add(new double[] {h, e, score});
+                sharedTokens[e] = 0;
+                sharedGrams[e] = 0;
+            }
+        }
+
+        // greedily take the best remaining pair whose header and element are both still free.
+        candidates.sort((a, b) -> Double.compare(b[2], a[2]));
+        boolean[] headerTaken = new boolean[columns.size()];
+        boolean[] elementTaken = new boolean[elements.size()];
+        ArrayList<Correlation> correlations = new ArrayList<>();
+        for (double[] candidate : candidates) {
+            int h = (int) candidate[0], e = (int) candidate[1];
+            if (headerTaken[h] || elementTaken[e]) continue;
+            headerTaken[h] = true;
+            elementTaken[e] = true;
+
+            Entry<String, Integer> column = columns.get(h);
+            correlations.add(new Correlation(column.getValue(), column.getKey(), elements.get(e), candidate[2]));
+        }
+        correlations.sort(Comparator.comparing(Correlation::getIndex));
+        return correlations;
+    }
+
+    /**
+     * Scores a header against an element, from the words and trigrams they share.
+     */
+    private double score(String header, String key, int tokenCount, int gramCount, int e) {
+        String name = elements.get(e).getName();
+        if (header.equals(name) || header.equalsIgnoreCase(localName(name))) return 1;
+        if (key.equals(keys[e])) return NORMALISED_MATCH;
+
+        double tokenScore = 2.0 * sharedTokens[e] / (tokenCount + tokenCounts[e]);
+        double gramScore = 2.0 * sharedGrams[e] / (gramCount + gramCounts[e]);
+        // just short of a normalised match, however similar the names.
+        return Math.min(0.5 * tokenScore + 0.5 * gramScore, NORMALISED_MATCH - 0.01);
+    }
+
+    /**
+     * Splits a name into lower case words: at separators, between a lower case letter and an upper case one, between
+     *    letters and digits, and before the last capital of a run of capitals followed by a lower case letter (so
+     *    XMLFile is xml, file).
+     * @param name a header, or the local name of an element.
+     * @return the distinct words of the name, in order.
+     */
+    static Set<String> tokens(String name) {
+        String text = stripBom(name);
+        Set<String> tokens = new LinkedHashSet<>();
+        StringBuilder token = new StringBuilder();
+
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (!Character.isLetterOrDigit(c)) {
+                addToken(tokens, token);
+                continue;
+            }
+            if (token.length() > 0) {
+                char previous = text.charAt(i - 1);
+                boolean next = i + 1 < text.length() && Character.isLowerCase(text.charAt(i + 1));
+                if ((Character.isLowerCase(previous) && Character.isUpperCase(c)) ||
+                        (Character.isUpperCase(previous) && Character.isUpperCase(c) && next) ||
+                        (Character.isDigit(previous) != Character.isDigit(c)))
+                    addToken(tokens, token);
+            }
+            token.append(Character.toLowerCase(c));
+        }
+        addToken(tokens, token);
+        return tokens;
+    }
+
+    private static void addToken(Set<String> tokens, StringBuilder token) {
+        if (token.length() > 0) tokens.add(token.toString());
+        token.setLength(0);
+    }
+
+    /**
+     * @param key a normalised name.
+     * @return the trigrams of the name, padded at either end so the start and end of the name count too.
+     */
+    static Set<String> trigrams(String key) {
+        String padded = "$" + key + "$";
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + 3 <= padded.length(); i++) grams.add(padded.substring(i, i + 3));
+        return grams;
+    }
+
+    /**
+     * @return the local part of a prefixed name or IRI: what follows the last '#', '/' or ':'.
+     */
+    private static String localName(String name) {
+        int split = Math.max(name.lastIndexOf('#'), Math.max(name.lastIndexOf('/'), name.lastIndexOf(':')));
+        return name.substring(split + 1);
+    }
+
+    private static String stripBom(String header) {
+        return header.length() > 0 && header.charAt(0) == '\uFEFF' ? header.substring(1) : header;
+    }
+
+    private static Map<String, int[]> toArrays(Map<String, List<Integer>> postings) {
+        Map<String, int[]> index = new HashMap<>(postings.size() * 2);
+        postings.forEach((term, elements) -> index.put(term, elements.stream().mapToInt(Integer::intValue).toArray()));
+        return index;
+    }
+}
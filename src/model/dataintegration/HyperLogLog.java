@@ -0,0 +1,57 @@
+package model.dataintegration;
+
+/**
+ * Estimates the number of distinct values in a stream in a fixed 4KB, however many values there are (after Flajolet
+ *    et al.). The estimate is typically within 2% of the true count.
+ */
+final class HyperLogLog {
+    private static final int P = 12;
+    private static final int M = 1 << P;
+    private static final double ALPHA = 0.7213 / (1 + 1.079 / M);
+
+    private final byte[] registers = new byte[M];
+
+    /**
+     * Adds a value to the set being counted.
+     */
+    void add(String value) {
+        long hash = hash(value);
+        int register = (int) (hash >>> (64 - P));
+        int rank = Long.numberOfLeadingZeros((hash << P) | (1L << (P - 1))) + 1;
+        if (rank > registers[register]) registers[register] = (byte) rank;
+    }
+
+    /**
+     * @return the estimated number of distinct values added.
+     */
+    long estimate() {
+        double sum = 0;
+        int zeros = 0;
+        for (byte r : registers) {
+            sum += 1.0 / (1L << r);
+            if (r == 0) zeros++;
+        }
+        double estimate = ALPHA * M * M / sum;
+
+        // small counts are estimated more accurately by the registers left empty.
+        if (estimate <= 2.5 * M && zeros > 0) estimate = M * Math.log((double) M / zeros);
+        return Math.round(estimate);
+    }
+
+    /**
+     * A 64 bit FNV-1a hash of the value, finished with the mixing step of MurmurHash3 to spread its bits.
+     */
+    private static long hash(String value) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            h ^= value.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,96 @@
+package model.dataintegration;
+
+import java.util.Arrays;
+
+/**
+ * A growable array of non-negative longs, each kept in as few bytes as the largest value so far needs: 1, 2, 4 or 8.
+ *    The array is widened, copying it, when a larger value is added, so an array of small values, such as dictionary
+ *    codes or string lengths, costs a byte or two per value rather than eight.
+ */
+final class PackedLongs {
+    private static final int INITIAL_CAPACITY = 64;
+
+    private byte[] bytes = new byte[INITIAL_CAPACITY];
+    private short[] shorts;
+    private int[] ints;
+    private long[] longs;
+    private int width = 1, size;
+
+    /**
+     * @param value the value to add, not negative.
+     */
+    void add(long value) {
+        int needed = value <= 0xFFL ? 1 : value <= 0xFFFFL ? 2 : value <= 0xFFFFFFFFL ? 4 : 8;
+        if (needed > width) widen(needed);
+        if (size == capacity()) resize(size + (size >> 1) + 1);
+
+        switch (width) {
+            case 1:  bytes[size] = (byte) value; break;
+            case 2:  shorts[size] = (short) value; break;
+            case 4:  ints[size] = (int) value; break;
+            default: longs[size] = value;
+        }
+        size++;
+    }
+
+    long get(int index) {
+        switch (width) {
+            case 1:  return bytes[index] & 0xFFL;
+            case 2:  return shorts[index] & 0xFFFFL;
+            case 4:  return ints[index] & 0xFFFFFFFFL;
+            default: return longs[index];
+        }
+    }
+
+    int size() { return size; }
+
+    /**
+     * Drops the room kept for values not yet added.
+     */
+    void trim() {
+        if (size < capacity()) resize(size);
+    }
+
+    /**
+     * @return the bytes the values take, besides the array headers.
+     */
+    long memory() {
+        return (long) capacity() * width;
+    }
+
+    private int capacity() {
+        switch (width) {
+            case 1:  return bytes.length;
+            case 2:  return shorts.length;
+            case 4:  return ints.length;
+            default: return longs.length;
+        }
+    }
+
+    private void resize(int capacity) {
+        switch (width) {
+            case 1:  bytes = Arrays.copyOf(bytes, capacity); break;
+            case 2:  shorts = Arrays.copyOf(shorts, capacity); break;
+            case 4:  ints = Arrays.copyOf(ints, capacity); break;
+            default: longs = Arrays.copyOf(longs, capacity);
+        }
+    }
+
+    private void widen(int needed) {
+        int capacity = Math.max(capacity(), INITIAL_CAPACITY);
+        short[] newShorts = needed == 2 ? new short[capacity] : null;
+        int[] newInts = needed == 4 ? new int[capacity] : null;
+        long[] newLongs = needed == 8 ? new long[capacity] : null;
+        for (int i = 0; i < size; i++) {
+            long value = get(i);
+            if (newShorts != null) newShorts[i] = (short) value;
+            else if (newInts != null) newInts[i] = (int) value;
+            else newLongs[i] = value;
+        }
+        bytes = null;
+        shorts = newShorts;
+        ints = newInts;
+        longs = newLongs;
+        width = needed;
+    }
+}
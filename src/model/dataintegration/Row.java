@@ -0,0 +1,55 @@
+package model.dataintegration;
+
+import org.apache.commons.csv.CSVRecord;
+
+import java.util.Iterator;
+
+/**
+ * A record of a .csv, as instance-level data is generated from it: its values by column index. Either a record read by
+ *    a parser, or a row of a {@link ColumnarTable} kept in memory between generations.
+ */
+public interface Row {
+
+    /**
+     * @param index the index of a column.
+     * @return the value of the column in this record.
+     * @throws IndexOutOfBoundsException if the record has no such column.
+     */
+    String get(int index);
+
+    /**
+     * @return the number of values in this record, which may differ from the number of headers.
+     */
+    int size();
+
+    /**
+     * @return the number of this record in the .csv, counting from 1 at the first record after the header row.
+     */
+    long getRecordNumber();
+
+    /**
+     * @param record a record read by a parser.
+     * @return the record as a Row.
+     */
+    static Row of(CSVRecord record) {
+        return new Row() {
+            @Override public String get(int index) { return record.get(index); }
+            @Override public int size() { return record.size(); }
+            @Override public long getRecordNumber() { return record.getRecordNumber(); }
+        };
+    }
+
+    /**
+     * @param records records read by a parser, such as the parser itself.
+     * @return the records as Rows, read from the records as they are iterated.
+     */
+    static Iterable<Row> of(Iterable<CSVRecord> records) {
+        return () -> {
+            Iterator<CSVRecord> iterator = records.iterator();
+            return new Iterator<Row>() {
+                @Override public boolean hasNext() { return iterator.hasNext(); }
+                @Override public Row next() { return of(iterator.next()); }
+            };
+        };
+    }
+}
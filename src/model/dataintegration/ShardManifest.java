@@ -0,0 +1,254 @@
+package model.dataintegration;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * How a .csv is split into shards to generate in separate processes: the byte range of each shard, cut at record
+ *    boundaries, which records it holds, and once generated, the length of its part of the output. Kept beside the
+ *    output, with the parts, and read by each worker to find its shard.
+ * Each shard numbers its blank nodes on from the number of records before it, so blank nodes are labelled as they
+ *    would be by a single run, and the parts concatenated in order are the output of a single run.
+ */
+public class ShardManifest {
+    private static final String EXTENSION = ".manifest", PART = ".part";
+    private static final int SCAN_BUFFER = 1 << 16;
+
+    /**
+     * One shard of the .csv.
+     */
+    public static final class Shard {
+        private final int index;
+        private final long from, to, firstRecord, records;
+        private String host;
+        private long outputLength = -1;
+
+        private Shard(int index, long from, long to, long firstRecord, long records) {
+            this.index = index;
+            this.from = from;
+            this.to = to;
+            this.firstRecord = firstRecord;
+            this.records = records;
+        }
+
+        /**
+         * Accessors
+         */
+        public int getIndex() { return index; }
+        public long getFrom() { return from; }
+        public long getTo() { return to; }
+        public long getFirstRecord() { return firstRecord; }
+        public long getRecords() { return records; }
+        public String getHost() { return host; }
+        public void setHost(String host) { this.host = host; }
+        public boolean isComplete() { return outputLength >= 0; }
+        public long getOutputLength() { return outputLength; }
+        public void setOutputLength(long outputLength) { this.outputLength = outputLength; }
+    }
+
+    private final long csvSize, headerEnd;
+    private final List<Shard> shards;
+
+    private ShardManifest(long csvSize, long headerEnd, List<Shard> shards) {
+        this.csvSize = csvSize;
+        this.headerEnd = headerEnd;
+        this.shards = shards;
+    }
+
+    /**
+     * Splits a .csv into shards of about the same number of bytes, each ending at the end of a record. The .csv is
+     *    scanned once, without decoding it, tracking quotes so a line break within a quoted field is not taken as the
+     *    end of a record (see {@link TailCheckpoint#findLastRecordEnd}), and counting the records of each shard.
+     * Fewer shards are planned if there are too few records to fill them.
+     * @param csv the .csv.
+     * @param count the number of shards wanted.
+     * @return the plan of the shards.
+     * @throws IOException if the .csv can not be read.
+     */
+    public static ShardManifest plan(Path csv, int count) throws IOException {
+        long headerEnd = TailCheckpoint.findHeaderEnd(csv);
+        long size = Files.size(csv);
+        List<Shard> shards = new ArrayList<>();
+
+        try (FileChannel channel = FileChannel.open(csv, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER);
+            boolean quoted = false, lineHasContent = false;
+            long position = headerEnd, from = headerEnd, firstRecord = 0, records = 0;
+            long target = nextTarget(headerEnd, size, count, 1);
+
+            channel.position(headerEnd);
+            while (channel.read(buffer) > 0) {
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    byte b = buffer.get();
+                    position++;
+                    if (b == '"') {
+                        quoted = !quoted;
+                        lineHasContent = true;
+                    } else if (b == '\n' && !quoted) {
+                        // empty lines are skipped by the parser, so they are not counted as records.
+                        if (lineHasContent) records++;
+                        lineHasContent = false;
+                        if (position >= target && shards.size() < count - 1) {
+                            shards.add(new Shard(shards.size(), from, position, firstRecord, records));
+                            from = position;
+                            firstRecord += records;
+                            records = 0;
+                            target = nextTarget(headerEnd, size, count, shards.size() + 1);
+                        }
+                    } else if (b != '\r') lineHasContent = true;
+                }
+                buffer.clear();
+            }
+            if (lineHasContent) records++;
+            if (position > from || shards.isEmpty())
+                shards.add(new Shard(shards.size(), from, position, firstRecord, records));
+        }
+        return new ShardManifest(size, headerEnd, shards);
+    }
+
+    private static long nextTarget(long headerEnd, long size, int count, int shard) {
+        return headerEnd + (size - headerEnd) * shard / count;
+    }
+
+    /**
+     * @param output the output the shards are generated for.
+     * @return the file the manifest of the output is kept in.
+     */
+    public static Path fileFor(Path output) {
+        return output.resolveSibling(output.getFileName() + EXTENSION);
+    }
+
+    /**
+     * @param output the output the shards are generated for.
+     * @param index the index of the shard.
+     * @return the file the part of the output generated from the shard is written to.
+     */
+    public static Path partFor(Path output, int index) {
+        return output.resolveSibling(output.getFileName() + PART + String.format("%04d", index));
+    }
+
+    /**
+     * Loads the manifest of an output.
+     * @param output the output the shards are generated for.
+     * @return the manifest.
+     * @throws IOException if the manifest does not exist or can not be read.
+     */
+    public static ShardManifest load(Path output) throws IOException {
+        Path file = fileFor(output);
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        }
+        try {
+            List<Shard> shards = new ArrayList<>();
+            int count = Integer.parseInt(properties.getProperty("shards"));
+            for (int i = 0; i < count; i++) {
+                String key = "shard." + i + ".";
+                Shard shard = new Shard(i,
+                        Long.parseLong(properties.getProperty(key + "from")),
+                        Long.parseLong(properties.getProperty(key + "to")),
+                        Long.parseLong(properties.getProperty(key + "firstRecord")),
+                        Long.parseLong(properties.getProperty(key + "records")));
+                shard.host = properties.getProperty(key + "host");
+                shard.outputLength = Long.parseLong(properties.getProperty(key + "outputLength", "-1"));
+                shards.add(shard);
+            }
+            return new ShardManifest(Long.parseLong(properties.getProperty("csvSize")),
+                    Long.parseLong(properties.getProperty("headerEnd")), shards);
+        } catch (NumberFormatException | NullPointerException e) {
+            throw new IOException("Malformed manifest " + file, e);
+        }
+    }
+
+    /**
+     * Saves the manifest beside its output, through a temporary file, so a manifest is never left half-written.
+     * @param output the output the shards are generated for.
+     * @throws IOException if the manifest can not be written.
+     */
+    public void save(Path output) throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty("csvSize", Long.toString(csvSize));
+        properties.setProperty("headerEnd", Long.toString(headerEnd));
+        properties.setProperty("shards", Integer.toString(shards.size()));
+        for (Shard shard : shards) {
+            String key = "shard." + shard.index + ".";
+            properties.setProperty(key + "part", partFor(output, shard.index).getFileName().toString());
+            properties.setProperty(key + "from", Long.toString(shard.from));
+            properties.setProperty(key + "to", Long.toString(shard.to));
+            properties.setProperty(key + "firstRecord", Long.toString(shard.firstRecord));
+            properties.setProperty(key + "records", Long.toString(shard.records));
+            if (shard.host != null) properties.setProperty(key + "host", shard.host);
+            properties.setProperty(key + "outputLength", Long.toString(shard.outputLength));
+        }
+
+        Path file = fileFor(output);
+        Path temp = Files.createTempFile(file.toAbsolutePath().getParent(), file.getFileName().toString(), ".tmp");
+        try {
+            try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                properties.store(writer, "sharded instance-level generation");
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Concatenates the parts of the output in order into the output, copying between the files without reading them
+     *    into memory.
+     * @param output the output the shards are generated for.
+     * @return the length of the output.
+     * @throws IOException if a part is not complete, or has changed since it was generated, or if copying fails.
+     */
+    public long merge(Path output) throws IOException {
+        for (Shard shard : shards) {
+            Path part = partFor(output, shard.index);
+            if (!shard.isComplete() || !Files.exists(part) || Files.size(part) != shard.outputLength)
+                throw new IOException("the part " + part + " is not complete");
+        }
+
+        try (FileChannel out = FileChannel.open(output, StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (Shard shard : shards) {
+                try (FileChannel in = FileChannel.open(partFor(output, shard.index), StandardOpenOption.READ)) {
+                    long copied = 0;
+                    while (copied < shard.outputLength)
+                        copied += in.transferTo(copied, shard.outputLength - copied, out);
+                }
+            }
+            return out.size();
+        }
+    }
+
+    /**
+     * @param csv the .csv about to be generated from.
+     * @return whether the .csv is the size it was when it was split, so the shards still fall on record boundaries.
+     * @throws IOException if the .csv can not be read.
+     */
+    public boolean matches(Path csv) throws IOException {
+        return Files.size(csv) == csvSize;
+    }
+
+    /**
+     * Accessors
+     */
+    public long getHeaderEnd() { return headerEnd; }
+    public List<Shard> getShards() { return Collections.unmodifiableList(shards); }
+
+    public long getRecords() {
+        return shards.stream().mapToLong(Shard::getRecords).sum();
+    }
+}
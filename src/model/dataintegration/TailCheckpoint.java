@@ -0,0 +1,231 @@
+package model.dataintegration;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Properties;
+
+/**
+ * How far through a growing .csv instance-level data has been generated, so the next run only generates the records
+ *    appended since: the byte offset of the first record not yet generated, how many records have been, the blank
+ *    node numbering reached, and the length of the output they were written to.
+ * A checkpoint is kept beside its output, and is only resumed from while the header row and graph are unchanged
+ *    (see {@link CorrelationProfile#fingerprint}). The output is cut back to the recorded length before appending,
+ *    so records written by a run that stopped before saving its checkpoint are not written twice.
+ */
+public class TailCheckpoint {
+    private static final String EXTENSION = ".checkpoint";
+    private static final int SCAN_BUFFER = 1 << 16;
+
+    private final String fingerprint;
+    private final long csvOffset, records, outputLength;
+    private final long blankNodePermutation;
+
+    /**
+     * @param fingerprint the fingerprint of the header row and graph generated from.
+     * @param csvOffset the byte offset in the .csv of the first record not yet generated.
+     * @param records the number of records generated so far.
+     * @param blankNodePermutation the blank node numbering reached.
+     * @param outputLength the length in bytes of the output so far.
+     */
+    public TailCheckpoint(String fingerprint, long csvOffset, long records, long blankNodePermutation,
+                          long outputLength) {
+        this.fingerprint = fingerprint;
+        this.csvOffset = csvOffset;
+        this.records = records;
+        this.blankNodePermutation = blankNodePermutation;
+        this.outputLength = outputLength;
+    }
+
+    /**
+     * @param output the generated instance-level data.
+     * @return the file the checkpoint of the output is kept in.
+     */
+    public static Path fileFor(Path output) {
+        return output.resolveSibling(output.getFileName() + EXTENSION);
+    }
+
+    /**
+     * Loads the checkpoint of an output.
+     * @param output the generated instance-level data.
+     * @return the checkpoint, or null if there is none.
+     * @throws IOException if the checkpoint exists but can not be read.
+     */
+    public static TailCheckpoint load(Path output) throws IOException {
+        Path file = fileFor(output);
+        if (!Files.exists(file)) return null;
+
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        }
+        try {
+            return new TailCheckpoint(
+                    properties.getProperty("fingerprint"),
+                    Long.parseLong(properties.getProperty("csvOffset")),
+                    Long.parseLong(properties.getProperty("records")),
+                    Long.parseLong(properties.getProperty("blankNodePermutation")),
+                    Long.parseLong(properties.getProperty("outputLength")));
+        } catch (NumberFormatException | NullPointerException e) {
+            throw new IOException("Malformed checkpoint " + file, e);
+        }
+    }
+
+    /**
+     * Saves the checkpoint beside its output, through a temporary file, so a checkpoint is never left half-written.
+     * @param output the generated instance-level data.
+     * @throws IOException if the checkpoint can not be written.
+     */
+    public void save(Path output) throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty("fingerprint", fingerprint);
+        properties.setProperty("csvOffset", Long.toString(csvOffset));
+        properties.setProperty("records", Long.toString(records));
+        properties.setProperty("blankNodePermutation", Long.toString(blankNodePermutation));
+        properties.setProperty("outputLength", Long.toString(outputLength));
+
+        Path file = fileFor(output);
+        Path temp = Files.createTempFile(file.toAbsolutePath().getParent(), file.getFileName().toString(), ".tmp");
+        try {
+            try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                properties.store(writer, "instance-level generation checkpoint");
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * @param fingerprint the fingerprint of the header row and graph about to be generated from.
+     * @param csv the .csv about to be generated from.
+     * @param output the output about to be appended to.
+     * @return whether generation can carry on from this checkpoint: the header row and graph are unchanged, and
+     *    neither the .csv nor the output has been cut shorter than the checkpoint.
+     * @throws IOException if the files can not be read.
+     */
+    public boolean canResume(String fingerprint, Path csv, Path output) throws IOException {
+        return this.fingerprint.equals(fingerprint) &&
+                Files.size(csv) >= csvOffset &&
+                Files.exists(output) && Files.size(output) >= outputLength;
+    }
+
+    /**
+     * Finds the end of the last complete record of a .csv from an offset: the byte after the last line break that is
+     *    not inside a quoted field. Quotes and line breaks are single bytes in UTF-8 that never occur within a
+     *    multi-byte character, so the bytes can be scanned without decoding them.
+     * A last line without a line break is taken as a record still being written, and left for the next run.
+     * @param csv the .csv.
+     * @param from the offset of the start of a record.
+     * @return the offset of the end of the last complete record, or from if there is none.
+     * @throws IOException if the .csv can not be read.
+     */
+    public static long findLastRecordEnd(Path csv, long from) throws IOException {
+        return scanRecordEnds(csv, from, false);
+    }
+
+    /**
+     * @param csv the .csv.
+     * @return the offset of the end of the header row, where the first record begins.
+     * @throws IOException if the .csv can not be read.
+     */
+    public static long findHeaderEnd(Path csv) throws IOException {
+        return scanRecordEnds(csv, 0, true);
+    }
+
+    private static long scanRecordEnds(Path csv, long from, boolean firstOnly) throws IOException {
+        try (FileChannel channel = FileChannel.open(csv, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER);
+            boolean quoted = false;
+            long position = from, end = from;
+
+            channel.position(from);
+            while (channel.read(buffer) > 0) {
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    byte b = buffer.get();
+                    position++;
+                    if (b == '"') quoted = !quoted;
+                    else if (b == '\n' && !quoted) {
+                        end = position;
+                        if (firstOnly) return end;
+                    }
+                }
+                buffer.clear();
+            }
+            return end;
+        }
+    }
+
+    /**
+     * Reads the bytes of a .csv between two record boundaries.
+     * @param csv the .csv.
+     * @param from the offset of the first byte.
+     * @param to the offset after the last byte.
+     * @return the stream of the bytes.
+     * @throws IOException if the .csv can not be read.
+     */
+    public static InputStream openRange(Path csv, long from, long to) throws IOException {
+        FileChannel channel = FileChannel.open(csv, StandardOpenOption.READ);
+        channel.position(from);
+        InputStream in = Channels.newInputStream(channel);
+        return new InputStream() {
+            private long remaining = to - from;
+
+            @Override public int read() throws IOException {
+                if (remaining <= 0) return -1;
+                int b = in.read();
+                if (b >= 0) remaining--;
+                return b;
+            }
+
+            @Override public int read(byte[] bytes, int offset, int length) throws IOException {
+                if (remaining <= 0) return -1;
+                int read = in.read(bytes, offset, (int) Math.min(length, remaining));
+                if (read > 0) remaining -= read;
+                return read;
+            }
+
+            @Override public void close() throws IOException { in.close(); }
+        };
+    }
+
+    /**
+     * Opens the output to append to, cut back to the length this checkpoint recorded.
+     * @param output the generated instance-level data.
+     * @return the stream to append to.
+     * @throws IOException if the output can not be opened.
+     */
+    public OutputStream openForAppend(Path output) throws IOException {
+        FileChannel channel = FileChannel.open(output, StandardOpenOption.WRITE, StandardOpenOption.CREATE);
+        channel.truncate(outputLength);
+        channel.position(outputLength);
+        return Channels.newOutputStream(channel);
+    }
+
+    /**
+     * @return the checkpoint after generating more records.
+     */
+    public TailCheckpoint advance(long csvOffset, long records, long blankNodePermutation, long outputLength) {
+        return new TailCheckpoint(fingerprint, csvOffset, this.records + records, blankNodePermutation, outputLength);
+    }
+
+    /**
+     * Accessors
+     */
+    public String getFingerprint() { return fingerprint; }
+    public long getCsvOffset() { return csvOffset; }
+    public long getRecords() { return records; }
+    public long getBlankNodePermutation() { return blankNodePermutation; }
+    public long getOutputLength() { return outputLength; }
+}
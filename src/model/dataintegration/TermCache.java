@@ -0,0 +1,115 @@
+package model.dataintegration;
+
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded cache of rendered terms, keyed by the slot a value fills, the graph element it is generated for, and the
+ *    value itself. Columns such as country codes or statuses repeat a few values across many records, so their terms
+ *    are rendered once and looked up after.
+ * Each slot keeps at most a fixed number of terms, evicting the least recently used. A slot whose values hardly ever
+ *    repeat, such as an identifier, stops being cached once it has been looked up enough times to tell, so it costs
+ *    no more than rendering every term.
+ */
+class TermCache {
+    // the most terms kept for each slot.
+    static final int SLOT_CAPACITY = 4096;
+
+    // how many lookups a slot is given before it is judged, and the least hit rate that keeps it cached.
+    private static final int TRIAL_LOOKUPS = 1024;
+    private static final double MIN_HIT_RATE = 0.1;
+
+    /**
+     * The terms of one slot, in least to most recently used order.
+     */
+    private static final class Slot extends LinkedHashMap<String, String> {
+        private long lookups, hits;
+        private boolean bypassed;
+        private int evictions;
+
+        private Slot() { super(64, 0.75f, true); }
+
+        @Override protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+            if (size() <= SLOT_CAPACITY) return false;
+            evictions++;
+            return true;
+        }
+    }
+
+    private final Map<Object, Slot> slots = new IdentityHashMap<>();
+    private long hits, misses, evictions;
+
+    /**
+     * @param slot the graph element the value is generated for.
+     * @param value the raw value from the .csv.
+     * @return the rendered term, or null if it has not been cached.
+     */
+    String get(Object slot, String value) {
+        Slot terms = slots.computeIfAbsent(slot, s -> new Slot());
+        if (terms.bypassed) {
+            misses++;
+            return null;
+        }
+
+        String term = terms.get(value);
+        terms.lookups++;
+        if (term != null) {
+            terms.hits++;
+            hits++;
+        } else misses++;
+
+        if (terms.lookups == TRIAL_LOOKUPS && terms.hits < TRIAL_LOOKUPS * MIN_HIT_RATE) {
+            terms.bypassed = true;
+            evictions += terms.evictions + terms.size();
+            terms.clear();
+        }
+        return term;
+    }
+
+    /**
+     * Caches a rendered term, unless its slot is no longer cached.
+     * @param slot the graph element the value is generated for.
+     * @param value the raw value from the .csv.
+     * @param term the term rendered from the value.
+     */
+    void put(Object slot, String value, String term) {
+        Slot terms = slots.get(slot);
+        if (terms != null && !terms.bypassed) terms.put(value, term);
+    }
+
+    /**
+     * @param slot the graph element the value is generated for.
+     * @return whether terms of the slot are still cached, so a caller need not copy out a term that would be dropped.
+     */
+    boolean isCaching(Object slot) {
+        Slot terms = slots.get(slot);
+        return terms != null && !terms.bypassed;
+    }
+
+    /**
+     * @return the fraction of lookups that found their term.
+     */
+    double getHitRate() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    long getHits() { return hits; }
+    long getMisses() { return misses; }
+
+    /**
+     * @return the number of terms dropped, whether evicted from a full slot or cleared from a slot no longer cached.
+     */
+    long getEvictions() {
+        long evicted = evictions;
+        for (Slot terms : slots.values()) if (!terms.bypassed) evicted += terms.evictions;
+        return evicted;
+    }
+
+    @Override public String toString() {
+        long bypassed = slots.values().stream().filter(terms -> terms.bypassed).count();
+        return hits + " hits, " + misses + " misses (" + Math.round(getHitRate() * 100) + "% hit rate), " +
+                getEvictions() + " evicted, " + bypassed + " of " + slots.size() + " slots not cached";
+    }
+}
@@ -0,0 +1,60 @@
+package model.dataintegration;
+
+import java.util.regex.Pattern;
+
+/**
+ * The XML Schema datatypes the instance-level data can be checked against, with the lexical form of each, and the form
+ *    a value of the type may be written in bare, without quotes, in Turtle.
+ */
+public enum XsdType {
+    // in the order they are tried when inferring the type of a column, narrowest first.
+    INTEGER("xsd:integer", "[+\\-]?\\d+", "[+\\-]?\\d+"),
+    DECIMAL("xsd:decimal", "[+\\-]?(\\d+(\\.\\d*)?|\\.\\d+)", "[+\\-]?\\d*\\.\\d+"),
+    DOUBLE("xsd:double", "[+\\-]?(\\d+(\\.\\d*)?|\\.\\d+)([Ee][+\\-]?\\d+)?|[+\\-]?INF|NaN",
+            "[+\\-]?(\\d+\\.\\d*|\\.\\d+|\\d+)[Ee][+\\-]?\\d+"),
+    BOOLEAN("xsd:boolean", "true|false|1|0", "true|false"),
+    DATE("xsd:date", "-?\\d{4,}-\\d{2}-\\d{2}(Z|[+\\-]\\d{2}:\\d{2})?", null),
+    DATE_TIME("xsd:dateTime", "-?\\d{4,}-\\d{2}-\\d{2}T\\d{2}:\\d{2}:\\d{2}(\\.\\d+)?(Z|[+\\-]\\d{2}:\\d{2})?", null),
+    STRING("xsd:string", null, null);
+
+    static final String XSD = "http://www.w3.org/2001/XMLSchema#";
+
+    private final String name;
+    private final Pattern lexical, bare;
+
+    XsdType(String name, String lexical, String bare) {
+        this.name = name;
+        this.lexical = lexical != null ? Pattern.compile(lexical) : null;
+        this.bare = bare != null ? Pattern.compile(bare) : null;
+    }
+
+    /**
+     * @param value a value from the .csv.
+     * @return whether the value is a valid lexical form of this type.
+     */
+    public boolean isValid(String value) {
+        return lexical == null || lexical.matcher(value).matches();
+    }
+
+    /**
+     * @param value a value from the .csv.
+     * @return whether the value can be written without quotes, and still be read as this type.
+     */
+    public boolean canBeBare(String value) {
+        return bare != null && bare.matcher(value).matches();
+    }
+
+    /**
+     * @param dataType the datatype of a Literal, as a prefixed name or a full IRI, with or without angle brackets.
+     * @return the type, or null if it is not one that can be checked.
+     */
+    public static XsdType of(String dataType) {
+        if (dataType == null) return null;
+        String local = dataType.replaceAll("^<|>$", "");
+        if (local.startsWith(XSD)) local = "xsd:" + local.substring(XSD.length());
+        for (XsdType type : values()) if (type.name.equals(local)) return type;
+        return null;
+    }
+
+    @Override public String toString() { return name; }
+}
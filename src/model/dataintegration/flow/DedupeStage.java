@@ -0,0 +1,112 @@
+package model.dataintegration.flow;
+
+import model.dataintegration.ExternalSortDeduplicator;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Path;
+import java.util.concurrent.Executor;
+
+/**
+ * Sorts N-Triples and drops the repeated ones, through an {@link ExternalSortDeduplicator}. Nothing can be passed on
+ *    until every triple has been seen, so the triples are spilled to temporary runs as they arrive, in the memory
+ *    budget, and the merged lines are passed on in chunks at the end.
+ */
+public class DedupeStage extends StageProcessor<String, String> {
+    // the characters of merged lines gathered before they are passed on.
+    private static final int CHUNK_SIZE = 1 << 14;
+
+    private final ExternalSortDeduplicator deduplicator;
+    private final Writer lines;
+    private long distinct = -1;
+    private int runCount;
+
+    /**
+     * @param executor runs the delivery of lines to the stage after.
+     * @param bufferCapacity the most chunks of lines merged but not yet taken by the stage after.
+     * @param memoryBudget the most bytes of lines to keep in memory before spilling them to a run.
+     * @param tempDirectory where the runs are written, or null for the default temporary directory.
+     */
+    public DedupeStage(Executor executor, int bufferCapacity, long memoryBudget, Path tempDirectory) {
+        super(executor, bufferCapacity);
+        this.deduplicator = new ExternalSortDeduplicator(memoryBudget, tempDirectory);
+        this.lines = deduplicator.asWriter();
+    }
+
+    @Override protected void process(String triples) throws IOException {
+        lines.write(triples);
+    }
+
+    @Override protected void finish() throws IOException {
+        try (ExternalSortDeduplicator deduplicator = this.deduplicator) {
+            lines.close();
+            try (Writer chunks = new ChunkWriter()) {
+                distinct = deduplicator.finish(chunks);
+            }
+            runCount = deduplicator.getRunCount();
+        }
+    }
+
+    @Override public void onError(Throwable throwable) {
+        closeRuns();
+        super.onError(throwable);
+    }
+
+    @Override public void close() {
+        closeRuns();
+        super.close();
+    }
+
+    @Override public void closeExceptionally(Throwable error) {
+        closeRuns();
+        super.closeExceptionally(error);
+    }
+
+    private void closeRuns() {
+        try {
+            deduplicator.close();
+        } catch (IOException e) {
+            // the runs are temporary files, so failing to remove one is no reason to fail the pipeline.
+        }
+    }
+
+    /**
+     * @return the number of triples taken, repeats included.
+     */
+    public long getLinesAdded() { return deduplicator.getLinesAdded(); }
+
+    /**
+     * @return the number of distinct triples passed on, or -1 until they have been.
+     */
+    public long getDistinct() { return distinct; }
+
+    /**
+     * @return the number of runs merged, once the triples have been passed on.
+     */
+    public int getRunCount() { return runCount; }
+
+    /**
+     * Gathers written text into chunks, passing each on once it is large enough.
+     */
+    private final class ChunkWriter extends Writer {
+        private final StringBuilder chunk = new StringBuilder(CHUNK_SIZE);
+
+        @Override public void write(char[] chars, int offset, int length) {
+            chunk.append(chars, offset, length);
+            if (chunk.length() >= CHUNK_SIZE) flush();
+        }
+
+        @Override public void write(String text, int offset, int length) {
+            chunk.append(text, offset, offset + length);
+            if (chunk.length() >= CHUNK_SIZE) flush();
+        }
+
+        @Override public void flush() {
+            if (chunk.length() == 0) return;
+            emit(chunk.toString());
+            chunk.setLength(0);
+        }
+
+        @Override public void close() { flush(); }
+    }
+}
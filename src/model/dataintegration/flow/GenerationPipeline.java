@@ -0,0 +1,153 @@
+package model.dataintegration.flow;
+
+import model.dataintegration.ColumnProfiler;
+import model.dataintegration.DataIntegrator;
+import model.dataintegration.Row;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+
+/**
+ * Generates instance-level data through a pipeline of stages, each running on a thread of its own:
+ *
+ *    records -> [validation] -> triples -> [deduplication] -> writer
+ *
+ * Between each pair of stages at most a bounded number of items wait, so the records are only parsed as fast as the
+ *    slowest stage, usually the writer, takes the triples, and memory holds no more than the buffers however large
+ *    the .csv. Used alike by the application, the command line and the conversion server.
+ */
+public class GenerationPipeline {
+    // the most items waiting between two stages, unless another is given.
+    public static final int DEFAULT_BUFFER_CAPACITY = 256;
+
+    private final DataIntegrator dataIntegrator;
+    private int bufferCapacity = DEFAULT_BUFFER_CAPACITY;
+    private boolean withPrefixes = true;
+
+    private ValidationStage validation;
+    private int maxErrors = -1;
+    private boolean strict;
+
+    private DedupeStage dedupe;
+    private long memoryBudget = -1;
+    private Path tempDirectory;
+
+    /**
+     * @param dataIntegrator the graph, correlations and options to generate with.
+     */
+    public GenerationPipeline(DataIntegrator dataIntegrator) {
+        this.dataIntegrator = dataIntegrator;
+    }
+
+    /**
+     * Adds a stage checking values against the datatypes of their literals as the records pass through.
+     * @param maxErrors the most invalid values to describe; the rest are only counted.
+     * @param strict whether the first invalid value ends generation.
+     */
+    public void setValidation(int maxErrors, boolean strict) {
+        this.maxErrors = maxErrors;
+        this.strict = strict;
+    }
+
+    /**
+     * Adds a stage sorting the triples and dropping the repeated ones; for N-Triples only.
+     * @param memoryBudget the most bytes of triples to keep in memory before spilling them to a temporary file.
+     * @param tempDirectory where the temporary files are written, or null for the default temporary directory.
+     */
+    public void setDeduplication(long memoryBudget, Path tempDirectory) {
+        this.memoryBudget = memoryBudget;
+        this.tempDirectory = tempDirectory;
+    }
+
+    /**
+     * Generates instance-level data from records, writing it out as it is generated.
+     * @param records the records, such as a table, or a parser to read them from; read on the calling thread.
+     * @param out where the instance-level data is written. It is flushed at the end, but not closed.
+     * @return the number of characters written.
+     * @throws DataIntegrator.PrefixMissingException if a given prefix does not have an expanded form.
+     * @throws ValidationStage.InvalidValuesException if validation is strict and a value is not valid.
+     * @throws IOException if writing the instance-level data fails, or a record can not be read, as a
+     *    {@link RecordSource.UnreadableRecordException}.
+     * @throws InterruptedException if interrupted while waiting for the stages to finish.
+     */
+    public long run(Iterable<? extends Row> records, Writer out) throws DataIntegrator.PrefixMissingException,
+            ValidationStage.InvalidValuesException, IOException, InterruptedException {
+        ExecutorService executor = Executors.newCachedThreadPool(task -> {
+            Thread thread = new Thread(task, "generation-stage");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            // the stages are joined before any record is read, so that nothing is passed on before it can be taken.
+            WriterSink sink = new WriterSink(out);
+            TripleRenderer renderer = new TripleRenderer(executor, bufferCapacity, dataIntegrator, withPrefixes);
+            if (memoryBudget >= 0) {
+                dedupe = new DedupeStage(executor, bufferCapacity, memoryBudget, tempDirectory);
+                dedupe.subscribe(sink);
+                renderer.subscribe(dedupe);
+            } else renderer.subscribe(sink);
+
+            Flow.Subscriber<Row> first = renderer;
+            if (maxErrors >= 0) {
+                validation = new ValidationStage(executor, bufferCapacity, dataIntegrator.getTypedColumns(),
+                        maxErrors, strict);
+                validation.subscribe(renderer);
+                first = validation;
+            }
+
+            RecordSource source = new RecordSource(executor, bufferCapacity);
+            source.subscribe(first);
+            source.publish(records);
+            return awaitDone(sink);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Waits for the writer to finish, rethrowing the failure that ended the pipeline, if any, as itself.
+     */
+    private static long awaitDone(WriterSink sink) throws DataIntegrator.PrefixMissingException,
+            ValidationStage.InvalidValuesException, IOException, InterruptedException {
+        try {
+            return sink.getDone().get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof DataIntegrator.PrefixMissingException)
+                throw (DataIntegrator.PrefixMissingException) cause;
+            if (cause instanceof ValidationStage.InvalidValuesException)
+                throw (ValidationStage.InvalidValuesException) cause;
+            // a record that could not be read arrives as a RecordSource.UnreadableRecordException.
+            if (cause instanceof IOException) throw (IOException) cause;
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * @return the outcome of validation once run, or null if there was no validation stage.
+     */
+    public ColumnProfiler.ValidationReport getValidationReport() {
+        return validation != null ? validation.getReport() : null;
+    }
+
+    /**
+     * @return a description of what deduplication dropped once run, or null if there was no deduplication stage.
+     */
+    public String dedupeToString() {
+        return dedupe == null ? null : "Deduplicated " + dedupe.getLinesAdded() + " triples into " +
+                dedupe.getDistinct() + ", through " + dedupe.getRunCount() + " runs.";
+    }
+
+    /**
+     * Accessors
+     */
+    public void setBufferCapacity(int bufferCapacity) { this.bufferCapacity = bufferCapacity; }
+    public void setWithPrefixes(boolean withPrefixes) { this.withPrefixes = withPrefixes; }
+}
@@ -0,0 +1,53 @@
+package model.dataintegration.flow;
+
+import model.dataintegration.Row;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.concurrent.Executor;
+import java.util.concurrent.SubmissionPublisher;
+
+/**
+ * The first stage of a generation pipeline: reads the records of a .csv and passes them on. Records are only read as
+ *    fast as the stage after takes them, so a parser is never read further ahead than the buffer of the stage after.
+ */
+public class RecordSource extends SubmissionPublisher<Row> {
+
+    /**
+     * Ends the pipeline when a record can not be read, such as a malformed record reported by the parser.
+     */
+    public static class UnreadableRecordException extends IOException {
+        UnreadableRecordException(RuntimeException cause) {
+            super("a record could not be read: " + cause.getMessage(), cause);
+        }
+    }
+
+    /**
+     * @param executor runs the delivery of records to the stage after.
+     * @param bufferCapacity the most records read but not yet taken by the stage after.
+     */
+    public RecordSource(Executor executor, int bufferCapacity) {
+        super(executor, bufferCapacity);
+    }
+
+    /**
+     * Reads the records on the calling thread, passing each on, until they run out or the stages after have gone.
+     * @param records the records, such as a table, or a parser to read them from.
+     */
+    public void publish(Iterable<? extends Row> records) {
+        Iterator<? extends Row> iterator = records.iterator();
+        while (hasSubscribers()) {
+            Row record;
+            try {
+                if (!iterator.hasNext()) break;
+                record = iterator.next();
+            } catch (RuntimeException e) {
+                // commons-csv reports malformed records while iterating as unchecked exceptions.
+                closeExceptionally(new UnreadableRecordException(e));
+                return;
+            }
+            submit(record);
+        }
+        close();
+    }
+}
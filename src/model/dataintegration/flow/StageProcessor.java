@@ -0,0 +1,87 @@
+package model.dataintegration.flow;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+
+/**
+ * A stage of a generation pipeline, taking items from the stage before and passing on what it makes of them to the
+ *    stage after. Only one item is asked for at a time, and passing an item on waits while the stage after has its
+ *    buffer full, so a slow stage holds back the stages before it rather than letting items pile up in memory.
+ * A failure in a stage cancels the stages before it and is passed on to the stages after, ending the pipeline.
+ * @param <I> the items taken.
+ * @param <O> the items passed on.
+ */
+public abstract class StageProcessor<I, O> extends SubmissionPublisher<O> implements Flow.Processor<I, O> {
+    private Flow.Subscription subscription;
+    private boolean stopped;
+
+    /**
+     * @param executor runs the delivery of items to the stage after.
+     * @param bufferCapacity the most items passed on but not yet taken by the stage after.
+     */
+    protected StageProcessor(Executor executor, int bufferCapacity) {
+        super(executor, bufferCapacity);
+    }
+
+    /**
+     * Handles an item, passing on any number of items with {@link #emit}.
+     * @param item the item.
+     * @throws Exception if the item can not be handled, which ends the pipeline.
+     */
+    protected abstract void process(I item) throws Exception;
+
+    /**
+     * Handles the end of the items, once every item has been processed. Passes on nothing unless overridden.
+     * @throws Exception if the stage can not finish, which ends the pipeline.
+     */
+    protected void finish() throws Exception {}
+
+    /**
+     * Passes an item on to the stage after, waiting while its buffer is full. If the stage after has gone, the stages
+     *    before are cancelled, since nothing will take what they make.
+     * @param item the item.
+     */
+    protected void emit(O item) {
+        submit(item);
+        if (!hasSubscribers()) stop();
+    }
+
+    @Override public void onSubscribe(Flow.Subscription subscription) {
+        this.subscription = subscription;
+        subscription.request(1);
+    }
+
+    @Override public void onNext(I item) {
+        if (stopped) return;
+        try {
+            process(item);
+        } catch (Exception e) {
+            stop();
+            closeExceptionally(e);
+            return;
+        }
+        if (!stopped) subscription.request(1);
+    }
+
+    @Override public void onError(Throwable throwable) {
+        stopped = true;
+        closeExceptionally(throwable);
+    }
+
+    @Override public void onComplete() {
+        if (stopped) return;
+        try {
+            finish();
+        } catch (Exception e) {
+            closeExceptionally(e);
+            return;
+        }
+        close();
+    }
+
+    private void stop() {
+        stopped = true;
+        subscription.cancel();
+    }
+}
@@ -0,0 +1,54 @@
+package model.dataintegration.flow;
+
+import model.dataintegration.DataIntegrator;
+import model.dataintegration.Row;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.concurrent.Executor;
+
+/**
+ * Generates the instance-level data of each record as it arrives, against the graph and correlations of a
+ *    DataIntegrator, passing on the text of each record's triples.
+ * The prefix declarations, if any, are passed on before the triples of the first record.
+ */
+public class TripleRenderer extends StageProcessor<Row, String> {
+    private final DataIntegrator dataIntegrator;
+    private final boolean withPrefixes;
+    private final StringWriter text = new StringWriter();
+    private boolean started;
+
+    /**
+     * @param executor runs the delivery of triples to the stage after.
+     * @param bufferCapacity the most records' triples generated but not yet taken by the stage after.
+     * @param dataIntegrator the graph, correlations and options to generate with.
+     * @param withPrefixes whether to begin with the prefix declarations, if IRIs are compacted.
+     */
+    public TripleRenderer(Executor executor, int bufferCapacity, DataIntegrator dataIntegrator, boolean withPrefixes) {
+        super(executor, bufferCapacity);
+        this.dataIntegrator = dataIntegrator;
+        this.withPrefixes = withPrefixes;
+    }
+
+    @Override protected void process(Row record) throws DataIntegrator.PrefixMissingException, IOException {
+        start();
+        dataIntegrator.generateInstanceDataOf(record, text);
+        emitText();
+    }
+
+    @Override protected void finish() throws IOException {
+        start();
+    }
+
+    private void start() throws IOException {
+        if (started) return;
+        started = true;
+        dataIntegrator.startGeneration(text, withPrefixes);
+        if (text.getBuffer().length() > 0) emitText();
+    }
+
+    private void emitText() {
+        emit(text.toString());
+        text.getBuffer().setLength(0);
+    }
+}
@@ -0,0 +1,61 @@
+package model.dataintegration.flow;
+
+import model.dataintegration.ColumnProfiler;
+import model.dataintegration.Row;
+import model.dataintegration.XsdType;
+
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * Checks the values of each record against the datatypes of the literals they generate as the records pass through,
+ *    so values that would generate ill-typed literals are found without reading the .csv twice.
+ * Records are passed on whether their values are valid or not, unless the stage is strict, in which case the first
+ *    invalid value ends the pipeline.
+ */
+public class ValidationStage extends StageProcessor<Row, Row> {
+
+    /**
+     * Thrown by a strict stage at the first invalid value.
+     */
+    public static class InvalidValuesException extends Exception {
+        private final ColumnProfiler.ValidationReport report;
+
+        InvalidValuesException(ColumnProfiler.ValidationReport report) {
+            super(report.getErrors().isEmpty() ? "invalid values" : report.getErrors().get(0));
+            this.report = report;
+        }
+
+        public ColumnProfiler.ValidationReport getReport() { return report; }
+    }
+
+    private final Map<Integer, XsdType> columnTypes;
+    private final int maxErrors;
+    private final boolean strict;
+    private final ColumnProfiler.ValidationReport report = new ColumnProfiler.ValidationReport();
+
+    /**
+     * @param executor runs the delivery of records to the stage after.
+     * @param bufferCapacity the most records checked but not yet taken by the stage after.
+     * @param columnTypes the datatype of each column to check, by column index.
+     * @param maxErrors the most invalid values to describe; the rest are only counted.
+     * @param strict whether an invalid value ends the pipeline.
+     */
+    public ValidationStage(Executor executor, int bufferCapacity, Map<Integer, XsdType> columnTypes, int maxErrors,
+                           boolean strict) {
+        super(executor, bufferCapacity);
+        this.columnTypes = columnTypes;
+        this.maxErrors = maxErrors;
+        this.strict = strict;
+    }
+
+    @Override protected void process(Row record) throws InvalidValuesException {
+        if (!report.check(record, columnTypes, maxErrors) && strict) throw new InvalidValuesException(report);
+        emit(record);
+    }
+
+    /**
+     * @return the outcome of the check so far; complete once the pipeline has finished.
+     */
+    public ColumnProfiler.ValidationReport getReport() { return report; }
+}
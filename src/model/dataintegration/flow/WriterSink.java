@@ -0,0 +1,61 @@
+package model.dataintegration.flow;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+
+/**
+ * The last stage of a generation pipeline: writes the text it is passed to a Writer, such as a file or the body of a
+ *    response. Only one piece of text is asked for at a time, so a slow Writer holds back the whole pipeline.
+ */
+public class WriterSink implements Flow.Subscriber<String> {
+    private final Writer out;
+    private final CompletableFuture<Long> done = new CompletableFuture<>();
+    private Flow.Subscription subscription;
+    private long characters;
+
+    /**
+     * @param out where the text is written. It is flushed at the end, but not closed.
+     */
+    public WriterSink(Writer out) {
+        this.out = out;
+    }
+
+    @Override public void onSubscribe(Flow.Subscription subscription) {
+        this.subscription = subscription;
+        subscription.request(1);
+    }
+
+    @Override public void onNext(String text) {
+        if (done.isDone()) return;
+        try {
+            out.write(text);
+        } catch (IOException e) {
+            subscription.cancel();
+            done.completeExceptionally(e);
+            return;
+        }
+        characters += text.length();
+        subscription.request(1);
+    }
+
+    @Override public void onError(Throwable throwable) {
+        done.completeExceptionally(throwable);
+    }
+
+    @Override public void onComplete() {
+        try {
+            out.flush();
+            done.complete(characters);
+        } catch (IOException e) {
+            done.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * @return completes with the number of characters written once the pipeline has finished, or with the failure
+     *    that ended it.
+     */
+    public CompletableFuture<Long> getDone() { return done; }
+}
@@ -7,14 +7,14 @@ import javafx.scene.shape.Line;
 
 /**
  * A directed arrow shape for the visual graph.
+ * The head of the arrow is recomputed at most once per pulse, during layout, however many of the endpoints change.
  */
 public class Arrow extends Group {
 
-    // the main line of the arrow.
-    private final Line line;
-
-    private static final double arrowLength = 20;
-    private static final double arrowWidth = 7;
+    // the main line of the arrow, and the two lines of its head.
+    private final Line line, arrow1, arrow2;
+    private final double[] head = new double[4];
+    private boolean headDirty = true;
 
     public Arrow() {
         this(new Line(), new Line(), new Line());
@@ -23,48 +23,59 @@ public class Arrow extends Group {
     private Arrow(Line line, Line arrow1, Line arrow2) {
         super(line, arrow1, arrow2);
         this.line = line;
-        InvalidationListener updater = o -> {
-            double ex = getEndX();
-            double ey = getEndY();
-            double sx = getStartX();
-            double sy = getStartY();
+        this.arrow1 = arrow1;
+        this.arrow2 = arrow2;
 
-            arrow1.setEndX(ex);
-            arrow1.setEndY(ey);
-            arrow2.setEndX(ex);
-            arrow2.setEndY(ey);
+        InvalidationListener invalidator = o -> {
+            if (headDirty) return;
+            headDirty = true;
+            requestLayout();
+        };
 
-            if (ex == sx && ey == sy) {
-                // arrow parts of length 0
-                arrow1.setStartX(ex);
-                arrow1.setStartY(ey);
-                arrow2.setStartX(ex);
-                arrow2.setStartY(ey);
-            } else {
-                double factor = arrowLength / Math.hypot(sx-ex, sy-ey);
-                double factorO = arrowWidth / Math.hypot(sx-ex, sy-ey);
+        // add invalidator to properties
+        startXProperty().addListener(invalidator);
+        startYProperty().addListener(invalidator);
+        endXProperty().addListener(invalidator);
+        endYProperty().addListener(invalidator);
+    }
 
-                // part in direction of main line
-                double dx = (sx - ex) * factor;
-                double dy = (sy - ey) * factor;
+    /**
+     * Moves both ends of the arrow at once.
+     * @param startX the x value of the tail of the arrow.
+     * @param startY the y value of the tail of the arrow.
+     * @param endX the x value of the head of the arrow.
+     * @param endY the y value of the head of the arrow.
+     */
+    public void setEndpoints(double startX, double startY, double endX, double endY) {
+        line.setStartX(startX);
+        line.setStartY(startY);
+        line.setEndX(endX);
+        line.setEndY(endY);
+    }
 
-                // part ortogonal to main line
-                double ox = (sx - ex) * factorO;
-                double oy = (sy - ey) * factorO;
+    @Override
+    protected void layoutChildren() {
+        if (headDirty) updateHead();
+        super.layoutChildren();
+    }
 
-                arrow1.setStartX(ex + dx - oy);
-                arrow1.setStartY(ey + dy + ox);
-                arrow2.setStartX(ex + dx + oy);
-                arrow2.setStartY(ey + dy - ox);
-            }
-        };
+    /**
+     * Points the head of the arrow along the current line.
+     */
+    private void updateHead() {
+        headDirty = false;
+        double ex = getEndX();
+        double ey = getEndY();
 
-        // add updater to properties
-        startXProperty().addListener(updater);
-        startYProperty().addListener(updater);
-        endXProperty().addListener(updater);
-        endYProperty().addListener(updater);
-        updater.invalidated(null);
+        ArrowGeometry.arrowHead(getStartX(), getStartY(), ex, ey, head);
+        arrow1.setEndX(ex);
+        arrow1.setEndY(ey);
+        arrow2.setEndX(ex);
+        arrow2.setEndY(ey);
+        arrow1.setStartX(head[0]);
+        arrow1.setStartY(head[1]);
+        arrow2.setStartX(head[2]);
+        arrow2.setStartY(head[3]);
     }
 
     /**
@@ -85,4 +96,4 @@ public class Arrow extends Group {
     private DoubleProperty startYProperty() { return line.startYProperty(); }
     private DoubleProperty endXProperty()   { return line.endXProperty(); }
     private DoubleProperty endYProperty()   { return line.endYProperty(); }
-}
\ No newline at end of file
+}
@@ -0,0 +1,57 @@
+package model.graph;
+
+/**
+ * The geometry of the arrow heads of the graph properties, shared by the visual arrows and the headless renderers.
+ */
+public final class ArrowGeometry {
+    public static final double ARROW_LENGTH = 20;
+    public static final double ARROW_WIDTH = 7;
+    public static final double LOOP_HEAD_SIZE = 10;
+
+    private ArrowGeometry() {}
+
+    /**
+     * Finds the free ends of the two lines of the head of a straight arrow; the other ends meet at (ex, ey).
+     * @param sx the x value of the start of the arrow.
+     * @param sy the y value of the start of the arrow.
+     * @param ex the x value of the end (point) of the arrow.
+     * @param ey the y value of the end (point) of the arrow.
+     * @param out receives x1, y1, x2, y2 of the free ends of the two lines of the head.
+     */
+    public static void arrowHead(double sx, double sy, double ex, double ey, double[] out) {
+        if (ex == sx && ey == sy) {
+            // arrow parts of length 0
+            out[0] = ex;
+            out[1] = ey;
+            out[2] = ex;
+            out[3] = ey;
+            return;
+        }
+        double length = Math.hypot(sx - ex, sy - ey);
+
+        // part in direction of main line
+        double dx = (sx - ex) * ARROW_LENGTH / length;
+        double dy = (sy - ey) * ARROW_LENGTH / length;
+
+        // part ortogonal to main line
+        double ox = (sx - ex) * ARROW_WIDTH / length;
+        double oy = (sy - ey) * ARROW_WIDTH / length;
+
+        out[0] = ex + dx - oy;
+        out[1] = ey + dy + ox;
+        out[2] = ex + dx + oy;
+        out[3] = ey + dy - ox;
+    }
+
+    /**
+     * The x value of the point of the head of a self-referential arrow, which sits on the left of the loop at the
+     *    height of its center; the two lines of the head run down to (x -/+ {@link #LOOP_HEAD_SIZE}, cy +
+     *    {@link #LOOP_HEAD_SIZE}).
+     * @param cx the x value of the center of the loop.
+     * @param rx the horizontal radius of the loop.
+     * @return the x value of the point of the head.
+     */
+    public static double loopHeadX(double cx, double rx) {
+        return (cx - rx / 2) - rx / 2;
+    }
+}
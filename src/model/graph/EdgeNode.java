@@ -0,0 +1,89 @@
+package model.graph;
+
+import javafx.geometry.BoundingBox;
+import javafx.geometry.Bounds;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.control.Label;
+import javafx.scene.layout.Background;
+import javafx.scene.layout.BackgroundFill;
+import javafx.scene.layout.CornerRadii;
+import javafx.scene.layout.StackPane;
+import javafx.scene.paint.Color;
+import model.conceptual.Edge;
+import model.conceptual.Vertex;
+
+/**
+ * The visual element of an Edge on the canvas: an arrow (or a loop, if the property is self-referential) with the name
+ *    of the property on top.
+ */
+public class EdgeNode extends StackPane {
+    private final Edge edge;
+    private final Label name;
+    private final double nameWidth;
+    private Arrow arrow;
+    private SelfReferentialArrow loop;
+
+    public EdgeNode(Edge edge) {
+        this.edge = edge;
+        setLayoutX(edge.getLayoutX());
+        setLayoutY(edge.getLayoutY());
+
+        name = new Label(edge.getName());
+        name.setBackground(new Background(new BackgroundFill(Color.web(Vertex.DEFAULT_FILL), CornerRadii.EMPTY, Insets.EMPTY)));
+        nameWidth = VertexNode.textWidth(edge.getName());
+
+        if (edge.isSelfReferential()) {
+            loop = new SelfReferentialArrow();
+            loop.setMouseTransparent(true);
+
+            getChildren().addAll(loop, name);
+            StackPane.setAlignment(name, Pos.BOTTOM_CENTER);
+        } else {
+            arrow = new Arrow();
+            arrow.setMouseTransparent(true);
+
+            getChildren().addAll(arrow, name);
+        }
+        update();
+    }
+
+    /**
+     * Redraws the arrow between the current positions of the subject and object of the Edge, after either is moved.
+     */
+    public void reroute() {
+        edge.route(nameWidth);
+        update();
+    }
+
+    /**
+     * Moves the arrow and its name to the geometry of the Edge.
+     */
+    private void update() {
+        setLayoutX(edge.getLayoutX());
+        setLayoutY(edge.getLayoutY());
+
+        if (loop != null) {
+            loop.setGeometry(edge.getCenterX(), edge.getCenterY(), edge.getRadiusX(), edge.getRadiusY());
+        } else {
+            arrow.setEndpoints(edge.getStartX(), edge.getStartY(), edge.getEndX(), edge.getEndY());
+        }
+    }
+
+    /**
+     * The bounds of the name of the arrow in the graph are given by the top-left coordinate of the container, plus
+     *    the top-left coordinate of the name, as you can't simply get the coord of the name from the grandparents
+     *    perspective...
+     * @return the bounds of the name.
+     */
+    public Bounds getNameBounds() {
+        return new BoundingBox(
+                getLayoutX() + name.getLayoutX(),
+                getLayoutY() + name.getLayoutY(),
+                name.getWidth(),
+                name.getHeight()
+        );
+    }
+
+    public Edge getEdge() { return edge; }
+}
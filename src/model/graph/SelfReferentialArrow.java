@@ -9,46 +9,72 @@ import javafx.scene.shape.Line;
 
 /**
  * A sort of hacky self-referential arrow that is actually an Ellipse with two pointy bits.
+ * Like an {@link Arrow}, the pointy bits are recomputed at most once per pulse, during layout.
  */
 public class SelfReferentialArrow extends Group {
     private final Ellipse ellipse;
+    private final Line arrow1, arrow2;
+    private boolean headDirty = true;
 
     public SelfReferentialArrow() { this(new Ellipse(), new Line(), new Line()); }
 
     private SelfReferentialArrow(Ellipse ellipse, Line arrow1, Line arrow2){
         super(ellipse, arrow1, arrow2);
         this.ellipse = ellipse;
+        this.arrow1 = arrow1;
+        this.arrow2 = arrow2;
         this.ellipse.setFill(Color.TRANSPARENT);
         this.ellipse.setStroke(Color.BLACK);
 
-        InvalidationListener updater = o -> {
-            double cx = getCenterX();
-            double cy = getCenterY();
-            double rx = getRadiusX();
-            double ry = getRadiusY();
-            double head = (cx - rx / 2) - rx / 2 ;
+        InvalidationListener invalidator = o -> {
+            if (headDirty) return;
+            headDirty = true;
+            requestLayout();
+        };
 
-            ellipse.setCenterX(cx);
-            ellipse.setCenterY(cy);
-            ellipse.setRadiusX(rx);
-            ellipse.setRadiusY(ry);
+        centerXProperty().addListener(invalidator);
+        centerYProperty().addListener(invalidator);
+        radiusXProperty().addListener(invalidator);
+    }
 
-            arrow1.setStartX(head);
-            arrow1.setStartY(cy);
-            arrow1.setEndX(head - 10);
-            arrow1.setEndY(cy + 10);
+    /**
+     * Moves and resizes the loop at once.
+     * @param centerX the x value of the center of the loop.
+     * @param centerY the y value of the center of the loop.
+     * @param radiusX the horizontal radius of the loop.
+     * @param radiusY the vertical radius of the loop.
+     */
+    public void setGeometry(double centerX, double centerY, double radiusX, double radiusY) {
+        ellipse.setCenterX(centerX);
+        ellipse.setCenterY(centerY);
+        ellipse.setRadiusX(radiusX);
+        ellipse.setRadiusY(radiusY);
+    }
 
-            arrow2.setStartX(head);
-            arrow2.setStartY(cy);
-            arrow2.setEndX(head +  10);
-            arrow2.setEndY(cy + 10);
-        };
+    @Override
+    protected void layoutChildren() {
+        if (headDirty) updateHead();
+        super.layoutChildren();
+    }
+
+    /**
+     * Places the pointy bits on the left of the loop.
+     */
+    private void updateHead() {
+        headDirty = false;
+        double cy = getCenterY();
+        double head = ArrowGeometry.loopHeadX(getCenterX(), getRadiusX());
+        double size = ArrowGeometry.LOOP_HEAD_SIZE;
+
+        arrow1.setStartX(head);
+        arrow1.setStartY(cy);
+        arrow1.setEndX(head - size);
+        arrow1.setEndY(cy + size);
 
-        centerXProperty().addListener(updater);
-        centerYProperty().addListener(updater);
-        radiusXProperty().addListener(updater);
-        radiusYProperty().addListener(updater);
-        updater.invalidated(null);
+        arrow2.setStartX(head);
+        arrow2.setStartY(cy);
+        arrow2.setEndX(head + size);
+        arrow2.setEndY(cy + size);
     }
 
     /**
@@ -67,5 +93,4 @@ public class SelfReferentialArrow extends Group {
     private DoubleProperty centerXProperty() { return ellipse.centerXProperty(); }
     private DoubleProperty centerYProperty() { return ellipse.centerYProperty(); }
     private DoubleProperty radiusXProperty() { return ellipse.radiusXProperty(); }
-    private DoubleProperty radiusYProperty() { return ellipse.radiusYProperty(); }
 }
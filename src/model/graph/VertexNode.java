@@ -0,0 +1,64 @@
+package model.graph;
+
+import javafx.scene.layout.StackPane;
+import javafx.scene.paint.Color;
+import javafx.scene.shape.Ellipse;
+import javafx.scene.shape.Rectangle;
+import javafx.scene.shape.Shape;
+import javafx.scene.text.Text;
+import model.conceptual.Class;
+import model.conceptual.Vertex;
+
+import static model.conceptual.Vertex.GraphElemType.INSTANCE_CLASS;
+import static model.conceptual.Vertex.GraphElemType.INSTANCE_LITERAL;
+
+/**
+ * The visual element of a Vertex on the canvas: an ellipse for a Class or a rectangle for a Literal (dashed if it is
+ *    a placeholder for instance-level data), with the name of the Vertex on top.
+ */
+public class VertexNode extends StackPane {
+    private final Vertex vertex;
+
+    public VertexNode(Vertex vertex) {
+        this.vertex = vertex;
+        update();
+
+        Shape shape;
+        boolean isPlaceholder;
+        if (vertex instanceof Class) {
+            Class klass = (Class) vertex;
+            shape = new Ellipse(klass.getRadiusX(), klass.getRadiusY());
+            isPlaceholder = klass.getElementType() == INSTANCE_CLASS;
+        } else {
+            shape = new Rectangle(vertex.getWidth(), vertex.getHeight());
+            isPlaceholder = vertex.getElementType() == INSTANCE_LITERAL;
+        }
+        shape.setFill(Color.web(vertex.getFill()));
+        shape.setStroke(Color.BLACK);
+        if (isPlaceholder) shape.getStrokeDashArray().addAll(10d, 10d);
+
+        // blank nodes are drawn without a name, as their generated names mean nothing to the user.
+        boolean isBlank = vertex instanceof Class && ((Class) vertex).isBlank();
+        Text name = new Text(isBlank ? "" : vertex.getName());
+
+        getChildren().addAll(shape, name);
+    }
+
+    /**
+     * Moves the node to the current position of its Vertex.
+     */
+    public void update() {
+        setLayoutX(vertex.getLayoutX());
+        setLayoutY(vertex.getLayoutY());
+    }
+
+    /**
+     * @param text some text.
+     * @return the width of the text when drawn on the canvas.
+     */
+    public static double textWidth(String text) {
+        return new Text(text).getBoundsInLocal().getWidth();
+    }
+
+    public Vertex getVertex() { return vertex; }
+}
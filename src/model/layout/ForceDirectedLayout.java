@@ -0,0 +1,231 @@
+package model.layout;
+
+import model.conceptual.Edge;
+import model.conceptual.Vertex;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Lays out a graph by simulating its Vertices as charged particles that repel each other, and its Edges as springs
+ *    that pull the Vertices they join together (after Fruchterman and Reingold). The repulsion between every pair of
+ *    Vertices is approximated with a Barnes-Hut {@link QuadTree} and computed across all cores with fork/join.
+ * The layout runs over its own copy of the positions, one {@link #step()} at a time, so it can be run in the
+ *    background and its progress shown with {@link #getPositions()} and {@link #apply(double[])} as it goes.
+ */
+public class ForceDirectedLayout {
+    // the distance the springs settle at, comfortably more than the width of a class.
+    private static final double IDEAL_EDGE_LENGTH = 250;
+    private static final double GRAVITY = 0.01;
+    private static final double COOLING = 0.97;
+
+    // the accuracy of the repulsion (see QuadTree.repel): coarse while the Vertices still move further than a short
+    //    edge each step, as the error is lost in the move, and finer as the layout settles. It stops once no Vertex
+    //    moves more than a pixel or two.
+    private static final double HOT_THETA = 1.5;
+    private static final double THETA = 1.0;
+    private static final double HOT_TEMPERATURE = IDEAL_EDGE_LENGTH / 5;
+    private static final double MIN_TEMPERATURE = 2.5;
+    private static final int MAX_ITERATIONS = 500;
+
+    // the space left between the laid-out graph and the top and left edges of the canvas.
+    private static final double MARGIN = 50;
+
+    // below this many vertices, the repulsion is computed on the calling thread.
+    private static final int PARALLEL_THRESHOLD = 512;
+
+    private final List<Vertex> vertices;
+    private final int n;
+    private final int[] edgeFrom, edgeTo;
+    private final double[] x, y, dispX, dispY;
+    private final QuadTree tree;
+
+    private double temperature;
+    private int iteration;
+
+    /**
+     * @param vertices the Vertices to lay out; their current positions are the starting point, except for those still
+     *                 at the top-left corner of the canvas, which are scattered at random.
+     * @param edges the Edges between the Vertices.
+     */
+    public ForceDirectedLayout(List<Vertex> vertices, List<Edge> edges) {
+        this.vertices = vertices;
+        this.n = vertices.size();
+        this.x = new double[n];
+        this.y = new double[n];
+        this.dispX = new double[n];
+        this.dispY = new double[n];
+        this.tree = new QuadTree(n);
+
+        Map<Vertex, Integer> indices = new IdentityHashMap<>(n);
+        Random random = new Random(n);
+        double spread = IDEAL_EDGE_LENGTH * Math.sqrt(n);
+        for (int i = 0; i < n; i++) {
+            Vertex v = vertices.get(i);
+            indices.put(v, i);
+            if (v.getLayoutX() == 0 && v.getLayoutY() == 0) {
+                x[i] = random.nextDouble() * spread;
+                y[i] = random.nextDouble() * spread;
+            } else {
+                x[i] = v.getLayoutX() + v.getWidth() / 2;
+                y[i] = v.getLayoutY() + v.getHeight() / 2;
+            }
+        }
+
+        int springs = 0;
+        int[] from = new int[edges.size()], to = new int[edges.size()];
+        for (Edge e : edges) {
+            Integer s = indices.get(e.getSubject()), o = indices.get(e.getObject());
+            if (s == null || o == null || s.equals(o)) continue;
+            from[springs] = s;
+            to[springs] = o;
+            springs++;
+        }
+        this.edgeFrom = Arrays.copyOf(from, springs);
+        this.edgeTo = Arrays.copyOf(to, springs);
+
+        this.temperature = IDEAL_EDGE_LENGTH * Math.max(1, Math.sqrt(n) / 4);
+    }
+
+    /**
+     * Runs the layout until it settles.
+     */
+    public void run() {
+        while (step()) ;
+    }
+
+    /**
+     * Moves every Vertex once, by the forces on it, limited by the current temperature, which then cools.
+     * @return whether the layout should keep going, or has settled.
+     */
+    public boolean step() {
+        if (!isRunning()) return false;
+
+        Arrays.fill(dispX, 0);
+        Arrays.fill(dispY, 0);
+
+        tree.build(x, y, n);
+        if (n < PARALLEL_THRESHOLD) new Repulsion(0, n).compute();
+        else ForkJoinPool.commonPool().invoke(new Repulsion(0, n));
+
+        double k = IDEAL_EDGE_LENGTH;
+        for (int e = 0; e < edgeFrom.length; e++) {
+            int s = edgeFrom[e], o = edgeTo[e];
+            double dx = x[s] - x[o], dy = y[s] - y[o];
+            double d = Math.sqrt(dx * dx + dy * dy);
+            double f = d / k;
+            dispX[s] -= dx * f;
+            dispY[s] -= dy * f;
+            dispX[o] += dx * f;
+            dispY[o] += dy * f;
+        }
+
+        double meanX = 0, meanY = 0;
+        for (int i = 0; i < n; i++) {
+            meanX += x[i];
+            meanY += y[i];
+        }
+        meanX /= n;
+        meanY /= n;
+
+        for (int i = 0; i < n; i++) {
+            double dx = dispX[i] - (x[i] - meanX) * GRAVITY * k;
+            double dy = dispY[i] - (y[i] - meanY) * GRAVITY * k;
+            double length = Math.sqrt(dx * dx + dy * dy);
+            if (length > 0) {
+                double move = Math.min(length, temperature) / length;
+                x[i] += dx * move;
+                y[i] += dy * move;
+            }
+        }
+
+        temperature *= COOLING;
+        iteration++;
+        return isRunning();
+    }
+
+    /**
+     * @return whether the layout has yet to settle.
+     */
+    public boolean isRunning() {
+        return n > 1 && iteration < MAX_ITERATIONS && temperature > MIN_TEMPERATURE;
+    }
+
+    /**
+     * @return a copy of the current positions of the centers of the Vertices, as x, y pairs in the order the Vertices
+     *    were given.
+     */
+    public double[] getPositions() {
+        double[] positions = new double[n * 2];
+        for (int i = 0; i < n; i++) {
+            positions[i * 2] = x[i];
+            positions[i * 2 + 1] = y[i];
+        }
+        return positions;
+    }
+
+    /**
+     * Moves the Vertices to the current positions of the layout.
+     */
+    public void apply() { apply(getPositions()); }
+
+    /**
+     * Moves the Vertices to the given positions, as the top-left corners of their shapes that a .gat file saves,
+     *    shifted so the graph starts just inside the top-left corner of the canvas. The Edges are left to be rerouted
+     *    by the caller.
+     * @param positions the centers of the Vertices, as returned by {@link #getPositions()}.
+     */
+    public void apply(double[] positions) {
+        double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < n; i++) {
+            Vertex v = vertices.get(i);
+            minX = Math.min(minX, positions[i * 2] - v.getWidth() / 2);
+            minY = Math.min(minY, positions[i * 2 + 1] - v.getHeight() / 2);
+        }
+        for (int i = 0; i < n; i++) {
+            Vertex v = vertices.get(i);
+            v.setLayout(
+                    positions[i * 2] - v.getWidth() / 2 - minX + MARGIN,
+                    positions[i * 2 + 1] - v.getHeight() / 2 - minY + MARGIN
+            );
+        }
+    }
+
+    /**
+     * Computes the repulsion on a range of the Vertices, splitting the range across the fork/join pool.
+     */
+    private final class Repulsion extends RecursiveAction {
+        private final int from, to;
+
+        Repulsion(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > PARALLEL_THRESHOLD) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new Repulsion(from, mid), new Repulsion(mid, to));
+                return;
+            }
+
+            double strength = IDEAL_EDGE_LENGTH * IDEAL_EDGE_LENGTH;
+            double theta = temperature > HOT_TEMPERATURE ? HOT_THETA : THETA;
+            int[] stack = new int[QuadTree.stackSize()];
+            double[] force = new double[2];
+            for (int i = from; i < to; i++) {
+                force[0] = 0;
+                force[1] = 0;
+                tree.repel(i, theta, strength, stack, force);
+                dispX[i] += force[0];
+                dispY[i] += force[1];
+            }
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package model.layout;
+
+import java.util.Arrays;
+
+/**
+ * A Barnes-Hut quadtree over a set of points, used to approximate the repulsion between every pair of points in
+ *    O(n log n): a far-away cell of the tree repels as a single point at its center of mass.
+ * The cells are kept in flat arrays, so the tree can be rebuilt every iteration without allocating, and read from
+ *    many threads at once once it is built.
+ */
+final class QuadTree {
+    // coincident points would subdivide forever; past this depth they share a cell instead.
+    private static final int MAX_DEPTH = 32;
+
+    // the contents of a leaf cell: nothing, or several points sharing a cell at MAX_DEPTH. Otherwise it is the index
+    //    of its single point, or INTERNAL if the cell has children.
+    private static final int EMPTY = -1;
+    private static final int MANY = -2;
+    private static final int INTERNAL = -3;
+
+    private double[] minX, minY, size, sumX, sumY, comX, comY;
+    private int[] mass, firstChild, body;
+    private int cells;
+
+    private double[] x, y;
+
+    QuadTree(int capacity) {
+        allocate(Math.max(16, capacity * 2));
+    }
+
+    /**
+     * Rebuilds the tree over the given points.
+     * @param x the x values of the points.
+     * @param y the y values of the points.
+     * @param n the number of points.
+     */
+    void build(double[] x, double[] y, int n) {
+        this.x = x;
+        this.y = y;
+
+        double loX = Double.POSITIVE_INFINITY, loY = Double.POSITIVE_INFINITY;
+        double hiX = Double.NEGATIVE_INFINITY, hiY = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < n; i++) {
+            loX = Math.min(loX, x[i]);
+            loY = Math.min(loY, y[i]);
+            hiX = Math.max(hiX, x[i]);
+            hiY = Math.max(hiY, y[i]);
+        }
+
+        cells = 0;
+        newCell(loX, loY, Math.max(Math.max(hiX - loX, hiY - loY), 1) * 1.0001);
+        for (int i = 0; i < n; i++) insert(i);
+
+        // the centers of mass are divided out once here, rather than by every point that visits the cell.
+        for (int cell = 0; cell < cells; cell++) {
+            int m = mass[cell];
+            comX[cell] = m == 0 ? 0 : sumX[cell] / m;
+            comY[cell] = m == 0 ? 0 : sumY[cell] / m;
+        }
+    }
+
+    /**
+     * Adds the repulsion of every other point on point i to out, where the repulsion between two points is
+     *    strength / distance along the line between them.
+     * @param i the point being repelled.
+     * @param theta the accuracy of the approximation: a cell is treated as a single point if its size is less than
+     *              theta times its distance from point i. 0 is exact.
+     * @param strength the repulsion between two points one unit apart.
+     * @param stack room for the cells still to visit, at least {@link #stackSize()} long.
+     * @param out the x and y displacement of the point, added to.
+     */
+    void repel(int i, double theta, double strength, int[] stack, double[] out) {
+        double px = x[i], py = y[i];
+        double theta2 = theta * theta;
+        double fx = 0, fy = 0;
+        int top = 0;
+        stack[top++] = 0;
+
+        while (top > 0) {
+            int cell = stack[--top];
+            int m = mass[cell];
+            if (m == 0 || body[cell] == i) continue;
+
+            double cx = comX[cell], cy = comY[cell];
+            boolean isLeaf = firstChild[cell] < 0;
+            if (isLeaf && body[cell] == MANY && contains(cell, px, py)) {
+                // the point shares this cell with the others, so leave itself out of the cell.
+                m -= 1;
+                if (m == 0) continue;
+                cx = (sumX[cell] - px) / m;
+                cy = (sumY[cell] - py) / m;
+            }
+
+            double dx = px - cx, dy = py - cy;
+            double d2 = dx * dx + dy * dy;
+            if (isLeaf || size[cell] * size[cell] < theta2 * d2) {
+                if (d2 < 1e-6) {
+                    // coincident points are pushed apart in a direction that differs from point to point.
+                    dx = Math.cos(i);
+                    dy = Math.sin(i);
+                    d2 = 1;
+                }
+                double f = strength * m / d2;
+                fx += dx * f;
+                fy += dy * f;
+            } else {
+                int c = firstChild[cell];
+                stack[top++] = c;
+                stack[top++] = c + 1;
+                stack[top++] = c + 2;
+                stack[top++] = c + 3;
+            }
+        }
+        out[0] += fx;
+        out[1] += fy;
+    }
+
+    /**
+     * @return the length of the stack needed to walk the tree in {@link #repel}.
+     */
+    static int stackSize() { return 3 * MAX_DEPTH + 4; }
+
+    private void insert(int b) {
+        int cell = 0;
+        for (int depth = 0; ; depth++) {
+            mass[cell]++;
+            sumX[cell] += x[b];
+            sumY[cell] += y[b];
+
+            if (firstChild[cell] < 0) {
+                if (body[cell] == EMPTY) {
+                    body[cell] = b;
+                    return;
+                }
+                if (depth >= MAX_DEPTH) {
+                    body[cell] = MANY;
+                    return;
+                }
+                int old = body[cell];
+                subdivide(cell);
+                pushDown(childFor(cell, x[old], y[old]), old);
+            }
+            cell = childFor(cell, x[b], y[b]);
+        }
+    }
+
+    /**
+     * Inserts a point into a cell below the one it was in, where the cells above already count it.
+     */
+    private void pushDown(int cell, int b) {
+        mass[cell]++;
+        sumX[cell] += x[b];
+        sumY[cell] += y[b];
+        body[cell] = b;
+    }
+
+    private void subdivide(int cell) {
+        double half = size[cell] / 2;
+        int first = newCell(minX[cell], minY[cell], half);
+        newCell(minX[cell] + half, minY[cell], half);
+        newCell(minX[cell], minY[cell] + half, half);
+        newCell(minX[cell] + half, minY[cell] + half, half);
+        firstChild[cell] = first;
+        body[cell] = INTERNAL;
+    }
+
+    private int childFor(int cell, double px, double py) {
+        double half = size[cell] / 2;
+        int quadrant = (px >= minX[cell] + half ? 1 : 0) + (py >= minY[cell] + half ? 2 : 0);
+        return firstChild[cell] + quadrant;
+    }
+
+    private boolean contains(int cell, double px, double py) {
+        return px >= minX[cell] && px <= minX[cell] + size[cell] && py >= minY[cell] && py <= minY[cell] + size[cell];
+    }
+
+    private int newCell(double cellX, double cellY, double cellSize) {
+        if (cells == mass.length) allocate(cells * 2);
+        int cell = cells++;
+        minX[cell] = cellX;
+        minY[cell] = cellY;
+        size[cell] = cellSize;
+        sumX[cell] = 0;
+        sumY[cell] = 0;
+        mass[cell] = 0;
+        firstChild[cell] = -1;
+        body[cell] = EMPTY;
+        return cell;
+    }
+
+    private void allocate(int capacity) {
+        minX = minX == null ? new double[capacity] : Arrays.copyOf(minX, capacity);
+        minY = minY == null ? new double[capacity] : Arrays.copyOf(minY, capacity);
+        size = size == null ? new double[capacity] : Arrays.copyOf(size, capacity);
+        sumX = sumX == null ? new double[capacity] : Arrays.copyOf(sumX, capacity);
+        sumY = sumY == null ? new double[capacity] : Arrays.copyOf(sumY, capacity);
+        comX = comX == null ? new double[capacity] : Arrays.copyOf(comX, capacity);
+        comY = comY == null ? new double[capacity] : Arrays.copyOf(comY, capacity);
+        mass = mass == null ? new int[capacity] : Arrays.copyOf(mass, capacity);
+        firstChild = firstChild == null ? new int[capacity] : Arrays.copyOf(firstChild, capacity);
+        body = body == null ? new int[capacity] : Arrays.copyOf(body, capacity);
+    }
+}
@@ -0,0 +1,137 @@
+package model.rendering;
+
+import model.conceptual.Class;
+import model.conceptual.Edge;
+import model.conceptual.Literal;
+import model.conceptual.Vertex;
+import model.graph.ArrowGeometry;
+
+import java.io.IOException;
+import java.util.List;
+
+import static model.conceptual.Vertex.GraphElemType.INSTANCE_CLASS;
+import static model.conceptual.Vertex.GraphElemType.INSTANCE_LITERAL;
+
+/**
+ * Draws the conceptual graph straight from its Vertices and Edges, without going through the JavaFX scene graph.
+ * Properties are drawn first, so that they sit below the Classes and Literals, as they do on the canvas.
+ * A renderer draws a single image, but any number of renderers can run in parallel over the same graph.
+ */
+public abstract class GraphRenderer {
+    static final String FONT_FAMILY = "SansSerif";
+    static final int FONT_SIZE = 13;
+
+    private final double[] head = new double[4];
+
+    /**
+     * Draws the properties, and then the classes and literals, of the graph.
+     * @param classes the Classes and Literals of the graph.
+     * @param properties the properties of the graph.
+     * @throws IOException if the output of the renderer can not be written.
+     */
+    public void render(List<Vertex> classes, List<Edge> properties) throws IOException {
+        for (Edge property : properties) {
+            if (property.isSelfReferential()) renderSelfReferentialProperty(property);
+            else renderNormalProperty(property);
+        }
+        for (Vertex vertex : classes) {
+            if (vertex instanceof Class) renderClass((Class) vertex);
+            else renderLiteral((Literal) vertex);
+        }
+    }
+
+    /**
+     * Draws a straight property arrow, with its name in the middle of the arrow.
+     * @param property the property to draw.
+     * @throws IOException if the output of the renderer can not be written.
+     */
+    private void renderNormalProperty(Edge property) throws IOException {
+        double sx = property.getStartX(), sy = property.getStartY(), ex = property.getEndX(), ey = property.getEndY();
+
+        if (!isVisible(Math.min(sx, ex), Math.min(sy, ey), Math.max(sx, ex), Math.max(sy, ey))) return;
+
+        ArrowGeometry.arrowHead(sx, sy, ex, ey, head);
+        drawLine(sx, sy, ex, ey);
+        drawLine(head[0], head[1], ex, ey);
+        drawLine(head[2], head[3], ex, ey);
+        drawText(property.getName(), (sx + ex) / 2, (sy + ey) / 2, true);
+    }
+
+    /**
+     * Draws a self-referential property loop, with its name below the loop.
+     * @param property the property to draw.
+     * @throws IOException if the output of the renderer can not be written.
+     */
+    private void renderSelfReferentialProperty(Edge property) throws IOException {
+        double cx = property.getCenterX(), cy = property.getCenterY();
+        double rx = property.getRadiusX(), ry = property.getRadiusY();
+
+        if (!isVisible(cx - rx, cy - ry, cx + rx, cy + ry + FONT_SIZE * 2)) return;
+
+        double headX = ArrowGeometry.loopHeadX(cx, rx);
+        double size = ArrowGeometry.LOOP_HEAD_SIZE;
+        drawEllipse(cx, cy, rx, ry, null, false);
+        drawLine(headX, cy, headX - size, cy + size);
+        drawLine(headX, cy, headX + size, cy + size);
+        drawText(property.getName(), cx, cy + ry + FONT_SIZE / 2.0, true);
+    }
+
+    /**
+     * Draws a Class as an ellipse, dashed if it is an instance-level placeholder. The ellipse of a Class is
+     *    positioned by the top-left corner of its bounds.
+     * @param klass the Class to draw.
+     * @throws IOException if the output of the renderer can not be written.
+     */
+    private void renderClass(Class klass) throws IOException {
+        double rx = klass.getRadiusX(), ry = klass.getRadiusY();
+        double cx = klass.getLayoutX() + rx, cy = klass.getLayoutY() + ry;
+
+        if (!isVisible(cx - rx, cy - ry, cx + rx, cy + ry)) return;
+
+        drawEllipse(cx, cy, rx, ry, klass.getFill(), klass.getElementType() == INSTANCE_CLASS);
+        if (!klass.isBlank()) drawText(klass.getName(), cx, cy, false);
+    }
+
+    /**
+     * Draws a Literal as a rectangle, dashed if it is an instance-level placeholder.
+     * @param literal the Literal to draw.
+     * @throws IOException if the output of the renderer can not be written.
+     */
+    private void renderLiteral(Literal literal) throws IOException {
+        double x = literal.getLayoutX(), y = literal.getLayoutY(), w = literal.getWidth(), h = literal.getHeight();
+
+        if (!isVisible(x, y, x + w, y + h)) return;
+
+        drawRectangle(x, y, w, h, literal.getFill(), literal.getElementType() == INSTANCE_LITERAL);
+        drawText(literal.getName(), x + w / 2, y + h / 2, false);
+    }
+
+    /**
+     * Splits a fill of the form 0xrrggbbaa (or #rrggbb) into its components.
+     * @param fill the fill.
+     * @return the red, green, blue and alpha components of the fill, each between 0 and 255.
+     */
+    static int[] parseFill(String fill) {
+        String hex = fill.startsWith("0x") ? fill.substring(2) : fill.startsWith("#") ? fill.substring(1) : fill;
+        if (hex.length() == 6) hex += "ff";
+        long rgba = Long.parseLong(hex, 16);
+
+        return new int[]{(int) (rgba >> 24) & 0xff, (int) (rgba >> 16) & 0xff, (int) (rgba >> 8) & 0xff, (int) rgba & 0xff};
+    }
+
+    /**
+     * Whether anything within the given bounds would be drawn, so elements outside of the area being rendered can be
+     *    skipped. Everything is drawn by default.
+     */
+    protected boolean isVisible(double minX, double minY, double maxX, double maxY) { return true; }
+
+    /**
+     * Drawing primitives, in the coordinates of the canvas.
+     */
+    protected abstract void drawLine(double x1, double y1, double x2, double y2) throws IOException;
+    protected abstract void drawEllipse(double cx, double cy, double rx, double ry, String fill, boolean dashed)
+            throws IOException;
+    protected abstract void drawRectangle(double x, double y, double w, double h, String fill, boolean dashed)
+            throws IOException;
+    protected abstract void drawText(String text, double cx, double cy, boolean withBackground) throws IOException;
+}
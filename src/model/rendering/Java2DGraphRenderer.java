@@ -0,0 +1,147 @@
+package model.rendering;
+
+import model.conceptual.Edge;
+import model.conceptual.Vertex;
+import model.conversion.png.PngWriter;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.Stroke;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Line2D;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+/**
+ * Draws the conceptual graph with Java2D, which needs neither a JavaFX scene nor a display, so it can run in batch jobs
+ *    and on servers.
+ */
+public class Java2DGraphRenderer extends GraphRenderer {
+    // the height of the strips the image is drawn in, so only one strip of the image is held in memory at a time.
+    private static final int BAND_HEIGHT = 512;
+
+    private static final Color BACKGROUND = Color.WHITE;
+    private static final Color LABEL_BACKGROUND = new Color(0xf4, 0xf4, 0xf4);
+    private static final Stroke SOLID = new BasicStroke(1);
+    private static final Stroke DASHED =
+            new BasicStroke(1, BasicStroke.CAP_SQUARE, BasicStroke.JOIN_MITER, 10, new float[]{10, 10}, 0);
+
+    private final Graphics2D g;
+    private final double clipMinY, clipMaxY;
+    private final Line2D.Double line = new Line2D.Double();
+    private final Ellipse2D.Double ellipse = new Ellipse2D.Double();
+    private final Rectangle2D.Double rectangle = new Rectangle2D.Double();
+
+    /**
+     * @param g the graphics to draw to, already transformed into the coordinates of the canvas.
+     * @param clipMinY the top of the area of the canvas being drawn; elements entirely above it are skipped.
+     * @param clipMaxY the bottom of the area of the canvas being drawn; elements entirely below it are skipped.
+     */
+    public Java2DGraphRenderer(Graphics2D g, double clipMinY, double clipMaxY) {
+        this.g = g;
+        this.clipMinY = clipMinY;
+        this.clipMaxY = clipMaxY;
+
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        g.setFont(new Font(FONT_FAMILY, Font.PLAIN, FONT_SIZE));
+    }
+
+    /**
+     * Draws the graph to a .png image, in bands of {@link #BAND_HEIGHT} rows streamed through a {@link PngWriter}.
+     * @param classes the Classes and Literals of the graph.
+     * @param properties the properties of the graph.
+     * @param width the width of the canvas.
+     * @param height the height of the canvas.
+     * @param scale the number of image pixels per unit of the canvas.
+     * @param out the stream to write the image to, which is closed once the image is written.
+     * @throws IOException if the image can not be written.
+     */
+    public static void writePng(List<Vertex> classes, List<Edge> properties, double width, double height, double scale,
+                                OutputStream out) throws IOException {
+        int pixelWidth  = (int) Math.ceil(width * scale);
+        int pixelHeight = (int) Math.ceil(height * scale);
+        BufferedImage band = new BufferedImage(pixelWidth, Math.min(BAND_HEIGHT, pixelHeight), BufferedImage.TYPE_INT_ARGB);
+        int[] pixels = ((DataBufferInt) band.getRaster().getDataBuffer()).getData();
+
+        try (PngWriter writer = new PngWriter(out, pixelWidth, pixelHeight)) {
+            for (int bandY = 0; bandY < pixelHeight; bandY += BAND_HEIGHT) {
+                int bandHeight = Math.min(BAND_HEIGHT, pixelHeight - bandY);
+                Graphics2D g = band.createGraphics();
+                try {
+                    g.setColor(BACKGROUND);
+                    g.fillRect(0, 0, pixelWidth, band.getHeight());
+                    g.translate(0, -bandY);
+                    g.scale(scale, scale);
+                    new Java2DGraphRenderer(g, bandY / scale, (bandY + bandHeight) / scale).render(classes, properties);
+                } finally {
+                    g.dispose();
+                }
+                for (int row = 0; row < bandHeight; row++) writer.writeRow(pixels, row * pixelWidth);
+            }
+        }
+    }
+
+    @Override
+    protected boolean isVisible(double minX, double minY, double maxX, double maxY) {
+        return maxY + FONT_SIZE >= clipMinY && minY - FONT_SIZE <= clipMaxY;
+    }
+
+    @Override
+    protected void drawLine(double x1, double y1, double x2, double y2) {
+        line.setLine(x1, y1, x2, y2);
+        g.setStroke(SOLID);
+        g.setColor(Color.BLACK);
+        g.draw(line);
+    }
+
+    @Override
+    protected void drawEllipse(double cx, double cy, double rx, double ry, String fill, boolean dashed) {
+        ellipse.setFrame(cx - rx, cy - ry, rx * 2, ry * 2);
+        if (fill != null) {
+            g.setColor(toColor(fill));
+            g.fill(ellipse);
+        }
+        g.setStroke(dashed ? DASHED : SOLID);
+        g.setColor(Color.BLACK);
+        g.draw(ellipse);
+    }
+
+    @Override
+    protected void drawRectangle(double x, double y, double w, double h, String fill, boolean dashed) {
+        rectangle.setRect(x, y, w, h);
+        g.setColor(toColor(fill));
+        g.fill(rectangle);
+        g.setStroke(dashed ? DASHED : SOLID);
+        g.setColor(Color.BLACK);
+        g.draw(rectangle);
+    }
+
+    @Override
+    protected void drawText(String text, double cx, double cy, boolean withBackground) {
+        FontMetrics metrics = g.getFontMetrics();
+        double width = metrics.stringWidth(text);
+        double x = cx - width / 2;
+
+        if (withBackground) {
+            rectangle.setRect(x, cy - metrics.getHeight() / 2.0, width, metrics.getHeight());
+            g.setColor(LABEL_BACKGROUND);
+            g.fill(rectangle);
+        }
+        g.setColor(Color.BLACK);
+        g.drawString(text, (float) x, (float) (cy + (metrics.getAscent() - metrics.getDescent()) / 2.0));
+    }
+
+    private static Color toColor(String fill) {
+        int[] rgba = parseFill(fill);
+        return new Color(rgba[0], rgba[1], rgba[2], rgba[3]);
+    }
+}
@@ -0,0 +1,158 @@
+package model.rendering;
+
+import model.conceptual.Edge;
+import model.conceptual.Vertex;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+
+/**
+ * Writes the conceptual graph as an .svg document, one element at a time, straight to the output.
+ */
+public class SvgGraphRenderer extends GraphRenderer {
+    private final Writer out;
+
+    private SvgGraphRenderer(Writer out) {
+        this.out = out;
+    }
+
+    /**
+     * Writes the graph as a standalone .svg document.
+     * @param classes the Classes and Literals of the graph.
+     * @param properties the properties of the graph.
+     * @param width the width of the canvas.
+     * @param height the height of the canvas.
+     * @param out the writer to write the document to. It is flushed, but not closed.
+     * @throws IOException if the document can not be written.
+     */
+    public static void writeSvg(List<Vertex> classes, List<Edge> properties, double width, double height, Writer out)
+            throws IOException {
+        SvgGraphRenderer renderer = new SvgGraphRenderer(out);
+
+        out.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"");
+        renderer.writeNumber(width);
+        out.write("\" height=\"");
+        renderer.writeNumber(height);
+        out.write("\" font-family=\"sans-serif\" font-size=\"" + FONT_SIZE + "\" stroke=\"black\">\n");
+        out.write("<rect width=\"100%\" height=\"100%\" fill=\"white\" stroke=\"none\"/>\n");
+        renderer.render(classes, properties);
+        out.write("</svg>\n");
+        out.flush();
+    }
+
+    @Override
+    protected void drawLine(double x1, double y1, double x2, double y2) throws IOException {
+        out.write("<line x1=\"");
+        writeNumber(x1);
+        out.write("\" y1=\"");
+        writeNumber(y1);
+        out.write("\" x2=\"");
+        writeNumber(x2);
+        out.write("\" y2=\"");
+        writeNumber(y2);
+        out.write("\"/>\n");
+    }
+
+    @Override
+    protected void drawEllipse(double cx, double cy, double rx, double ry, String fill, boolean dashed)
+            throws IOException {
+        out.write("<ellipse cx=\"");
+        writeNumber(cx);
+        out.write("\" cy=\"");
+        writeNumber(cy);
+        out.write("\" rx=\"");
+        writeNumber(rx);
+        out.write("\" ry=\"");
+        writeNumber(ry);
+        writeFill(fill, dashed);
+    }
+
+    @Override
+    protected void drawRectangle(double x, double y, double w, double h, String fill, boolean dashed)
+            throws IOException {
+        out.write("<rect x=\"");
+        writeNumber(x);
+        out.write("\" y=\"");
+        writeNumber(y);
+        out.write("\" width=\"");
+        writeNumber(w);
+        out.write("\" height=\"");
+        writeNumber(h);
+        writeFill(fill, dashed);
+    }
+
+    /**
+     * Draws text centered on (cx, cy). The background of property names is drawn as a thick stroke behind the glyphs,
+     *    so the text never needs to be measured.
+     */
+    @Override
+    protected void drawText(String text, double cx, double cy, boolean withBackground) throws IOException {
+        out.write("<text x=\"");
+        writeNumber(cx);
+        out.write("\" y=\"");
+        writeNumber(cy);
+        out.write("\" text-anchor=\"middle\" dominant-baseline=\"central\" ");
+        out.write(withBackground
+                ? "stroke=\"#f4f4f4\" stroke-width=\"6\" paint-order=\"stroke\" fill=\"black\">"
+                : "stroke=\"none\" fill=\"black\">");
+        writeEscaped(text);
+        out.write("</text>\n");
+    }
+
+    /**
+     * Closes the attributes of a shape with its fill and stroke style.
+     */
+    private void writeFill(String fill, boolean dashed) throws IOException {
+        out.write("\" fill=\"");
+        if (fill == null) out.write("none");
+        else {
+            int[] rgba = parseFill(fill);
+            out.write(String.format("#%02x%02x%02x", rgba[0], rgba[1], rgba[2]));
+            if (rgba[3] != 255) {
+                out.write("\" fill-opacity=\"");
+                writeNumber(rgba[3] / 255.0);
+            }
+        }
+        out.write(dashed ? "\" stroke-dasharray=\"10 10\"/>\n" : "\"/>\n");
+    }
+
+    /**
+     * Writes a coordinate rounded to two decimal places, without trailing zeroes, to keep the document small.
+     */
+    private void writeNumber(double value) throws IOException {
+        long hundredths = Math.round(value * 100);
+        if (hundredths < 0) {
+            out.write('-');
+            hundredths = -hundredths;
+        }
+        out.write(Long.toString(hundredths / 100));
+
+        long fraction = hundredths % 100;
+        if (fraction != 0) {
+            out.write('.');
+            out.write((char) ('0' + fraction / 10));
+            if (fraction % 10 != 0) out.write((char) ('0' + fraction % 10));
+        }
+    }
+
+    /**
+     * Writes text content, escaping the characters that are markup in XML.
+     */
+    private void writeEscaped(String text) throws IOException {
+        int start = 0;
+        for (int i = 0; i < text.length(); i++) {
+            String escaped;
+            switch (text.charAt(i)) {
+                case '&': escaped = "&amp;"; break;
+                case '<': escaped = "&lt;"; break;
+                case '>': escaped = "&gt;"; break;
+                default: continue;
+            }
+            out.write(text, start, i - start);
+            out.write(escaped);
+            start = i + 1;
+        }
+        out.write(text, start, text.length() - start);
+    }
+}
@@ -0,0 +1,168 @@
+package cli;
+
+import model.conceptual.Class;
+import model.conceptual.Edge;
+import model.conceptual.Literal;
+import model.conceptual.Vertex;
+import model.conversion.gat.ToGatConverter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Checks that a generation which fails after its response has begun reaches the client cut off, rather than as a
+ *    whole 200 OK response, while failures before it began are still answered with an error status.
+ * Run with the compiled sources and commons-csv on the class path; exits with status 1 if a check fails:
+ *
+ *    java -cp out:lib/commons-csv-1.6.jar cli.ConversionServerTest
+ */
+public class ConversionServerTest {
+    // enough records that their triples outgrow the response buffer, so the response has begun before the failure.
+    private static final int RECORDS = 20000;
+
+    private static int failures = 0;
+    private static int port;
+
+    public static void main(String[] args) throws Exception {
+        Path directory = Files.createTempDirectory("conversion-server-test");
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        String[] serve = {"serve", "--port", Integer.toString(port), "--prefixes", writePrefixes(directory).toString(),
+                "--profiles", directory.resolve("profiles").toString()};
+        Thread server = new Thread(() -> ConversionServer.run(serve));
+        server.setDaemon(true);
+        server.start();
+        awaitServer();
+
+        String id = new String(post("/graphs", graph()), StandardCharsets.UTF_8).trim();
+
+        check("a whole .csv is generated", () -> {
+            String turtle = new String(post("/generate/" + id, csv(null)), StandardCharsets.UTF_8);
+            return turtle.contains("<http://ex.org/p" + (RECORDS - 1) + ">");
+        });
+        check("a malformed record after the response began cuts it off", () -> isCutOff("/generate/" + id,
+                csv("p,\"unterminated\" quote,1")));
+        check("an invalid value after the response began cuts off a strict generation", () -> isCutOff(
+                "/generate/" + id + "?strict", csv("p,Name,not a number")));
+        check("a malformed record before the response began is answered with 400", () -> status("/generate/" + id,
+                "ex:Person,Person,Age\np,\"unterminated\" quote,1\n".getBytes(StandardCharsets.UTF_8)) == 400);
+
+        System.out.println(failures == 0 ? "All checks passed." : failures + " checks failed.");
+        System.exit(failures == 0 ? 0 : 1);
+    }
+
+    private interface Check {
+        boolean passes() throws Exception;
+    }
+
+    private static void check(String description, Check check) {
+        boolean passed;
+        try {
+            passed = check.passes();
+        } catch (Exception e) {
+            e.printStackTrace();
+            passed = false;
+        }
+        if (!passed) failures++;
+        System.out.println((passed ? "passed: " : "FAILED: ") + description);
+    }
+
+    /**
+     * @return whether the response began with 200 OK, but could not be read to its end.
+     */
+    private static boolean isCutOff(String path, byte[] body) throws IOException {
+        HttpURLConnection connection = open(path, body);
+        if (connection.getResponseCode() != 200) return false;
+        try (InputStream in = connection.getInputStream()) {
+            in.readAllBytes();
+            return false;
+        } catch (IOException e) {
+            return true;
+        }
+    }
+
+    private static int status(String path, byte[] body) throws IOException {
+        HttpURLConnection connection = open(path, body);
+        int status = connection.getResponseCode();
+        connection.disconnect();
+        return status;
+    }
+
+    private static byte[] post(String path, byte[] body) throws IOException {
+        HttpURLConnection connection = open(path, body);
+        if (connection.getResponseCode() != 200)
+            throw new IOException(path + " answered " + connection.getResponseCode());
+        try (InputStream in = connection.getInputStream()) {
+            return in.readAllBytes();
+        }
+    }
+
+    private static HttpURLConnection open(String path, byte[] body) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL("http://127.0.0.1:" + port + path).openConnection();
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        connection.setChunkedStreamingMode(8192);
+        try (OutputStream out = connection.getOutputStream()) {
+            out.write(body);
+        }
+        return connection;
+    }
+
+    /**
+     * @param last a record to end the .csv with, or null for none.
+     * @return a .csv of people, their names and ages.
+     */
+    private static byte[] csv(String last) {
+        StringBuilder csv = new StringBuilder("ex:Person,Person,Age\n");
+        for (int i = 0; i < RECORDS; i++)
+            csv.append('p').append(i).append(",Name ").append(i).append(',').append(i % 90).append('\n');
+        if (last != null) csv.append(last).append('\n');
+        return csv.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] graph() throws Vertex.UndefinedElementTypeException {
+        Class person = new Class("ex:Person", 10, 10, 60, 37.5, true);
+        Literal name = new Literal("Person", 200, 200, 100, 75);
+        Literal age = new Literal("Age", 200, 300, 100, 75, "xsd:integer");
+        ArrayList<Edge> properties = new ArrayList<>();
+        for (Vertex object : Arrays.asList(name, age)) {
+            Edge property = new Edge(object == name ? "ex:name" : "ex:age", person, object);
+            person.addOutgoingEdge(property);
+            object.addIncomingEdge(property);
+            property.route(40);
+            properties.add(property);
+        }
+        return new ToGatConverter(800, 800, new ArrayList<>(Arrays.asList(person, name, age)), properties)
+                .traverseCanvas().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static Path writePrefixes(Path directory) {
+        try {
+            return Files.writeString(directory.resolve("prefixes.txt"), "ex : http://ex.org/\n");
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void awaitServer() throws InterruptedException {
+        for (int attempt = 0; attempt < 100; attempt++) {
+            try (Socket socket = new Socket("127.0.0.1", port)) {
+                return;
+            } catch (IOException e) {
+                Thread.sleep(100);
+            }
+        }
+        throw new IllegalStateException("The server did not start.");
+    }
+}